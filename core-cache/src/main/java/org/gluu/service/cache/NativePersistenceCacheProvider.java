@@ -5,6 +5,7 @@ import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.gluu.persist.PersistenceEntryManager;
+import org.gluu.persist.model.EntryOperationResult;
 import org.gluu.persist.model.base.SimpleBranch;
 import org.gluu.search.filter.Filter;
 import org.slf4j.Logger;
@@ -17,8 +18,17 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 @ApplicationScoped
 public class NativePersistenceCacheProvider extends AbstractCacheProvider<PersistenceEntryManager> {
@@ -38,6 +48,12 @@ public class NativePersistenceCacheProvider extends AbstractCacheProvider<Persis
 
 	private boolean skipRemoveBeforePut;
 
+	private volatile boolean writeBehind;
+	private ScheduledExecutorService writeBehindExecutor;
+	private final Map<String, PendingWrite> pendingWrites = new ConcurrentHashMap<String, PendingWrite>();
+	// Requests are added to queue under read lock. Write-behind is stopped under write lock
+	private final ReadWriteLock writeBehindLock = new ReentrantReadWriteLock();
+
     @PostConstruct
     public void init() {
     }
@@ -71,6 +87,10 @@ public class NativePersistenceCacheProvider extends AbstractCacheProvider<Persis
             // CouchbaseEntryManagerFactory.PERSISTENCE_TYPE
             skipRemoveBeforePut = "couchbase".equals(persistenceType);
 
+            if (cacheConfiguration.getNativePersistenceConfiguration().isWriteBehind()) {
+                startWriteBehind();
+            }
+
             log.info("Created NATIVE_PERSISTENCE cache provider. `baseDn`: " + baseDn);
         } catch (Exception e) {
             log.error("Failed to create NATIVE_PERSISTENCE cache provider.", e);
@@ -86,6 +106,51 @@ public class NativePersistenceCacheProvider extends AbstractCacheProvider<Persis
 
     @Override
     public void destroy() {
+        stopWriteBehind();
+    }
+
+    private void startWriteBehind() {
+        int flushDelay = Math.max(1, cacheConfiguration.getNativePersistenceConfiguration().getWriteBehindFlushDelay());
+
+        writeBehindExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "native-persistence-cache-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writeBehindExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                flushPendingWrites();
+            } catch (Throwable e) {
+                log.error("Failed to flush pending cache writes.", e);
+            }
+        }, flushDelay, flushDelay, TimeUnit.MILLISECONDS);
+        writeBehind = true;
+
+        log.info("Enabled NATIVE_PERSISTENCE cache write-behind with flush delay: " + flushDelay + " ms");
+    }
+
+    private void stopWriteBehind() {
+        if (writeBehindExecutor == null) {
+            return;
+        }
+
+        // Requests which are being added to queue wait for final flush and are
+        // executed synchronously after it
+        writeBehindLock.writeLock().lock();
+        try {
+            writeBehindExecutor.shutdown();
+            try {
+                writeBehindExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writeBehindExecutor = null;
+
+            flushPendingWrites();
+            writeBehind = false;
+        } finally {
+            writeBehindLock.writeLock().unlock();
+        }
     }
 
     @Override
@@ -97,6 +162,12 @@ public class NativePersistenceCacheProvider extends AbstractCacheProvider<Persis
 	public boolean hasKey(String key) {
         try {
             key = hashKey(key);
+
+            PendingWrite pendingWrite = pendingWrites.get(key);
+            if (pendingWrite != null) {
+                return !pendingWrite.isRemove();
+            }
+
             boolean hasKey = entryManager.contains(createDn(key), NativePersistenceCacheEntity.class);
             
 //            log.trace("Contains key in cache, key: " + key + ", dn: " + createDn(key)) + ", contains: " + hasKey);
@@ -113,7 +184,18 @@ public class NativePersistenceCacheProvider extends AbstractCacheProvider<Persis
     public Object get(String key) {
         try {
             key = hashKey(key);
-            NativePersistenceCacheEntity entity = entryManager.find(NativePersistenceCacheEntity.class, createDn(key));
+
+            // Serve entries which are not flushed yet
+            NativePersistenceCacheEntity entity;
+            PendingWrite pendingWrite = pendingWrites.get(key);
+            if (pendingWrite == null) {
+                entity = entryManager.find(NativePersistenceCacheEntity.class, createDn(key));
+            } else if (pendingWrite.isRemove()) {
+                return null;
+            } else {
+                entity = pendingWrite.getEntity();
+            }
+
             if (entity != null && entity.getData() != null) {
                 if (isExpired(entity.getExpirationDate()) && entity.isDeletable()) {
                     log.trace("Cache entity exists but expired, return null, expirationDate:" + entity.getExpirationDate() + ", key: " + key);
@@ -169,6 +251,10 @@ public class NativePersistenceCacheProvider extends AbstractCacheProvider<Persis
 			entity.setCreationDate(creationDate);
 			entity.setExpirationDate(expirationDate.getTime());
 			entity.setDeletable(true);
+
+			if (writeBehind && enqueue(new PendingWrite(key, entity, false))) {
+				return;
+			}
 	
 			if (!skipRemoveBeforePut) {
 				silentlyRemoveEntityIfExists(entity.getDn());
@@ -197,11 +283,102 @@ public class NativePersistenceCacheProvider extends AbstractCacheProvider<Persis
 
     @Override
     public void remove(String key) {
+        if (writeBehind) {
+            String hashedKey = hashKey(key);
+
+            NativePersistenceCacheEntity entity = new NativePersistenceCacheEntity();
+            entity.setId(hashedKey);
+            entity.setDn(createDn(hashedKey));
+            if (enqueue(new PendingWrite(hashedKey, entity, true))) {
+                return;
+            }
+        }
+
         if (silentlyRemoveEntityIfExists(createDn(hashKey(key)))) {
             log.trace("Removed entity, key: " + key);
         }
     }
 
+    /*
+     * Add request into write-behind queue. Previous pending request with same key is replaced.
+     * Returns false if queue is full or write-behind was stopped
+     */
+    private boolean enqueue(PendingWrite pendingWrite) {
+        writeBehindLock.readLock().lock();
+        try {
+            if (!writeBehind) {
+                return false;
+            }
+
+            int maxQueueSize = cacheConfiguration.getNativePersistenceConfiguration().getWriteBehindMaxQueueSize();
+            if ((pendingWrites.size() >= maxQueueSize) && !pendingWrites.containsKey(pendingWrite.getKey())) {
+                log.trace("Cache write-behind queue is full, execute request synchronously, hashedKey: " + pendingWrite.getKey());
+                return false;
+            }
+
+            pendingWrites.put(pendingWrite.getKey(), pendingWrite);
+
+            return true;
+        } finally {
+            writeBehindLock.readLock().unlock();
+        }
+    }
+
+    private void flushPendingWrites() {
+        int batchSize = Math.max(1, cacheConfiguration.getNativePersistenceConfiguration().getWriteBehindBatchSize());
+
+        List<PendingWrite> batch = new ArrayList<PendingWrite>(batchSize);
+        for (PendingWrite pendingWrite : pendingWrites.values()) {
+            batch.add(pendingWrite);
+            if (batch.size() >= batchSize) {
+                flushBatch(batch);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            flushBatch(batch);
+        }
+    }
+
+    private void flushBatch(List<PendingWrite> batch) {
+        List<NativePersistenceCacheEntity> entitiesToRemove = new ArrayList<NativePersistenceCacheEntity>(batch.size());
+        List<NativePersistenceCacheEntity> entitiesToPersist = new ArrayList<NativePersistenceCacheEntity>(batch.size());
+        for (PendingWrite pendingWrite : batch) {
+            if (pendingWrite.isRemove()) {
+                entitiesToRemove.add(pendingWrite.getEntity());
+            } else {
+                if (!skipRemoveBeforePut) {
+                    entitiesToRemove.add(pendingWrite.getEntity());
+                }
+                entitiesToPersist.add(pendingWrite.getEntity());
+            }
+        }
+
+        try {
+            if (!entitiesToRemove.isEmpty()) {
+                // Ignore errors, entries might not exist
+                entryManager.removeAll(entitiesToRemove);
+            }
+
+            if (!entitiesToPersist.isEmpty()) {
+                List<EntryOperationResult> results = entryManager.persistAll(entitiesToPersist);
+                for (EntryOperationResult result : results) {
+                    if (!result.isSuccess()) {
+                        log.error("Failed to put entry, dn: " + result.getDn() + ", message: " + result.getError().getMessage(), result.getError());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to flush pending cache writes, batch size: " + batch.size() + ", message: " + e.getMessage(), e);
+        } finally {
+            // Keep requests which were replaced during flush
+            for (PendingWrite pendingWrite : batch) {
+                pendingWrites.remove(pendingWrite.getKey(), pendingWrite);
+            }
+        }
+    }
+
     @Override
     public void clear() {
         // TODO: Implement all specific application objects removal
@@ -283,6 +460,31 @@ public class NativePersistenceCacheProvider extends AbstractCacheProvider<Persis
         this.cacheConfiguration = cacheConfiguration;
     }
     
+    private static class PendingWrite {
+
+        private final String key;
+        private final NativePersistenceCacheEntity entity;
+        private final boolean remove;
+
+        PendingWrite(String key, NativePersistenceCacheEntity entity, boolean remove) {
+            this.key = key;
+            this.entity = entity;
+            this.remove = remove;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public NativePersistenceCacheEntity getEntity() {
+            return entity;
+        }
+
+        public boolean isRemove() {
+            return remove;
+        }
+    }
+
     public static void main(String[] args) {
 		NativePersistenceCacheProvider cp = new NativePersistenceCacheProvider();
 		Object obj = cp.fromString("rO0ABXNyAClvcmcuZ2x1dS5veGF1dGgubW9kZWwuY29tbW9uLkNsaWVudFRva2Vuc/Aib54fThHVAgACTAAIY2xpZW50SWR0ABJMamF2YS9sYW5nL1N0cmluZztMAAt0b2tlbkhhc2hlc3QAD0xqYXZhL3V0aWwvU2V0O3hwdAApMTAwMS45MGQ0MGI2OS02ZDFmLTQxMmYtOTg5ZS00MThmN2E2Y2M1MTNzcgARamF2YS51dGlsLkhhc2hTZXS6RIWVlri3NAMAAHhwdwwAAAAQP0AAAAAAAAF0AEA3M2M1NDBhYjRlNzU2ZTk2ZjQ2NzU2ODZjNzU0ZDg1ZjZiOWExYmI0ZjI1ZWY5NTZjYmRkZTQ0NjlmZTA2OGVjeA==");
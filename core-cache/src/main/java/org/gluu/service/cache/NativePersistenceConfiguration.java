@@ -20,6 +20,18 @@ public class NativePersistenceConfiguration implements Serializable {
     @XmlElement(name = "deleteExpiredOnGetRequest")
     private boolean deleteExpiredOnGetRequest = false;
 
+    @XmlElement(name = "writeBehind")
+    private boolean writeBehind = false;
+
+    @XmlElement(name = "writeBehindMaxQueueSize")
+    private int writeBehindMaxQueueSize = 10000; // pending entries, put/remove is synchronous when queue is full
+
+    @XmlElement(name = "writeBehindFlushDelay")
+    private int writeBehindFlushDelay = 100; // in milliseconds
+
+    @XmlElement(name = "writeBehindBatchSize")
+    private int writeBehindBatchSize = 100; // entries per bulk request
+
     @JsonIgnore
     private String baseDn;
 
@@ -47,6 +59,38 @@ public class NativePersistenceConfiguration implements Serializable {
 		this.deleteExpiredOnGetRequest = deleteExpiredOnGetRequest;
 	}
 
+	public boolean isWriteBehind() {
+		return writeBehind;
+	}
+
+	public void setWriteBehind(boolean writeBehind) {
+		this.writeBehind = writeBehind;
+	}
+
+	public int getWriteBehindMaxQueueSize() {
+		return writeBehindMaxQueueSize;
+	}
+
+	public void setWriteBehindMaxQueueSize(int writeBehindMaxQueueSize) {
+		this.writeBehindMaxQueueSize = writeBehindMaxQueueSize;
+	}
+
+	public int getWriteBehindFlushDelay() {
+		return writeBehindFlushDelay;
+	}
+
+	public void setWriteBehindFlushDelay(int writeBehindFlushDelay) {
+		this.writeBehindFlushDelay = writeBehindFlushDelay;
+	}
+
+	public int getWriteBehindBatchSize() {
+		return writeBehindBatchSize;
+	}
+
+	public void setWriteBehindBatchSize(int writeBehindBatchSize) {
+		this.writeBehindBatchSize = writeBehindBatchSize;
+	}
+
 	public String getBaseDn() {
         return baseDn;
     }
@@ -58,6 +102,8 @@ public class NativePersistenceConfiguration implements Serializable {
     @Override
 	public String toString() {
 		return "NativePersistenceConfiguration [defaultPutExpiration=" + defaultPutExpiration + ", defaultCleanupBatchSize="
-				+ defaultCleanupBatchSize + ", deleteExpiredOnGetRequest=" + deleteExpiredOnGetRequest + ", baseDn=" + baseDn + "]";
+				+ defaultCleanupBatchSize + ", deleteExpiredOnGetRequest=" + deleteExpiredOnGetRequest + ", writeBehind=" + writeBehind
+				+ ", writeBehindMaxQueueSize=" + writeBehindMaxQueueSize + ", writeBehindFlushDelay=" + writeBehindFlushDelay
+				+ ", writeBehindBatchSize=" + writeBehindBatchSize + ", baseDn=" + baseDn + "]";
 	}
 }
@@ -0,0 +1,209 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.service.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.gluu.persist.PersistenceEntryManager;
+import org.gluu.persist.model.EntryOperationResult;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for write-behind mode of {@link NativePersistenceCacheProvider}
+ */
+public class NativePersistenceCacheProviderTest {
+
+    private static final int FLUSH_DELAY = 60 * 60 * 1000;
+
+    @Test
+    public void pendingWritesAreCoalesced() {
+        FakeEntryManager store = new FakeEntryManager();
+        NativePersistenceCacheProvider provider = createProvider(store, 10);
+
+        provider.put(60, "key1", "value1");
+        provider.put(60, "key1", "value2");
+        provider.put(60, "key2", "value3");
+        provider.remove("key2");
+
+        assertTrue(store.operations.isEmpty());
+
+        provider.destroy();
+
+        assertEquals(store.operations, asList("removeAll:2", "persistAll:1"));
+        assertEquals(store.entries.size(), 1);
+        assertEquals(createProvider(store, 0).get("key1"), "value2");
+    }
+
+    @Test
+    public void pendingWritesAreReadBeforeFlush() {
+        FakeEntryManager store = new FakeEntryManager();
+        NativePersistenceCacheProvider provider = createProvider(store, 10);
+
+        provider.put(60, "key1", "value1");
+
+        assertEquals(provider.get("key1"), "value1");
+        assertTrue(provider.hasKey("key1"));
+
+        provider.remove("key1");
+
+        assertNull(provider.get("key1"));
+        assertFalse(provider.hasKey("key1"));
+        assertTrue(store.operations.isEmpty());
+    }
+
+    @Test
+    public void fullQueueFallsBackToSynchronousWrite() {
+        FakeEntryManager store = new FakeEntryManager();
+        NativePersistenceCacheProvider provider = createProvider(store, 1);
+
+        provider.put(60, "key1", "value1");
+        provider.put(60, "key2", "value2");
+
+        assertEquals(store.operations, asList("persist"));
+        assertEquals(store.entries.size(), 1);
+
+        // Request with pending key replaces pending request
+        provider.put(60, "key1", "value3");
+        assertEquals(store.operations, asList("persist"));
+
+        provider.destroy();
+
+        assertEquals(store.entries.size(), 2);
+        assertEquals(provider.get("key1"), "value3");
+        assertEquals(provider.get("key2"), "value2");
+    }
+
+    @Test
+    public void writesAfterStopAreSynchronous() {
+        FakeEntryManager store = new FakeEntryManager();
+        NativePersistenceCacheProvider provider = createProvider(store, 10);
+        provider.destroy();
+
+        provider.put(60, "key1", "value1");
+
+        assertEquals(store.operations, asList("persist"));
+        assertEquals(provider.get("key1"), "value1");
+    }
+
+    @Test
+    public void writesDuringStopAreNotLost() throws InterruptedException {
+        FakeEntryManager store = new FakeEntryManager();
+        NativePersistenceCacheProvider provider = createProvider(store, 10000);
+
+        List<Thread> writers = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            final int writer = i;
+            writers.add(new Thread(() -> {
+                for (int j = 0; j < 200; j++) {
+                    provider.put(60, writer + "_" + j, "value");
+                }
+            }));
+        }
+
+        for (Thread thread : writers) {
+            thread.start();
+        }
+        provider.destroy();
+        for (Thread thread : writers) {
+            thread.join();
+        }
+
+        assertEquals(store.entries.size(), 800);
+    }
+
+    private static NativePersistenceCacheProvider createProvider(FakeEntryManager store, int maxQueueSize) {
+        NativePersistenceConfiguration nativePersistenceConfiguration = new NativePersistenceConfiguration();
+        nativePersistenceConfiguration.setBaseDn("o=gluu");
+        nativePersistenceConfiguration.setWriteBehind(maxQueueSize > 0);
+        nativePersistenceConfiguration.setWriteBehindMaxQueueSize(maxQueueSize);
+        nativePersistenceConfiguration.setWriteBehindFlushDelay(FLUSH_DELAY);
+
+        CacheConfiguration cacheConfiguration = new CacheConfiguration();
+        cacheConfiguration.setNativePersistenceConfiguration(nativePersistenceConfiguration);
+
+        NativePersistenceCacheProvider provider = new NativePersistenceCacheProvider();
+        provider.configure(cacheConfiguration, store.proxy);
+        provider.create();
+
+        return provider;
+    }
+
+    private static List<String> asList(String... values) {
+        List<String> result = new ArrayList<String>();
+        for (String value : values) {
+            result.add(value);
+        }
+
+        return result;
+    }
+
+    /**
+     * In memory store which implements methods used by cache provider
+     */
+    private static final class FakeEntryManager {
+
+        private final Map<String, NativePersistenceCacheEntity> entries = new ConcurrentHashMap<String, NativePersistenceCacheEntity>();
+        private final List<String> operations = new CopyOnWriteArrayList<String>();
+
+        private final PersistenceEntryManager proxy = (PersistenceEntryManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { PersistenceEntryManager.class }, (target, method, args) -> {
+                    switch (method.getName()) {
+                    case "hasBranchesSupport":
+                    case "contains":
+                        return false;
+                    case "getPersistenceType":
+                        return "ldap";
+                    case "find":
+                        return entries.get((String) args[1]);
+                    case "persist":
+                        operations.add("persist");
+                        NativePersistenceCacheEntity entity = (NativePersistenceCacheEntity) args[0];
+                        entries.put(entity.getDn(), entity);
+                        return null;
+                    case "remove":
+                        entries.remove((String) args[0]);
+                        return null;
+                    case "removeAll":
+                        return apply("removeAll", (Collection<?>) args[0], false);
+                    case "persistAll":
+                        return apply("persistAll", (Collection<?>) args[0], true);
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        private List<EntryOperationResult> apply(String operation, Collection<?> batch, boolean persist) {
+            operations.add(operation + ":" + batch.size());
+
+            List<EntryOperationResult> results = new ArrayList<EntryOperationResult>();
+            for (Object item : batch) {
+                NativePersistenceCacheEntity entity = (NativePersistenceCacheEntity) item;
+                if (persist) {
+                    entries.put(entity.getDn(), entity);
+                } else {
+                    entries.remove(entity.getDn());
+                }
+                results.add(new EntryOperationResult(entity, entity.getDn()));
+            }
+
+            return results;
+        }
+
+    }
+
+}
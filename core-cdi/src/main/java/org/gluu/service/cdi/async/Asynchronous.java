@@ -7,6 +7,7 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 
+import javax.enterprise.util.Nonbinding;
 import javax.interceptor.InterceptorBinding;
 
 /**
@@ -17,4 +18,13 @@ import javax.interceptor.InterceptorBinding;
 @Target({ ElementType.TYPE, ElementType.METHOD })
 @Documented
 public @interface Asynchronous {
+
+    String DEFAULT_EXECUTOR = "default";
+
+    /**
+     * Name of executor which runs invocations
+     */
+    @Nonbinding
+    String value() default DEFAULT_EXECUTOR;
+
 }
@@ -0,0 +1,53 @@
+package org.gluu.service.cdi.async;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Collects {@link Asynchronous} invocations started by current thread. Allows
+ * caller to wait for observers which return before they finish their work
+ */
+public final class AsynchronousInvocations {
+
+    private static final ThreadLocal<AsynchronousInvocations> CURRENT = new ThreadLocal<AsynchronousInvocations>();
+
+    private final List<CompletableFuture<?>> invocations = new CopyOnWriteArrayList<CompletableFuture<?>>();
+
+    private AsynchronousInvocations() {
+    }
+
+    /**
+     * Start collecting invocations in current thread
+     */
+    public static AsynchronousInvocations start() {
+        AsynchronousInvocations asynchronousInvocations = new AsynchronousInvocations();
+        CURRENT.set(asynchronousInvocations);
+
+        return asynchronousInvocations;
+    }
+
+    /**
+     * Called by interceptor for each invocation it runs in executor
+     */
+    public static void register(CompletableFuture<?> invocation) {
+        AsynchronousInvocations asynchronousInvocations = CURRENT.get();
+        if (asynchronousInvocations != null) {
+            asynchronousInvocations.invocations.add(invocation);
+        }
+    }
+
+    /**
+     * Stop collecting invocations
+     *
+     * @return future which completes when all collected invocations complete
+     */
+    public CompletableFuture<Void> end() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+
+        return CompletableFuture.allOf(invocations.toArray(new CompletableFuture<?>[invocations.size()]));
+    }
+
+}
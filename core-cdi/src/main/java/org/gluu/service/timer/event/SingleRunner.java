@@ -0,0 +1,25 @@
+package org.gluu.service.timer.event;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Timer events with this annotation are fired on one cluster node at a time.
+ * Node holds lease stored in {@link org.gluu.service.timer.lease.TimerLeaseStore}
+ * and another node takes over when lease lapses
+ */
+@Retention(RUNTIME)
+@Target(ElementType.TYPE)
+@Documented
+public @interface SingleRunner {
+
+    /**
+     * Lease time in seconds. By default it's longer than maximum stretched timer interval
+     */
+    int leaseTime() default 0;
+
+}
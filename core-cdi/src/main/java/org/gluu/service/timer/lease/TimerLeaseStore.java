@@ -0,0 +1,34 @@
+package org.gluu.service.timer.lease;
+
+/**
+ * Storage of leases which allows to run timer events on one cluster node at a time
+ */
+public interface TimerLeaseStore {
+
+    boolean isEnabled();
+
+    /**
+     * Acquires new, renews own or takes over expired lease
+     *
+     * @param name
+     *            lease name
+     * @param leaseTime
+     *            lease time in seconds
+     * @return true if current node holds lease
+     */
+    boolean acquire(String name, int leaseTime);
+
+    /**
+     * Renews lease only if current node holds it. Allows to keep lease while
+     * timer events are skipped
+     *
+     * @return true if lease was renewed
+     */
+    boolean renew(String name, int leaseTime);
+
+    /**
+     * Releases lease if it's owned by current node
+     */
+    void release(String name);
+
+}
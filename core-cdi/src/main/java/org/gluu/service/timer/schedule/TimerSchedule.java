@@ -5,8 +5,11 @@ package org.gluu.service.timer.schedule;
  */
 public class TimerSchedule {
 
+    public static final int AUTO_JITTER = -1;
+
     private int delay;
     private int interval;
+    private int jitter = AUTO_JITTER;
 
     /**
      * @param delay
@@ -19,6 +22,20 @@ public class TimerSchedule {
         this.interval = interval;
     }
 
+    /**
+     * @param delay
+     *            the delay before the first event occurs
+     * @param interval
+     *            the period between the events
+     * @param jitter
+     *            the maximum random delay added to first event to spread
+     *            executions across nodes. 0 disables jitter
+     */
+    public TimerSchedule(int delay, int interval, int jitter) {
+        this(delay, interval);
+        this.jitter = jitter;
+    }
+
     public int getDelay() {
         return delay;
     }
@@ -35,4 +52,12 @@ public class TimerSchedule {
         this.interval = interval;
     }
 
+    public int getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(int jitter) {
+        this.jitter = jitter;
+    }
+
 }
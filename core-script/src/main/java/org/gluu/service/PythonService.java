@@ -6,6 +6,7 @@
 
 package org.gluu.service;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -13,18 +14,35 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Properties;
+import java.util.Set;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
 import org.gluu.exception.PythonException;
 import org.gluu.persist.reflect.util.ReflectHelper;
 import org.gluu.util.StringHelper;
+import org.python.core.BytecodeLoader;
+import org.python.core.PyCode;
 import org.python.core.PyException;
 import org.python.core.PyObject;
+import org.python.core.imp;
 import org.python.util.PythonInterpreter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,9 +60,15 @@ public class PythonService implements Serializable {
     @Inject
     private Logger log;
 
+    private static final String COMPILED_SCRIPT_FILE_EXTENSION = ".class";
+    private static final Set<PosixFilePermission> COMPILED_SCRIPTS_DIR_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+
     private PythonInterpreter pythonInterpreter;
     private boolean interpereterReady;
 
+    private File compiledScriptsCacheDir;
+    private transient UserPrincipal compiledScriptsOwner;
+
     private OutputStreamWriter logOut, logErr;
 
     @PostConstruct
@@ -62,11 +86,25 @@ public class PythonService implements Serializable {
 	}
 
     /*
-     * Initialize singleton instance during startup
+     * Initialize singleton instance during startup. Compiled scripts cache is disabled
      */
     public boolean initPythonInterpreter(String pythonModulesDir) {
+        return initPythonInterpreter(pythonModulesDir, null);
+    }
+
+    /*
+     * Initialize singleton instance during startup. Compiled scripts cache is disabled if
+     * compiledScriptsCacheDir is empty. Cache folder should be private to application user
+     */
+    public boolean initPythonInterpreter(String pythonModulesDir, String compiledScriptsCacheDir) {
         boolean result = false;
 
+        this.compiledScriptsCacheDir = null;
+        this.compiledScriptsOwner = null;
+        if (StringHelper.isNotEmpty(compiledScriptsCacheDir)) {
+            prepareCompiledScriptsCacheDir(Paths.get(compiledScriptsCacheDir));
+        }
+
         if (isInitInterpreter()) {
             try {
                 PythonInterpreter.initialize(getPreProperties(), getPostProperties(pythonModulesDir), null);
@@ -87,6 +125,44 @@ public class PythonService implements Serializable {
         return result;
     }
 
+    /*
+     * Cache folder is created with owner only permissions. Existing folder is used only
+     * if it's owned by current user
+     */
+    private void prepareCompiledScriptsCacheDir(Path cacheDir) {
+        try {
+            boolean posix = cacheDir.getFileSystem().supportedFileAttributeViews().contains("posix");
+            if (Files.notExists(cacheDir, LinkOption.NOFOLLOW_LINKS)) {
+                if (posix) {
+                    Files.createDirectories(cacheDir, PosixFilePermissions.asFileAttribute(COMPILED_SCRIPTS_DIR_PERMISSIONS));
+                } else {
+                    Files.createDirectories(cacheDir);
+                }
+            }
+
+            if (!Files.isDirectory(cacheDir, LinkOption.NOFOLLOW_LINKS)) {
+                log.warn("Compiled scripts cache folder '{}' is not a directory. Cache is disabled", cacheDir);
+                return;
+            }
+
+            UserPrincipal owner = cacheDir.getFileSystem().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+            if (!owner.equals(Files.getOwner(cacheDir, LinkOption.NOFOLLOW_LINKS))) {
+                log.warn("Compiled scripts cache folder '{}' is not owned by '{}'. Cache is disabled", cacheDir, owner.getName());
+                return;
+            }
+
+            if (posix) {
+                Files.setPosixFilePermissions(cacheDir, COMPILED_SCRIPTS_DIR_PERMISSIONS);
+            }
+
+            this.compiledScriptsCacheDir = cacheDir.toFile();
+            this.compiledScriptsOwner = owner;
+        } catch (IOException | UnsupportedOperationException ex) {
+            log.warn("Failed to prepare compiled scripts cache folder '{}'. Cache is disabled", cacheDir, ex);
+        }
+    }
+
     private void initPythonInterpreter(PythonInterpreter interpreter) {
         // Init output redirect interpreter
         if (this.logOut != null) {
@@ -164,7 +240,7 @@ public class PythonService implements Serializable {
         try {
             currentPythonInterpreter.execfile(scriptName);
         } catch (Exception ex) {
-            log.error("Failed to load python file", ex.getMessage());
+            log.error("Failed to load python file '{}'", scriptName, ex);
             throw new PythonException(String.format("Failed to load python file '%s'", scriptName), ex);
         }
 
@@ -183,13 +259,121 @@ public class PythonService implements Serializable {
         try {
             currentPythonInterpreter.execfile(scriptFile, scriptName);
         } catch (Exception ex) {
-            log.error("Failed to load python file", ex.getMessage(), ex);
-            throw new PythonException(String.format("Failed to load python file '%s'", scriptFile), ex);
+            log.error("Failed to load python file '{}'", scriptName, ex);
+            throw new PythonException(String.format("Failed to load python file '%s'", scriptName), ex);
+        }
+
+        return loadPythonScript(scriptPythonType, scriptJavaType, constructorArgs, currentPythonInterpreter);
+    }
+
+    /*
+     * Load script with compiled code cache. Compiled code is stored on disk with script id hash and
+     * script content hash in file name. Cache file starts with script content hash
+     */
+    public <T> T loadPythonScript(String script, String scriptName, String scriptId, String scriptPythonType, Class<T> scriptJavaType,
+            PyObject[] constructorArgs) throws PythonException {
+        if (!interpereterReady || (script == null)) {
+            return null;
+        }
+
+        if ((compiledScriptsCacheDir == null) || (compiledScriptsOwner == null) || StringHelper.isEmpty(scriptId)) {
+            return loadPythonScript(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)), scriptName, scriptPythonType,
+                    scriptJavaType, constructorArgs);
+        }
+
+        PythonInterpreter currentPythonInterpreter = PythonInterpreter.threadLocalStateInterpreter(null);
+        initPythonInterpreter(currentPythonInterpreter);
+
+        try {
+            PyCode compiledScript = getCompiledScript(script, scriptName, scriptId);
+            currentPythonInterpreter.exec(compiledScript);
+        } catch (Exception ex) {
+            log.error("Failed to load python file '{}'", scriptName, ex);
+            throw new PythonException(String.format("Failed to load python file '%s'", scriptName), ex);
         }
 
         return loadPythonScript(scriptPythonType, scriptJavaType, constructorArgs, currentPythonInterpreter);
     }
 
+    private PyCode getCompiledScript(String script, String scriptName, String scriptId) throws IOException {
+        byte[] scriptBytes = script.getBytes(StandardCharsets.UTF_8);
+        byte[] scriptHash = DigestUtils.sha256(scriptBytes);
+
+        String moduleName = "script_" + scriptId.replaceAll("[^A-Za-z0-9]", "_");
+        // Fixed length hash of raw id is unique prefix of files of this script
+        String compiledScriptFilePrefix = DigestUtils.sha256Hex(scriptId) + "_";
+        String compiledScriptFileName = compiledScriptFilePrefix + DigestUtils.sha256Hex(scriptBytes) + "_" + imp.getAPIVersion()
+                + COMPILED_SCRIPT_FILE_EXTENSION;
+        File compiledScriptFile = new File(compiledScriptsCacheDir, compiledScriptFileName);
+
+        if (compiledScriptFile.exists()) {
+            try {
+                byte[] compiledScriptBytes = readCompiledScript(compiledScriptFile, scriptHash);
+                PyCode compiledScript = BytecodeLoader.makeCode(moduleName + "$py", compiledScriptBytes, scriptName);
+                log.debug("Loaded compiled script '{}' from cache file '{}'", scriptId, compiledScriptFile);
+
+                return compiledScript;
+            } catch (Exception ex) {
+                log.warn("Failed to load compiled script '{}' from cache file '{}'", scriptId, compiledScriptFile, ex);
+                FileUtils.deleteQuietly(compiledScriptFile);
+            }
+        }
+
+        byte[] compiledScriptBytes = imp.compileSource(moduleName, new ByteArrayInputStream(scriptBytes), scriptName);
+        storeCompiledScript(compiledScriptFile, compiledScriptFilePrefix, scriptHash, compiledScriptBytes);
+
+        return BytecodeLoader.makeCode(moduleName + "$py", compiledScriptBytes, scriptName);
+    }
+
+    /*
+     * Accept only regular files written by current user for the same script content
+     */
+    private byte[] readCompiledScript(File compiledScriptFile, byte[] scriptHash) throws IOException {
+        Path compiledScriptPath = compiledScriptFile.toPath();
+        if (!Files.isRegularFile(compiledScriptPath, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IOException("Cache file is not a regular file");
+        }
+
+        if (!compiledScriptsOwner.equals(Files.getOwner(compiledScriptPath, LinkOption.NOFOLLOW_LINKS))) {
+            throw new IOException("Cache file is not owned by current user");
+        }
+
+        byte[] fileBytes = Files.readAllBytes(compiledScriptPath);
+        if ((fileBytes.length <= scriptHash.length) || !MessageDigest.isEqual(Arrays.copyOf(fileBytes, scriptHash.length), scriptHash)) {
+            throw new IOException("Cache file was created for another script content");
+        }
+
+        return Arrays.copyOfRange(fileBytes, scriptHash.length, fileBytes.length);
+    }
+
+    private void storeCompiledScript(File compiledScriptFile, String compiledScriptFilePrefix, byte[] scriptHash, byte[] compiledScriptBytes) {
+        // Remove previous versions of script
+        File[] prevCompiledScriptFiles = compiledScriptsCacheDir.listFiles((dir, name) -> name.startsWith(compiledScriptFilePrefix)
+                && name.endsWith(COMPILED_SCRIPT_FILE_EXTENSION));
+        if (prevCompiledScriptFiles != null) {
+            for (File prevCompiledScriptFile : prevCompiledScriptFiles) {
+                FileUtils.deleteQuietly(prevCompiledScriptFile);
+            }
+        }
+
+        Path tmpFile = null;
+        try {
+            // Temporary file is created with owner only permissions
+            tmpFile = Files.createTempFile(compiledScriptsCacheDir.toPath(), compiledScriptFilePrefix, ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmpFile)) {
+                out.write(scriptHash);
+                out.write(compiledScriptBytes);
+            }
+            Files.move(tmpFile, compiledScriptFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Failed to store compiled script into cache file '{}'", compiledScriptFile, ex);
+            if (tmpFile != null) {
+                FileUtils.deleteQuietly(tmpFile.toFile());
+            }
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private <T> T loadPythonScript(String scriptPythonType, Class<T> scriptJavaType, PyObject[] constructorArgs, PythonInterpreter interpreter)
             throws PythonException {
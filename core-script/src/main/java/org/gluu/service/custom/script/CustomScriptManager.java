@@ -5,21 +5,31 @@
  */
 package org.gluu.service.custom.script;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.Serializable;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.BeforeDestroyed;
 import javax.enterprise.event.Event;
@@ -28,8 +38,8 @@ import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.servlet.ServletContext;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.gluu.model.ScriptLocationType;
@@ -88,14 +98,20 @@ public class CustomScriptManager implements Serializable {
 	private Instance<ExternalScriptService> externalScriptServiceInstance;
 
 	protected List<CustomScriptType> supportedCustomScriptTypes;
-	private Map<String, CustomScriptConfiguration> customScriptConfigurations;
+	private volatile Map<String, CustomScriptConfiguration> customScriptConfigurations;
 
 	private AtomicBoolean isActive;
 	private long lastFinishedTime;
 
-	private Map<CustomScriptType, List<CustomScriptConfiguration>> customScriptConfigurationsByScriptType;
+	private volatile Map<CustomScriptType, List<CustomScriptConfiguration>> customScriptConfigurationsByScriptType;
 
-	@Asynchronous
+	private Map<String, ScriptFileState> scriptFileStates = new HashMap<String, ScriptFileState>();
+	private Map<String, AtomicLong> scriptLoadCounters = new ConcurrentHashMap<String, AtomicLong>();
+	private Map<String, Long> scriptLoadDurations = new ConcurrentHashMap<String, Long>();
+
+	private transient ExecutorService scriptLoaderExecutor;
+
+	@Asynchronous("custom-script")
 	public void initTimer(List<CustomScriptType> supportedCustomScriptTypes) {
 		this.supportedCustomScriptTypes = supportedCustomScriptTypes;
 
@@ -148,6 +164,19 @@ public class CustomScriptManager implements Serializable {
 		}
 	}
 
+	@PreDestroy
+	public void destroyScriptLoader() {
+		ExecutorService executorService;
+		synchronized (this) {
+			executorService = this.scriptLoaderExecutor;
+			this.scriptLoaderExecutor = null;
+		}
+
+		if (executorService != null) {
+			executorService.shutdownNow();
+		}
+	}
+
 	private void reload(boolean syncUpdate) {
 		boolean modified = reloadImpl();
 
@@ -180,21 +209,32 @@ public class CustomScriptManager implements Serializable {
 
 		// Store updated external authenticator configurations
 		ReloadResult reloadResult = reloadCustomScriptConfigurations(this.customScriptConfigurations, customScripts);
-		this.customScriptConfigurations = reloadResult.getCustomScriptConfigurations();
 
 		// Group external authenticator configurations by usage type
-		this.customScriptConfigurationsByScriptType = groupCustomScriptConfigurationsByScriptType(
-				this.customScriptConfigurations);
+		Map<CustomScriptType, List<CustomScriptConfiguration>> newCustomScriptConfigurationsByScriptType = groupCustomScriptConfigurationsByScriptType(
+				reloadResult.getCustomScriptConfigurations());
+
+		// Swap configurations after all scripts were loaded
+		this.customScriptConfigurations = reloadResult.getCustomScriptConfigurations();
+		this.customScriptConfigurationsByScriptType = newCustomScriptConfigurationsByScriptType;
+
+		// Destroy old versions of scripts when they are not in use already
+		for (CustomScriptConfiguration obsoleteCustomScriptConfiguration : reloadResult.getObsoleteCustomScriptConfigurations()) {
+			destroyCustomScript(obsoleteCustomScriptConfiguration);
+		}
 
 		return reloadResult.isModified();
 	}
 
 	private class ReloadResult {
 		private Map<String, CustomScriptConfiguration> customScriptConfigurations;
+		private List<CustomScriptConfiguration> obsoleteCustomScriptConfigurations;
 		private boolean modified;
 
-		ReloadResult(Map<String, CustomScriptConfiguration> customScriptConfigurations, boolean modified) {
+		ReloadResult(Map<String, CustomScriptConfiguration> customScriptConfigurations,
+				List<CustomScriptConfiguration> obsoleteCustomScriptConfigurations, boolean modified) {
 			this.customScriptConfigurations = customScriptConfigurations;
+			this.obsoleteCustomScriptConfigurations = obsoleteCustomScriptConfigurations;
 			this.modified = modified;
 		}
 
@@ -202,6 +242,10 @@ public class CustomScriptManager implements Serializable {
 			return customScriptConfigurations;
 		}
 
+		public List<CustomScriptConfiguration> getObsoleteCustomScriptConfigurations() {
+			return obsoleteCustomScriptConfigurations;
+		}
+
 		public boolean isModified() {
 			return modified;
 		}
@@ -223,104 +267,278 @@ public class CustomScriptManager implements Serializable {
 		}
 
 		List<String> newSupportedCustomScriptInums = new ArrayList<String>();
+		Map<String, CustomScript> changedCustomScripts = new LinkedHashMap<String, CustomScript>();
 		for (CustomScript newCustomScript : newCustomScripts) {
 			if (!newCustomScript.isEnabled()) {
 				continue;
 			}
 
+			String newSupportedCustomScriptInum = StringHelper.toLowerCase(newCustomScript.getInum());
+			newSupportedCustomScriptInums.add(newSupportedCustomScriptInum);
+
+			CustomScriptConfiguration prevCustomScriptConfiguration = newCustomScriptConfigurations
+					.get(newSupportedCustomScriptInum);
+
+			boolean hasChanged;
+			long entryRevision = newCustomScript.getRevision();
 			if (ScriptLocationType.FILE == newCustomScript.getLocationType()) {
 				// Replace script revision with file modification time. This should allow to
 				// reload script automatically after changing location_type
 				long fileModifiactionTime = getFileModificationTime(newCustomScript.getLocationPath());
-
 				newCustomScript.setRevision(fileModifiactionTime);
+
+				hasChanged = (prevCustomScriptConfiguration == null) || isScriptFileChanged(newSupportedCustomScriptInum,
+						newCustomScript.getLocationPath(), entryRevision, fileModifiactionTime);
+			} else {
+				scriptFileStates.remove(newSupportedCustomScriptInum);
+
+				hasChanged = (prevCustomScriptConfiguration == null) || (prevCustomScriptConfiguration.getCustomScript()
+						.getRevision() != newCustomScript.getRevision());
 			}
 
-			String newSupportedCustomScriptInum = StringHelper.toLowerCase(newCustomScript.getInum());
-			newSupportedCustomScriptInums.add(newSupportedCustomScriptInum);
+			if (hasChanged) {
+				changedCustomScripts.put(newSupportedCustomScriptInum, newCustomScript);
+			}
+		}
 
-			CustomScriptConfiguration prevCustomScriptConfiguration = newCustomScriptConfigurations
-					.get(newSupportedCustomScriptInum);
-			boolean hasChanged = (prevCustomScriptConfiguration == null) || (prevCustomScriptConfiguration.getCustomScript()
-					.getRevision() != newCustomScript.getRevision());
-			if (hasChanged || ScriptLocationType.FILE == newCustomScript.getLocationType()) {
-				// Destroy old version properly before creating new one
-				if (prevCustomScriptConfiguration != null) {
-					destroyCustomScript(prevCustomScriptConfiguration);
-				}
+		// Load changed scripts
+		List<ScriptLoadResult> scriptLoadResults;
+		try {
+			scriptLoadResults = loadCustomScripts(changedCustomScripts);
+		} catch (ScriptLoadException ex) {
+			// Keep current scripts and try again on next reload
+			log.error("Failed to load custom scripts. Current scripts are kept until next reload", ex);
+			if (customScriptConfigurations == null) {
+				customScriptConfigurations = new HashMap<String, CustomScriptConfiguration>();
+			}
+			return new ReloadResult(customScriptConfigurations, new ArrayList<CustomScriptConfiguration>(0), false);
+		}
 
-				// Load script entry with all attributes
-				CustomScript loadedCustomScript = customScriptService.getCustomScriptByDn(
-						newCustomScript.getScriptType().getCustomScriptModel(), newCustomScript.getDn());
+		List<CustomScriptConfiguration> obsoleteCustomScriptConfigurations = new ArrayList<CustomScriptConfiguration>();
+		for (ScriptLoadResult scriptLoadResult : scriptLoadResults) {
+			String inum = scriptLoadResult.getInum();
 
-				// Prepare configuration attributes
-				Map<String, SimpleCustomProperty> newConfigurationAttributes = new HashMap<String, SimpleCustomProperty>();
+			// Store configuration and script
+			CustomScriptConfiguration prevCustomScriptConfiguration = newCustomScriptConfigurations.put(inum,
+					scriptLoadResult.getCustomScriptConfiguration());
+			if (prevCustomScriptConfiguration != null) {
+				obsoleteCustomScriptConfigurations.add(prevCustomScriptConfiguration);
+			}
 
-				List<SimpleExtendedCustomProperty> simpleCustomProperties = loadedCustomScript
-						.getConfigurationProperties();
-				if (simpleCustomProperties == null) {
-					simpleCustomProperties = new ArrayList<SimpleExtendedCustomProperty>(0);
+			if (scriptLoadResult.getScriptFileState() == null) {
+				scriptFileStates.remove(inum);
+			} else {
+				scriptFileStates.put(inum, scriptLoadResult.getScriptFileState());
+			}
 
-				}
+			incrementScriptLoadCounter(inum);
+			scriptLoadDurations.put(inum, scriptLoadResult.getDuration());
 
-				for (SimpleCustomProperty simpleCustomProperty : simpleCustomProperties) {
-					newConfigurationAttributes.put(simpleCustomProperty.getValue1(), simpleCustomProperty);
-				}
+			modified = true;
+		}
+
+		// Remove old external scripts configurations
+		for (Iterator<Entry<String, CustomScriptConfiguration>> it = newCustomScriptConfigurations.entrySet()
+				.iterator(); it.hasNext();) {
+			Entry<String, CustomScriptConfiguration> externalAuthenticatorConfigurationEntry = it.next();
+
+			String prevSupportedCustomScriptInum = externalAuthenticatorConfigurationEntry.getKey();
+
+			if (!newSupportedCustomScriptInums.contains(prevSupportedCustomScriptInum)) {
+				// Destroy old authentication method after configurations swap
+				obsoleteCustomScriptConfigurations.add(externalAuthenticatorConfigurationEntry.getValue());
+				it.remove();
+				scriptFileStates.remove(prevSupportedCustomScriptInum);
+
+				modified = true;
+			}
+		}
 
-				if (ScriptLocationType.FILE == loadedCustomScript.getLocationType()) {
-					// Replace script revision with file modification time. This should allow to
-					// reload script automatically after changing location_type
-					long fileModifiactionTime = getFileModificationTime(loadedCustomScript.getLocationPath());
-					loadedCustomScript.setRevision(fileModifiactionTime);
+		return new ReloadResult(newCustomScriptConfigurations, obsoleteCustomScriptConfigurations, modified);
+	}
 
-					if (fileModifiactionTime != 0) {
-						String scriptFromFile = loadFromFile(loadedCustomScript.getLocationPath());
-						if (StringHelper.isNotEmpty(scriptFromFile)) {
-							loadedCustomScript.setScript(scriptFromFile);
+	/*
+	 * Load scripts in parallel. Throws exception if at least one script failed to
+	 * load. Scripts which were loaded successfully are destroyed in this case
+	 */
+	private List<ScriptLoadResult> loadCustomScripts(Map<String, CustomScript> customScripts) throws ScriptLoadException {
+		List<ScriptLoadResult> scriptLoadResults = new ArrayList<ScriptLoadResult>(customScripts.size());
+		if (customScripts.isEmpty()) {
+			return scriptLoadResults;
+		}
+
+		int threadsCount = Math.min(getScriptLoaderThreadsCount(), customScripts.size());
+		log.debug("Loading {} custom script(s) with {} thread(s)", customScripts.size(), threadsCount);
+
+		long startTime = System.currentTimeMillis();
+		boolean failed = false;
+		if (threadsCount <= 1) {
+			for (Entry<String, CustomScript> customScriptEntry : customScripts.entrySet()) {
+				try {
+					scriptLoadResults.add(loadCustomScript(customScriptEntry.getKey(), customScriptEntry.getValue()));
+				} catch (Exception ex) {
+					log.error("Failed to load custom script '{}'", customScriptEntry.getKey(), ex);
+					failed = true;
+					break;
+				}
+			}
+		} else {
+			ExecutorService executorService = getScriptLoaderExecutor();
+			final AtomicBoolean abandoned = new AtomicBoolean(false);
+			Map<String, CompletableFuture<ScriptLoadResult>> futures = new LinkedHashMap<String, CompletableFuture<ScriptLoadResult>>();
+			try {
+				for (final Entry<String, CustomScript> customScriptEntry : customScripts.entrySet()) {
+					futures.put(customScriptEntry.getKey(), CompletableFuture.supplyAsync(() -> {
+						if (abandoned.get()) {
+							return null;
 						}
 
+						return loadCustomScript(customScriptEntry.getKey(), customScriptEntry.getValue());
+					}, executorService));
+				}
+
+				for (Iterator<Entry<String, CompletableFuture<ScriptLoadResult>>> it = futures.entrySet().iterator(); it.hasNext();) {
+					Entry<String, CompletableFuture<ScriptLoadResult>> futureEntry = it.next();
+					try {
+						scriptLoadResults.add(futureEntry.getValue().get());
+					} catch (ExecutionException ex) {
+						log.error("Failed to load custom script '{}'", futureEntry.getKey(), ex.getCause());
+						failed = true;
+					} catch (InterruptedException ex) {
+						log.error("Loading of custom scripts was interrupted");
+						Thread.currentThread().interrupt();
+						failed = true;
+						break;
 					}
+					it.remove();
 				}
-				
-				// Automatic package update '.xdi' --> '.org'
-				// TODO: Remove in CE 5.0
-				String scriptCode = loadedCustomScript.getScript();
-				if (scriptCode != null) {
-					scriptCode = scriptCode.replaceAll(".xdi", ".gluu");
-					loadedCustomScript.setScript(scriptCode);
+			} finally {
+				// Don't start remaining loaders. Scripts which are still loading are destroyed after load
+				abandoned.set(true);
+				for (CompletableFuture<ScriptLoadResult> future : futures.values()) {
+					future.whenComplete((scriptLoadResult, ex) -> {
+						if (scriptLoadResult != null) {
+							destroyLoadedScript(scriptLoadResult);
+						}
+					});
 				}
+			}
+		}
 
-				// Load script
-				BaseExternalType newCustomScriptExternalType = createExternalType(loadedCustomScript,
-						newConfigurationAttributes);
+		if (failed) {
+			for (ScriptLoadResult scriptLoadResult : scriptLoadResults) {
+				destroyLoadedScript(scriptLoadResult);
+			}
 
-				CustomScriptConfiguration newCustomScriptConfiguration = new CustomScriptConfiguration(
-						loadedCustomScript, newCustomScriptExternalType, newConfigurationAttributes);
+			throw new ScriptLoadException(String.format("Failed to load %d custom script(s)", customScripts.size() - scriptLoadResults.size()));
+		}
 
-				// Store configuration and script
-				newCustomScriptConfigurations.put(newSupportedCustomScriptInum, newCustomScriptConfiguration);
+		log.debug("Loaded {} custom script(s) in {} ms", scriptLoadResults.size(), System.currentTimeMillis() - startTime);
 
-				modified = true;
-			}
+		return scriptLoadResults;
+	}
+
+	private void destroyLoadedScript(ScriptLoadResult scriptLoadResult) {
+		if (scriptLoadResult.getCustomScriptConfiguration().getExternalType() != null) {
+			destroyCustomScript(scriptLoadResult.getCustomScriptConfiguration());
 		}
+	}
 
-		// Remove old external scripts configurations
-		for (Iterator<Entry<String, CustomScriptConfiguration>> it = newCustomScriptConfigurations.entrySet()
-				.iterator(); it.hasNext();) {
-			Entry<String, CustomScriptConfiguration> externalAuthenticatorConfigurationEntry = it.next();
+	private ScriptLoadResult loadCustomScript(String inum, CustomScript newCustomScript) {
+		long startTime = System.currentTimeMillis();
 
-			String prevSupportedCustomScriptInum = externalAuthenticatorConfigurationEntry.getKey();
+		// Load script entry with all attributes
+		CustomScript loadedCustomScript = customScriptService.getCustomScriptByDn(
+				newCustomScript.getScriptType().getCustomScriptModel(), newCustomScript.getDn());
 
-			if (!newSupportedCustomScriptInums.contains(prevSupportedCustomScriptInum)) {
-				// Destroy old authentication method
-				destroyCustomScript(externalAuthenticatorConfigurationEntry.getValue());
-				it.remove();
+		// Prepare configuration attributes
+		Map<String, SimpleCustomProperty> newConfigurationAttributes = new HashMap<String, SimpleCustomProperty>();
+
+		List<SimpleExtendedCustomProperty> simpleCustomProperties = loadedCustomScript
+				.getConfigurationProperties();
+		if (simpleCustomProperties == null) {
+			simpleCustomProperties = new ArrayList<SimpleExtendedCustomProperty>(0);
+
+		}
+
+		for (SimpleCustomProperty simpleCustomProperty : simpleCustomProperties) {
+			newConfigurationAttributes.put(simpleCustomProperty.getValue1(), simpleCustomProperty);
+		}
+
+		ScriptFileState scriptFileState = null;
+		if (ScriptLocationType.FILE == loadedCustomScript.getLocationType()) {
+			// Replace script revision with file modification time. This should allow to
+			// reload script automatically after changing location_type
+			long entryRevision = loadedCustomScript.getRevision();
+			long fileModifiactionTime = getFileModificationTime(loadedCustomScript.getLocationPath());
+			loadedCustomScript.setRevision(fileModifiactionTime);
+
+			String scriptFromFile = null;
+			if (fileModifiactionTime != 0) {
+				scriptFromFile = loadFromFile(loadedCustomScript.getLocationPath());
+				if (StringHelper.isNotEmpty(scriptFromFile)) {
+					loadedCustomScript.setScript(scriptFromFile);
+				}
 
-				modified = true;
 			}
+
+			scriptFileState = new ScriptFileState(loadedCustomScript.getLocationPath(), entryRevision,
+					fileModifiactionTime, getContentHash(scriptFromFile));
+		}
+
+		// Automatic package update '.xdi' --> '.org'
+		// TODO: Remove in CE 5.0
+		String scriptCode = loadedCustomScript.getScript();
+		if (scriptCode != null) {
+			scriptCode = scriptCode.replaceAll(".xdi", ".gluu");
+			loadedCustomScript.setScript(scriptCode);
+		}
+
+		// Load script
+		BaseExternalType newCustomScriptExternalType = createExternalType(loadedCustomScript,
+				newConfigurationAttributes);
+
+		CustomScriptConfiguration newCustomScriptConfiguration = new CustomScriptConfiguration(
+				loadedCustomScript, newCustomScriptExternalType, newConfigurationAttributes);
+
+		long duration = System.currentTimeMillis() - startTime;
+		log.debug("Custom script '{}' was loaded in {} ms", inum, duration);
+
+		return new ScriptLoadResult(inum, newCustomScriptConfiguration, scriptFileState, duration);
+	}
+
+	/*
+	 * Each loader thread uses own thread local Jython interpreter state
+	 */
+	protected int getScriptLoaderThreadsCount() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/*
+	 * Loader threads are kept between reloads. Idle threads are stopped after timeout
+	 */
+	private synchronized ExecutorService getScriptLoaderExecutor() {
+		if (this.scriptLoaderExecutor == null) {
+			int threadsCount = getScriptLoaderThreadsCount();
+			ThreadPoolExecutor executorService = new ThreadPoolExecutor(threadsCount, threadsCount, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), scriptLoaderThreadFactory());
+			executorService.allowCoreThreadTimeOut(true);
+
+			this.scriptLoaderExecutor = executorService;
 		}
 
-		return new ReloadResult(newCustomScriptConfigurations, modified);
+		return this.scriptLoaderExecutor;
+	}
+
+	private ThreadFactory scriptLoaderThreadFactory() {
+		final AtomicInteger threadNumber = new AtomicInteger(1);
+		return new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "custom-script-loader-" + threadNumber.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
 	}
 
 	private String loadFromFile(String locationPath) {
@@ -335,6 +553,53 @@ public class CustomScriptManager implements Serializable {
 		return null;
 	}
 
+	/*
+	 * Check if script file was changed since last load. File content is compared
+	 * only when file modification time was changed
+	 */
+	private boolean isScriptFileChanged(String inum, String locationPath, long entryRevision, long fileModificationTime) {
+		ScriptFileState prevScriptFileState = scriptFileStates.get(inum);
+		if ((prevScriptFileState == null) || !StringHelper.equals(prevScriptFileState.getLocationPath(), locationPath)
+				|| (prevScriptFileState.getEntryRevision() != entryRevision)) {
+			return true;
+		}
+
+		if (prevScriptFileState.getModificationTime() == fileModificationTime) {
+			return false;
+		}
+
+		String contentHash = null;
+		if (fileModificationTime != 0) {
+			contentHash = getContentHash(loadFromFile(locationPath));
+		}
+
+		if (StringHelper.equals(prevScriptFileState.getContentHash(), contentHash)) {
+			log.debug("Script '{}' file '{}' was touched without content changes", inum, locationPath);
+			scriptFileStates.put(inum, new ScriptFileState(locationPath, entryRevision, fileModificationTime, contentHash));
+			return false;
+		}
+
+		return true;
+	}
+
+	private String getContentHash(String content) {
+		if (content == null) {
+			return null;
+		}
+
+		return DigestUtils.sha256Hex(content);
+	}
+
+	private void incrementScriptLoadCounter(String inum) {
+		AtomicLong counter = scriptLoadCounters.get(inum);
+		if (counter == null) {
+			counter = scriptLoadCounters.computeIfAbsent(inum, key -> new AtomicLong());
+		}
+
+		long count = counter.incrementAndGet();
+		log.debug("Script '{}' was loaded {} time(s)", inum, count);
+	}
+
 	private long getFileModificationTime(String locationPath) {
 		File scriptFile = new File(locationPath);
 
@@ -410,18 +675,9 @@ public class CustomScriptManager implements Serializable {
 		}
 
 		CustomScriptType customScriptType = customScript.getScriptType();
-		BaseExternalType externalType = null;
-
-		InputStream bis = null;
-		try {
-			bis = new ByteArrayInputStream(script.getBytes("UTF-8"));
-			externalType = pythonService.loadPythonScript(bis, scriptName, customScriptType.getPythonClass(),
-					customScriptType.getCustomScriptType(), new PyObject[] { new PyLong(System.currentTimeMillis()) });
-		} catch (UnsupportedEncodingException e) {
-			log.error(String.format("%s. Script inum: %s", e.getMessage(), customScript.getInum()), e);
-		} finally {
-			IOUtils.closeQuietly(bis);
-		}
+		BaseExternalType externalType = pythonService.loadPythonScript(script, scriptName, customScript.getInum(),
+				customScriptType.getPythonClass(), customScriptType.getCustomScriptType(),
+				new PyObject[] { new PyLong(System.currentTimeMillis()) });
 
 		if (externalType == null) {
 			return null;
@@ -465,7 +721,7 @@ public class CustomScriptManager implements Serializable {
 		saveScriptError(customScript, exception, false);
 	}
 
-	public void saveScriptError(CustomScript customScript, Exception exception, boolean overwrite) {
+	public synchronized void saveScriptError(CustomScript customScript, Exception exception, boolean overwrite) {
 		try {
 			saveScriptErrorImpl(customScript, exception, overwrite);
 		} catch (Exception ex) {
@@ -497,7 +753,7 @@ public class CustomScriptManager implements Serializable {
 		customScriptService.update(loadedCustomScript);
 	}
 
-	public void clearScriptError(CustomScript customScript) {
+	public synchronized void clearScriptError(CustomScript customScript) {
 		try {
 			clearScriptErrorImpl(customScript);
 		} catch (Exception ex) {
@@ -548,4 +804,116 @@ public class CustomScriptManager implements Serializable {
 		return supportedCustomScriptTypes.contains(customScriptType);
 	}
 
+	/**
+	 * Returns how many times script was loaded. First load is counted too
+	 */
+	public long getScriptLoadCount(String inum) {
+		AtomicLong counter = scriptLoadCounters.get(StringHelper.toLowerCase(inum));
+		if (counter == null) {
+			return 0;
+		}
+
+		return counter.get();
+	}
+
+	public Map<String, Long> getScriptLoadCounts() {
+		Map<String, Long> result = new HashMap<String, Long>();
+		for (Entry<String, AtomicLong> scriptLoadCounter : scriptLoadCounters.entrySet()) {
+			result.put(scriptLoadCounter.getKey(), scriptLoadCounter.getValue().get());
+		}
+
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * Returns duration in milliseconds of last script load including compilation
+	 * and initialization
+	 */
+	public long getScriptLoadDuration(String inum) {
+		Long duration = scriptLoadDurations.get(StringHelper.toLowerCase(inum));
+		if (duration == null) {
+			return 0;
+		}
+
+		return duration;
+	}
+
+	public Map<String, Long> getScriptLoadDurations() {
+		return Collections.unmodifiableMap(new HashMap<String, Long>(scriptLoadDurations));
+	}
+
+	private static class ScriptLoadException extends Exception {
+
+		private static final long serialVersionUID = -2163251745734196734L;
+
+		ScriptLoadException(String message) {
+			super(message);
+		}
+	}
+
+	private static class ScriptLoadResult {
+
+		private final String inum;
+		private final CustomScriptConfiguration customScriptConfiguration;
+		private final ScriptFileState scriptFileState;
+		private final long duration;
+
+		ScriptLoadResult(String inum, CustomScriptConfiguration customScriptConfiguration, ScriptFileState scriptFileState,
+				long duration) {
+			this.inum = inum;
+			this.customScriptConfiguration = customScriptConfiguration;
+			this.scriptFileState = scriptFileState;
+			this.duration = duration;
+		}
+
+		public String getInum() {
+			return inum;
+		}
+
+		public CustomScriptConfiguration getCustomScriptConfiguration() {
+			return customScriptConfiguration;
+		}
+
+		public ScriptFileState getScriptFileState() {
+			return scriptFileState;
+		}
+
+		public long getDuration() {
+			return duration;
+		}
+	}
+
+	private static class ScriptFileState implements Serializable {
+
+		private static final long serialVersionUID = 3474385620291271856L;
+
+		private final String locationPath;
+		private final long entryRevision;
+		private final long modificationTime;
+		private final String contentHash;
+
+		ScriptFileState(String locationPath, long entryRevision, long modificationTime, String contentHash) {
+			this.locationPath = locationPath;
+			this.entryRevision = entryRevision;
+			this.modificationTime = modificationTime;
+			this.contentHash = contentHash;
+		}
+
+		public String getLocationPath() {
+			return locationPath;
+		}
+
+		public long getEntryRevision() {
+			return entryRevision;
+		}
+
+		public long getModificationTime() {
+			return modificationTime;
+		}
+
+		public String getContentHash() {
+			return contentHash;
+		}
+	}
+
 }
@@ -47,6 +47,7 @@ public class StandaloneCustomScriptManager extends CustomScriptManager {
 
 	public void destory() {
 		super.destroy(null);
+		destroyScriptLoader();
 	}
 
 	public void reload() {
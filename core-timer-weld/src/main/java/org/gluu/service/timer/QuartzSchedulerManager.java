@@ -2,6 +2,7 @@ package org.gluu.service.timer;
 
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
@@ -32,6 +33,11 @@ public class QuartzSchedulerManager extends Initializable {
 
     public static final String QUARTZ_PROPERTY_FILE_NAME = "quartz.properties";
 
+    /**
+     * Maximum automatic jitter of first event in seconds. Automatic jitter is 10% of interval
+     */
+    public static final int MAX_AUTO_JITTER = 30;
+
     @Inject
     private Logger log;
 
@@ -81,6 +87,8 @@ public class QuartzSchedulerManager extends Initializable {
 
         JobDataMap dataMap = new JobDataMap();
         dataMap.put(TimerJob.KEY_TIMER_EVENT, timerEvent);
+        // RAM job store shares data map values between job executions
+        dataMap.put(TimerJob.KEY_TIMER_JOB_STATE, new TimerJobState());
 
         String uuid = UUID.randomUUID().toString();
 
@@ -88,7 +96,7 @@ public class QuartzSchedulerManager extends Initializable {
                 .usingJobData(dataMap).build();
 
         TimerSchedule timerSchedule = timerEvent.getSchedule();
-        Date triggerStartTime = new Date(System.currentTimeMillis() + timerSchedule.getDelay() * 1000L);
+        Date triggerStartTime = new Date(System.currentTimeMillis() + timerSchedule.getDelay() * 1000L + getJitter(timerSchedule));
         Trigger timerTrigger = TriggerBuilder.newTrigger().withIdentity(uuid, TimerJob.TIMER_JOB_GROUP).startAt(triggerStartTime)
                 .withSchedule(SimpleScheduleBuilder.repeatSecondlyForever(timerSchedule.getInterval())).build();
 
@@ -99,6 +107,22 @@ public class QuartzSchedulerManager extends Initializable {
         }
     }
 
+    /**
+     * Random delay in milliseconds which spreads same timers of cluster nodes
+     */
+    private long getJitter(TimerSchedule timerSchedule) {
+        int jitter = timerSchedule.getJitter();
+        if (jitter == TimerSchedule.AUTO_JITTER) {
+            jitter = Math.min(timerSchedule.getInterval() / 10, MAX_AUTO_JITTER);
+        }
+
+        if (jitter <= 0) {
+            return 0;
+        }
+
+        return ThreadLocalRandom.current().nextLong(jitter * 1000L);
+    }
+
     public void start() {
         if (!isInitialized()) {
             super.init();
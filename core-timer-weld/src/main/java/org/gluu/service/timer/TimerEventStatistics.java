@@ -0,0 +1,136 @@
+package org.gluu.service.timer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Execution statistics of timer event type
+ */
+public class TimerEventStatistics {
+
+    /**
+     * Upper bounds of execution time histogram buckets in milliseconds. Last
+     * bucket counts longer executions
+     */
+    public static final long[] HISTOGRAM_BOUNDS = { 100, 1000, 10000, 60000, 300000 };
+
+    private final String eventType;
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong overlapSkipped = new AtomicLong();
+    private final AtomicLong backoffSkipped = new AtomicLong();
+
+    private final AtomicLong totalDuration = new AtomicLong();
+    private final AtomicLong maxDuration = new AtomicLong();
+    private volatile long lastDuration;
+
+    private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BOUNDS.length + 1);
+
+    public TimerEventStatistics(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public void recordExecution(long duration, boolean failed) {
+        executions.incrementAndGet();
+        if (failed) {
+            failures.incrementAndGet();
+        }
+
+        totalDuration.addAndGet(duration);
+        lastDuration = duration;
+
+        long currentMax;
+        do {
+            currentMax = maxDuration.get();
+        } while ((duration > currentMax) && !maxDuration.compareAndSet(currentMax, duration));
+
+        int bucket = 0;
+        while ((bucket < HISTOGRAM_BOUNDS.length) && (duration >= HISTOGRAM_BOUNDS[bucket])) {
+            bucket++;
+        }
+        histogram.incrementAndGet(bucket);
+    }
+
+    /**
+     * Tick was skipped because previous execution is still running
+     */
+    public void recordOverlapSkip() {
+        overlapSkipped.incrementAndGet();
+    }
+
+    /**
+     * Tick was skipped because interval was stretched after long execution
+     */
+    public void recordBackoffSkip() {
+        backoffSkipped.incrementAndGet();
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getOverlapSkipped() {
+        return overlapSkipped.get();
+    }
+
+    public long getBackoffSkipped() {
+        return backoffSkipped.get();
+    }
+
+    public long getMaxDuration() {
+        return maxDuration.get();
+    }
+
+    public long getLastDuration() {
+        return lastDuration;
+    }
+
+    public double getAverageDuration() {
+        long count = executions.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        return (double) totalDuration.get() / count;
+    }
+
+    /**
+     * Number of executions in each bucket defined by {@link #HISTOGRAM_BOUNDS}
+     */
+    public long[] getHistogram() {
+        long[] result = new long[histogram.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = histogram.get(i);
+        }
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder histogramString = new StringBuilder();
+        long[] counts = getHistogram();
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) {
+                histogramString.append(", ");
+            }
+            histogramString.append(i < HISTOGRAM_BOUNDS.length ? "<" + HISTOGRAM_BOUNDS[i] : ">=" + HISTOGRAM_BOUNDS[HISTOGRAM_BOUNDS.length - 1])
+                    .append("ms=").append(counts[i]);
+        }
+
+        return String.format(
+                "TimerEventStatistics [eventType=%s, executions=%d, failures=%d, overlapSkipped=%d, backoffSkipped=%d, averageDuration=%.1fms, maxDuration=%dms, histogram={%s}]",
+                eventType, getExecutions(), getFailures(), getOverlapSkipped(), getBackoffSkipped(), getAverageDuration(), getMaxDuration(),
+                histogramString);
+    }
+
+}
@@ -0,0 +1,33 @@
+package org.gluu.service.timer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Collects timer events execution statistics
+ */
+@ApplicationScoped
+public class TimerExecutionMonitor {
+
+    private final Map<String, TimerEventStatistics> statistics = new ConcurrentHashMap<String, TimerEventStatistics>();
+
+    public TimerEventStatistics getStatistics(String eventType) {
+        TimerEventStatistics eventStatistics = statistics.get(eventType);
+        if (eventStatistics == null) {
+            eventStatistics = statistics.computeIfAbsent(eventType, TimerEventStatistics::new);
+        }
+
+        return eventStatistics;
+    }
+
+    /**
+     * Statistics by event class name
+     */
+    public Map<String, TimerEventStatistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+}
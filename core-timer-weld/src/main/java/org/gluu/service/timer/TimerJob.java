@@ -1,10 +1,20 @@
 package org.gluu.service.timer;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import javax.enterprise.context.Dependent;
+import javax.enterprise.inject.Instance;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.inject.Inject;
 
+import org.gluu.service.cdi.async.AsynchronousInvocations;
+import org.gluu.service.timer.event.SingleRunner;
 import org.gluu.service.timer.event.TimerEvent;
+import org.gluu.service.timer.lease.TimerLeaseStore;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
@@ -17,14 +27,27 @@ import org.slf4j.Logger;
 public class TimerJob implements Job {
 
     public static final String KEY_TIMER_EVENT = TimerEvent.class.getName();
+    public static final String KEY_TIMER_JOB_STATE = TimerJobState.class.getName();
     public static final String TIMER_JOB_GROUP = "TimerJobGroup";
 
+    public static final int MIN_LEASE_TIME = 30;
+    public static final int MIN_ASYNC_WAIT_TIME = 60;
+
+    // Completes waits for asynchronous observers which take too long
+    private static final ScheduledThreadPoolExecutor ASYNC_WAIT_TIMEOUTS = createAsyncWaitTimeouts();
+
     @Inject
     private Logger log;
 
     @Inject
     private BeanManager beanManager;
 
+    @Inject
+    private Instance<TimerLeaseStore> timerLeaseStoreInstance;
+
+    @Inject
+    private TimerExecutionMonitor timerExecutionMonitor;
+
     @Override
     public void execute(JobExecutionContext context) throws JobExecutionException {
         try {
@@ -33,13 +56,186 @@ public class TimerJob implements Job {
                 return;
             }
 
-            log.debug("Fire timer event [{}] with qualifiers {} from instance {}", timerEvent.getTargetEvent().getClass().getName(),
-                    timerEvent.getQualifiers(), System.identityHashCode(this));
+            String eventType = timerEvent.getTargetEvent().getClass().getName();
+            TimerEventStatistics statistics = timerExecutionMonitor.getStatistics(eventType);
 
-            beanManager.fireEvent(timerEvent.getTargetEvent(), timerEvent.getQualifiers());
+            TimerJobState state = (TimerJobState) context.getJobDetail().getJobDataMap().get(KEY_TIMER_JOB_STATE);
+            if (state == null) {
+                fireEvent(timerEvent, statistics, null);
+                return;
+            }
+
+            if (state.isBackoff(System.currentTimeMillis())) {
+                statistics.recordBackoffSkip();
+                log.trace("Skip timer event [{}] because interval was stretched to {} ms", eventType, state.getEffectiveInterval());
+                renewLease(timerEvent);
+                return;
+            }
+
+            if (!state.tryStart()) {
+                statistics.recordOverlapSkip();
+                log.debug("Skip timer event [{}] because previous execution is still running", eventType);
+                renewLease(timerEvent);
+                return;
+            }
+
+            // State is released when event observers, including asynchronous ones, complete
+            fireEvent(timerEvent, statistics, state);
         } catch (Exception ex) {
             throw new JobExecutionException(ex);
         }
     }
 
+    private void fireEvent(TimerEvent timerEvent, TimerEventStatistics statistics, TimerJobState state) {
+        String eventType = timerEvent.getTargetEvent().getClass().getName();
+        if (!acquireLease(timerEvent)) {
+            log.debug("Skip timer event [{}] because it's running on another node", eventType);
+            if (state != null) {
+                state.finish();
+            }
+            return;
+        }
+
+        log.debug("Fire timer event [{}] with qualifiers {} from instance {}", eventType,
+                timerEvent.getQualifiers(), System.identityHashCode(this));
+
+        long startTime = System.currentTimeMillis();
+        boolean failed = true;
+        AsynchronousInvocations asynchronousInvocations = AsynchronousInvocations.start();
+        try {
+            beanManager.fireEvent(timerEvent.getTargetEvent(), timerEvent.getQualifiers());
+            failed = false;
+        } finally {
+            CompletableFuture<Void> completion = asynchronousInvocations.end();
+            boolean synchronousFailed = failed;
+            boundAsyncWait(timerEvent, completion);
+            completion.whenComplete((result, ex) -> finishExecution(timerEvent, statistics, state, startTime, synchronousFailed || (ex != null)));
+        }
+    }
+
+    /**
+     * Asynchronous observer which never completes should not block next executions.
+     * Wait is limited by maximum stretched interval
+     */
+    private void boundAsyncWait(TimerEvent timerEvent, CompletableFuture<Void> completion) {
+        if (completion.isDone()) {
+            return;
+        }
+
+        String eventType = timerEvent.getTargetEvent().getClass().getName();
+        long waitTime = Math.max(MIN_ASYNC_WAIT_TIME, TimerJobState.MAX_BACKOFF_INTERVALS * timerEvent.getSchedule().getInterval());
+        ScheduledFuture<?> timeout = ASYNC_WAIT_TIMEOUTS.schedule(() -> {
+            if (completion.completeExceptionally(new TimeoutException())) {
+                log.warn("Asynchronous observers of timer event [{}] did not complete in {} seconds", eventType, waitTime);
+            }
+        }, waitTime, TimeUnit.SECONDS);
+        completion.whenComplete((result, ex) -> timeout.cancel(false));
+    }
+
+    /**
+     * Called when synchronous observers return and {@link org.gluu.service.cdi.async.Asynchronous}
+     * observers complete
+     */
+    private void finishExecution(TimerEvent timerEvent, TimerEventStatistics statistics, TimerJobState state, long startTime, boolean failed) {
+        long duration = System.currentTimeMillis() - startTime;
+        statistics.recordExecution(duration, failed);
+
+        if (state != null) {
+            adaptInterval(timerEvent, state, startTime, duration);
+            state.finish();
+        }
+    }
+
+    private void adaptInterval(TimerEvent timerEvent, TimerJobState state, long startTime, long duration) {
+        long interval = timerEvent.getSchedule().getInterval() * 1000L;
+        boolean stretched = state.isStretched();
+        state.adaptInterval(interval, startTime, duration);
+        if (!state.isStretched()) {
+            if (stretched) {
+                log.info("Timer event [{}] interval was restored to {} ms", timerEvent.getTargetEvent().getClass().getName(), interval);
+            }
+            return;
+        }
+
+        log.warn("Timer event [{}] execution took {} ms which is longer than interval {} ms. Interval was stretched to {} ms",
+                timerEvent.getTargetEvent().getClass().getName(), duration, interval, state.getEffectiveInterval());
+    }
+
+    /**
+     * Check if current node should fire {@link SingleRunner} event. Each execution
+     * renews lease of node which holds it
+     */
+    private boolean acquireLease(TimerEvent timerEvent) {
+        TimerLeaseStore timerLeaseStore = getTimerLeaseStore(timerEvent);
+        if (timerLeaseStore == null) {
+            return true;
+        }
+
+        String eventType = timerEvent.getTargetEvent().getClass().getName();
+        try {
+            return timerLeaseStore.acquire(eventType, getLeaseTime(timerEvent));
+        } catch (RuntimeException ex) {
+            log.warn("Failed to acquire lease for timer event [{}]", eventType, ex);
+            return false;
+        }
+    }
+
+    /**
+     * Skipped executions renew lease to keep it while previous execution is still
+     * running or interval is stretched
+     */
+    private void renewLease(TimerEvent timerEvent) {
+        TimerLeaseStore timerLeaseStore = getTimerLeaseStore(timerEvent);
+        if (timerLeaseStore == null) {
+            return;
+        }
+
+        String eventType = timerEvent.getTargetEvent().getClass().getName();
+        try {
+            timerLeaseStore.renew(eventType, getLeaseTime(timerEvent));
+        } catch (RuntimeException ex) {
+            log.warn("Failed to renew lease for timer event [{}]", eventType, ex);
+        }
+    }
+
+    private TimerLeaseStore getTimerLeaseStore(TimerEvent timerEvent) {
+        if (timerEvent.getTargetEvent().getClass().getAnnotation(SingleRunner.class) == null) {
+            return null;
+        }
+
+        if (timerLeaseStoreInstance.isUnsatisfied() || timerLeaseStoreInstance.isAmbiguous()) {
+            return null;
+        }
+
+        TimerLeaseStore timerLeaseStore = timerLeaseStoreInstance.get();
+        if (!timerLeaseStore.isEnabled()) {
+            return null;
+        }
+
+        return timerLeaseStore;
+    }
+
+    /**
+     * Default lease outlasts maximum stretched interval
+     */
+    private int getLeaseTime(TimerEvent timerEvent) {
+        int leaseTime = timerEvent.getTargetEvent().getClass().getAnnotation(SingleRunner.class).leaseTime();
+        if (leaseTime > 0) {
+            return leaseTime;
+        }
+
+        return Math.max(MIN_LEASE_TIME, (TimerJobState.MAX_BACKOFF_INTERVALS + 1) * timerEvent.getSchedule().getInterval());
+    }
+
+    private static ScheduledThreadPoolExecutor createAsyncWaitTimeouts() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "timer-job-async-wait");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+
+        return executor;
+    }
+
 }
@@ -0,0 +1,73 @@
+package org.gluu.service.timer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Execution state of timer job shared between job executions
+ */
+public class TimerJobState {
+
+    /**
+     * Maximum stretch of interval after long executions
+     */
+    public static final int MAX_BACKOFF_INTERVALS = 8;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private volatile long nextStartTime;
+    private volatile long effectiveInterval;
+
+    public boolean tryStart() {
+        return running.compareAndSet(false, true);
+    }
+
+    public void finish() {
+        running.set(false);
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Stretch interval when execution takes longer than interval. Stretched
+     * interval is twice the last execution time. Fast execution restores interval
+     */
+    public void adaptInterval(long interval, long startTime, long duration) {
+        if (duration <= interval) {
+            this.nextStartTime = 0;
+            this.effectiveInterval = interval;
+            return;
+        }
+
+        long stretchedInterval = Math.min(2 * duration, MAX_BACKOFF_INTERVALS * interval);
+        this.nextStartTime = startTime + stretchedInterval;
+        this.effectiveInterval = stretchedInterval;
+    }
+
+    public boolean isStretched() {
+        return nextStartTime > 0;
+    }
+
+    /**
+     * Executions started before next start time of stretched interval are skipped
+     */
+    public boolean isBackoff(long time) {
+        return time < nextStartTime;
+    }
+
+    /**
+     * Executions started before this time are skipped
+     */
+    public long getNextStartTime() {
+        return nextStartTime;
+    }
+
+    /**
+     * Current interval between executions in milliseconds
+     */
+    public long getEffectiveInterval() {
+        return effectiveInterval;
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.service.timer;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link TimerJobState}
+ */
+public class TimerJobStateTest {
+
+    private static final long INTERVAL = 1000;
+
+    @Test
+    public void onlyOneExecutionCanRun() {
+        TimerJobState state = new TimerJobState();
+
+        assertTrue(state.tryStart());
+        assertFalse(state.tryStart());
+        assertTrue(state.isRunning());
+
+        state.finish();
+
+        assertFalse(state.isRunning());
+        assertTrue(state.tryStart());
+    }
+
+    @Test
+    public void fastExecutionKeepsInterval() {
+        TimerJobState state = new TimerJobState();
+
+        state.adaptInterval(INTERVAL, 5000, INTERVAL);
+
+        assertFalse(state.isStretched());
+        assertFalse(state.isBackoff(5001));
+        assertEquals(state.getEffectiveInterval(), INTERVAL);
+    }
+
+    @Test
+    public void slowExecutionStretchesInterval() {
+        TimerJobState state = new TimerJobState();
+
+        state.adaptInterval(INTERVAL, 5000, 1500);
+
+        assertTrue(state.isStretched());
+        assertEquals(state.getEffectiveInterval(), 3000);
+        assertEquals(state.getNextStartTime(), 8000);
+        assertTrue(state.isBackoff(7999));
+        assertFalse(state.isBackoff(8000));
+    }
+
+    @Test
+    public void stretchedIntervalIsLimited() {
+        TimerJobState state = new TimerJobState();
+
+        state.adaptInterval(INTERVAL, 5000, 60 * INTERVAL);
+
+        assertEquals(state.getEffectiveInterval(), TimerJobState.MAX_BACKOFF_INTERVALS * INTERVAL);
+        assertEquals(state.getNextStartTime(), 5000 + TimerJobState.MAX_BACKOFF_INTERVALS * INTERVAL);
+    }
+
+    @Test
+    public void fastExecutionRestoresInterval() {
+        TimerJobState state = new TimerJobState();
+        state.adaptInterval(INTERVAL, 5000, 2000);
+
+        state.adaptInterval(INTERVAL, 9000, 100);
+
+        assertFalse(state.isStretched());
+        assertFalse(state.isBackoff(9001));
+        assertEquals(state.getEffectiveInterval(), INTERVAL);
+    }
+
+}
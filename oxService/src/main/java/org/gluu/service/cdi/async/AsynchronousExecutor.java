@@ -0,0 +1,307 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.service.cdi.async;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Named bounded executor for asynchronous invocations. It collects queue depth
+ * and queue wait time statistics
+ */
+public class AsynchronousExecutor implements Executor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsynchronousExecutor.class);
+
+    public enum RejectionPolicy {
+        /**
+         * Run task in thread which submits it
+         */
+        CALLER_RUNS,
+
+        /**
+         * Throw {@link RejectedExecutionException}
+         */
+        ABORT,
+
+        /**
+         * Drop task. Future of dropped task completes exceptionally with
+         * {@link RejectedExecutionException}
+         */
+        DISCARD
+    }
+
+    private final String name;
+    private final int threads;
+    private final int queueSize;
+    private final RejectionPolicy rejectionPolicy;
+    private final boolean virtualThreads;
+
+    private final ExecutorService executorService;
+
+    // Limits queued and running tasks of virtual threads executor
+    private final Semaphore permits;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public AsynchronousExecutor(String name, int threads, int queueSize, RejectionPolicy rejectionPolicy, boolean virtualThreads) {
+        this.name = name;
+        this.threads = threads;
+        this.queueSize = queueSize;
+        this.rejectionPolicy = rejectionPolicy;
+
+        ExecutorService virtualThreadsExecutor = virtualThreads ? createVirtualThreadsExecutor(name) : null;
+        if (virtualThreadsExecutor == null) {
+            this.virtualThreads = false;
+            this.permits = null;
+            this.executorService = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(queueSize), threadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+        } else {
+            this.virtualThreads = true;
+            this.permits = new Semaphore(threads + queueSize);
+            this.executorService = virtualThreadsExecutor;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if ((permits != null) && !permits.tryAcquire()) {
+            reject(command);
+            return;
+        }
+
+        final long submitTime = System.nanoTime();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                queued.decrementAndGet();
+                recordWaitTime(System.nanoTime() - submitTime);
+
+                active.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                    if (permits != null) {
+                        permits.release();
+                    }
+                }
+            }
+        };
+
+        queued.incrementAndGet();
+        try {
+            executorService.execute(task);
+            submitted.incrementAndGet();
+        } catch (RejectedExecutionException ex) {
+            queued.decrementAndGet();
+            if (permits != null) {
+                permits.release();
+            }
+            reject(command);
+        }
+    }
+
+    /**
+     * Run supplier in executor
+     *
+     * @return future which completes with supplier result or exceptionally when task is discarded
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        SupplierTask<T> task = new SupplierTask<T>(supplier);
+        execute(task);
+
+        return task.future;
+    }
+
+    private void reject(Runnable command) {
+        rejected.incrementAndGet();
+        if (executorService.isShutdown()) {
+            throw new RejectedExecutionException(String.format("Executor '%s' is shut down", name));
+        }
+
+        if (RejectionPolicy.CALLER_RUNS == rejectionPolicy) {
+            LOG.debug("Executor '{}' is saturated. Running task in caller thread", name);
+            command.run();
+        } else if (RejectionPolicy.ABORT == rejectionPolicy) {
+            throw new RejectedExecutionException(String.format("Executor '%s' is saturated", name));
+        } else {
+            LOG.warn("Executor '{}' is saturated. Task was discarded", name);
+            discard(command);
+        }
+    }
+
+    /*
+     * Callers should not wait for result of task which will never run
+     */
+    private void discard(Runnable command) {
+        if (command instanceof SupplierTask) {
+            ((SupplierTask<?>) command).future.completeExceptionally(
+                    new RejectedExecutionException(String.format("Task was discarded by executor '%s'", name)));
+        } else if (command instanceof Future) {
+            ((Future<?>) command).cancel(false);
+        }
+    }
+
+    private void recordWaitTime(long waitNanos) {
+        totalWaitNanos.addAndGet(waitNanos);
+
+        long currentMax;
+        do {
+            currentMax = maxWaitNanos.get();
+        } while ((waitNanos > currentMax) && !maxWaitNanos.compareAndSet(currentMax, waitNanos));
+    }
+
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executorService.awaitTermination(timeout, unit);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Number of tasks which wait for thread
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Average time between task submission and start in milliseconds
+     */
+    public double getAverageWaitTime() {
+        long count = completed.get() + active.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        return TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get()) / 1000.0 / count;
+    }
+
+    /**
+     * Maximum time between task submission and start in milliseconds
+     */
+    public long getMaxWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    private static class SupplierTask<T> implements Runnable {
+
+        private final Supplier<T> supplier;
+        private final CompletableFuture<T> future = new CompletableFuture<T>();
+
+        SupplierTask(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        }
+
+    }
+
+    private static ThreadFactory threadFactory(final String name) {
+        final AtomicInteger threadNumber = new AtomicInteger(1);
+        return new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "async-" + name + "-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /*
+     * Virtual threads are available in Java 21+ only
+     */
+    private static ExecutorService createVirtualThreadsExecutor(String name) {
+        try {
+            Method method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            LOG.warn("Virtual threads are not supported by JVM. Executor '{}' will use platform threads", name);
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "AsynchronousExecutor [name=%s, threads=%d, queueSize=%d, rejectionPolicy=%s, virtualThreads=%s, queueDepth=%d, active=%d, submitted=%d, completed=%d, rejected=%d, averageWaitTime=%.3fms, maxWaitTime=%dms]",
+                name, threads, queueSize, rejectionPolicy, virtualThreads, getQueueDepth(), getActiveCount(), getSubmittedCount(),
+                getCompletedCount(), getRejectedCount(), getAverageWaitTime(), getMaxWaitTime());
+    }
+
+}
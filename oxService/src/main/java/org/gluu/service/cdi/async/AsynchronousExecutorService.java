@@ -0,0 +1,109 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.service.cdi.async;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.gluu.service.cdi.async.AsynchronousExecutor.RejectionPolicy;
+import org.gluu.util.StringHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides named executors for {@link Asynchronous} invocations. Executors are
+ * configured with system properties:
+ * <ul>
+ * <li>gluu.async.&lt;name&gt;.threads - number of threads</li>
+ * <li>gluu.async.&lt;name&gt;.queue-size - maximum number of waiting tasks</li>
+ * <li>gluu.async.&lt;name&gt;.rejection-policy - CALLER_RUNS, ABORT or DISCARD</li>
+ * <li>gluu.async.&lt;name&gt;.virtual-threads - use virtual threads on Java 21+</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class AsynchronousExecutorService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsynchronousExecutorService.class);
+
+    public static final String PROPERTY_PREFIX = "gluu.async.";
+
+    public static final int DEFAULT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+    public static final RejectionPolicy DEFAULT_REJECTION_POLICY = RejectionPolicy.CALLER_RUNS;
+
+    private static final long SHUTDOWN_TIMEOUT = 10;
+
+    private final Map<String, AsynchronousExecutor> executors = new ConcurrentHashMap<String, AsynchronousExecutor>();
+
+    public AsynchronousExecutor getExecutor(String name) {
+        if (StringHelper.isEmpty(name)) {
+            name = Asynchronous.DEFAULT_EXECUTOR;
+        }
+
+        AsynchronousExecutor executor = executors.get(name);
+        if (executor == null) {
+            executor = executors.computeIfAbsent(name, this::createExecutor);
+        }
+
+        return executor;
+    }
+
+    /**
+     * Executors created so far. Allows to monitor queue depth and wait time
+     */
+    public Map<String, AsynchronousExecutor> getExecutors() {
+        return Collections.unmodifiableMap(executors);
+    }
+
+    private AsynchronousExecutor createExecutor(String name) {
+        String prefix = PROPERTY_PREFIX + name + ".";
+
+        int threads = StringHelper.toInt(System.getProperty(prefix + "threads"), DEFAULT_THREADS);
+        int queueSize = StringHelper.toInt(System.getProperty(prefix + "queue-size"), DEFAULT_QUEUE_SIZE);
+        boolean virtualThreads = StringHelper.toBoolean(System.getProperty(prefix + "virtual-threads"), false);
+
+        RejectionPolicy rejectionPolicy = DEFAULT_REJECTION_POLICY;
+        String rejectionPolicyProperty = System.getProperty(prefix + "rejection-policy");
+        if (StringHelper.isNotEmpty(rejectionPolicyProperty)) {
+            try {
+                rejectionPolicy = RejectionPolicy.valueOf(rejectionPolicyProperty.trim().toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                LOG.error("Unsupported rejection policy '{}' of executor '{}'", rejectionPolicyProperty, name);
+            }
+        }
+
+        AsynchronousExecutor executor = new AsynchronousExecutor(name, Math.max(1, threads), Math.max(1, queueSize), rejectionPolicy, virtualThreads);
+        LOG.info("Created executor for asynchronous invocations: {}", executor);
+
+        return executor;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (AsynchronousExecutor executor : executors.values()) {
+            LOG.debug("Shutting down executor: {}", executor);
+            executor.shutdown();
+        }
+
+        for (AsynchronousExecutor executor : executors.values()) {
+            try {
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                    LOG.warn("Executor '{}' didn't finish tasks in {} seconds", executor.getName(), SHUTDOWN_TIMEOUT);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+}
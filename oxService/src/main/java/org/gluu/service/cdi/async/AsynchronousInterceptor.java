@@ -1,15 +1,19 @@
 package org.gluu.service.cdi.async;
 
 import java.io.Serializable;
+import java.lang.reflect.Method;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 import javax.annotation.Priority;
+import javax.inject.Inject;
 import javax.interceptor.AroundInvoke;
 import javax.interceptor.Interceptor;
 import javax.interceptor.InvocationContext;
 
 /**
+ * Runs invocations in executor specified in {@link Asynchronous} annotation
+ *
  * @author Yuriy Movchan Date: 07/07/2017
  */
 @Interceptor
@@ -21,6 +25,9 @@ public class AsynchronousInterceptor implements Serializable {
 
     private static final ThreadLocal<Boolean> ASYNC_INVOCATION = new ThreadLocal<Boolean>();
 
+    @Inject
+    private AsynchronousExecutorService asynchronousExecutorService;
+
     @AroundInvoke
     public Object invoke(InvocationContext ctx) throws Exception {
         if (Boolean.TRUE.equals(ASYNC_INVOCATION.get())) {
@@ -28,7 +35,8 @@ public class AsynchronousInterceptor implements Serializable {
         }
 
         final InvocationContext localCtx = ctx;
-        return CompletableFuture.supplyAsync(new Supplier<Object>() {
+        AsynchronousExecutor executor = asynchronousExecutorService.getExecutor(getExecutorName(ctx.getMethod()));
+        CompletableFuture<Object> invocation = executor.supplyAsync(new Supplier<Object>() {
             @Override
             public Object get() {
                 try {
@@ -43,6 +51,22 @@ public class AsynchronousInterceptor implements Serializable {
                 return null;
             }
         });
+        AsynchronousInvocations.register(invocation);
+
+        return invocation;
+    }
+
+    private String getExecutorName(Method method) {
+        Asynchronous asynchronous = method.getAnnotation(Asynchronous.class);
+        if (asynchronous == null) {
+            asynchronous = method.getDeclaringClass().getAnnotation(Asynchronous.class);
+        }
+
+        if (asynchronous == null) {
+            return Asynchronous.DEFAULT_EXECUTOR;
+        }
+
+        return asynchronous.value();
     }
 
 }
@@ -1,7 +1,10 @@
 package org.gluu.service.cdi.event;
 
+import org.gluu.service.timer.event.SingleRunner;
+
 /**
  * @author Yuriy Movchan Date: 04/13/2017
  */
+@SingleRunner
 public class CleanerEvent {
 }
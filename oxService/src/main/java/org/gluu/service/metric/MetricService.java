@@ -84,7 +84,7 @@ public abstract class MetricService implements Serializable {
         return entryLifetimeInDays;
     }
 
-    @Asynchronous
+    @Asynchronous("metric")
     public void writeMetricEntries(@Observes @ReportMetric MetricReport metricReport) {
         add(metricReport.getMetricEntries(), metricReport.getCreationTime());
     }
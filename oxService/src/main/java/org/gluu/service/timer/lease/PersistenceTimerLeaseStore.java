@@ -0,0 +1,230 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.service.timer.lease;
+
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.gluu.persist.PersistenceEntryManager;
+import org.gluu.persist.exception.EntryPersistenceException;
+import org.gluu.persist.model.AttributeData;
+import org.gluu.persist.model.base.SimpleBranch;
+import org.gluu.service.cdi.event.ApplicationInitialized;
+import org.gluu.service.cdi.event.ApplicationInitializedEvent;
+import org.gluu.util.StringHelper;
+import org.slf4j.Logger;
+
+/**
+ * Stores timer leases as expiring {@link TimerLease} entries. Lease is added only if
+ * there is no lease with the same name and it's updated only if its token wasn't changed
+ * after it was loaded. Hence only one node can renew or take over lease. Store is
+ * initialized on application start if {@value #PROPERTY_BASE_DN} system property is
+ * set or when application calls {@link #init(String)}
+ */
+@ApplicationScoped
+public class PersistenceTimerLeaseStore implements TimerLeaseStore {
+
+    public static final String PROPERTY_BASE_DN = "gluu.timer.lease.base-dn";
+
+    /**
+     * Time to keep released lease in persistence layers which remove expired entries
+     */
+    private static final int RELEASED_LEASE_TTL = 60;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private PersistenceEntryManager entryManager;
+
+    private final String ownerId = ManagementFactory.getRuntimeMXBean().getName() + "_" + UUID.randomUUID().toString();
+
+    private final Set<String> ownedLeases = ConcurrentHashMap.newKeySet();
+
+    private volatile String baseDn;
+
+    public void applicationInitialized(@Observes @ApplicationInitialized(ApplicationScoped.class) ApplicationInitializedEvent event) {
+        String configuredBaseDn = System.getProperty(PROPERTY_BASE_DN);
+        if (StringHelper.isEmpty(configuredBaseDn) || isEnabled()) {
+            return;
+        }
+
+        try {
+            init(configuredBaseDn);
+        } catch (RuntimeException ex) {
+            log.error("Failed to initialize timer leases store. Timer events will run on all nodes", ex);
+        }
+    }
+
+    public void init(String baseDn) {
+        String branchDn = String.format("ou=timers,%s", baseDn);
+        if (entryManager.hasBranchesSupport(branchDn)) {
+            if (!entryManager.contains(branchDn, SimpleBranch.class)) {
+                SimpleBranch branch = new SimpleBranch();
+                branch.setOrganizationalUnitName("timers");
+                branch.setDn(branchDn);
+
+                try {
+                    entryManager.persist(branch);
+                } catch (EntryPersistenceException ex) {
+                    // Check if another node added this branch already
+                    if (!entryManager.contains(branchDn, SimpleBranch.class)) {
+                        throw ex;
+                    }
+                }
+            }
+        }
+
+        this.baseDn = branchDn;
+
+        log.info("Timer leases store initialized. Base DN: '{}', owner: '{}'", this.baseDn, ownerId);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return baseDn != null;
+    }
+
+    @Override
+    public boolean acquire(String name, int leaseTime) {
+        String dn = getDn(name);
+        Date now = new Date();
+
+        TimerLease lease = findLease(dn);
+        if (lease == null) {
+            return createLease(name, dn, now, leaseTime);
+        }
+
+        boolean owned = StringHelper.equals(ownerId, lease.getOwner());
+        if (!owned && (lease.getExpirationDate() != null) && lease.getExpirationDate().after(now)) {
+            if (ownedLeases.remove(name)) {
+                log.info("Lease '{}' was taken over by '{}'", name, lease.getOwner());
+            }
+
+            return false;
+        }
+
+        String expectedToken = lease.getToken();
+        if (expectedToken == null) {
+            log.warn("Lease '{}' has no token and can't be updated. Entry '{}' should be removed", name, dn);
+            return false;
+        }
+
+        if (!owned) {
+            log.info("Lease '{}' of '{}' expired at '{}'. Taking it over", name, lease.getOwner(), lease.getExpirationDate());
+        }
+
+        // Heartbeat or take over. Update fails if another node changed lease after it was loaded
+        fillLease(lease, now, leaseTime);
+        if (!entryManager.compareAndMerge(lease, new AttributeData(TimerLease.TOKEN_ATTRIBUTE, expectedToken))) {
+            ownedLeases.remove(name);
+            log.debug("Lease '{}' was updated by another node", name);
+
+            return false;
+        }
+
+        if (ownedLeases.add(name) && !owned) {
+            log.info("Lease '{}' acquired by '{}'", name, ownerId);
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean renew(String name, int leaseTime) {
+        if (!ownedLeases.contains(name)) {
+            return false;
+        }
+
+        return acquire(name, leaseTime);
+    }
+
+    @Override
+    public void release(String name) {
+        ownedLeases.remove(name);
+
+        String dn = getDn(name);
+        TimerLease lease = findLease(dn);
+        if ((lease == null) || !StringHelper.equals(ownerId, lease.getOwner()) || (lease.getToken() == null)) {
+            return;
+        }
+
+        // Expire lease to allow another node to take it over without waiting
+        String expectedToken = lease.getToken();
+        lease.setToken(UUID.randomUUID().toString());
+        lease.setExpirationDate(new Date());
+        lease.setTtl(RELEASED_LEASE_TTL);
+        if (entryManager.compareAndMerge(lease, new AttributeData(TimerLease.TOKEN_ATTRIBUTE, expectedToken))) {
+            log.debug("Lease '{}' was released", name);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (String name : ownedLeases) {
+            try {
+                release(name);
+            } catch (RuntimeException ex) {
+                log.warn("Failed to release lease '{}'", name, ex);
+            }
+        }
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    private boolean createLease(String name, String dn, Date now, int leaseTime) {
+        TimerLease lease = new TimerLease();
+        lease.setDn(dn);
+        lease.setName(name);
+        lease.setDeletable(true);
+        fillLease(lease, now, leaseTime);
+
+        if (!entryManager.persistIfAbsent(lease)) {
+            log.debug("Lease '{}' was acquired by another node", name);
+            return false;
+        }
+
+        ownedLeases.add(name);
+        log.info("Lease '{}' acquired by '{}'", name, ownerId);
+
+        return true;
+    }
+
+    /**
+     * Each update gets new token
+     */
+    private void fillLease(TimerLease lease, Date now, int leaseTime) {
+        lease.setOwner(ownerId);
+        lease.setToken(UUID.randomUUID().toString());
+        lease.setHeartbeatDate(now);
+        lease.setExpirationDate(new Date(now.getTime() + leaseTime * 1000L));
+        lease.setTtl(leaseTime);
+    }
+
+    private TimerLease findLease(String dn) {
+        try {
+            return entryManager.find(dn, TimerLease.class, null);
+        } catch (EntryPersistenceException ex) {
+            return null;
+        }
+    }
+
+    private String getDn(String name) {
+        return String.format("uuid=%s,%s", name, baseDn);
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.service.timer.lease;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import org.gluu.persist.annotation.AttributeName;
+import org.gluu.persist.annotation.DataEntry;
+import org.gluu.persist.annotation.Expiration;
+import org.gluu.persist.annotation.ObjectClass;
+import org.gluu.persist.model.base.DeletableEntity;
+
+/**
+ * Timer lease entry. Token is changed on each update and allows to update lease
+ * only if it wasn't changed by another node. LDAP schema is in schema/101-timer-lease.ldif
+ */
+@DataEntry
+@ObjectClass(value = "gluuTimerLease")
+public class TimerLease extends DeletableEntity implements Serializable {
+
+    private static final long serialVersionUID = 2153760918431626203L;
+
+    public static final String TOKEN_ATTRIBUTE = "gluuTimerLeaseToken";
+
+    @Expiration
+    private Integer ttl;
+
+    @AttributeName(name = "uuid")
+    private String name;
+
+    @AttributeName(name = "gluuTimerLeaseOwner")
+    private String owner;
+
+    @AttributeName(name = TOKEN_ATTRIBUTE)
+    private String token;
+
+    @AttributeName(name = "iat")
+    private Date heartbeatDate;
+
+    public Integer getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Integer ttl) {
+        this.ttl = ttl;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public Date getHeartbeatDate() {
+        return heartbeatDate;
+    }
+
+    public void setHeartbeatDate(Date heartbeatDate) {
+        this.heartbeatDate = heartbeatDate;
+    }
+
+    @Override
+    public String toString() {
+        return "TimerLease [name=" + name + ", owner=" + owner + ", token=" + token + ", heartbeatDate=" + heartbeatDate + ", ttl=" + ttl
+                + ", expirationDate=" + getExpirationDate() + "]";
+    }
+
+}
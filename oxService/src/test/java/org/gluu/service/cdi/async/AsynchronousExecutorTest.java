@@ -0,0 +1,84 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.service.cdi.async;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.gluu.service.cdi.async.AsynchronousExecutor.RejectionPolicy;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link AsynchronousExecutor}
+ */
+public class AsynchronousExecutorTest {
+
+    @Test
+    public void discardedTaskCompletesExceptionally() throws Exception {
+        AsynchronousExecutor executor = new AsynchronousExecutor("test", 1, 1, RejectionPolicy.DISCARD, false);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<String> running = executor.supplyAsync(() -> {
+                awaitQuietly(release);
+                return "running";
+            });
+            CompletableFuture<String> queued = executor.supplyAsync(() -> "queued");
+            CompletableFuture<String> discarded = executor.supplyAsync(() -> "discarded");
+
+            assertTrue(discarded.isCompletedExceptionally());
+            try {
+                discarded.get();
+                fail("Discarded task should not complete normally");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof RejectedExecutionException);
+            }
+            assertEquals(executor.getRejectedCount(), 1);
+
+            release.countDown();
+            assertEquals(running.get(5, TimeUnit.SECONDS), "running");
+            assertEquals(queued.get(5, TimeUnit.SECONDS), "queued");
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void supplierExceptionCompletesFuture() throws Exception {
+        AsynchronousExecutor executor = new AsynchronousExecutor("test", 1, 1, RejectionPolicy.ABORT, false);
+        try {
+            CompletableFuture<String> failed = executor.supplyAsync(() -> {
+                throw new IllegalStateException("test");
+            });
+
+            try {
+                failed.get(5, TimeUnit.SECONDS);
+                fail("Failed task should not complete normally");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread safe cache which keeps up to max size entries and evicts least recently
+ * used entry when it's full. Max size 0 disables cache
+ */
+public class LruCache<K, V> {
+
+    private final Map<K, V> entries;
+    private volatile int maxSize;
+
+    public LruCache(int maxSize) {
+        this.maxSize = maxSize;
+
+        // Access ordered map puts entries at the end on each get
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = -5418369527614382931L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.maxSize;
+            }
+        };
+    }
+
+    public V get(K key) {
+        if ((key == null) || (maxSize <= 0)) {
+            return null;
+        }
+
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    public void put(K key, V value) {
+        if ((key == null) || (maxSize <= 0)) {
+            return;
+        }
+
+        synchronized (entries) {
+            entries.put(key, value);
+        }
+    }
+
+    /**
+     * @return value which was in cache already or null
+     */
+    public V putIfAbsent(K key, V value) {
+        if ((key == null) || (maxSize <= 0)) {
+            return null;
+        }
+
+        synchronized (entries) {
+            V existingValue = entries.get(key);
+            if (existingValue == null) {
+                entries.put(key, value);
+            }
+
+            return existingValue;
+        }
+    }
+
+    public void remove(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Least recently used entries above new max size are removed
+     */
+    public void setMaxSize(int maxSize) {
+        synchronized (entries) {
+            this.maxSize = maxSize;
+            for (Iterator<K> it = entries.keySet().iterator(); it.hasNext() && (entries.size() > Math.max(0, maxSize));) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+}
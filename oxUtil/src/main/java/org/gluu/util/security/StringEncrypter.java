@@ -9,8 +9,10 @@ package org.gluu.util.security;
 import java.io.UnsupportedEncodingException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
@@ -20,12 +22,14 @@ import javax.crypto.spec.DESKeySpec;
 import javax.crypto.spec.DESedeKeySpec;
 
 import org.apache.commons.codec.binary.Base64;
+import org.gluu.util.LruCache;
 import org.gluu.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Encryption algorithms
+ * Encryption algorithms. Instances are thread safe. Secret keys are derived
+ * once and every thread uses own cipher per encryption scheme
  *
  * @author ssudala
  */
@@ -33,7 +37,17 @@ public class StringEncrypter {
 
     private static final Logger LOG = LoggerFactory.getLogger(StringEncrypter.class);
 
-    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Maximum number of cached secret keys derived from keys passed to encrypt/decrypt methods
+     */
+    private static final int MAX_DERIVED_KEYS = 100;
+
+    /**
+     * Ciphers are not thread safe. Every thread uses own instance per scheme
+     * which is shared by all encrypters. Hence thread keeps only last used key
+     * of each scheme
+     */
+    private static final ThreadLocal<Map<String, CipherHolder>> CIPHERS = ThreadLocal.withInitial(() -> new HashMap<String, CipherHolder>(2));
 
     // lazy init via static holder
     private static class Holder {
@@ -49,7 +63,11 @@ public class StringEncrypter {
         }
     }
 
-    public StringEncrypter() { }
+    public StringEncrypter() {
+        this.encryptionScheme = null;
+        this.keyFactory = null;
+        this.secretKey = null;
+    }
 
     public static StringEncrypter defaultInstance() throws EncryptionException {
         return Holder.INSTANCE;
@@ -109,27 +127,28 @@ public class StringEncrypter {
      * @return String representation
      */
     private static String bytes2String(final byte[] bytes) {
-        final StringBuffer stringBuffer = new StringBuffer();
+        final StringBuilder stringBuilder = new StringBuilder(bytes.length);
         for (final byte element : bytes) {
-            stringBuffer.append((char) element);
+            stringBuilder.append((char) element);
         }
-        return stringBuffer.toString();
+        return stringBuilder.toString();
     }
 
-    /**
-     * Cipher being used
-     */
-    private Cipher cipher;
+    private final String encryptionScheme;
 
     /**
      * Key factory being used
      */
-    private SecretKeyFactory keyFactory;
+    private final SecretKeyFactory keyFactory;
 
     /**
-     * Key spec being used
+     * Secret key derived from key specified at construction
      */
-    private KeySpec keySpec;
+    private final SecretKey secretKey;
+
+    private final LruCache<String, SecretKey> derivedKeys = new LruCache<String, SecretKey>(MAX_DERIVED_KEYS);
+
+    private final LruCache<String, String> decryptCache = new LruCache<String, String>(0);
 
     private Base64 base64 = new Base64();
 
@@ -144,8 +163,12 @@ public class StringEncrypter {
      */
     public StringEncrypter(final String encryptionScheme) throws EncryptionException {
         try {
-            keyFactory = SecretKeyFactory.getInstance(encryptionScheme);
-            cipher = Cipher.getInstance(encryptionScheme);
+            this.encryptionScheme = encryptionScheme;
+            this.keyFactory = SecretKeyFactory.getInstance(encryptionScheme);
+            this.secretKey = null;
+
+            // Check if scheme is supported
+            Cipher.getInstance(encryptionScheme);
         } catch (final NoSuchAlgorithmException e) {
             throw new EncryptionException(e);
         } catch (final NoSuchPaddingException e) {
@@ -171,20 +194,18 @@ public class StringEncrypter {
         }
 
         try {
-            final byte[] keyAsBytes = encryptionKey.getBytes(StringEncrypter.UNICODE_FORMAT);
-
-            if (encryptionScheme.equalsIgnoreCase(StringEncrypter.DESEDE_ENCRYPTION_SCHEME)) {
-                keySpec = new DESedeKeySpec(keyAsBytes);
-            } else if (encryptionScheme.equalsIgnoreCase(StringEncrypter.DES_ENCRYPTION_SCHEME)) {
-                keySpec = new DESKeySpec(keyAsBytes);
-            } else {
-                throw new IllegalArgumentException("Encryption scheme not supported: " + encryptionScheme);
-            }
+            final KeySpec keySpec = createKeySpec(encryptionScheme, encryptionKey);
+
+            this.encryptionScheme = encryptionScheme;
+            this.keyFactory = SecretKeyFactory.getInstance(encryptionScheme);
+            this.secretKey = generateSecret(keySpec);
 
-            keyFactory = SecretKeyFactory.getInstance(encryptionScheme);
-            cipher = Cipher.getInstance(encryptionScheme);
+            // Check if scheme is supported
+            Cipher.getInstance(encryptionScheme);
         } catch (final InvalidKeyException e) {
             throw new EncryptionException(e);
+        } catch (final InvalidKeySpecException e) {
+            throw new EncryptionException(e);
         } catch (final UnsupportedEncodingException e) {
             throw new EncryptionException(e);
         } catch (final NoSuchAlgorithmException e) {
@@ -194,8 +215,60 @@ public class StringEncrypter {
         }
     }
 
-    private String decrypt(final String encryptedString, KeySpec keySpec, boolean silent) throws EncryptionException {
-        if (keySpec == null) {
+    private CipherHolder getCipherHolder() throws EncryptionException {
+        Map<String, CipherHolder> cipherHolders = CIPHERS.get();
+        CipherHolder cipherHolder = cipherHolders.get(encryptionScheme);
+        if (cipherHolder == null) {
+            try {
+                cipherHolder = new CipherHolder(Cipher.getInstance(encryptionScheme));
+            } catch (final NoSuchAlgorithmException e) {
+                throw new EncryptionException(e);
+            } catch (final NoSuchPaddingException e) {
+                throw new EncryptionException(e);
+            }
+            cipherHolders.put(encryptionScheme, cipherHolder);
+        }
+
+        return cipherHolder;
+    }
+
+    private static KeySpec createKeySpec(final String encryptionScheme, final String encryptionKey) throws InvalidKeyException, UnsupportedEncodingException {
+        final byte[] keyAsBytes = encryptionKey.getBytes(StringEncrypter.UNICODE_FORMAT);
+
+        if (encryptionScheme.equalsIgnoreCase(StringEncrypter.DESEDE_ENCRYPTION_SCHEME)) {
+            return new DESedeKeySpec(keyAsBytes);
+        } else if (encryptionScheme.equalsIgnoreCase(StringEncrypter.DES_ENCRYPTION_SCHEME)) {
+            return new DESKeySpec(keyAsBytes);
+        } else {
+            throw new IllegalArgumentException("Encryption scheme not supported: " + encryptionScheme);
+        }
+    }
+
+    private SecretKey generateSecret(final KeySpec keySpec) throws InvalidKeySpecException {
+        // Key factory is not thread safe
+        synchronized (keyFactory) {
+            return keyFactory.generateSecret(keySpec);
+        }
+    }
+
+    /**
+     * Returns secret key for key passed to encrypt/decrypt methods. These methods always use DESede scheme
+     */
+    private SecretKey getSecretKey(final String encryptionKey) throws Exception {
+        SecretKey key = derivedKeys.get(encryptionKey);
+        if (key != null) {
+            return key;
+        }
+
+        final KeySpec keySpec = createKeySpec(StringEncrypter.DESEDE_ENCRYPTION_SCHEME, encryptionKey);
+        key = generateSecret(keySpec);
+        derivedKeys.put(encryptionKey, key);
+
+        return key;
+    }
+
+    private String decrypt(final String encryptedString, SecretKey key, boolean silent) throws EncryptionException {
+        if (key == null) {
             throw new IllegalArgumentException("keySpec was null or empty");
         }
 
@@ -203,15 +276,16 @@ public class StringEncrypter {
             throw new IllegalArgumentException("encrypted string was null or empty");
         }
 
+        CipherHolder cipherHolder = getCipherHolder();
         try {
-            final SecretKey key = keyFactory.generateSecret(keySpec);
-            cipher.init(Cipher.DECRYPT_MODE, key);
+            final Cipher cipher = cipherHolder.init(Cipher.DECRYPT_MODE, key);
 
             final byte[] cleartext = base64.decode(encryptedString.getBytes(Util.UTF8));
             final byte[] ciphertext = cipher.doFinal(cleartext);
 
             return StringEncrypter.bytes2String(ciphertext);
         } catch (final Exception e) {
+            cipherHolder.reset();
             if (silent) {
                 return encryptedString;
             }
@@ -220,6 +294,31 @@ public class StringEncrypter {
         }
     }
 
+    private String decryptCached(final String cacheKey, final String encryptedString, SecretKey key, boolean silent) throws EncryptionException {
+        if (!decryptCache.isEnabled()) {
+            return decrypt(encryptedString, key, silent);
+        }
+
+        String decrypted = decryptCache.get(cacheKey);
+        if (decrypted != null) {
+            return decrypted;
+        }
+
+        try {
+            decrypted = decrypt(encryptedString, key, false);
+        } catch (EncryptionException e) {
+            if (silent) {
+                return encryptedString;
+            }
+
+            throw e;
+        }
+
+        decryptCache.put(cacheKey, decrypted);
+
+        return decrypted;
+    }
+
     /**
      * Decrypt a string encrypted with this encrypter
      *
@@ -233,12 +332,7 @@ public class StringEncrypter {
     }
 
     public String decrypt(final String encryptedString, boolean silent) throws EncryptionException {
-        lock.lock();
-        try {
-            return decrypt(encryptedString, keySpec, silent);
-        } finally {
-            lock.unlock();
-        }
+        return decryptCached(encryptedString, encryptedString, secretKey, silent);
     }
 
     /**
@@ -254,28 +348,17 @@ public class StringEncrypter {
     }
 
     public String decrypt(final String encryptedString, String encryptionKey, boolean silent) throws EncryptionException {
-        lock.lock();
         try {
-            final byte[] keyAsBytes = encryptionKey.getBytes(StringEncrypter.UNICODE_FORMAT);
-            String encryptionScheme = StringEncrypter.DESEDE_ENCRYPTION_SCHEME;
-            KeySpec keySpec;
-            if (encryptionScheme.equalsIgnoreCase(StringEncrypter.DESEDE_ENCRYPTION_SCHEME)) {
-                keySpec = new DESedeKeySpec(keyAsBytes);
-            } else if (encryptionScheme.equalsIgnoreCase(StringEncrypter.DES_ENCRYPTION_SCHEME)) {
-                keySpec = new DESKeySpec(keyAsBytes);
-            } else {
-                throw new IllegalArgumentException("Encryption scheme not supported: " + encryptionScheme);
-            }
-            return decrypt(encryptedString, keySpec, silent);
+            SecretKey key = getSecretKey(encryptionKey);
+
+            return decryptCached(encryptionKey + '\u0000' + encryptedString, encryptedString, key, silent);
         } catch (final Exception e) {
             throw new EncryptionException(e);
-        } finally {
-            lock.unlock();
         }
     }
 
-    private String encrypt(final String unencryptedString, KeySpec keySpec) throws EncryptionException {
-        if (keySpec == null) {
+    private String encrypt(final String unencryptedString, SecretKey key) throws EncryptionException {
+        if (key == null) {
             throw new IllegalArgumentException("keySpec was null or empty");
         }
 
@@ -283,14 +366,15 @@ public class StringEncrypter {
             throw new IllegalArgumentException("unencrypted string was null or empty");
         }
 
+        CipherHolder cipherHolder = getCipherHolder();
         try {
-            final SecretKey key = keyFactory.generateSecret(keySpec);
-            cipher.init(Cipher.ENCRYPT_MODE, key);
+            final Cipher cipher = cipherHolder.init(Cipher.ENCRYPT_MODE, key);
             final byte[] cleartext = unencryptedString.getBytes(StringEncrypter.UNICODE_FORMAT);
             final byte[] ciphertext = cipher.doFinal(cleartext);
 
             return new String(base64.encode(ciphertext), Util.UTF8);
         } catch (final Exception e) {
+            cipherHolder.reset();
             throw new EncryptionException(e);
         }
     }
@@ -304,12 +388,7 @@ public class StringEncrypter {
      * @throws EncryptionException
      */
     public String encrypt(final String unencryptedString) throws EncryptionException {
-        lock.lock();
-        try {
-            return encrypt(unencryptedString, keySpec);
-        } finally {
-            lock.unlock();
-        }
+        return encrypt(unencryptedString, secretKey);
     }
 
     /**
@@ -321,35 +400,62 @@ public class StringEncrypter {
      * @throws EncryptionException
      */
     public String encrypt(final String unencryptedString, String encryptionKey) throws EncryptionException {
-        lock.lock();
         try {
-            final byte[] keyAsBytes = encryptionKey.getBytes(StringEncrypter.UNICODE_FORMAT);
-            String encryptionScheme = StringEncrypter.DESEDE_ENCRYPTION_SCHEME;
-            KeySpec keySpec;
-            if (encryptionScheme.equalsIgnoreCase(StringEncrypter.DESEDE_ENCRYPTION_SCHEME)) {
-                keySpec = new DESedeKeySpec(keyAsBytes);
-            } else if (encryptionScheme.equalsIgnoreCase(StringEncrypter.DES_ENCRYPTION_SCHEME)) {
-                keySpec = new DESKeySpec(keyAsBytes);
-            } else {
-                throw new IllegalArgumentException("Encryption scheme not supported: " + encryptionScheme);
-            }
+            SecretKey key = getSecretKey(encryptionKey);
 
-            return encrypt(unencryptedString, keySpec);
+            return encrypt(unencryptedString, key);
         } catch (final Exception e) {
             throw new EncryptionException(e);
-        } finally {
-            lock.unlock();
         }
     }
 
-    /*
-     * private String decrypt2(final String password){ final String encryptionKey =
-     * "123456789012345678901234567890"; final String encryptionScheme =
-     * StringEncrypter.DESEDE_ENCRYPTION_SCHEME;
-     *
-     * try { final StringEncrypter encrypter = new StringEncrypter(
-     * encryptionScheme, encryptionKey ); return encrypter.decrypt(password); }
-     * catch (final EncryptionException e) { e.printStackTrace(); } return
-     * "invalidpass"; }
+    public String getEncryptionScheme() {
+        return encryptionScheme;
+    }
+
+    public int getDecryptCacheSize() {
+        return decryptCache.getMaxSize();
+    }
+
+    /**
+     * Enables cache of decrypted values. It's useful for configuration values
+     * which are decrypted often. Cache keeps decrypted values in memory and
+     * evicts least recently used values when it's full. 0 disables cache
+     */
+    public void setDecryptCacheSize(int decryptCacheSize) {
+        decryptCache.setMaxSize(decryptCacheSize);
+    }
+
+    /**
+     * Cipher of thread with key and mode it was initialized with. Cipher
+     * resets to initialized state after each operation, so it's initialized
+     * again only when key or mode changes
      */
+    private static final class CipherHolder {
+
+        private final Cipher cipher;
+        private SecretKey key;
+        private int mode;
+
+        CipherHolder(Cipher cipher) {
+            this.cipher = cipher;
+        }
+
+        Cipher init(int mode, SecretKey key) throws InvalidKeyException {
+            if ((this.key != key) || (this.mode != mode)) {
+                this.key = null;
+                cipher.init(mode, key);
+                this.key = key;
+                this.mode = mode;
+            }
+
+            return cipher;
+        }
+
+        void reset() {
+            this.key = null;
+        }
+
+    }
+
 }
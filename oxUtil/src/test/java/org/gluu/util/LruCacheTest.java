@@ -0,0 +1,71 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link LruCache}
+ */
+public class LruCacheTest {
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        LruCache<String, String> cache = new LruCache<String, String>(2);
+        cache.put("first", "1");
+        cache.put("second", "2");
+        assertEquals(cache.get("first"), "1");
+
+        cache.put("third", "3");
+
+        assertEquals(cache.size(), 2);
+        assertEquals(cache.get("first"), "1");
+        assertEquals(cache.get("third"), "3");
+        assertNull(cache.get("second"));
+    }
+
+    @Test
+    public void putIfAbsentKeepsExistingValue() {
+        LruCache<String, String> cache = new LruCache<String, String>(2);
+
+        assertNull(cache.putIfAbsent("key", "1"));
+        assertEquals(cache.putIfAbsent("key", "2"), "1");
+        assertEquals(cache.get("key"), "1");
+    }
+
+    @Test
+    public void shrinkingCacheKeepsRecentlyUsedEntries() {
+        LruCache<String, String> cache = new LruCache<String, String>(3);
+        cache.put("first", "1");
+        cache.put("second", "2");
+        cache.put("third", "3");
+        cache.get("first");
+
+        cache.setMaxSize(1);
+
+        assertEquals(cache.size(), 1);
+        assertEquals(cache.get("first"), "1");
+    }
+
+    @Test
+    public void cacheCanBeDisabled() {
+        LruCache<String, String> cache = new LruCache<String, String>(2);
+        cache.put("key", "1");
+
+        cache.setMaxSize(0);
+        cache.put("key", "2");
+
+        assertFalse(cache.isEnabled());
+        assertEquals(cache.size(), 0);
+        assertNull(cache.get("key"));
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.util.security;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.DESedeKeySpec;
+
+import org.apache.commons.codec.binary.Base64;
+import org.gluu.util.Util;
+import org.gluu.util.security.StringEncrypter.EncryptionException;
+import org.testng.annotations.Test;
+
+/**
+ * Compares decryption throughput of lock based encrypter with single cipher
+ * and {@link StringEncrypter} which uses cipher per thread
+ */
+public class StringEncrypterBenchmarkTest {
+
+    private static final String KEY = "123456789012345678901234";
+    private static final String VALUE = "secret";
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS = 20000;
+    private static final int WARMUP_OPERATIONS = 2000;
+
+    @Test(enabled = false) // manual
+    public void lockedCipher() throws Exception {
+        final LockedEncrypter lockedEncrypter = new LockedEncrypter(KEY);
+        final String encrypted = StringEncrypter.instance(KEY).encrypt(VALUE);
+
+        run("Locked cipher", new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return lockedEncrypter.decrypt(encrypted);
+            }
+        });
+    }
+
+    @Test(enabled = false) // manual
+    public void threadCipher() throws Exception {
+        final StringEncrypter stringEncrypter = StringEncrypter.instance(KEY);
+        final String encrypted = stringEncrypter.encrypt(VALUE);
+
+        run("Thread cipher", new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return stringEncrypter.decrypt(encrypted);
+            }
+        });
+    }
+
+    private void run(String name, final Callable<String> operation) throws Exception {
+        for (int i = 0; i < WARMUP_OPERATIONS; i++) {
+            assertEquals(operation.call(), VALUE);
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> results = new ArrayList<Future<?>>(THREADS);
+            long startTime = System.nanoTime();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int j = 0; j < OPERATIONS; j++) {
+                            assertEquals(operation.call(), VALUE);
+                        }
+
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<?> result : results) {
+                result.get();
+            }
+
+            long duration = System.nanoTime() - startTime;
+            long operations = (long) THREADS * OPERATIONS;
+            System.out.println(String.format("%s: %d operations in %d ms, %.0f ops/s", name, operations,
+                    TimeUnit.NANOSECONDS.toMillis(duration), operations * 1e9 / duration));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Previous implementation. All threads share one cipher guarded by lock and
+     * secret key is generated on each call
+     */
+    private static class LockedEncrypter {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final DESedeKeySpec keySpec;
+        private final SecretKeyFactory keyFactory;
+        private final Cipher cipher;
+        private final Base64 base64 = new Base64();
+
+        LockedEncrypter(String encryptionKey) throws Exception {
+            this.keySpec = new DESedeKeySpec(encryptionKey.getBytes(Util.UTF8));
+            this.keyFactory = SecretKeyFactory.getInstance(StringEncrypter.DESEDE_ENCRYPTION_SCHEME);
+            this.cipher = Cipher.getInstance(StringEncrypter.DESEDE_ENCRYPTION_SCHEME);
+        }
+
+        String decrypt(String encryptedString) throws EncryptionException {
+            lock.lock();
+            try {
+                final SecretKey key = keyFactory.generateSecret(keySpec);
+                cipher.init(Cipher.DECRYPT_MODE, key);
+
+                final byte[] cleartext = base64.decode(encryptedString.getBytes(Util.UTF8));
+                final byte[] ciphertext = cipher.doFinal(cleartext);
+
+                return new String(ciphertext, Util.UTF8);
+            } catch (final Exception e) {
+                throw new EncryptionException(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.util.security;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+import org.gluu.util.security.StringEncrypter.EncryptionException;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link StringEncrypter}
+ */
+public class StringEncrypterTest {
+
+    private static final String KEY_1 = "123456789012345678901234";
+    private static final String KEY_2 = "abcdefghijklmnopqrstuvwx";
+
+    @Test
+    public void encryptedStringIsDecrypted() throws EncryptionException {
+        StringEncrypter stringEncrypter = StringEncrypter.instance(KEY_1);
+
+        String encrypted = stringEncrypter.encrypt("secret");
+
+        assertNotEquals(encrypted, "secret");
+        assertEquals(stringEncrypter.decrypt(encrypted), "secret");
+    }
+
+    @Test
+    public void encryptedStringIsDecryptedWithPassedKey() throws EncryptionException {
+        StringEncrypter stringEncrypter = StringEncrypter.defaultInstance();
+
+        String encrypted = stringEncrypter.encrypt("secret", KEY_1);
+
+        assertEquals(stringEncrypter.decrypt(encrypted, KEY_1), "secret");
+        assertEquals(StringEncrypter.instance(KEY_1).decrypt(encrypted), "secret");
+    }
+
+    @Test
+    public void encryptersWithDifferentKeysShareThreadCipher() throws EncryptionException {
+        StringEncrypter first = StringEncrypter.instance(KEY_1);
+        StringEncrypter second = StringEncrypter.instance(KEY_2);
+
+        String encryptedByFirst = first.encrypt("first");
+        String encryptedBySecond = second.encrypt("second");
+
+        assertNotEquals(encryptedByFirst, first.encrypt("second"));
+        assertEquals(first.decrypt(encryptedByFirst), "first");
+        assertEquals(second.decrypt(encryptedBySecond), "second");
+        assertEquals(second.decrypt(encryptedByFirst, true), encryptedByFirst);
+        assertEquals(first.decrypt(encryptedByFirst), "first");
+    }
+
+    @Test
+    public void encryptersWithDifferentSchemesShareThread() throws EncryptionException {
+        StringEncrypter des = new StringEncrypter(StringEncrypter.DES_ENCRYPTION_SCHEME, KEY_1);
+        StringEncrypter desede = new StringEncrypter(StringEncrypter.DESEDE_ENCRYPTION_SCHEME, KEY_1);
+
+        String encryptedByDes = des.encrypt("secret");
+        String encryptedByDesede = desede.encrypt("secret");
+
+        assertEquals(des.decrypt(encryptedByDes), "secret");
+        assertEquals(desede.decrypt(encryptedByDesede), "secret");
+    }
+
+    @Test
+    public void manyPassedKeysAreUsed() throws EncryptionException {
+        StringEncrypter stringEncrypter = StringEncrypter.defaultInstance();
+
+        for (int i = 0; i < 150; i++) {
+            String key = String.format("%024d", i);
+            assertEquals(stringEncrypter.decrypt(stringEncrypter.encrypt("secret" + i, key), key), "secret" + i);
+        }
+    }
+
+    @Test
+    public void cachedValuesAreDecrypted() throws EncryptionException {
+        StringEncrypter stringEncrypter = StringEncrypter.instance(KEY_1);
+        stringEncrypter.setDecryptCacheSize(2);
+
+        String[] encrypted = new String[4];
+        for (int i = 0; i < encrypted.length; i++) {
+            encrypted[i] = stringEncrypter.encrypt("secret" + i);
+        }
+
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < encrypted.length; i++) {
+                assertEquals(stringEncrypter.decrypt(encrypted[i]), "secret" + i);
+            }
+        }
+
+        stringEncrypter.setDecryptCacheSize(1);
+        assertEquals(stringEncrypter.decrypt(encrypted[0]), "secret0");
+        assertEquals(stringEncrypter.decrypt(encrypted[3], KEY_1), "secret3");
+
+        stringEncrypter.setDecryptCacheSize(0);
+        assertEquals(stringEncrypter.decrypt(encrypted[1]), "secret1");
+    }
+
+    @Test
+    public void invalidValueIsReturnedInSilentMode() throws EncryptionException {
+        StringEncrypter stringEncrypter = StringEncrypter.instance(KEY_1);
+        stringEncrypter.setDecryptCacheSize(10);
+
+        assertEquals(stringEncrypter.decrypt("not encrypted", true), "not encrypted");
+    }
+
+    @Test(expectedExceptions = EncryptionException.class)
+    public void invalidValueIsRejected() throws EncryptionException {
+        StringEncrypter.instance(KEY_1).decrypt("not encrypted");
+    }
+
+}
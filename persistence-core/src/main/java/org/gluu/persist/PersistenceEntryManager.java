@@ -6,9 +6,14 @@
 
 package org.gluu.persist;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityTransaction;
@@ -20,6 +25,8 @@ import org.gluu.persist.event.DeleteNotifier;
 import org.gluu.persist.exception.extension.PersistenceExtension;
 import org.gluu.persist.model.AttributeData;
 import org.gluu.persist.model.BatchOperation;
+import org.gluu.persist.model.CloseableIterator;
+import org.gluu.persist.model.EntryOperationResult;
 import org.gluu.persist.model.PagedResult;
 import org.gluu.persist.model.SearchScope;
 import org.gluu.persist.model.SortOrder;
@@ -40,6 +47,34 @@ public interface PersistenceEntryManager extends EntityManager {
 
 	Void merge(Object entry);
 
+    /**
+     * Adds entry only if there is no entry with the same DN. Unlike {@link #persist(Object)}
+     * it never overwrites existing entry
+     *
+     * @return false if entry with the same DN exists already
+     */
+    default boolean persistIfAbsent(Object entry) {
+        throw new UnsupportedOperationException("Method not implemented.");
+    }
+
+    /**
+     * Updates entry only if stored entry has expected attribute value. Check and update
+     * are done as one operation
+     *
+     * @return false if stored entry has another attribute value or it was removed
+     */
+    default boolean compareAndMerge(Object entry, AttributeData expectedAttribute) {
+        throw new UnsupportedOperationException("Method not implemented.");
+    }
+
+    /**
+     * Bulk operations. Failure of one entry doesn't stop processing of others.
+     * Results are returned in entries order
+     */
+    List<EntryOperationResult> persistAll(Collection<?> entries);
+    List<EntryOperationResult> mergeAll(Collection<?> entries);
+    List<EntryOperationResult> removeAll(Collection<?> entries);
+
 	@Deprecated
 	boolean contains(Object entity);
 
@@ -73,10 +108,36 @@ public interface PersistenceEntryManager extends EntityManager {
     <T> List<T> findEntries(String primaryKey, Class<T> entryClass, Filter filter, SearchScope scope, String[] ldapReturnAttributes,
                             BatchOperation<T> batchOperation, int start, int count, int chunkSize);
 
+    /**
+     * Iterate over entries loading them page by page. Only one page is kept in memory.
+     * Iterator should be closed if it was not iterated to the end
+     */
+    <T> CloseableIterator<T> iterateEntries(String primaryKey, Class<T> entryClass, Filter filter, SearchScope scope, String[] ldapReturnAttributes,
+                                            int chunkSize);
+
+    /**
+     * Stream of entries loaded page by page. Stream should be closed if it was not consumed to the end
+     */
+    default <T> Stream<T> streamEntries(String primaryKey, Class<T> entryClass, Filter filter, SearchScope scope, String[] ldapReturnAttributes,
+                                        int chunkSize) {
+        CloseableIterator<T> iterator = iterateEntries(primaryKey, entryClass, filter, scope, ldapReturnAttributes, chunkSize);
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
     // TODO: Combine sortBy and SortOrder into Sort
     <T> PagedResult<T> findPagedEntries(String primaryKey, Class<T> entryClass, Filter filter, String[] ldapReturnAttributes, String sortBy,
                                         SortOrder sortOrder, int start, int count, int chunkSize);
 
+    /**
+     * Find next page of entries. Page token should be null to get first page and
+     * PagedResult.getNextPageToken() of previous page to continue. Total entries count
+     * is not calculated
+     */
+    <T> PagedResult<T> findPagedEntries(String primaryKey, Class<T> entryClass, Filter filter, String[] ldapReturnAttributes, String sortBy,
+                                        SortOrder sortOrder, String pageToken, int count);
+
 	void remove(Object entry);
     void remove(String dn);
 	<T> int remove(String dn, Class<T> entryClass, Filter filter, int count);
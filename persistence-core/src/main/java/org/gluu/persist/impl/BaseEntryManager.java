@@ -11,6 +11,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -21,6 +22,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.apache.commons.codec.binary.Base64;
 import org.gluu.persist.PersistenceEntryManager;
@@ -34,13 +37,16 @@ import org.gluu.persist.annotation.Expiration;
 import org.gluu.persist.annotation.JsonObject;
 import org.gluu.persist.annotation.ObjectClass;
 import org.gluu.persist.annotation.SchemaEntry;
+import org.gluu.persist.exception.BasePersistenceException;
 import org.gluu.persist.exception.EntryPersistenceException;
 import org.gluu.persist.exception.InvalidArgumentException;
 import org.gluu.persist.exception.MappingException;
 import org.gluu.persist.exception.extension.PersistenceExtension;
+import org.gluu.persist.impl.EntryMapper.PropertyMapping;
 import org.gluu.persist.model.AttributeData;
 import org.gluu.persist.model.AttributeDataModification;
 import org.gluu.persist.model.AttributeDataModification.AttributeModificationType;
+import org.gluu.persist.model.EntryOperationResult;
 import org.gluu.persist.model.SearchScope;
 import org.gluu.persist.operation.PersistenceOperationService;
 import org.gluu.persist.reflect.property.Getter;
@@ -80,13 +86,9 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 	private static final Class<?>[] SUM_BY_ALLOWED_DATA_TYPES = { int.class, Integer.class, float.class, Float.class,
 			double.class, Double.class };
 
-	private final Map<String, List<PropertyAnnotation>> classAnnotations = new HashMap<String, List<PropertyAnnotation>>();
-	private final Map<String, Getter> classGetters = new HashMap<String, Getter>();
-	private final Map<String, Setter> classSetters = new HashMap<String, Setter>();
+	private final Map<Class<?>, EntryClassMetadata> classMetadata = new ConcurrentHashMap<Class<?>, EntryClassMetadata>();
 
-	private static Object CLASS_ANNOTATIONS_LOCK = new Object();
-	private static Object CLASS_SETTERS_LOCK = new Object();
-	private static Object CLASS_GETTERS_LOCK = new Object();
+	private final EntrySnapshots entrySnapshots = new EntrySnapshots();
 
 	private static final ObjectMapper JSON_OBJECT_MAPPER = new ObjectMapper();
 
@@ -95,10 +97,17 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 
 	protected static final Comparator<String> LINE_LENGHT_COMPARATOR = new LineLenghtComparator<String>(false);
 
+	private static final Comparator<String> CASE_INSENSITIVE_COMPARATOR = new Comparator<String>() {
+		public int compare(String o1, String o2) {
+			return o1.toLowerCase().compareTo(o2.toLowerCase());
+		}
+	};
+
 	protected static final int DEFAULT_PAGINATION_SIZE = 100;
 	
 	protected PersistenceOperationService operationService = null;
 	protected PersistenceExtension persistenceExtension = null;
+	protected boolean changeTrackingEnabled = false;
 
 	@Override
 	public void persist(Object entry) {
@@ -109,12 +118,47 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 		// Check entry class
 		Class<?> entryClass = entry.getClass();
 		checkEntryClass(entryClass, false);
-		List<PropertyAnnotation> propertiesAnnotations = getEntryPropertyAnnotations(entryClass);
 
 		Object dnValue = getDNValue(entry, entryClass);
 
 		Integer expirationValue = getExpirationValue(entry, entryClass);
 
+		List<AttributeData> attributes = collectPersistAttributes(entry, entryClass);
+
+		persist(dnValue.toString(), attributes, expirationValue);
+	}
+
+	protected abstract void persist(String dn, List<AttributeData> attributes, Integer expiration);
+
+	@Override
+	public boolean persistIfAbsent(Object entry) {
+		if (entry == null) {
+			throw new MappingException("Entry to persist is null");
+		}
+
+		// Check entry class
+		Class<?> entryClass = entry.getClass();
+		checkEntryClass(entryClass, false);
+
+		Object dnValue = getDNValue(entry, entryClass);
+
+		Integer expirationValue = getExpirationValue(entry, entryClass);
+
+		List<AttributeData> attributes = collectPersistAttributes(entry, entryClass);
+
+		return persistIfAbsent(dnValue.toString(), attributes, expirationValue);
+	}
+
+	/**
+	 * Returns false if entry with the same DN exists already
+	 */
+	protected boolean persistIfAbsent(String dn, List<AttributeData> attributes, Integer expiration) {
+		throw new UnsupportedOperationException("Method not implemented.");
+	}
+
+	private List<AttributeData> collectPersistAttributes(Object entry, Class<?> entryClass) {
+		List<PropertyAnnotation> propertiesAnnotations = getEntryPropertyAnnotations(entryClass);
+
 		List<AttributeData> attributes = getAttributesListForPersist(entry, propertiesAnnotations);
 
 		// Add object classes
@@ -123,10 +167,53 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 
 		LOG.debug(String.format("LDAP attributes for persist: %s", attributes));
 
-		persist(dnValue.toString(), attributes, expirationValue);
+		return attributes;
 	}
 
-	protected abstract void persist(String dn, List<AttributeData> attributes, Integer expiration);
+	@Override
+	public List<EntryOperationResult> persistAll(Collection<?> entries) {
+		return processAll(entries, entry -> persist(entry));
+	}
+
+	@Override
+	public List<EntryOperationResult> mergeAll(Collection<?> entries) {
+		return processAll(entries, entry -> merge(entry));
+	}
+
+	@Override
+	public List<EntryOperationResult> removeAll(Collection<?> entries) {
+		return processAll(entries, entry -> remove(entry));
+	}
+
+	private List<EntryOperationResult> processAll(Collection<?> entries, Consumer<Object> operation) {
+		List<EntryOperationResult> results = new ArrayList<EntryOperationResult>(entries.size());
+		for (Object entry : entries) {
+			try {
+				operation.accept(entry);
+				results.add(new EntryOperationResult(entry, getEntryDn(entry)));
+			} catch (BasePersistenceException ex) {
+				results.add(new EntryOperationResult(entry, getEntryDn(entry), ex));
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Returns entry DN or null if entry has no valid DN
+	 */
+	protected String getEntryDn(Object entry) {
+		if (entry == null) {
+			return null;
+		}
+
+		try {
+			Object dnValue = getDNValue(entry, entry.getClass());
+			return dnValue == null ? null : dnValue.toString();
+		} catch (BasePersistenceException ex) {
+			return null;
+		}
+	}
 
 	@Override
 	@SuppressWarnings("unchecked")
@@ -230,24 +317,45 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 				currentLdapReturnAttributesList.add("objectClass");
 			}
 
-			attributesFromLdap = find(dnValue.toString(), propertiesAnnotationsMap, currentLdapReturnAttributesList.toArray(EMPTY_STRING_ARRAY));
+			// Use attributes loaded with entry if it's available. Detached entries are loaded from DB
+			List<AttributeData> snapshotAttributes = null;
+			if (changeTrackingEnabled) {
+				snapshotAttributes = entrySnapshots.remove(entry, dnValue.toString());
+			}
+
+			if (snapshotAttributes == null) {
+				attributesFromLdap = find(dnValue.toString(), propertiesAnnotationsMap, currentLdapReturnAttributesList.toArray(EMPTY_STRING_ARRAY));
+			} else {
+				attributesFromLdap = EntrySnapshots.filterAttributes(snapshotAttributes, currentLdapReturnAttributesList);
+			}
 		}
-		Map<String, AttributeData> attributesFromLdapMap = getAttributesMap(attributesFromLdap);
 
-		// Prepare list of modifications
+		List<AttributeDataModification> attributeDataModifications = collectMergeModifications(dnValue.toString(), entry, entryClass,
+				propertiesAnnotations, attributesToPersistMap, attributesFromLdap, isSchemaUpdate, isConfigurationUpdate, schemaModificationType);
+
+		LOG.debug(String.format("LDAP attributes for merge: %s", attributeDataModifications));
+
+		merge(dnValue.toString(), attributeDataModifications, expirationValue);
+
+		return null;
+	}
+
+	/**
+	 * Prepare list of modifications from entry attributes and attributes loaded from DB
+	 */
+	protected List<AttributeDataModification> collectMergeModifications(String dn, Object entry, Class<?> entryClass,
+			List<PropertyAnnotation> propertiesAnnotations, Map<String, AttributeData> attributesToPersistMap, List<AttributeData> attributesFromLdap,
+			boolean isSchemaUpdate, boolean isConfigurationUpdate, AttributeModificationType schemaModificationType) {
+		Map<String, AttributeData> attributesFromLdapMap = getAttributesMap(attributesFromLdap);
 
 		// Process properties with Attribute annotation
 		List<AttributeDataModification> attributeDataModifications = collectAttributeModifications(
 				propertiesAnnotations, attributesToPersistMap, attributesFromLdapMap, isSchemaUpdate,
 				schemaModificationType);
 
-		updateMergeChanges(dnValue.toString(), entry, isSchemaUpdate | isConfigurationUpdate, entryClass, attributesFromLdapMap, attributeDataModifications);
-
-		LOG.debug(String.format("LDAP attributes for merge: %s", attributeDataModifications));
-
-		merge(dnValue.toString(), attributeDataModifications, expirationValue);
+		updateMergeChanges(dn, entry, isSchemaUpdate | isConfigurationUpdate, entryClass, attributesFromLdapMap, attributeDataModifications);
 
-		return null;
+		return attributeDataModifications;
 	}
 
 	protected abstract <T> void updateMergeChanges(String baseDn, T entry, boolean isConfigurationUpdate, Class<?> entryClass,
@@ -416,6 +524,55 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 
 	protected abstract void merge(String dn, List<AttributeDataModification> attributeDataModifications, Integer expiration);
 
+	@Override
+	public boolean compareAndMerge(Object entry, AttributeData expectedAttribute) {
+		if (entry == null) {
+			throw new MappingException("Entry to persist is null");
+		}
+
+		if ((expectedAttribute == null) || ArrayHelper.isEmpty(expectedAttribute.getValues())) {
+			throw new MappingException("Expected attribute value is not specified");
+		}
+
+		Class<?> entryClass = entry.getClass();
+		checkEntryClass(entryClass, false);
+		List<PropertyAnnotation> propertiesAnnotations = getEntryPropertyAnnotations(entryClass);
+		Map<String, PropertyAnnotation> propertiesAnnotationsMap = prepareEntryPropertiesTypes(entryClass, propertiesAnnotations);
+
+		String dn = getDNValue(entry, entryClass).toString();
+
+		Integer expirationValue = getExpirationValue(entry, entryClass);
+
+		List<AttributeData> attributesToPersist = getAttributesListForPersist(entry, propertiesAnnotations);
+		Map<String, AttributeData> attributesToPersistMap = getAttributesMap(attributesToPersist);
+
+		// Loaded attributes are used to build modifications only. Expected value is checked by persistence layer
+		List<String> currentLdapReturnAttributesList = getAttributesList(entry, propertiesAnnotations, false);
+		currentLdapReturnAttributesList.add("objectClass");
+		List<AttributeData> attributesFromLdap = find(dn, propertiesAnnotationsMap, currentLdapReturnAttributesList.toArray(EMPTY_STRING_ARRAY));
+
+		List<AttributeDataModification> attributeDataModifications = collectMergeModifications(dn, entry, entryClass, propertiesAnnotations,
+				attributesToPersistMap, attributesFromLdap, false, false, null);
+
+		if (attributeDataModifications.isEmpty()) {
+			AttributeData currentAttribute = getAttributesMap(attributesFromLdap).get(expectedAttribute.getName().toLowerCase());
+
+			return (currentAttribute != null) && Arrays.equals(currentAttribute.getStringValues(), expectedAttribute.getStringValues());
+		}
+
+		LOG.debug(String.format("LDAP attributes for merge: %s, expected: %s", attributeDataModifications, expectedAttribute));
+
+		return merge(dn, attributeDataModifications, expirationValue, expectedAttribute);
+	}
+
+	/**
+	 * Applies modifications only if stored entry has expected attribute value. Returns false otherwise
+	 */
+	protected boolean merge(String dn, List<AttributeDataModification> attributeDataModifications, Integer expiration,
+			AttributeData expectedAttribute) {
+		throw new UnsupportedOperationException("Method not implemented.");
+	}
+
 	public abstract void remove(String dn);
 
 	@Override
@@ -548,8 +705,9 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 					if (entry == null) {
 						return null;
 					} else {
-						List<AttributeData> attributesList = getAttributesFromAttributesList(entry,
-								ldapAttribute, propertyName);
+						PropertyMapping propertyMapping = getEntryMapper(entry.getClass(), propertiesAnnotations)
+								.getPropertyMapping(propertyName);
+						List<AttributeData> attributesList = getAttributesFromAttributesList(entry, propertyMapping);
 						for (AttributeData attributeData : attributesList) {
 							String ldapAttributeName = attributeData.getName();
 							if (!attributes.containsKey(ldapAttributeName)) {
@@ -616,16 +774,38 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 			List<PropertyAnnotation> propertiesAnnotations, Map<String, PropertyAnnotation> propertiesAnnotationsMap) {
 		Map<String, List<AttributeData>> entriesAttributes = new HashMap<String, List<AttributeData>>();
 
+		// Snapshot is possible only when entry is loaded with all attributes
+		boolean trackChanges = changeTrackingEnabled && ArrayHelper.isEmpty(ldapReturnAttributes);
+
 		String[] currentLdapReturnAttributes = ldapReturnAttributes;
 		if (ArrayHelper.isEmpty(currentLdapReturnAttributes)) {
 			currentLdapReturnAttributes = getAttributes(null, propertiesAnnotations, false);
+			if (trackChanges && (currentLdapReturnAttributes != null) && !containsIgnoreCase(currentLdapReturnAttributes, OBJECT_CLASS)) {
+				currentLdapReturnAttributes = ArrayHelper.arrayMerge(currentLdapReturnAttributes, new String[] { OBJECT_CLASS });
+			}
 		}
 
 		List<AttributeData> ldapAttributes = find(primaryKey.toString(), propertiesAnnotationsMap, currentLdapReturnAttributes);
 
 		entriesAttributes.put(String.valueOf(primaryKey), ldapAttributes);
 		List<T> results = createEntities(entryClass, propertiesAnnotations, entriesAttributes);
-		return results.get(0);
+		T result = results.get(0);
+
+		if (trackChanges) {
+			entrySnapshots.put(result, String.valueOf(primaryKey), ldapAttributes);
+		}
+
+		return result;
+	}
+
+	private boolean containsIgnoreCase(String[] values, String value) {
+		for (String item : values) {
+			if (item.equalsIgnoreCase(value)) {
+				return true;
+			}
+		}
+
+		return false;
 	}
 
 	protected abstract List<AttributeData> find(String dn, Map<String, PropertyAnnotation> propertiesAnnotationsMap, String... attributes);
@@ -817,9 +997,10 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 			throw new MappingException("Entry should has getter for property " + dnProperty);
 		}
 
+		EntryMapper<T> entryMapper = getEntryMapper(entryClass, propertiesAnnotations);
+
 		// Type object classes
-		String[] typeObjectClasses = getTypeObjectClasses(entryClass);
-		Arrays.sort(typeObjectClasses);
+		String[] typeObjectClasses = entryMapper.getTypeObjectClasses();
 
 		List<T> results = new ArrayList<T>(entriesAttributes.size());
 		for (Entry<String, List<AttributeData>> entryAttributes : entriesAttributes.entrySet()) {
@@ -844,140 +1025,74 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 			// Set loaded properties to entry
 
 			// Process properties with AttributeName annotation
-			for (PropertyAnnotation propertiesAnnotation : propertiesAnnotations) {
-				String propertyName = propertiesAnnotation.getPropertyName();
-				Annotation ldapAttribute;
-
-				ldapAttribute = ReflectHelper.getAnnotationByType(propertiesAnnotation.getAnnotations(),
-						AttributeName.class);
-				if (ldapAttribute != null) {
-					String ldapAttributeName = ((AttributeName) ldapAttribute).name();
-					if (StringHelper.isEmpty(ldapAttributeName)) {
-						ldapAttributeName = propertyName;
-					}
-					ldapAttributeName = ldapAttributeName.toLowerCase();
-
-					AttributeData attributeData = attributesMap.get(ldapAttributeName);
-
-					// Remove processed attributes
-					attributesMap.remove(ldapAttributeName);
-
-					if (((AttributeName) ldapAttribute).ignoreDuringRead()) {
-						continue;
-					}
-
-					Setter setter = getSetter(entryClass, propertyName);
-					if (setter == null) {
-						throw new MappingException("Entry should has setter for property " + propertyName);
-					}
-
-					Annotation ldapJsonObject = ReflectHelper.getAnnotationByType(propertiesAnnotation.getAnnotations(),
-							JsonObject.class);
-					boolean jsonObject = ldapJsonObject != null;
+			for (PropertyMapping propertyMapping : entryMapper.getAttributeMappings()) {
+				// Remove processed attributes
+				AttributeData attributeData = attributesMap.remove(propertyMapping.getLdapAttributeNameLowerCase());
 
-					setPropertyValue(propertyName, setter, entry, attributeData, jsonObject);
+				if (propertyMapping.getAttributeName().ignoreDuringRead()) {
+					continue;
 				}
+
+				setPropertyValue(propertyMapping.getPropertyName(), propertyMapping.getSetter(), propertyMapping.getParameterType(),
+						propertyMapping.getListItemType(), entry, attributeData, propertyMapping.isJsonObject());
 			}
 
 			// Process properties with @AttributesList annotation
-			for (PropertyAnnotation propertiesAnnotation : propertiesAnnotations) {
-				String propertyName = propertiesAnnotation.getPropertyName();
-				Annotation ldapAttribute;
+			for (PropertyMapping propertyMapping : entryMapper.getAttributesListMappings()) {
+				String propertyName = propertyMapping.getPropertyName();
+				AttributesList ldapAttribute = propertyMapping.getAttributesList();
+				Map<String, AttributeName> ldapAttributesConfiguration = propertyMapping.getAttributesConfiguration();
 
-				ldapAttribute = ReflectHelper.getAnnotationByType(propertiesAnnotation.getAnnotations(),
-						AttributesList.class);
-				if (ldapAttribute != null) {
-					Map<String, AttributeName> ldapAttributesConfiguration = new HashMap<String, AttributeName>();
-					for (AttributeName ldapAttributeConfiguration : ((AttributesList) ldapAttribute)
-							.attributesConfiguration()) {
-						ldapAttributesConfiguration.put(ldapAttributeConfiguration.name(), ldapAttributeConfiguration);
-					}
+				Setter setter = propertyMapping.getSetter();
 
-					Setter setter = getSetter(entryClass, propertyName);
-					if (setter == null) {
-						throw new MappingException("Entry should has setter for property " + propertyName);
-					}
+				List<Object> propertyValue = new ArrayList<Object>();
+				setter.set(entry, propertyValue);
 
-					List<Object> propertyValue = new ArrayList<Object>();
-					setter.set(entry, propertyValue);
-
-					Class<?> entryItemType = ReflectHelper.getListType(setter);
-					if (entryItemType == null) {
-						throw new MappingException(
-								"Entry property " + propertyName + " should has setter with specified element type");
-					}
-
-					String entryPropertyName = ((AttributesList) ldapAttribute).name();
-					Setter entryPropertyNameSetter = getSetter(entryItemType, entryPropertyName);
-					if (entryPropertyNameSetter == null) {
-						throw new MappingException(
-								"Entry should has setter for property " + propertyName + "." + entryPropertyName);
-					}
-
-					String entryPropertyValue = ((AttributesList) ldapAttribute).value();
-					Setter entryPropertyValueSetter = getSetter(entryItemType, entryPropertyValue);
-					if (entryPropertyValueSetter == null) {
-						throw new MappingException(
-								"Entry should has getter for property " + propertyName + "." + entryPropertyValue);
-					}
-
-					for (AttributeData entryAttribute : attributesMap.values()) {
-						if (OBJECT_CLASS.equalsIgnoreCase(entryAttribute.getName())) {
-							String[] objectClasses = entryAttribute.getStringValues();
-							if (ArrayHelper.isEmpty(objectClasses)) {
-								continue;
-							}
-
-							if (customObjectClasses == null) {
-								customObjectClasses = new ArrayList<String>();
-							}
-
-							for (String objectClass : objectClasses) {
-								int idx = Arrays.binarySearch(typeObjectClasses, objectClass, new Comparator<String>() {
-									public int compare(String o1, String o2) {
-										return o1.toLowerCase().compareTo(o2.toLowerCase());
-									}
-								});
-
-								if (idx < 0) {
-									customObjectClasses.add(objectClass);
-								}
-							}
+				Class<?> entryItemType = propertyMapping.getListItemTypeForRead();
+				Setter entryPropertyNameSetter = propertyMapping.getItemNameSetter();
+				Setter entryPropertyValueSetter = propertyMapping.getItemValueSetter();
+				Class<?> entryPropertyValueType = ReflectHelper.getSetterType(entryPropertyValueSetter);
 
+				for (AttributeData entryAttribute : attributesMap.values()) {
+					if (OBJECT_CLASS.equalsIgnoreCase(entryAttribute.getName())) {
+						String[] objectClasses = entryAttribute.getStringValues();
+						if (ArrayHelper.isEmpty(objectClasses)) {
 							continue;
 						}
 
-						AttributeName ldapAttributeConfiguration = ldapAttributesConfiguration
-								.get(entryAttribute.getName());
-						if ((ldapAttributeConfiguration != null) && ldapAttributeConfiguration.ignoreDuringRead()) {
-							continue;
+						if (customObjectClasses == null) {
+							customObjectClasses = new ArrayList<String>();
 						}
 
-						String entryPropertyMultivalued = ((AttributesList) ldapAttribute).multiValued();
-						Setter entryPropertyMultivaluedSetter = null;
-						if (StringHelper.isNotEmpty(entryPropertyMultivalued)) {
-							entryPropertyMultivaluedSetter = getSetter(entryItemType, entryPropertyMultivalued);
-						}
-						if (entryPropertyMultivaluedSetter != null) {
-							Class<?> parameterType = ReflectHelper.getSetterType(entryPropertyMultivaluedSetter);
-							if (!parameterType.equals(Boolean.TYPE)) {
-								throw new MappingException(
-										"Entry should has getter for property " + propertyName + "." + entryPropertyMultivalued + " with boolean type");
+						for (String objectClass : objectClasses) {
+							int idx = Arrays.binarySearch(typeObjectClasses, objectClass, CASE_INSENSITIVE_COMPARATOR);
+
+							if (idx < 0) {
+								customObjectClasses.add(objectClass);
 							}
 						}
 
-						Object listItem = getListItem(propertyName, entryPropertyNameSetter, entryPropertyValueSetter,
-								entryPropertyMultivaluedSetter, entryItemType, entryAttribute);
-						if (listItem != null) {
-							propertyValue.add(listItem);
-						}
+						continue;
 					}
 
-					if (doSort) {
-						sortAttributesListIfNeeded((AttributesList) ldapAttribute, entryItemType,
-								propertyValue);
+					AttributeName ldapAttributeConfiguration = ldapAttributesConfiguration
+							.get(entryAttribute.getName());
+					if ((ldapAttributeConfiguration != null) && ldapAttributeConfiguration.ignoreDuringRead()) {
+						continue;
+					}
+
+					Setter entryPropertyMultivaluedSetter = propertyMapping.getItemMultiValuedSetter();
+
+					Object listItem = getListItem(propertyName, entryPropertyNameSetter, entryPropertyValueSetter,
+							entryPropertyValueType, entryPropertyMultivaluedSetter, entryItemType, entryAttribute);
+					if (listItem != null) {
+						propertyValue.add(listItem);
 					}
 				}
+
+				if (doSort) {
+					sortAttributesListIfNeeded(ldapAttribute, entryItemType, propertyValue);
+				}
 			}
 
 			if ((customObjectClasses != null) && (customObjectClasses.size() > 0)) {
@@ -1208,7 +1323,7 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 		return groups;
 	}
 
-	private Map<String, AttributeData> getAttributesMap(List<AttributeData> attributes) {
+	protected Map<String, AttributeData> getAttributesMap(List<AttributeData> attributes) {
 		Map<String, AttributeData> attributesMap = new HashMap<String, AttributeData>(attributes.size());
 		for (AttributeData attribute : attributes) {
 			attributesMap.put(attribute.getName().toLowerCase(), attribute);
@@ -1329,18 +1444,15 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 
 	protected List<AttributeData> getAttributesListForPersist(Object entry,
 			List<PropertyAnnotation> propertiesAnnotations) {
+		EntryMapper<?> entryMapper = getEntryMapper(entry.getClass(), propertiesAnnotations);
+
 		// Prepare list of properties to persist
 		List<AttributeData> attributes = new ArrayList<AttributeData>();
-		for (PropertyAnnotation propertiesAnnotation : propertiesAnnotations) {
-			String propertyName = propertiesAnnotation.getPropertyName();
-			Annotation ldapAttribute;
-
+		for (PropertyMapping propertyMapping : entryMapper.getPropertyMappings()) {
 			// Process properties with AttributeName annotation
-			ldapAttribute = ReflectHelper.getAnnotationByType(propertiesAnnotation.getAnnotations(),
-					AttributeName.class);
-			if (ldapAttribute != null) {
-				AttributeData attribute = getAttributeDataFromAttribute(entry, ldapAttribute, propertiesAnnotation,
-						propertyName);
+			if (propertyMapping.getAttributeName() != null) {
+				AttributeData attribute = getAttributeData(propertyMapping.getPropertyName(), propertyMapping.getLdapAttributeName(),
+						propertyMapping.getGetter(), entry, propertyMapping.isMultiValued(), propertyMapping.isJsonObject());
 				if (attribute != null) {
 					attributes.add(attribute);
 				}
@@ -1349,58 +1461,19 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 			}
 
 			// Process properties with @AttributesList annotation
-			ldapAttribute = ReflectHelper.getAnnotationByType(propertiesAnnotation.getAnnotations(),
-					AttributesList.class);
-			if (ldapAttribute != null) {
-				List<AttributeData> listAttributes = getAttributesFromAttributesList(entry, ldapAttribute,
-						propertyName);
-				if (listAttributes != null) {
-					attributes.addAll(listAttributes);
-				}
-
-				continue;
+			List<AttributeData> listAttributes = getAttributesFromAttributesList(entry, propertyMapping);
+			if (listAttributes != null) {
+				attributes.addAll(listAttributes);
 			}
 		}
 
 		return attributes;
 	}
 
-	private AttributeData getAttributeDataFromAttribute(Object entry, Annotation ldapAttribute,
-			PropertyAnnotation propertiesAnnotation, String propertyName) {
-		Class<?> entryClass = entry.getClass();
-
-		String ldapAttributeName = ((AttributeName) ldapAttribute).name();
-		if (StringHelper.isEmpty(ldapAttributeName)) {
-			ldapAttributeName = propertyName;
-		}
-
-		Getter getter = getGetter(entryClass, propertyName);
-		if (getter == null) {
-			throw new MappingException("Entry should has getter for property " + propertyName);
-		}
-
-		Class<?> parameterType = getSetterPropertyType(entryClass, propertyName);
-		boolean multiValued = isMultiValued(parameterType);
-
-		Annotation ldapJsonObject = ReflectHelper.getAnnotationByType(propertiesAnnotation.getAnnotations(),
-				JsonObject.class);
-		boolean jsonObject = ldapJsonObject != null;
-		AttributeData attribute = getAttributeData(propertyName, ldapAttributeName, getter, entry, multiValued, jsonObject);
-
-		return attribute;
-	}
-
-	private List<AttributeData> getAttributesFromAttributesList(Object entry, Annotation ldapAttribute,
-			String propertyName) {
-		Class<?> entryClass = entry.getClass();
-		List<AttributeData> listAttributes = new ArrayList<AttributeData>();
-
-		Getter getter = getGetter(entryClass, propertyName);
-		if (getter == null) {
-			throw new MappingException("Entry should has getter for property " + propertyName);
-		}
+	private List<AttributeData> getAttributesFromAttributesList(Object entry, PropertyMapping propertyMapping) {
+		String propertyName = propertyMapping.getPropertyName();
 
-		Object propertyValue = getter.get(entry);
+		Object propertyValue = propertyMapping.getGetter().get(entry);
 		if (propertyValue == null) {
 			return null;
 		}
@@ -1409,35 +1482,11 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 			throw new MappingException("Entry property should has List base type");
 		}
 
-		Class<?> elementType = ReflectHelper.getListType(getter);
-
-		String entryPropertyName = ((AttributesList) ldapAttribute).name();
-		Getter entryPropertyNameGetter = getGetter(elementType, entryPropertyName);
-		if (entryPropertyNameGetter == null) {
-			throw new MappingException(
-					"Entry should has getter for property " + propertyName + "." + entryPropertyName);
-		}
-
-		String entryPropertyValue = ((AttributesList) ldapAttribute).value();
-		Getter entryPropertyValueGetter = getGetter(elementType, entryPropertyValue);
-		if (entryPropertyValueGetter == null) {
-			throw new MappingException(
-					"Entry should has getter for property " + propertyName + "." + entryPropertyValue);
-		}
-
-		String entryPropertyMultivalued = ((AttributesList) ldapAttribute).multiValued();
-		Getter entryPropertyMultivaluedGetter = null;
-		if (StringHelper.isNotEmpty(entryPropertyMultivalued)) {
-			entryPropertyMultivaluedGetter = getGetter(elementType, entryPropertyMultivalued);
-		}
-		if (entryPropertyMultivaluedGetter != null) {
-			Class<?> propertyType = entryPropertyMultivaluedGetter.getReturnType();
-			if (!propertyType.equals(Boolean.TYPE)) {
-				throw new MappingException(
-						"Entry should has getter for property " + propertyName + "." + entryPropertyMultivalued + " with boolean type");
-			}
-		}
+		Getter entryPropertyNameGetter = propertyMapping.getItemNameGetter();
+		Getter entryPropertyValueGetter = propertyMapping.getItemValueGetter();
+		Getter entryPropertyMultivaluedGetter = propertyMapping.getItemMultiValuedGetter();
 
+		List<AttributeData> listAttributes = new ArrayList<AttributeData>();
 		for (Object entryAttribute : (List<?>) propertyValue) {
 			AttributeData attribute = getAttributeData(propertyName, entryPropertyNameGetter, entryPropertyValueGetter,
 					entryAttribute, false);
@@ -1478,67 +1527,47 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 
 	protected <T> List<PropertyAnnotation> getEntryClassAnnotations(Class<T> entryClass, String keyCategory,
 			Class<?>[] annotationTypes) {
-		String key = keyCategory + entryClass.getName();
-
-		List<PropertyAnnotation> annotations = classAnnotations.get(key);
-		if (annotations == null) {
-			synchronized (CLASS_ANNOTATIONS_LOCK) {
-				annotations = classAnnotations.get(key);
-				if (annotations == null) {
-					Map<String, List<Annotation>> annotationsMap = ReflectHelper.getPropertiesAnnotations(entryClass,
-							annotationTypes);
-					annotations = convertToPropertyAnnotationList(annotationsMap);
-					classAnnotations.put(key, annotations);
-				}
-			}
-		}
+		return getClassMetadata(entryClass).getPropertiesAnnotations(keyCategory, annotationTypes);
+	}
 
-		return annotations;
+	protected <T> Getter getGetter(Class<T> entryClass, String propertyName) {
+		return getClassMetadata(entryClass).getGetter(propertyName);
 	}
 
-	private List<PropertyAnnotation> convertToPropertyAnnotationList(Map<String, List<Annotation>> annotations) {
-		List<PropertyAnnotation> result = new ArrayList<PropertyAnnotation>(annotations.size());
-		for (Entry<String, List<Annotation>> entry : annotations.entrySet()) {
-			result.add(new PropertyAnnotation(entry.getKey(), entry.getValue()));
-		}
+	protected <T> Setter getSetter(Class<T> entryClass, String propertyName) {
+		return getClassMetadata(entryClass).getSetter(propertyName);
+	}
 
-		Collections.sort(result);
+	private EntryClassMetadata getClassMetadata(Class<?> entryClass) {
+		EntryClassMetadata metadata = classMetadata.get(entryClass);
+		if (metadata == null) {
+			metadata = classMetadata.computeIfAbsent(entryClass, key -> new EntryClassMetadata(key));
+		}
 
-		return result;
+		return metadata;
 	}
 
-	protected <T> Getter getGetter(Class<T> entryClass, String propertyName) {
-		String key = entryClass.getName() + "." + propertyName;
-
-		Getter getter = classGetters.get(key);
-		if (getter == null) {
-			synchronized (CLASS_GETTERS_LOCK) {
-				getter = classGetters.get(key);
-				if (getter == null) {
-					getter = ReflectHelper.getGetter(entryClass, propertyName);
-					classGetters.put(key, getter);
-				}
-			}
+	@SuppressWarnings("unchecked")
+	protected <T> EntryMapper<T> getEntryMapper(Class<T> entryClass) {
+		EntryMapper<T> entryMapper = (EntryMapper<T>) getClassMetadata(entryClass).getEntryMapper();
+		if (entryMapper == null) {
+			entryMapper = getEntryMapper(entryClass, getEntryPropertyAnnotations(entryClass));
 		}
 
-		return getter;
+		return entryMapper;
 	}
 
-	protected <T> Setter getSetter(Class<T> entryClass, String propertyName) {
-		String key = entryClass.getName() + "." + propertyName;
-
-		Setter setter = classSetters.get(key);
-		if (setter == null) {
-			synchronized (CLASS_SETTERS_LOCK) {
-				setter = classSetters.get(key);
-				if (setter == null) {
-					setter = ReflectHelper.getSetter(entryClass, propertyName);
-					classSetters.put(key, setter);
-				}
-			}
+	@SuppressWarnings("unchecked")
+	protected <T> EntryMapper<T> getEntryMapper(Class<T> entryClass, List<PropertyAnnotation> propertiesAnnotations) {
+		EntryClassMetadata metadata = getClassMetadata(entryClass);
+		EntryMapper<T> entryMapper = (EntryMapper<T>) metadata.getEntryMapper();
+		if (entryMapper == null) {
+			// Concurrent builds produce equal mappers, last one wins
+			entryMapper = new EntryMapper<T>(entryClass, getTypeObjectClasses(entryClass), propertiesAnnotations);
+			metadata.setEntryMapper(entryMapper);
 		}
 
-		return setter;
+		return entryMapper;
 	}
 
 	private AttributeData getAttributeData(String propertyName, Getter propertyNameGetter, Getter propertyValueGetter,
@@ -1553,14 +1582,21 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 
 	private void setPropertyValue(String propertyName, Setter propertyValueSetter, Object entry,
 			AttributeData attribute, boolean jsonObject) {
+		Class<?> parameterType = ReflectHelper.getSetterType(propertyValueSetter);
+		setPropertyValue(propertyName, propertyValueSetter, parameterType, null, entry, attribute, jsonObject);
+	}
+
+	private void setPropertyValue(String propertyName, Setter propertyValueSetter, Class<?> parameterType, Class<?> listItemType,
+			Object entry, AttributeData attribute, boolean jsonObject) {
 		if (attribute == null) {
 			return;
 		}
 
-		LOG.debug(String.format("LdapProperty: %s, AttributeName: %s, AttributeValue: %s", propertyName,
-				attribute.getName(), Arrays.toString(attribute.getValues())));
+		if (LOG.isDebugEnabled()) {
+			LOG.debug(String.format("LdapProperty: %s, AttributeName: %s, AttributeValue: %s", propertyName,
+					attribute.getName(), Arrays.toString(attribute.getValues())));
+		}
 
-		Class<?> parameterType = ReflectHelper.getSetterType(propertyValueSetter);
 		if (parameterType.equals(String.class)) {
 			Object value = attribute.getValue();
 			if (value instanceof Date) {
@@ -1578,17 +1614,21 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 		} else if (parameterType.equals(String[].class)) {
 			propertyValueSetter.set(entry, attribute.getStringValues());
 		} else if (ReflectHelper.assignableFrom(parameterType, List.class)) {
+			if (listItemType == null) {
+				listItemType = ReflectHelper.getListType(propertyValueSetter);
+			}
+
 			if (jsonObject) {
 				Object[] values = attribute.getValues();
 				List<Object> jsonValues = new ArrayList<Object>(values.length);
 
 				for (Object value : values) {
-					Object jsonValue = convertJsonToValue(ReflectHelper.getListType(propertyValueSetter), value);
+					Object jsonValue = convertJsonToValue(listItemType, value);
 					jsonValues.add(jsonValue);
 				}
 				propertyValueSetter.set(entry, jsonValues);
 			} else {
-				List<?> resultValues = attributeToTypedList(ReflectHelper.getListType(propertyValueSetter), attribute);
+				List<?> resultValues = attributeToTypedList(listItemType, attribute);
 				propertyValueSetter.set(entry, resultValues);
 			}
 		} else if (ReflectHelper.assignableFrom(parameterType, AttributeEnum.class)) {
@@ -1702,7 +1742,7 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 	}
 
 	private Object getListItem(String propertyName, Setter propertyNameSetter, Setter propertyValueSetter,
-			Setter entryPropertyMultivaluedSetter, Class<?> classType, AttributeData attribute) {
+			Class<?> propertyValueType, Setter entryPropertyMultivaluedSetter, Class<?> classType, AttributeData attribute) {
 		if (attribute == null) {
 			return null;
 		}
@@ -1714,7 +1754,7 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 			throw new MappingException(String.format("Entry %s should has default constructor", classType));
 		}
 		propertyNameSetter.set(result, attribute.getName());
-		setPropertyValue(propertyName, propertyValueSetter, result, attribute, false);
+		setPropertyValue(propertyName, propertyValueSetter, propertyValueType, null, result, attribute, false);
 		
 		if ((entryPropertyMultivaluedSetter != null) && (attribute.getMultiValued() != null)) {
 			entryPropertyMultivaluedSetter.set(result, attribute.getMultiValued());
@@ -1960,6 +2000,10 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 	}
 
 	protected boolean isMultiValued(Class<?> parameterType) {
+		return isMultiValuedType(parameterType);
+	}
+
+	static boolean isMultiValuedType(Class<?> parameterType) {
 		if (parameterType == null) {
 			return false;
 		}
@@ -1973,6 +2017,18 @@ public abstract class BaseEntryManager implements PersistenceEntryManager {
 
 	protected abstract String encodeTime(Date date);
 
+	public boolean isChangeTrackingEnabled() {
+		return changeTrackingEnabled;
+	}
+
+	/**
+	 * Entries loaded by primary key keep snapshot of persisted attributes. Merge of such
+	 * entry uses snapshot instead of loading entry again
+	 */
+	public void setChangeTrackingEnabled(boolean changeTrackingEnabled) {
+		this.changeTrackingEnabled = changeTrackingEnabled;
+	}
+
 	public void setPersistenceExtension(PersistenceExtension persistenceExtension) {
 		this.persistenceExtension = persistenceExtension;
 
@@ -0,0 +1,94 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.impl;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.gluu.persist.reflect.property.Getter;
+import org.gluu.persist.reflect.property.PropertyAnnotation;
+import org.gluu.persist.reflect.property.Setter;
+import org.gluu.persist.reflect.util.ReflectHelper;
+
+/**
+ * Reflection metadata and entry mapper of class. Instances are owned by Entry
+ * Manager and released together with it, so application class loaders are not
+ * pinned after redeploy. All lookups are lock-free.
+ */
+final class EntryClassMetadata {
+
+	private final Class<?> theClass;
+
+	private final Map<String, List<PropertyAnnotation>> propertiesAnnotations = new ConcurrentHashMap<String, List<PropertyAnnotation>>();
+	private final Map<String, Getter> getters = new ConcurrentHashMap<String, Getter>();
+	private final Map<String, Setter> setters = new ConcurrentHashMap<String, Setter>();
+
+	private volatile EntryMapper<?> entryMapper;
+
+	EntryClassMetadata(Class<?> theClass) {
+		this.theClass = theClass;
+	}
+
+	/**
+	 * Returns sorted list of properties with specified annotations. Category is the
+	 * constant key which identifies annotation types set.
+	 */
+	public List<PropertyAnnotation> getPropertiesAnnotations(String category, Class<?>[] annotationTypes) {
+		List<PropertyAnnotation> annotations = propertiesAnnotations.get(category);
+		if (annotations == null) {
+			annotations = propertiesAnnotations.computeIfAbsent(category, key -> {
+				Map<String, List<Annotation>> annotationsMap = ReflectHelper.getPropertiesAnnotations(theClass, annotationTypes);
+				return convertToPropertyAnnotationList(annotationsMap);
+			});
+		}
+
+		return annotations;
+	}
+
+	public Getter getGetter(String propertyName) {
+		Getter getter = getters.get(propertyName);
+		if (getter == null) {
+			getter = getters.computeIfAbsent(propertyName, key -> ReflectHelper.getGetter(theClass, key));
+		}
+
+		return getter;
+	}
+
+	public Setter getSetter(String propertyName) {
+		Setter setter = setters.get(propertyName);
+		if (setter == null) {
+			setter = setters.computeIfAbsent(propertyName, key -> ReflectHelper.getSetter(theClass, key));
+		}
+
+		return setter;
+	}
+
+	public EntryMapper<?> getEntryMapper() {
+		return entryMapper;
+	}
+
+	public void setEntryMapper(EntryMapper<?> entryMapper) {
+		this.entryMapper = entryMapper;
+	}
+
+	private static List<PropertyAnnotation> convertToPropertyAnnotationList(Map<String, List<Annotation>> annotations) {
+		List<PropertyAnnotation> result = new ArrayList<PropertyAnnotation>(annotations.size());
+		for (Entry<String, List<Annotation>> entry : annotations.entrySet()) {
+			result.add(new PropertyAnnotation(entry.getKey(), entry.getValue()));
+		}
+
+		Collections.sort(result);
+
+		return Collections.unmodifiableList(result);
+	}
+
+}
@@ -0,0 +1,372 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.impl;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gluu.persist.annotation.AttributeName;
+import org.gluu.persist.annotation.AttributesList;
+import org.gluu.persist.annotation.JsonObject;
+import org.gluu.persist.exception.MappingException;
+import org.gluu.persist.exception.PropertyNotFoundException;
+import org.gluu.persist.reflect.property.Getter;
+import org.gluu.persist.reflect.property.PropertyAnnotation;
+import org.gluu.persist.reflect.property.Setter;
+import org.gluu.persist.reflect.util.ReflectHelper;
+import org.gluu.util.StringHelper;
+
+/**
+ * Precompiled mapping between entry class properties and persistence attributes.
+ * It's built once per entry class and holds resolved getters, setters and
+ * value types to avoid annotations processing on each entry conversion.
+ *
+ * Properties without getter or setter are allowed. Entry Manager reports an
+ * error only when it needs missing accessor.
+ */
+public class EntryMapper<T> {
+
+	private final Class<T> entryClass;
+	private final String[] typeObjectClasses;
+	private final List<PropertyMapping> propertyMappings;
+	private final List<PropertyMapping> attributeMappings;
+	private final List<PropertyMapping> attributesListMappings;
+	private final Map<String, PropertyMapping> propertyMappingsByName;
+
+	EntryMapper(Class<T> entryClass, String[] typeObjectClasses, List<PropertyAnnotation> propertiesAnnotations) {
+		this.entryClass = entryClass;
+
+		String[] sortedTypeObjectClasses = typeObjectClasses.clone();
+		Arrays.sort(sortedTypeObjectClasses);
+		this.typeObjectClasses = sortedTypeObjectClasses;
+
+		List<PropertyMapping> propertyMappings = new ArrayList<PropertyMapping>(propertiesAnnotations.size());
+		List<PropertyMapping> attributeMappings = new ArrayList<PropertyMapping>();
+		List<PropertyMapping> attributesListMappings = new ArrayList<PropertyMapping>();
+		Map<String, PropertyMapping> propertyMappingsByName = new HashMap<String, PropertyMapping>();
+		for (PropertyAnnotation propertiesAnnotation : propertiesAnnotations) {
+			PropertyMapping propertyMapping = new PropertyMapping(entryClass, propertiesAnnotation);
+			if (propertyMapping.getAttributeName() == null && propertyMapping.getAttributesList() == null) {
+				continue;
+			}
+
+			propertyMappings.add(propertyMapping);
+			propertyMappingsByName.put(propertyMapping.getPropertyName(), propertyMapping);
+			if (propertyMapping.getAttributeName() != null) {
+				attributeMappings.add(propertyMapping);
+			}
+			if (propertyMapping.getAttributesList() != null) {
+				attributesListMappings.add(propertyMapping);
+			}
+		}
+
+		this.propertyMappings = Collections.unmodifiableList(propertyMappings);
+		this.attributeMappings = Collections.unmodifiableList(attributeMappings);
+		this.attributesListMappings = Collections.unmodifiableList(attributesListMappings);
+		this.propertyMappingsByName = propertyMappingsByName;
+	}
+
+	public Class<T> getEntryClass() {
+		return entryClass;
+	}
+
+	/**
+	 * Sorted type object classes
+	 */
+	public String[] getTypeObjectClasses() {
+		return typeObjectClasses;
+	}
+
+	/**
+	 * All mapped properties in properties annotations order
+	 */
+	public List<PropertyMapping> getPropertyMappings() {
+		return propertyMappings;
+	}
+
+	/**
+	 * Properties with AttributeName annotation
+	 */
+	public List<PropertyMapping> getAttributeMappings() {
+		return attributeMappings;
+	}
+
+	/**
+	 * Properties with AttributesList annotation
+	 */
+	public List<PropertyMapping> getAttributesListMappings() {
+		return attributesListMappings;
+	}
+
+	public PropertyMapping getPropertyMapping(String propertyName) {
+		PropertyMapping propertyMapping = propertyMappingsByName.get(propertyName);
+		if (propertyMapping == null) {
+			throw new MappingException("Entry " + entryClass + " has no mapped property " + propertyName);
+		}
+
+		return propertyMapping;
+	}
+
+	private static Getter resolveGetter(Class<?> theClass, String propertyName) {
+		if (theClass == null) {
+			return null;
+		}
+
+		try {
+			return ReflectHelper.getGetter(theClass, propertyName);
+		} catch (PropertyNotFoundException ex) {
+			return null;
+		}
+	}
+
+	private static Setter resolveSetter(Class<?> theClass, String propertyName) {
+		if (theClass == null) {
+			return null;
+		}
+
+		try {
+			return ReflectHelper.getSetter(theClass, propertyName);
+		} catch (PropertyNotFoundException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Resolved property metadata
+	 */
+	public static final class PropertyMapping {
+
+		private final String propertyName;
+
+		private final AttributeName attributeName;
+		private final String ldapAttributeName;
+		private final String ldapAttributeNameLowerCase;
+		private final boolean jsonObject;
+
+		private final Getter getter;
+		private final Setter setter;
+		private final Class<?> parameterType;
+		private final Class<?> listItemType;
+		private final boolean multiValued;
+
+		private final AttributesList attributesList;
+		private final Map<String, AttributeName> attributesConfiguration;
+		private final Class<?> getterItemType;
+		private final Getter itemNameGetter;
+		private final Getter itemValueGetter;
+		private final Getter itemMultiValuedGetter;
+		private final Setter itemNameSetter;
+		private final Setter itemValueSetter;
+		private final Setter itemMultiValuedSetter;
+
+		private PropertyMapping(Class<?> entryClass, PropertyAnnotation propertiesAnnotation) {
+			this.propertyName = propertiesAnnotation.getPropertyName();
+			List<Annotation> annotations = propertiesAnnotation.getAnnotations();
+
+			this.attributeName = (AttributeName) ReflectHelper.getAnnotationByType(annotations, AttributeName.class);
+			this.attributesList = (AttributesList) ReflectHelper.getAnnotationByType(annotations, AttributesList.class);
+			this.jsonObject = ReflectHelper.getAnnotationByType(annotations, JsonObject.class) != null;
+
+			if (this.attributeName == null) {
+				this.ldapAttributeName = null;
+				this.ldapAttributeNameLowerCase = null;
+			} else {
+				String ldapAttributeName = this.attributeName.name();
+				if (StringHelper.isEmpty(ldapAttributeName)) {
+					ldapAttributeName = this.propertyName;
+				}
+				this.ldapAttributeName = ldapAttributeName;
+				this.ldapAttributeNameLowerCase = ldapAttributeName.toLowerCase();
+			}
+
+			if ((this.attributeName == null) && (this.attributesList == null)) {
+				this.getter = null;
+				this.setter = null;
+			} else {
+				this.getter = resolveGetter(entryClass, this.propertyName);
+				this.setter = resolveSetter(entryClass, this.propertyName);
+			}
+
+			this.parameterType = ReflectHelper.getSetterType(this.setter);
+			this.multiValued = (this.parameterType != null) && BaseEntryManager.isMultiValuedType(this.parameterType);
+			if ((this.parameterType != null) && ReflectHelper.assignableFrom(this.parameterType, List.class)) {
+				this.listItemType = ReflectHelper.getListType(this.setter);
+			} else {
+				this.listItemType = null;
+			}
+
+			if (this.attributesList == null) {
+				this.attributesConfiguration = null;
+				this.getterItemType = null;
+				this.itemNameGetter = null;
+				this.itemValueGetter = null;
+				this.itemMultiValuedGetter = null;
+				this.itemNameSetter = null;
+				this.itemValueSetter = null;
+				this.itemMultiValuedSetter = null;
+			} else {
+				Map<String, AttributeName> attributesConfiguration = new HashMap<String, AttributeName>();
+				for (AttributeName ldapAttributeConfiguration : this.attributesList.attributesConfiguration()) {
+					attributesConfiguration.put(ldapAttributeConfiguration.name(), ldapAttributeConfiguration);
+				}
+				this.attributesConfiguration = Collections.unmodifiableMap(attributesConfiguration);
+
+				String multiValuedPropertyName = this.attributesList.multiValued();
+				boolean hasMultiValuedProperty = StringHelper.isNotEmpty(multiValuedPropertyName);
+
+				this.getterItemType = ReflectHelper.getListType(this.getter);
+				this.itemNameGetter = resolveGetter(this.getterItemType, this.attributesList.name());
+				this.itemValueGetter = resolveGetter(this.getterItemType, this.attributesList.value());
+				this.itemMultiValuedGetter = hasMultiValuedProperty ? resolveGetter(this.getterItemType, multiValuedPropertyName) : null;
+
+				this.itemNameSetter = resolveSetter(this.listItemType, this.attributesList.name());
+				this.itemValueSetter = resolveSetter(this.listItemType, this.attributesList.value());
+				this.itemMultiValuedSetter = hasMultiValuedProperty ? resolveSetter(this.listItemType, multiValuedPropertyName) : null;
+			}
+		}
+
+		public String getPropertyName() {
+			return propertyName;
+		}
+
+		public AttributeName getAttributeName() {
+			return attributeName;
+		}
+
+		public String getLdapAttributeName() {
+			return ldapAttributeName;
+		}
+
+		public String getLdapAttributeNameLowerCase() {
+			return ldapAttributeNameLowerCase;
+		}
+
+		public boolean isJsonObject() {
+			return jsonObject;
+		}
+
+		public Getter getGetter() {
+			if (getter == null) {
+				throw new MappingException("Entry should has getter for property " + propertyName);
+			}
+
+			return getter;
+		}
+
+		public Setter getSetter() {
+			if (setter == null) {
+				throw new MappingException("Entry should has setter for property " + propertyName);
+			}
+
+			return setter;
+		}
+
+		public Class<?> getParameterType() {
+			getSetter();
+
+			return parameterType;
+		}
+
+		public Class<?> getListItemType() {
+			return listItemType;
+		}
+
+		public boolean isMultiValued() {
+			getSetter();
+
+			return multiValued;
+		}
+
+		public AttributesList getAttributesList() {
+			return attributesList;
+		}
+
+		public Map<String, AttributeName> getAttributesConfiguration() {
+			return attributesConfiguration;
+		}
+
+		public Class<?> getGetterItemType() {
+			return getterItemType;
+		}
+
+		public Getter getItemNameGetter() {
+			if (itemNameGetter == null) {
+				throw new MappingException(
+						"Entry should has getter for property " + propertyName + "." + attributesList.name());
+			}
+
+			return itemNameGetter;
+		}
+
+		public Getter getItemValueGetter() {
+			if (itemValueGetter == null) {
+				throw new MappingException(
+						"Entry should has getter for property " + propertyName + "." + attributesList.value());
+			}
+
+			return itemValueGetter;
+		}
+
+		public Getter getItemMultiValuedGetter() {
+			if ((itemMultiValuedGetter != null) && !itemMultiValuedGetter.getReturnType().equals(Boolean.TYPE)) {
+				throw new MappingException("Entry should has getter for property " + propertyName + "."
+						+ attributesList.multiValued() + " with boolean type");
+			}
+
+			return itemMultiValuedGetter;
+		}
+
+		public Class<?> getListItemTypeForRead() {
+			if (listItemType == null) {
+				throw new MappingException(
+						"Entry property " + propertyName + " should has setter with specified element type");
+			}
+
+			return listItemType;
+		}
+
+		public Setter getItemNameSetter() {
+			if (itemNameSetter == null) {
+				throw new MappingException(
+						"Entry should has setter for property " + propertyName + "." + attributesList.name());
+			}
+
+			return itemNameSetter;
+		}
+
+		public Setter getItemValueSetter() {
+			if (itemValueSetter == null) {
+				throw new MappingException(
+						"Entry should has getter for property " + propertyName + "." + attributesList.value());
+			}
+
+			return itemValueSetter;
+		}
+
+		public Setter getItemMultiValuedSetter() {
+			if ((itemMultiValuedSetter != null) && !ReflectHelper.getSetterType(itemMultiValuedSetter).equals(Boolean.TYPE)) {
+				throw new MappingException("Entry should has getter for property " + propertyName + "."
+						+ attributesList.multiValued() + " with boolean type");
+			}
+
+			return itemMultiValuedSetter;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("PropertyMapping [propertyName=%s, ldapAttributeName=%s, attributesList=%s]", propertyName,
+					ldapAttributeName, attributesList != null);
+		}
+
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.impl;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.gluu.persist.model.AttributeData;
+
+/**
+ * Persisted attributes of entries loaded by Entry Manager. Snapshots are bound
+ * to entry instances by identity and are dropped together with entries.
+ */
+final class EntrySnapshots {
+
+	private final Map<EntryReference, EntrySnapshot> snapshots = new ConcurrentHashMap<EntryReference, EntrySnapshot>();
+	private final ReferenceQueue<Object> referenceQueue = new ReferenceQueue<Object>();
+
+	public void put(Object entry, String dn, List<AttributeData> attributes) {
+		expungeStaleEntries();
+
+		snapshots.put(new EntryReference(entry, referenceQueue), new EntrySnapshot(dn, attributes));
+	}
+
+	/**
+	 * Returns and forgets snapshot of entry. Snapshot is valid only for one merge
+	 */
+	public List<AttributeData> remove(Object entry, String dn) {
+		expungeStaleEntries();
+
+		EntrySnapshot snapshot = snapshots.remove(new EntryReference(entry, null));
+		if ((snapshot == null) || !snapshot.getDn().equalsIgnoreCase(dn)) {
+			return null;
+		}
+
+		return snapshot.getAttributes();
+	}
+
+	public int size() {
+		return snapshots.size();
+	}
+
+	private void expungeStaleEntries() {
+		Reference<?> reference;
+		while ((reference = referenceQueue.poll()) != null) {
+			snapshots.remove(reference);
+		}
+	}
+
+	/**
+	 * Filter snapshot attributes to specified list of attributes
+	 */
+	public static List<AttributeData> filterAttributes(List<AttributeData> attributes, List<String> attributeNames) {
+		Set<String> names = new HashSet<String>();
+		for (String attributeName : attributeNames) {
+			names.add(attributeName.toLowerCase());
+		}
+
+		List<AttributeData> result = new ArrayList<AttributeData>(attributes.size());
+		for (AttributeData attribute : attributes) {
+			if (names.contains(attribute.getName().toLowerCase())) {
+				result.add(attribute);
+			}
+		}
+
+		return result;
+	}
+
+	private static final class EntryReference extends WeakReference<Object> {
+
+		private final int hashCode;
+
+		EntryReference(Object entry, ReferenceQueue<Object> referenceQueue) {
+			super(entry, referenceQueue);
+			this.hashCode = System.identityHashCode(entry);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+
+			if (!(obj instanceof EntryReference)) {
+				return false;
+			}
+
+			Object entry = get();
+			return (entry != null) && (entry == ((EntryReference) obj).get());
+		}
+
+	}
+
+	private static final class EntrySnapshot {
+
+		private final String dn;
+		private final List<AttributeData> attributes;
+
+		EntrySnapshot(String dn, List<AttributeData> attributes) {
+			this.dn = dn;
+			this.attributes = Collections.unmodifiableList(new ArrayList<AttributeData>(attributes));
+		}
+
+		public String getDn() {
+			return dn;
+		}
+
+		public List<AttributeData> getAttributes() {
+			return attributes;
+		}
+
+	}
+
+}
@@ -0,0 +1,20 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.model;
+
+import java.util.Iterator;
+
+/**
+ * Iterator over persistence resources. It should be closed to release
+ * resources if iteration was not finished
+ */
+public interface CloseableIterator<T> extends Iterator<T>, AutoCloseable {
+
+    @Override
+    void close();
+
+}
@@ -0,0 +1,51 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.model;
+
+import org.gluu.persist.exception.BasePersistenceException;
+
+/**
+ * Result of operation with one entry in bulk request
+ */
+public class EntryOperationResult {
+
+    private final Object entry;
+    private final String dn;
+    private final BasePersistenceException error;
+
+    public EntryOperationResult(Object entry, String dn) {
+        this(entry, dn, null);
+    }
+
+    public EntryOperationResult(Object entry, String dn, BasePersistenceException error) {
+        this.entry = entry;
+        this.dn = dn;
+        this.error = error;
+    }
+
+    public Object getEntry() {
+        return entry;
+    }
+
+    public String getDn() {
+        return dn;
+    }
+
+    public BasePersistenceException getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EntryOperationResult [dn=%s, success=%s, error=%s]", dn, isSuccess(), error);
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.model;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Base iterator which loads entries page by page. It holds only current page
+ * in memory
+ */
+public abstract class PagedIterator<T> implements CloseableIterator<T> {
+
+    private List<T> page;
+    private int pageIndex;
+    private boolean closed;
+
+    /**
+     * Returns next page of entries or null if there are no more entries
+     */
+    protected abstract List<T> nextPage();
+
+    /**
+     * Release resources allocated for iteration
+     */
+    protected abstract void closeImpl();
+
+    @Override
+    public boolean hasNext() {
+        while (!closed && ((page == null) || (pageIndex >= page.size()))) {
+            // Allow java to clean up previous page before loading next one
+            page = null;
+            pageIndex = 0;
+
+            List<T> nextPage;
+            try {
+                nextPage = nextPage();
+            } catch (RuntimeException ex) {
+                close();
+                throw ex;
+            }
+
+            if (nextPage == null) {
+                close();
+            } else {
+                page = nextPage;
+            }
+        }
+
+        return !closed;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return page.get(pageIndex++);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        page = null;
+        closeImpl();
+    }
+
+}
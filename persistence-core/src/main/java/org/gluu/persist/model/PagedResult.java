@@ -24,6 +24,8 @@ public class PagedResult<T> implements Serializable {
 
     private List<T> entries;
 
+    private String nextPageToken;
+
     public int getTotalEntriesCount() {
         return totalEntriesCount;
     }
@@ -56,4 +58,16 @@ public class PagedResult<T> implements Serializable {
         this.entries = entries;
     }
 
+    /**
+     * Token which allows to load next page without scrolling to start position.
+     * It's null if there are no more entries
+     */
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public void setNextPageToken(String nextPageToken) {
+        this.nextPageToken = nextPageToken;
+    }
+
 }
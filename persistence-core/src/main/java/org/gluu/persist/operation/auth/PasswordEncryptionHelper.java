@@ -13,6 +13,8 @@ import java.security.SecureRandom;
 import java.security.spec.KeySpec;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
@@ -32,6 +34,12 @@ public final class PasswordEncryptionHelper {
 
     private static final byte[] CRYPT_SALT_CHARS = StringHelper.getBytesUtf8("./0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz");
 
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    // Digests and key factories are not thread safe. Every thread uses own instances
+    private static final ThreadLocal<Map<String, MessageDigest>> MESSAGE_DIGESTS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, SecretKeyFactory>> SECRET_KEY_FACTORIES = ThreadLocal.withInitial(HashMap::new);
+
     private PasswordEncryptionHelper() {
     }
 
@@ -120,13 +128,13 @@ public final class PasswordEncryptionHelper {
         case HASH_METHOD_SMD5:
             // Use 8 byte salt always except for "crypt" which needs 2 byte salt
             salt = new byte[8];
-            new SecureRandom().nextBytes(salt);
+            SECURE_RANDOM.nextBytes(salt);
             break;
 
         case HASH_METHOD_PKCS5S2:
             // Use 16 byte salt for PKCS5S2
             salt = new byte[16];
-            new SecureRandom().nextBytes(salt);
+            SECURE_RANDOM.nextBytes(salt);
             break;
 
         case HASH_METHOD_CRYPT:
@@ -291,11 +299,8 @@ public final class PasswordEncryptionHelper {
      * Compute the hashed password given an algorithm, the credentials and an optional salt.
      */
     private static byte[] digest(PasswordEncryptionMethod algorithm, byte[] password, byte[] salt) {
-        MessageDigest digest;
-
-        try {
-            digest = MessageDigest.getInstance(algorithm.getAlgorithm());
-        } catch (NoSuchAlgorithmException ex) {
+        MessageDigest digest = getMessageDigest(algorithm.getAlgorithm());
+        if (digest == null) {
             return null;
         }
 
@@ -308,6 +313,34 @@ public final class PasswordEncryptionHelper {
         }
     }
 
+    private static MessageDigest getMessageDigest(String algorithm) {
+        Map<String, MessageDigest> digests = MESSAGE_DIGESTS.get();
+        MessageDigest digest = digests.get(algorithm);
+        if (digest == null) {
+            try {
+                digest = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException ex) {
+                return null;
+            }
+            digests.put(algorithm, digest);
+        } else {
+            digest.reset();
+        }
+
+        return digest;
+    }
+
+    private static SecretKeyFactory getSecretKeyFactory(String algorithm) throws NoSuchAlgorithmException {
+        Map<String, SecretKeyFactory> factories = SECRET_KEY_FACTORIES.get();
+        SecretKeyFactory factory = factories.get(algorithm);
+        if (factory == null) {
+            factory = SecretKeyFactory.getInstance(algorithm);
+            factories.put(algorithm, factory);
+        }
+
+        return factory;
+    }
+
     /**
      * Decompose the stored password in an algorithm, an eventual salt and the
      * password itself.
@@ -419,7 +452,7 @@ public final class PasswordEncryptionHelper {
      */
     private static byte[] generatePbkdf2Hash(byte[] credentials, PasswordEncryptionMethod algorithm, byte[] salt) {
         try {
-            SecretKeyFactory sk = SecretKeyFactory.getInstance(algorithm.getAlgorithm());
+            SecretKeyFactory sk = getSecretKeyFactory(algorithm.getAlgorithm());
             char[] password = StringHelper.utf8ToString(credentials).toCharArray();
             KeySpec keySpec = new PBEKeySpec(password, salt, 10000, algorithm.getHashLength() * 8);
             Key key = sk.generateSecret(keySpec);
@@ -450,9 +483,8 @@ public final class PasswordEncryptionHelper {
 
     private static byte[] generateCryptSalt(int length) {
         byte[] salt = new byte[length];
-        SecureRandom sr = new SecureRandom();
         for (int i = 0; i < salt.length; i++) {
-            salt[i] = CRYPT_SALT_CHARS[sr.nextInt(CRYPT_SALT_CHARS.length)];
+            salt[i] = CRYPT_SALT_CHARS[SECURE_RANDOM.nextInt(CRYPT_SALT_CHARS.length)];
         }
 
         return salt;
@@ -0,0 +1,213 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.operation.auth;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.gluu.persist.exception.AuthenticationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verifies passwords hashed with CPU expensive methods (crypt, bcrypt,
+ * PKCS5S2) in bounded pool. It limits CPU which authentication can use and
+ * rejects verifications when pool queue is full. Cheap digests are verified
+ * in caller thread
+ */
+public class PasswordVerificationService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PasswordVerificationService.class);
+
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_QUEUE_SIZE = 256;
+    public static final long DEFAULT_TIMEOUT = 30000;
+
+    // lazy init via static holder
+    private static class Holder {
+        static final PasswordVerificationService INSTANCE = new PasswordVerificationService(DEFAULT_THREADS, DEFAULT_QUEUE_SIZE, DEFAULT_TIMEOUT);
+    }
+
+    private final int threads;
+    private final int queueSize;
+    private final long timeout;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong verifications = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong totalQueueTime = new AtomicLong();
+    private final AtomicLong maxQueueTime = new AtomicLong();
+
+    /**
+     * @param threads
+     *            number of verification threads
+     * @param queueSize
+     *            maximum number of verifications which wait for thread
+     * @param timeout
+     *            maximum time in milliseconds caller waits for result
+     */
+    public PasswordVerificationService(int threads, int queueSize, long timeout) {
+        this.threads = Math.max(1, threads);
+        this.queueSize = Math.max(1, queueSize);
+        this.timeout = timeout;
+
+        final AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(this.queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-verification-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static PasswordVerificationService defaultInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Compare the credentials
+     *
+     * @throws AuthenticationException
+     *             if service is overloaded or verification timed out
+     */
+    public boolean compareCredentials(final String receivedCredentials, final String storedCredentials) {
+        PasswordEncryptionMethod algorithm = PasswordEncryptionHelper.findAlgorithm(storedCredentials);
+        if (!isExpensive(algorithm)) {
+            return PasswordEncryptionHelper.compareCredentials(receivedCredentials, storedCredentials);
+        }
+
+        final long submitTime = System.nanoTime();
+        Future<Boolean> future;
+        try {
+            future = executor.submit(() -> {
+                recordQueueTime(System.nanoTime() - submitTime);
+                return PasswordEncryptionHelper.compareCredentials(receivedCredentials, storedCredentials);
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.incrementAndGet();
+            LOG.warn("Password verification was rejected. There are {} verifications in queue", executor.getQueue().size());
+            throw new AuthenticationException("Too many concurrent password verifications", ex);
+        }
+
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            timedOut.incrementAndGet();
+            throw new AuthenticationException(String.format("Password verification took more than %d ms", timeout), ex);
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationException("Password verification was interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new AuthenticationException("Failed to verify password", ex.getCause());
+        }
+    }
+
+    private boolean isExpensive(PasswordEncryptionMethod algorithm) {
+        if (algorithm == null) {
+            return false;
+        }
+
+        switch (algorithm) {
+        case HASH_METHOD_CRYPT:
+        case HASH_METHOD_CRYPT_MD5:
+        case HASH_METHOD_CRYPT_SHA256:
+        case HASH_METHOD_CRYPT_SHA512:
+        case HASH_METHOD_CRYPT_BCRYPT:
+        case HASH_METHOD_CRYPT_BCRYPT_B:
+        case HASH_METHOD_PKCS5S2:
+            return true;
+
+        default:
+            return false;
+        }
+    }
+
+    private void recordQueueTime(long queueTime) {
+        verifications.incrementAndGet();
+        totalQueueTime.addAndGet(queueTime);
+
+        long currentMax;
+        do {
+            currentMax = maxQueueTime.get();
+        } while ((queueTime > currentMax) && !maxQueueTime.compareAndSet(currentMax, queueTime));
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Number of verifications which wait for thread
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long getVerificationsCount() {
+        return verifications.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    /**
+     * Average queue time in milliseconds
+     */
+    public double getAverageQueueTime() {
+        long count = verifications.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        return TimeUnit.NANOSECONDS.toMicros(totalQueueTime.get()) / 1000.0 / count;
+    }
+
+    /**
+     * Maximum queue time in milliseconds
+     */
+    public long getMaxQueueTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxQueueTime.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "PasswordVerificationService [threads=%d, queueSize=%d, timeout=%d, queueDepth=%d, verifications=%d, rejected=%d, timedOut=%d, averageQueueTime=%.3fms, maxQueueTime=%dms]",
+                threads, queueSize, timeout, getQueueDepth(), getVerificationsCount(), getRejectedCount(), getTimedOutCount(),
+                getAverageQueueTime(), getMaxQueueTime());
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.gluu.persist.annotation.AttributeName;
+import org.gluu.persist.annotation.AttributesList;
+import org.gluu.persist.annotation.DataEntry;
+import org.gluu.persist.annotation.JsonObject;
+import org.gluu.persist.annotation.ObjectClass;
+import org.gluu.persist.exception.MappingException;
+import org.gluu.persist.impl.EntryMapper.PropertyMapping;
+import org.gluu.persist.model.base.CustomObjectAttribute;
+import org.gluu.persist.reflect.property.PropertyAnnotation;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link EntryMapper}
+ */
+public class EntryMapperTest {
+
+	private static final Class<?>[] PROPERTY_ANNOTATIONS = { AttributeName.class, AttributesList.class, JsonObject.class };
+
+	@Test
+	public void typeObjectClassesAreSorted() {
+		String[] objectClasses = new String[] { "gluuPerson", "eduPerson" };
+		EntryMapper<SampleEntry> entryMapper = createEntryMapper(objectClasses);
+
+		assertEquals(entryMapper.getTypeObjectClasses(), new String[] { "eduPerson", "gluuPerson" });
+		assertEquals(objectClasses, new String[] { "gluuPerson", "eduPerson" });
+	}
+
+	@Test
+	public void mappingsAreSplitByAnnotation() {
+		EntryMapper<SampleEntry> entryMapper = createEntryMapper();
+
+		assertEquals(propertyNames(entryMapper.getPropertyMappings()), Arrays.asList("customAttributes", "displayName", "mails", "settings", "uid"));
+		assertEquals(propertyNames(entryMapper.getAttributeMappings()), Arrays.asList("displayName", "mails", "settings", "uid"));
+		assertEquals(propertyNames(entryMapper.getAttributesListMappings()), Arrays.asList("customAttributes"));
+	}
+
+	@Test
+	public void attributeNamesAreResolved() {
+		EntryMapper<SampleEntry> entryMapper = createEntryMapper();
+
+		PropertyMapping uid = entryMapper.getPropertyMapping("uid");
+		assertEquals(uid.getLdapAttributeName(), "userId");
+		assertEquals(uid.getLdapAttributeNameLowerCase(), "userid");
+		assertFalse(uid.isMultiValued());
+		assertFalse(uid.isJsonObject());
+
+		PropertyMapping displayName = entryMapper.getPropertyMapping("displayName");
+		assertEquals(displayName.getLdapAttributeName(), "displayName");
+
+		PropertyMapping mails = entryMapper.getPropertyMapping("mails");
+		assertTrue(mails.isMultiValued());
+		assertEquals(mails.getListItemType(), String.class);
+
+		assertTrue(entryMapper.getPropertyMapping("settings").isJsonObject());
+	}
+
+	@Test
+	public void attributesListAccessorsAreResolved() {
+		EntryMapper<SampleEntry> entryMapper = createEntryMapper();
+
+		PropertyMapping customAttributes = entryMapper.getPropertyMapping("customAttributes");
+		assertEquals(customAttributes.getGetterItemType(), CustomObjectAttribute.class);
+		assertEquals(customAttributes.getListItemTypeForRead(), CustomObjectAttribute.class);
+		assertNotNull(customAttributes.getItemNameGetter());
+		assertNotNull(customAttributes.getItemValueGetter());
+		assertNotNull(customAttributes.getItemMultiValuedGetter());
+		assertNotNull(customAttributes.getItemNameSetter());
+		assertNotNull(customAttributes.getItemValueSetter());
+		assertNull(customAttributes.getLdapAttributeName());
+	}
+
+	@Test
+	public void missingAccessorIsReportedOnUse() {
+		EntryMapper<SampleEntry> entryMapper = createEntryMapper();
+
+		PropertyMapping displayName = entryMapper.getPropertyMapping("displayName");
+		assertNotNull(displayName.getGetter());
+		try {
+			displayName.getSetter();
+			fail("Expected MappingException for property without setter");
+		} catch (MappingException ex) {
+			// Expected
+		}
+	}
+
+	@Test(expectedExceptions = MappingException.class)
+	public void unknownPropertyIsRejected() {
+		createEntryMapper().getPropertyMapping("notMapped");
+	}
+
+	private EntryMapper<SampleEntry> createEntryMapper() {
+		return createEntryMapper(new String[] { "gluuPerson" });
+	}
+
+	private EntryMapper<SampleEntry> createEntryMapper(String[] objectClasses) {
+		List<PropertyAnnotation> propertiesAnnotations = new EntryClassMetadata(SampleEntry.class)
+				.getPropertiesAnnotations("property_", PROPERTY_ANNOTATIONS);
+
+		return new EntryMapper<SampleEntry>(SampleEntry.class, objectClasses, propertiesAnnotations);
+	}
+
+	private static List<String> propertyNames(List<PropertyMapping> propertyMappings) {
+		String[] result = new String[propertyMappings.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = propertyMappings.get(i).getPropertyName();
+		}
+
+		return Arrays.asList(result);
+	}
+
+	@DataEntry
+	@ObjectClass("gluuPerson")
+	public static class SampleEntry {
+
+		@AttributeName(name = "userId")
+		private String uid;
+
+		@AttributeName
+		private String displayName;
+
+		@AttributeName(name = "mail")
+		private List<String> mails;
+
+		@JsonObject
+		@AttributeName(name = "oxSettings")
+		private String settings;
+
+		@AttributesList(name = "name", value = "values", multiValued = "multiValued")
+		private List<CustomObjectAttribute> customAttributes;
+
+		private String notMapped;
+
+		public String getUid() {
+			return uid;
+		}
+
+		public void setUid(String uid) {
+			this.uid = uid;
+		}
+
+		public String getDisplayName() {
+			return displayName;
+		}
+
+		public List<String> getMails() {
+			return mails;
+		}
+
+		public void setMails(List<String> mails) {
+			this.mails = mails;
+		}
+
+		public String getSettings() {
+			return settings;
+		}
+
+		public void setSettings(String settings) {
+			this.settings = settings;
+		}
+
+		public List<CustomObjectAttribute> getCustomAttributes() {
+			return customAttributes;
+		}
+
+		public void setCustomAttributes(List<CustomObjectAttribute> customAttributes) {
+			this.customAttributes = customAttributes;
+		}
+
+		public String getNotMapped() {
+			return notMapped;
+		}
+
+		public void setNotMapped(String notMapped) {
+			this.notMapped = notMapped;
+		}
+
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.gluu.persist.model.AttributeData;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link EntrySnapshots}
+ */
+public class EntrySnapshotsTest {
+
+	private static final String DN = "inum=1,ou=clients,o=gluu";
+
+	@Test
+	public void snapshotIsReturnedOnce() {
+		EntrySnapshots entrySnapshots = new EntrySnapshots();
+		Object entry = new Object();
+		List<AttributeData> attributes = sampleAttributes();
+
+		entrySnapshots.put(entry, DN, attributes);
+		assertEquals(entrySnapshots.size(), 1);
+
+		assertEquals(entrySnapshots.remove(entry, DN), attributes);
+		assertNull(entrySnapshots.remove(entry, DN));
+		assertEquals(entrySnapshots.size(), 0);
+	}
+
+	@Test
+	public void snapshotIsBoundToEntryInstance() {
+		EntrySnapshots entrySnapshots = new EntrySnapshots();
+		String entry = new String("entry");
+		String equalEntry = new String("entry");
+
+		entrySnapshots.put(entry, DN, sampleAttributes());
+
+		assertNull(entrySnapshots.remove(equalEntry, DN));
+		assertEquals(entrySnapshots.remove(entry, DN), sampleAttributes());
+	}
+
+	@Test
+	public void snapshotIsDroppedIfDnChanged() {
+		EntrySnapshots entrySnapshots = new EntrySnapshots();
+		Object entry = new Object();
+
+		entrySnapshots.put(entry, DN, sampleAttributes());
+
+		assertNull(entrySnapshots.remove(entry, "inum=2,ou=clients,o=gluu"));
+		assertNull(entrySnapshots.remove(entry, DN));
+	}
+
+	@Test
+	public void dnIsComparedIgnoringCase() {
+		EntrySnapshots entrySnapshots = new EntrySnapshots();
+		Object entry = new Object();
+
+		entrySnapshots.put(entry, DN, sampleAttributes());
+
+		assertEquals(entrySnapshots.remove(entry, DN.toUpperCase()), sampleAttributes());
+	}
+
+	@Test
+	public void snapshotIsNotAffectedByLaterChanges() {
+		EntrySnapshots entrySnapshots = new EntrySnapshots();
+		Object entry = new Object();
+		List<AttributeData> attributes = sampleAttributes();
+
+		entrySnapshots.put(entry, DN, attributes);
+		attributes.add(new AttributeData("description", "changed"));
+
+		assertEquals(entrySnapshots.remove(entry, DN), sampleAttributes());
+	}
+
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void snapshotIsReadOnly() {
+		EntrySnapshots entrySnapshots = new EntrySnapshots();
+		Object entry = new Object();
+
+		entrySnapshots.put(entry, DN, sampleAttributes());
+		entrySnapshots.remove(entry, DN).clear();
+	}
+
+	@Test
+	public void attributesAreFilteredIgnoringCase() {
+		List<AttributeData> result = EntrySnapshots.filterAttributes(sampleAttributes(), Arrays.asList("DISPLAYNAME", "objectClass", "notLoaded"));
+
+		assertEquals(result, Arrays.asList(new AttributeData("displayName", "Client"),
+				new AttributeData("objectClass", new Object[] { "top", "oxAuthClient" }, true)));
+	}
+
+	@Test
+	public void filterWithoutNamesReturnsEmptyList() {
+		List<AttributeData> result = EntrySnapshots.filterAttributes(sampleAttributes(), new ArrayList<String>());
+
+		assertTrue(result.isEmpty());
+	}
+
+	private static List<AttributeData> sampleAttributes() {
+		List<AttributeData> attributes = new ArrayList<AttributeData>();
+		attributes.add(new AttributeData("inum", "1"));
+		attributes.add(new AttributeData("displayName", "Client"));
+		attributes.add(new AttributeData("objectClass", new Object[] { "top", "oxAuthClient" }, true));
+
+		return attributes;
+	}
+
+}
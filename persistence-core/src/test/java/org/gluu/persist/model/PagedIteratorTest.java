@@ -0,0 +1,139 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link PagedIterator}
+ */
+public class PagedIteratorTest {
+
+    @Test
+    public void iteratesOverAllPages() {
+        TestPagedIterator iterator = new TestPagedIterator(Arrays.asList(1, 2), Arrays.asList(3), Arrays.asList(4, 5));
+
+        assertEquals(drain(iterator), Arrays.asList(1, 2, 3, 4, 5));
+        assertEquals(iterator.loadedPages, 3);
+        assertEquals(iterator.closeCount, 1);
+    }
+
+    @Test
+    public void skipsEmptyPages() {
+        TestPagedIterator iterator = new TestPagedIterator(Collections.<Integer>emptyList(), Arrays.asList(1), Collections.<Integer>emptyList(),
+                Arrays.asList(2));
+
+        assertEquals(drain(iterator), Arrays.asList(1, 2));
+        assertEquals(iterator.closeCount, 1);
+    }
+
+    @Test
+    public void loadsPagesLazily() {
+        TestPagedIterator iterator = new TestPagedIterator(Arrays.asList(1, 2), Arrays.asList(3));
+        assertEquals(iterator.loadedPages, 0);
+
+        assertEquals(iterator.next(), Integer.valueOf(1));
+        assertEquals(iterator.next(), Integer.valueOf(2));
+        assertEquals(iterator.loadedPages, 1);
+
+        assertTrue(iterator.hasNext());
+        assertEquals(iterator.loadedPages, 2);
+    }
+
+    @Test
+    public void closeStopsIteration() {
+        TestPagedIterator iterator = new TestPagedIterator(Arrays.asList(1, 2), Arrays.asList(3));
+        assertEquals(iterator.next(), Integer.valueOf(1));
+
+        iterator.close();
+        iterator.close();
+
+        assertFalse(iterator.hasNext());
+        assertEquals(iterator.loadedPages, 1);
+        assertEquals(iterator.closeCount, 1);
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void nextAfterLastEntryFails() {
+        TestPagedIterator iterator = new TestPagedIterator(Arrays.asList(1));
+        iterator.next();
+        iterator.next();
+    }
+
+    @Test
+    public void failedPageLoadClosesIterator() {
+        TestPagedIterator iterator = new TestPagedIterator(Arrays.asList(1), null);
+        assertEquals(iterator.next(), Integer.valueOf(1));
+
+        try {
+            iterator.hasNext();
+            fail("Expected page load failure");
+        } catch (IllegalStateException ex) {
+            // Expected
+        }
+
+        assertEquals(iterator.closeCount, 1);
+        assertFalse(iterator.hasNext());
+    }
+
+    private static List<Integer> drain(Iterator<Integer> iterator) {
+        List<Integer> result = new ArrayList<Integer>();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns specified pages one by one. Null page simulates load failure
+     */
+    private static final class TestPagedIterator extends PagedIterator<Integer> {
+
+        private final List<List<Integer>> pages;
+        private int loadedPages;
+        private int closeCount;
+
+        @SafeVarargs
+        TestPagedIterator(List<Integer>... pages) {
+            this.pages = Arrays.asList(pages);
+        }
+
+        @Override
+        protected List<Integer> nextPage() {
+            if (loadedPages >= pages.size()) {
+                return null;
+            }
+
+            List<Integer> page = pages.get(loadedPages++);
+            if (page == null) {
+                throw new IllegalStateException("Failed to load page");
+            }
+
+            return page;
+        }
+
+        @Override
+        protected void closeImpl() {
+            closeCount++;
+        }
+
+    }
+
+}
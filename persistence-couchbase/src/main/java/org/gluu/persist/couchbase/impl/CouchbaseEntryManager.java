@@ -10,12 +10,16 @@ package org.gluu.persist.couchbase.impl;
 import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import javax.inject.Inject;
@@ -28,9 +32,12 @@ import org.gluu.persist.couchbase.operation.CouchbaseOperationService;
 import org.gluu.persist.couchbase.operation.impl.CouchbaseConnectionProvider;
 import org.gluu.persist.event.DeleteNotifier;
 import org.gluu.persist.exception.AuthenticationException;
+import org.gluu.persist.exception.BasePersistenceException;
 import org.gluu.persist.exception.EntryDeleteException;
 import org.gluu.persist.exception.EntryPersistenceException;
 import org.gluu.persist.exception.MappingException;
+import org.gluu.persist.exception.operation.DuplicateEntryException;
+import org.gluu.persist.exception.operation.PersistenceException;
 import org.gluu.persist.exception.operation.SearchException;
 import org.gluu.persist.impl.BaseEntryManager;
 import org.gluu.persist.key.impl.GenericKeyConverter;
@@ -39,7 +46,10 @@ import org.gluu.persist.model.AttributeData;
 import org.gluu.persist.model.AttributeDataModification;
 import org.gluu.persist.model.AttributeDataModification.AttributeModificationType;
 import org.gluu.persist.model.BatchOperation;
+import org.gluu.persist.model.CloseableIterator;
 import org.gluu.persist.model.DefaultBatchOperation;
+import org.gluu.persist.model.EntryOperationResult;
+import org.gluu.persist.model.PagedIterator;
 import org.gluu.persist.model.PagedResult;
 import org.gluu.persist.model.SearchScope;
 import org.gluu.persist.model.SortOrder;
@@ -52,6 +62,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.couchbase.client.core.message.kv.subdoc.multi.Mutation;
+import com.couchbase.client.java.document.JsonDocument;
 import com.couchbase.client.java.document.json.JsonArray;
 import com.couchbase.client.java.document.json.JsonObject;
 import com.couchbase.client.java.query.consistency.ScanConsistency;
@@ -78,6 +89,10 @@ public class CouchbaseEntryManager extends BaseEntryManager implements Serializa
     private final CouchbaseFilterConverter FILTER_CONVERTER;
     private static final GenericKeyConverter KEY_CONVERTER = new GenericKeyConverter();
 
+    private static final String DOCUMENT_KEY = "META().id";
+    private static final String KEY_PAGE_TOKEN_PREFIX = "key:";
+    private static final String OFFSET_PAGE_TOKEN_PREFIX = "offset:";
+
     private List<DeleteNotifier> subscribers;
 
     protected CouchbaseEntryManager(CouchbaseOperationService operationService) {
@@ -165,6 +180,38 @@ public class CouchbaseEntryManager extends BaseEntryManager implements Serializa
 
     @Override
     protected void persist(String dn, List<AttributeData> attributes, Integer expiration) {
+        JsonObject jsonObject = toJsonObject(dn, attributes);
+
+        // Persist entry
+        try {
+            boolean result = getOperationService().addEntry(toCouchbaseKey(dn).getKey(), jsonObject, expiration);
+            if (!result) {
+                throw new EntryPersistenceException(String.format("Failed to persist entry: %s", dn));
+            }
+        } catch (Exception ex) {
+            throw new EntryPersistenceException(String.format("Failed to persist entry: %s", dn), ex);
+        }
+    }
+
+    @Override
+    protected boolean persistIfAbsent(String dn, List<AttributeData> attributes, Integer expiration) {
+        JsonObject jsonObject = toJsonObject(dn, attributes);
+
+        try {
+            boolean result = getOperationService().insertEntry(toCouchbaseKey(dn).getKey(), jsonObject, expiration);
+            if (!result) {
+                throw new EntryPersistenceException(String.format("Failed to persist entry: %s", dn));
+            }
+
+            return true;
+        } catch (DuplicateEntryException ex) {
+            return false;
+        } catch (Exception ex) {
+            throw new EntryPersistenceException(String.format("Failed to persist entry: %s", dn), ex);
+        }
+    }
+
+    private JsonObject toJsonObject(String dn, List<AttributeData> attributes) {
         JsonObject jsonObject = JsonObject.create();
         for (AttributeData attribute : attributes) {
             String attributeName = attribute.getName();
@@ -199,57 +246,147 @@ public class CouchbaseEntryManager extends BaseEntryManager implements Serializa
         }
         jsonObject.put(CouchbaseOperationService.DN, dn);
 
-        // Persist entry
-        try {
-            boolean result = getOperationService().addEntry(toCouchbaseKey(dn).getKey(), jsonObject, expiration);
-            if (!result) {
-                throw new EntryPersistenceException(String.format("Failed to persist entry: %s", dn));
-            }
-        } catch (Exception ex) {
-            throw new EntryPersistenceException(String.format("Failed to persist entry: %s", dn), ex);
-        }
+        return jsonObject;
     }
 
+    /**
+     * Persist entries with concurrent asynchronous upserts
+     */
     @Override
-    public void merge(String dn, List<AttributeDataModification> attributeDataModifications, Integer expirationValue) {
-        // Update entry
-        try {
-            List<MutationSpec> modifications = new ArrayList<MutationSpec>(attributeDataModifications.size());
-            for (AttributeDataModification attributeDataModification : attributeDataModifications) {
-                AttributeData attribute = attributeDataModification.getAttribute();
-                AttributeData oldAttribute = attributeDataModification.getOldAttribute();
-
-                String attributeName = null;
-                Object[] attributeValues = null;
-                Boolean multiValued = null;
-                if (attribute != null) {
-                    attributeName = attribute.getName();
-                    attributeValues = attribute.getValues();
-                    multiValued = attribute.getMultiValued();
+    public List<EntryOperationResult> persistAll(Collection<?> entries) {
+        EntryOperationResult[] results = new EntryOperationResult[entries.size()];
+        Map<String, Integer> keyIndexes = new HashMap<String, Integer>();
+        List<JsonDocument> documents = new ArrayList<JsonDocument>(entries.size());
+
+        int index = 0;
+        for (Object entry : entries) {
+            try {
+                if (entry == null) {
+                    throw new MappingException("Entry to persist is null");
                 }
 
-                String oldAttributeName = null;
-                Object[] oldAttributeValues = null;
-                if (oldAttribute != null) {
-                    oldAttributeName = oldAttribute.getName();
-                    oldAttributeValues = oldAttribute.getValues();
-                }
+                // Check entry class
+                Class<?> entryClass = entry.getClass();
+                checkEntryClass(entryClass, false);
+                List<PropertyAnnotation> propertiesAnnotations = getEntryPropertyAnnotations(entryClass);
+
+                String dn = getDNValue(entry, entryClass).toString();
+                Integer expirationValue = getExpirationValue(entry, entryClass);
 
-                MutationSpec modification = null;
-                if (AttributeModificationType.ADD.equals(attributeDataModification.getModificationType())) {
-                    modification = createModification(Mutation.DICT_ADD, toInternalAttribute(attributeName), multiValued, attributeValues);
+                List<AttributeData> attributes = getAttributesListForPersist(entry, propertiesAnnotations);
+
+                // Add object classes
+                String[] objectClasses = getObjectClasses(entry, entryClass);
+                attributes.add(new AttributeData(OBJECT_CLASS, objectClasses, true));
+
+                String key = toCouchbaseKey(dn).getKey();
+                checkDuplicateKey(keyIndexes, key, dn);
+
+                JsonObject jsonObject = toJsonObject(dn, attributes);
+                if (expirationValue == null) {
+                    documents.add(JsonDocument.create(key, jsonObject));
                 } else {
-                    if (AttributeModificationType.REMOVE.equals(attributeDataModification.getModificationType())) {
-                        modification = createModification(Mutation.DELETE, toInternalAttribute(oldAttributeName), multiValued, oldAttributeValues);
-                    } else if (AttributeModificationType.REPLACE.equals(attributeDataModification.getModificationType())) {
-                        modification = createModification(Mutation.REPLACE, toInternalAttribute(attributeName), multiValued, attributeValues);
-                    }
+                    documents.add(JsonDocument.create(key, expirationValue, jsonObject));
                 }
+                keyIndexes.put(key, index);
+            } catch (BasePersistenceException ex) {
+                results[index] = new EntryOperationResult(entry, getEntryDn(entry), ex);
+            }
+            index++;
+        }
+
+        Map<String, PersistenceException> errors = getOperationService().addEntries(documents);
 
-                if (modification != null) {
-                    modifications.add(modification);
+        return collectBulkResults(entries, results, keyIndexes, errors,
+                (dn, ex) -> new EntryPersistenceException(String.format("Failed to persist entry: %s", dn), ex));
+    }
+
+    /**
+     * Remove entries with concurrent asynchronous removes
+     */
+    @Override
+    public List<EntryOperationResult> removeAll(Collection<?> entries) {
+        EntryOperationResult[] results = new EntryOperationResult[entries.size()];
+        Map<String, Integer> keyIndexes = new HashMap<String, Integer>();
+        List<String> keys = new ArrayList<String>(entries.size());
+        List<String> dns = new ArrayList<String>(entries.size());
+
+        int index = 0;
+        for (Object entry : entries) {
+            try {
+                if (entry == null) {
+                    throw new MappingException("Entry to remove is null");
                 }
+
+                Class<?> entryClass = entry.getClass();
+                checkEntryClass(entryClass, false);
+
+                String dn = getDNValue(entry, entryClass).toString();
+                String key = toCouchbaseKey(dn).getKey();
+                checkDuplicateKey(keyIndexes, key, dn);
+
+                keys.add(key);
+                dns.add(dn);
+                keyIndexes.put(key, index);
+            } catch (BasePersistenceException ex) {
+                results[index] = new EntryOperationResult(entry, getEntryDn(entry), ex);
+            }
+            index++;
+        }
+
+        for (String dn : dns) {
+            for (DeleteNotifier subscriber : subscribers) {
+                subscriber.onBeforeRemove(dn);
             }
+        }
+
+        Map<String, PersistenceException> errors = getOperationService().deleteEntries(keys);
+
+        for (int i = 0; i < keys.size(); i++) {
+            if (!errors.containsKey(keys.get(i))) {
+                for (DeleteNotifier subscriber : subscribers) {
+                    subscriber.onAfterRemove(dns.get(i));
+                }
+            }
+        }
+
+        return collectBulkResults(entries, results, keyIndexes, errors,
+                (dn, ex) -> new EntryDeleteException(String.format("Failed to remove entry: %s", dn), ex));
+    }
+
+    /**
+     * Bulk operation result is reported per key. Only first entry with given key is processed
+     */
+    private void checkDuplicateKey(Map<String, Integer> keyIndexes, String key, String dn) {
+        if (keyIndexes.containsKey(key)) {
+            throw new MappingException(String.format("Entry with the same DN is already in bulk operation: %s", dn));
+        }
+    }
+
+    private List<EntryOperationResult> collectBulkResults(Collection<?> entries, EntryOperationResult[] results, Map<String, Integer> keyIndexes,
+            Map<String, PersistenceException> errors, BiFunction<String, Throwable, BasePersistenceException> exceptionFactory) {
+        Object[] entriesArray = entries.toArray();
+        for (Map.Entry<String, Integer> keyIndex : keyIndexes.entrySet()) {
+            int index = keyIndex.getValue();
+            Object entry = entriesArray[index];
+            String dn = getEntryDn(entry);
+
+            PersistenceException error = errors.get(keyIndex.getKey());
+            if (error == null) {
+                results[index] = new EntryOperationResult(entry, dn);
+            } else {
+                results[index] = new EntryOperationResult(entry, dn, exceptionFactory.apply(dn, error));
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public void merge(String dn, List<AttributeDataModification> attributeDataModifications, Integer expirationValue) {
+        // Update entry
+        try {
+            List<MutationSpec> modifications = toMutationSpecs(attributeDataModifications);
 
             if (modifications.size() > 0) {
                 boolean result = getOperationService().updateEntry(toCouchbaseKey(dn).getKey(), modifications, expirationValue);
@@ -262,6 +399,60 @@ public class CouchbaseEntryManager extends BaseEntryManager implements Serializa
         }
     }
 
+    @Override
+    protected boolean merge(String dn, List<AttributeDataModification> attributeDataModifications, Integer expirationValue,
+            AttributeData expectedAttribute) {
+        try {
+            List<MutationSpec> modifications = toMutationSpecs(attributeDataModifications);
+
+            return getOperationService().updateEntry(toCouchbaseKey(dn).getKey(), modifications, expirationValue,
+                    toInternalAttribute(expectedAttribute.getName()), expectedAttribute.getValues()[0]);
+        } catch (Exception ex) {
+            throw new EntryPersistenceException(String.format("Failed to update entry: %s", dn), ex);
+        }
+    }
+
+    private List<MutationSpec> toMutationSpecs(List<AttributeDataModification> attributeDataModifications) {
+        List<MutationSpec> modifications = new ArrayList<MutationSpec>(attributeDataModifications.size());
+        for (AttributeDataModification attributeDataModification : attributeDataModifications) {
+            AttributeData attribute = attributeDataModification.getAttribute();
+            AttributeData oldAttribute = attributeDataModification.getOldAttribute();
+
+            String attributeName = null;
+            Object[] attributeValues = null;
+            Boolean multiValued = null;
+            if (attribute != null) {
+                attributeName = attribute.getName();
+                attributeValues = attribute.getValues();
+                multiValued = attribute.getMultiValued();
+            }
+
+            String oldAttributeName = null;
+            Object[] oldAttributeValues = null;
+            if (oldAttribute != null) {
+                oldAttributeName = oldAttribute.getName();
+                oldAttributeValues = oldAttribute.getValues();
+            }
+
+            MutationSpec modification = null;
+            if (AttributeModificationType.ADD.equals(attributeDataModification.getModificationType())) {
+                modification = createModification(Mutation.DICT_ADD, toInternalAttribute(attributeName), multiValued, attributeValues);
+            } else {
+                if (AttributeModificationType.REMOVE.equals(attributeDataModification.getModificationType())) {
+                    modification = createModification(Mutation.DELETE, toInternalAttribute(oldAttributeName), multiValued, oldAttributeValues);
+                } else if (AttributeModificationType.REPLACE.equals(attributeDataModification.getModificationType())) {
+                    modification = createModification(Mutation.REPLACE, toInternalAttribute(attributeName), multiValued, attributeValues);
+                }
+            }
+
+            if (modification != null) {
+                modifications.add(modification);
+            }
+        }
+
+        return modifications;
+    }
+
     @Override
     public void remove(String dn) {
         // Remove entry
@@ -337,7 +528,8 @@ public class CouchbaseEntryManager extends BaseEntryManager implements Serializa
 		}
         
         try {
-        	int processed = getOperationService().delete(keyWithInum.getKey(), getScanConsistency(convertedExpression), convertedExpression.expression(), count);
+        	int processed = getOperationService().delete(keyWithInum.getKey(), getScanConsistency(convertedExpression), convertedExpression.expression(),
+        			convertedExpression.queryParameters(), count);
         	
         	return processed;
         } catch (Exception ex) {
@@ -381,6 +573,48 @@ public class CouchbaseEntryManager extends BaseEntryManager implements Serializa
         return entries;
     }
 
+    @Override
+    public <T> CloseableIterator<T> iterateEntries(String baseDN, Class<T> entryClass, Filter filter, SearchScope scope, String[] ldapReturnAttributes,
+            int chunkSize) {
+        if (StringHelper.isEmptyString(baseDN)) {
+            throw new MappingException("Base DN to find entries is null");
+        }
+
+        final int pageSize = chunkSize > 0 ? chunkSize : 100;
+
+        // Pages are ordered by document key and each page continues after last key of previous one.
+        // This keeps page queries cheap and stable regardless of iteration position
+        return new PagedIterator<T>() {
+
+            private String afterKey = null;
+            private boolean done = false;
+
+            @Override
+            protected List<T> nextPage() {
+                if (done) {
+                    return null;
+                }
+
+                PagedResult<JsonObject> searchResult = findEntriesImpl(baseDN, entryClass, filter, scope, ldapReturnAttributes, null, null, null,
+                        SearchReturnDataType.SEARCH, 0, pageSize, 0, true, afterKey);
+                done = searchResult.getEntriesCount() < pageSize;
+
+                if (searchResult.getEntriesCount() == 0) {
+                    return null;
+                }
+
+                afterKey = getLastDocumentKey(searchResult);
+
+                return createEntities(baseDN, entryClass, searchResult);
+            }
+
+            @Override
+            protected void closeImpl() {
+                done = true;
+            }
+        };
+    }
+
     @Override
     public <T> PagedResult<T> findPagedEntries(String baseDN, Class<T> entryClass, Filter filter, String[] ldapReturnAttributes, String sortBy,
             SortOrder sortOrder, int start, int count, int chunkSize) {
@@ -407,9 +641,78 @@ public class CouchbaseEntryManager extends BaseEntryManager implements Serializa
         return result;
     }
 
+    @Override
+    public <T> PagedResult<T> findPagedEntries(String baseDN, Class<T> entryClass, Filter filter, String[] ldapReturnAttributes, String sortBy,
+            SortOrder sortOrder, String pageToken, int count) {
+        if (StringHelper.isEmptyString(baseDN)) {
+            throw new MappingException("Base DN to find entries is null");
+        }
+
+        // Keyset paging is possible only if entries are ordered by document key
+        boolean orderByKey = StringHelper.isEmpty(sortBy) && ArrayHelper.isEmpty(getDefaultSort(entryClass));
+
+        int start = 0;
+        String afterKey = null;
+        if (pageToken != null) {
+            if (orderByKey && pageToken.startsWith(KEY_PAGE_TOKEN_PREFIX)) {
+                afterKey = pageToken.substring(KEY_PAGE_TOKEN_PREFIX.length());
+            } else if (!orderByKey && pageToken.startsWith(OFFSET_PAGE_TOKEN_PREFIX)) {
+                start = StringHelper.toInteger(pageToken.substring(OFFSET_PAGE_TOKEN_PREFIX.length()), -1);
+            } else {
+                start = -1;
+            }
+
+            if (start < 0) {
+                throw new EntryPersistenceException(String.format("Invalid page token: %s", pageToken));
+            }
+        }
+
+        PagedResult<JsonObject> searchResult = findEntriesImpl(baseDN, entryClass, filter, SearchScope.SUB, ldapReturnAttributes, sortBy, sortOrder,
+                null, SearchReturnDataType.SEARCH, start, count, 0, orderByKey, afterKey);
+
+        PagedResult<T> result = new PagedResult<T>();
+        result.setEntriesCount(searchResult.getEntriesCount());
+        result.setStart(searchResult.getStart());
+
+        if (searchResult.getEntriesCount() == 0) {
+            result.setEntries(new ArrayList<T>(0));
+            return result;
+        }
+
+        List<T> entries = createEntities(baseDN, entryClass, searchResult);
+        result.setEntries(entries);
+
+        if ((count > 0) && (searchResult.getEntriesCount() >= count)) {
+            if (orderByKey) {
+                result.setNextPageToken(KEY_PAGE_TOKEN_PREFIX + getLastDocumentKey(searchResult));
+            } else {
+                result.setNextPageToken(OFFSET_PAGE_TOKEN_PREFIX + (start + searchResult.getEntriesCount()));
+            }
+        }
+
+        return result;
+    }
+
+    private String getLastDocumentKey(PagedResult<JsonObject> searchResult) {
+        String lastDn = searchResult.getEntries().get(searchResult.getEntriesCount() - 1).getString(fromInternalAttribute(CouchbaseOperationService.DN));
+
+        return toCouchbaseKey(lastDn).getKey();
+    }
+
     protected <T> PagedResult<JsonObject> findEntriesImpl(String baseDN, Class<T> entryClass, Filter filter, SearchScope scope,
             String[] ldapReturnAttributes, String sortBy, SortOrder sortOrder, BatchOperation<T> batchOperation, SearchReturnDataType returnDataType, int start,
             int count, int chunkSize) {
+        return findEntriesImpl(baseDN, entryClass, filter, scope, ldapReturnAttributes, sortBy, sortOrder, batchOperation, returnDataType, start,
+                count, chunkSize, false, null);
+    }
+
+    /**
+     * Find entries. If orderByKey is true entries are ordered by document key and
+     * only entries with key greater than afterKey are returned
+     */
+    protected <T> PagedResult<JsonObject> findEntriesImpl(String baseDN, Class<T> entryClass, Filter filter, SearchScope scope,
+            String[] ldapReturnAttributes, String sortBy, SortOrder sortOrder, BatchOperation<T> batchOperation, SearchReturnDataType returnDataType, int start,
+            int count, int chunkSize, boolean orderByKey, String afterKey) {
         // Check entry class
         checkEntryClass(entryClass, false);
         String[] objectClasses = getTypeObjectClasses(entryClass);
@@ -438,7 +741,9 @@ public class CouchbaseEntryManager extends BaseEntryManager implements Serializa
         // Prepare default sort
         Sort[] defaultSort = getDefaultSort(entryClass);
 
-        if (StringHelper.isNotEmpty(sortBy)) {
+        if (orderByKey) {
+            defaultSort = new Sort[] { Sort.asc(Expression.x(DOCUMENT_KEY)) };
+        } else if (StringHelper.isNotEmpty(sortBy)) {
             Sort requestedSort = buildSort(sortBy, sortOrder);
 
             if (ArrayHelper.isEmpty(defaultSort)) {
@@ -458,13 +763,20 @@ public class CouchbaseEntryManager extends BaseEntryManager implements Serializa
             throw new EntryPersistenceException(String.format("Failed to convert filter %s to expression", searchFilter));
 		}
 
+        Expression expression = convertedExpression.expression();
+        JsonObject queryParameters = convertedExpression.queryParameters();
+        if (afterKey != null) {
+            expression = expression.and(Expression.x(DOCUMENT_KEY).gt(Expression.x("$afterKey")));
+            queryParameters.put("afterKey", afterKey);
+        }
+
         PagedResult<JsonObject> searchResult = null;
         try {
             CouchbaseBatchOperationWraper<T> batchOperationWraper = null;
             if (batchOperation != null) {
                 batchOperationWraper = new CouchbaseBatchOperationWraper<T>(batchOperation, this, entryClass, propertiesAnnotations);
             }
-            searchResult = searchImpl(keyWithInum.getKey(), getScanConsistency(convertedExpression), convertedExpression.expression(), scope, currentLdapReturnAttributes,
+            searchResult = searchImpl(keyWithInum.getKey(), getScanConsistency(convertedExpression), expression, queryParameters, scope, currentLdapReturnAttributes,
                     defaultSort, batchOperationWraper, returnDataType, start, count, chunkSize);
 
             if (searchResult == null) {
@@ -504,7 +816,7 @@ public class CouchbaseEntryManager extends BaseEntryManager implements Serializa
         PagedResult<JsonObject> searchResult = null;
         try {
             ParsedKey keyWithInum = toCouchbaseKey(baseDN);
-            searchResult = searchImpl(keyWithInum.getKey(), getScanConsistency(convertedExpression), convertedExpression.expression(), SearchScope.SUB, ldapReturnAttributes, null,
+            searchResult = searchImpl(keyWithInum.getKey(), getScanConsistency(convertedExpression), convertedExpression.expression(), convertedExpression.queryParameters(), SearchScope.SUB, ldapReturnAttributes, null,
                     null, SearchReturnDataType.SEARCH, 1, 1, 0);
             if (searchResult == null) {
                 throw new EntryPersistenceException(String.format("Failed to find entry with baseDN: %s, filter: %s", baseDN, searchFilter));
@@ -516,9 +828,9 @@ public class CouchbaseEntryManager extends BaseEntryManager implements Serializa
         return (searchResult != null) && (searchResult.getEntriesCount() > 0);
     }
 
-	private <O> PagedResult<JsonObject> searchImpl(String key, ScanConsistency scanConsistency, Expression expression, SearchScope scope, String[] attributes, Sort[] orderBy,
+	private <O> PagedResult<JsonObject> searchImpl(String key, ScanConsistency scanConsistency, Expression expression, JsonObject queryParameters, SearchScope scope, String[] attributes, Sort[] orderBy,
             CouchbaseBatchOperationWraper<O> batchOperationWraper, SearchReturnDataType returnDataType, int start, int count, int pageSize) throws SearchException {
-		return getOperationService().search(key, scanConsistency, expression, scope, toInternalAttributes(attributes), orderBy, batchOperationWraper, returnDataType, start, count, pageSize);
+		return getOperationService().search(key, scanConsistency, expression, queryParameters, scope, toInternalAttributes(attributes), orderBy, batchOperationWraper, returnDataType, start, count, pageSize);
 	}
 
     protected <T> List<T> createEntities(String baseDN, Class<T> entryClass, PagedResult<JsonObject> searchResult) {
@@ -644,7 +956,7 @@ public class CouchbaseEntryManager extends BaseEntryManager implements Serializa
 
 		try {
             PagedResult<JsonObject> searchResult = searchImpl(toCouchbaseKey(baseDN).getKey(), getScanConsistency(convertedExpression), convertedExpression.expression(),
-                    SearchScope.SUB, null, null, null, SearchReturnDataType.SEARCH, 0, 1, 1);
+                    convertedExpression.queryParameters(), SearchScope.SUB, null, null, null, SearchReturnDataType.SEARCH, 0, 1, 1);
             if ((searchResult == null) || (searchResult.getEntriesCount() != 1)) {
                 return false;
             }
@@ -704,7 +1016,8 @@ public class CouchbaseEntryManager extends BaseEntryManager implements Serializa
 
         PagedResult<JsonObject> searchResult;
         try {
-            searchResult = searchImpl(toCouchbaseKey(baseDN).getKey(), getScanConsistency(convertedExpression), convertedExpression.expression(), scope, null, null,
+            searchResult = searchImpl(toCouchbaseKey(baseDN).getKey(), getScanConsistency(convertedExpression), convertedExpression.expression(),
+                    convertedExpression.queryParameters(), scope, null, null,
                     null, SearchReturnDataType.COUNT, 0, 0, 0);
         } catch (Exception ex) {
             throw new EntryPersistenceException(
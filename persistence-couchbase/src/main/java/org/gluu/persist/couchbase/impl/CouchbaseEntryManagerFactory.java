@@ -132,6 +132,7 @@ public class CouchbaseEntryManagerFactory extends Initializable implements Persi
         LOG.debug("Created connectionProvider '{}' with code '{}'", connectionProvider, connectionProvider.getCreationResultCode());
 
         CouchbaseEntryManager couchbaseEntryManager = new CouchbaseEntryManager(new CouchbaseOperationServiceImpl(entryManagerConf, connectionProvider));
+        couchbaseEntryManager.setChangeTrackingEnabled(Boolean.valueOf(entryManagerConf.getProperty("connection.change-tracking")));
         LOG.info("Created CouchbaseEntryManager: {}", couchbaseEntryManager.getOperationService());
 
         return couchbaseEntryManager;
@@ -8,6 +8,7 @@
 package org.gluu.persist.couchbase.impl;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -22,11 +23,13 @@ import org.gluu.persist.reflect.util.ReflectHelper;
 import org.gluu.search.filter.Filter;
 import org.gluu.search.filter.FilterType;
 import org.gluu.util.ArrayHelper;
+import org.gluu.util.LruCache;
 import org.gluu.util.StringHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.couchbase.client.java.document.json.JsonArray;
+import com.couchbase.client.java.document.json.JsonObject;
 import com.couchbase.client.java.query.dsl.Expression;
 import com.couchbase.client.java.query.dsl.functions.Collections;
 import com.couchbase.client.java.query.dsl.functions.StringFunctions;
@@ -39,11 +42,15 @@ import com.couchbase.client.java.query.dsl.functions.StringFunctions;
 public class CouchbaseFilterConverter {
 
     private static final Logger LOG = LoggerFactory.getLogger(CouchbaseFilterConverter.class);
+
+    public static final int DEFAULT_TEMPLATES_CACHE_SIZE = 1000;
     
     private LdapFilterConverter ldapFilterConverter = new LdapFilterConverter();
 
 	private CouchbaseEntryManager couchbaseEntryManager;
 
+	private final LruCache<String, FilterTemplate> templates = new LruCache<String, FilterTemplate>(DEFAULT_TEMPLATES_CACHE_SIZE);
+
     public CouchbaseFilterConverter(CouchbaseEntryManager couchbaseEntryManager) {
     	this.couchbaseEntryManager = couchbaseEntryManager;
 	}
@@ -52,7 +59,99 @@ public class CouchbaseFilterConverter {
     	return convertToCouchbaseFilter(genericFilter, propertiesAnnotationsMap, null);
     }
 
+    /**
+     * Assertion values are not inlined into expression. They are added into query parameters
+     * to allow Couchbase reuse query plans of statements with same structure
+     */
     public ConvertedExpression convertToCouchbaseFilter(Filter genericFilter, Map<String, PropertyAnnotation> propertiesAnnotationsMap, Function<? super Filter, Boolean> processor) throws SearchException {
+    	if ((processor == null) && templates.isEnabled()) {
+    		return convertWithTemplate(genericFilter, propertiesAnnotationsMap);
+    	}
+
+    	ConversionContext context = new ConversionContext(null);
+    	ConvertedExpression convertedExpression = convertToCouchbaseFilter(genericFilter, propertiesAnnotationsMap, processor, context);
+
+    	return ConvertedExpression.build(convertedExpression.expression(), context.queryParameters, convertedExpression.consistency());
+    }
+
+    /**
+     * Filters with same structure produce same expression and differ only in query parameters.
+     * Expression is built once per structure and next conversions only fill parameters from assertion values
+     */
+    private ConvertedExpression convertWithTemplate(Filter genericFilter, Map<String, PropertyAnnotation> propertiesAnnotationsMap) throws SearchException {
+    	List<Filter> filters = new ArrayList<Filter>();
+    	String templateKey = buildTemplateKey(genericFilter, propertiesAnnotationsMap, filters);
+    	if (templateKey == null) {
+    		// RAW filters are not cached
+        	ConversionContext context = new ConversionContext(null);
+        	ConvertedExpression convertedExpression = convertToCouchbaseFilter(genericFilter, propertiesAnnotationsMap, null, context);
+
+        	return ConvertedExpression.build(convertedExpression.expression(), context.queryParameters, convertedExpression.consistency());
+    	}
+
+    	FilterTemplate template = templates.get(templateKey);
+    	if (template != null) {
+    		return template.fill(filters);
+    	}
+
+    	Map<Filter, Integer> filterIndexes = new IdentityHashMap<Filter, Integer>(filters.size());
+    	for (int i = 0; i < filters.size(); i++) {
+    		filterIndexes.put(filters.get(i), i);
+    	}
+
+    	ConversionContext context = new ConversionContext(filterIndexes);
+    	ConvertedExpression convertedExpression = convertToCouchbaseFilter(genericFilter, propertiesAnnotationsMap, null, context);
+
+    	if (context.recordable) {
+			templates.putIfAbsent(templateKey, new FilterTemplate(convertedExpression.expression(), convertedExpression.consistency(),
+					context.valueSlots.toArray(new ValueSlot[context.valueSlots.size()])));
+    	}
+
+    	return ConvertedExpression.build(convertedExpression.expression(), context.queryParameters, convertedExpression.consistency());
+    }
+
+    /**
+     * Key contains everything which affects expression but not assertion values. Filters are collected in key order
+     */
+    private String buildTemplateKey(Filter genericFilter, Map<String, PropertyAnnotation> propertiesAnnotationsMap, List<Filter> filters) {
+    	StringBuilder templateKey = new StringBuilder();
+    	if (!appendTemplateKey(genericFilter, propertiesAnnotationsMap, templateKey, filters)) {
+    		return null;
+    	}
+
+    	return templateKey.toString();
+    }
+
+    private boolean appendTemplateKey(Filter filter, Map<String, PropertyAnnotation> propertiesAnnotationsMap, StringBuilder templateKey, List<Filter> filters) {
+    	FilterType type = filter.getType();
+    	if (FilterType.RAW == type) {
+    		return false;
+    	}
+
+    	filters.add(filter);
+
+    	String attributeName = filter.getAttributeName();
+    	templateKey.append(type.ordinal()).append(':').append(attributeName).append(':').append(filter.getMultiValued()).append(':')
+    			.append(determineMultiValuedByType(attributeName, propertiesAnnotationsMap)).append(':')
+    			.append(isRequiredConsistency(filter, propertiesAnnotationsMap));
+
+    	Filter[] subFilters = filter.getFilters();
+    	if (subFilters != null) {
+    		templateKey.append('(');
+    		for (Filter subFilter : subFilters) {
+    			if (!appendTemplateKey(subFilter, propertiesAnnotationsMap, templateKey, filters)) {
+    				return false;
+    			}
+    		}
+    		templateKey.append(')');
+    	}
+    	templateKey.append(';');
+
+    	return true;
+    }
+
+    private ConvertedExpression convertToCouchbaseFilter(Filter genericFilter, Map<String, PropertyAnnotation> propertiesAnnotationsMap, Function<? super Filter, Boolean> processor,
+    		ConversionContext context) throws SearchException {
         Filter currentGenericFilter = genericFilter;
 
         FilterType type = currentGenericFilter.getType();
@@ -78,7 +177,7 @@ public class CouchbaseFilterConverter {
             	String joinOrAttributeName = null;
                 for (int i = 0; i < genericFilters.length; i++) {
                 	Filter tmpFilter = genericFilters[i];
-                    expFilters[i] = convertToCouchbaseFilter(tmpFilter, propertiesAnnotationsMap, processor);
+                    expFilters[i] = convertToCouchbaseFilter(tmpFilter, propertiesAnnotationsMap, processor, context);
 
                     // Check if we can replace OR with IN
                 	if (!canJoinOrFilters) {
@@ -131,12 +230,9 @@ public class CouchbaseFilterConverter {
                     }
 
                     if (canJoinOrFilters) {
-                		JsonArray jsonArrayValues = JsonArray.create();
-                		for (Filter eqFilter : joinOrFilters) {
-                			jsonArrayValues.add(eqFilter.getAssertionValue());
-            			}
+                		Filter[] eqFilters = joinOrFilters.toArray(new Filter[joinOrFilters.size()]);
                         Expression exp = Expression
-                                .par(Expression.path(Expression.path(joinOrAttributeName)).in(jsonArrayValues));
+                                .par(Expression.path(Expression.path(joinOrAttributeName)).in(addQueryParameter(context, ValueSlotType.IN, eqFilters)));
                         return ConvertedExpression.build(exp, requiredConsistency);
                 	} else {
 	                    Expression result = expFilters[0].expression();
@@ -160,32 +256,32 @@ public class CouchbaseFilterConverter {
             		Filter clonedFilter = currentGenericFilter.getFilters()[0];
             		clonedFilter.setAttributeName(internalAttribute + "_");
 
-            		ConvertedExpression nameConvertedExpression = convertToCouchbaseFilter(clonedFilter, propertiesAnnotationsMap);
-                	return ConvertedExpression.build(Collections.anyIn(internalAttribute + "_", Expression.path(Expression.path(internalAttribute))).satisfies(nameConvertedExpression.expression().eq(buildTypedExpression(currentGenericFilter))), requiredConsistency);
+            		ConvertedExpression nameConvertedExpression = convertToCouchbaseFilter(clonedFilter, propertiesAnnotationsMap, null, context);
+                	return ConvertedExpression.build(Collections.anyIn(internalAttribute + "_", Expression.path(Expression.path(internalAttribute))).satisfies(nameConvertedExpression.expression().eq(buildTypedExpression(currentGenericFilter, context))), requiredConsistency);
             	}
 
-            	return ConvertedExpression.build(Collections.anyIn(internalAttribute + "_", Expression.path(Expression.path(internalAttribute))).satisfies(Expression.path(Expression.path(internalAttribute + "_").eq(buildTypedExpression(currentGenericFilter)))), requiredConsistency);
+            	return ConvertedExpression.build(Collections.anyIn(internalAttribute + "_", Expression.path(Expression.path(internalAttribute))).satisfies(Expression.path(Expression.path(internalAttribute + "_").eq(buildTypedExpression(currentGenericFilter, context)))), requiredConsistency);
             } else if (Boolean.FALSE.equals(currentGenericFilter.getMultiValued()) || Boolean.FALSE.equals(isMultiValuedDetected)) {
             	if (hasSubFilters) {
-            		ConvertedExpression nameConvertedExpression = convertToCouchbaseFilter(currentGenericFilter.getFilters()[0], propertiesAnnotationsMap);
-                	return ConvertedExpression.build(nameConvertedExpression.expression().eq(buildTypedExpression(currentGenericFilter)), requiredConsistency);
+            		ConvertedExpression nameConvertedExpression = convertToCouchbaseFilter(currentGenericFilter.getFilters()[0], propertiesAnnotationsMap, null, context);
+                	return ConvertedExpression.build(nameConvertedExpression.expression().eq(buildTypedExpression(currentGenericFilter, context)), requiredConsistency);
             	}
-            	return ConvertedExpression.build(Expression.path(Expression.path(toInternalAttribute(currentGenericFilter))).eq(buildTypedExpression(currentGenericFilter)), requiredConsistency);
+            	return ConvertedExpression.build(Expression.path(Expression.path(toInternalAttribute(currentGenericFilter))).eq(buildTypedExpression(currentGenericFilter, context)), requiredConsistency);
             } else if (hasSubFilters && (isMultiValuedDetected == null)) {
-        		ConvertedExpression nameConvertedExpression = convertToCouchbaseFilter(currentGenericFilter.getFilters()[0], propertiesAnnotationsMap);
-            	return ConvertedExpression.build(nameConvertedExpression.expression().eq(buildTypedExpression(currentGenericFilter)), nameConvertedExpression.consistency() || requiredConsistency);
+        		ConvertedExpression nameConvertedExpression = convertToCouchbaseFilter(currentGenericFilter.getFilters()[0], propertiesAnnotationsMap, null, context);
+            	return ConvertedExpression.build(nameConvertedExpression.expression().eq(buildTypedExpression(currentGenericFilter, context)), nameConvertedExpression.consistency() || requiredConsistency);
             } else {
             	Expression nameExpression;
             	if (hasSubFilters) {
-            		ConvertedExpression nameConvertedExpression = convertToCouchbaseFilter(currentGenericFilter.getFilters()[0], propertiesAnnotationsMap);
+            		ConvertedExpression nameConvertedExpression = convertToCouchbaseFilter(currentGenericFilter.getFilters()[0], propertiesAnnotationsMap, null, context);
             		nameExpression = nameConvertedExpression.expression();
             	} else {
             		nameExpression = Expression.path(toInternalAttribute(currentGenericFilter));
             	}
                 Expression exp1 = Expression
-                        .par(Expression.path(nameExpression).eq(buildTypedExpression(currentGenericFilter)));
+                        .par(Expression.path(nameExpression).eq(buildTypedExpression(currentGenericFilter, context)));
                 Expression exp2 = Expression
-                        .par(Expression.path(buildTypedExpression(currentGenericFilter)).in(nameExpression));
+                        .par(Expression.path(buildTypedExpression(currentGenericFilter, context)).in(nameExpression));
                 return ConvertedExpression.build(Expression.par(exp1.or(exp2)), requiredConsistency);
             }
         }
@@ -193,18 +289,18 @@ public class CouchbaseFilterConverter {
         if (FilterType.LESS_OR_EQUAL == type) {
         	String internalAttribute = toInternalAttribute(currentGenericFilter);
             if (isMultiValue(currentGenericFilter, propertiesAnnotationsMap)) {
-            	return ConvertedExpression.build(Collections.anyIn(internalAttribute + "_", Expression.path(Expression.path(internalAttribute))).satisfies(Expression.path(Expression.path(internalAttribute + "_")).lte(buildTypedExpression(currentGenericFilter))), requiredConsistency);
+            	return ConvertedExpression.build(Collections.anyIn(internalAttribute + "_", Expression.path(Expression.path(internalAttribute))).satisfies(Expression.path(Expression.path(internalAttribute + "_")).lte(buildTypedExpression(currentGenericFilter, context))), requiredConsistency);
             } else {
-            	return ConvertedExpression.build(Expression.path(Expression.path(internalAttribute)).lte(buildTypedExpression(currentGenericFilter)), requiredConsistency);
+            	return ConvertedExpression.build(Expression.path(Expression.path(internalAttribute)).lte(buildTypedExpression(currentGenericFilter, context)), requiredConsistency);
             }
         }
 
         if (FilterType.GREATER_OR_EQUAL == type) {
         	String internalAttribute = toInternalAttribute(currentGenericFilter);
             if (isMultiValue(currentGenericFilter, propertiesAnnotationsMap)) {
-            	return ConvertedExpression.build(Collections.anyIn(internalAttribute + "_", Expression.path(Expression.path(internalAttribute))).satisfies(Expression.path(Expression.path(internalAttribute + "_")).gte(buildTypedExpression(currentGenericFilter))), requiredConsistency);
+            	return ConvertedExpression.build(Collections.anyIn(internalAttribute + "_", Expression.path(Expression.path(internalAttribute))).satisfies(Expression.path(Expression.path(internalAttribute + "_")).gte(buildTypedExpression(currentGenericFilter, context))), requiredConsistency);
             } else {
-            	return ConvertedExpression.build(Expression.path(Expression.path(internalAttribute)).gte(buildTypedExpression(currentGenericFilter)), requiredConsistency);
+            	return ConvertedExpression.build(Expression.path(Expression.path(internalAttribute)).gte(buildTypedExpression(currentGenericFilter, context)), requiredConsistency);
             }
         }
 
@@ -222,28 +318,11 @@ public class CouchbaseFilterConverter {
         }
 
         if (FilterType.SUBSTRING == type) {
-            StringBuilder like = new StringBuilder();
-            if (currentGenericFilter.getSubInitial() != null) {
-                like.append(currentGenericFilter.getSubInitial());
-            }
-            like.append("%");
-
-            String[] subAny = currentGenericFilter.getSubAny();
-            if ((subAny != null) && (subAny.length > 0)) {
-                for (String any : subAny) {
-                    like.append(any);
-                    like.append("%");
-                }
-            }
-
-            if (currentGenericFilter.getSubFinal() != null) {
-                like.append(currentGenericFilter.getSubFinal());
-            }
             if (isMultiValue(currentGenericFilter, propertiesAnnotationsMap)) {
             	String internalAttribute = toInternalAttribute(currentGenericFilter);
-            	return ConvertedExpression.build(Collections.anyIn(internalAttribute + "_", Expression.path(Expression.path(toInternalAttribute(currentGenericFilter)))).satisfies(Expression.path(Expression.path(internalAttribute + "_")).like(Expression.s(StringHelper.escapeJson(like.toString())))), requiredConsistency);
+            	return ConvertedExpression.build(Collections.anyIn(internalAttribute + "_", Expression.path(Expression.path(toInternalAttribute(currentGenericFilter)))).satisfies(Expression.path(Expression.path(internalAttribute + "_")).like(addQueryParameter(context, ValueSlotType.LIKE, currentGenericFilter))), requiredConsistency);
             } else {
-            	return ConvertedExpression.build(Expression.path(Expression.path(toInternalAttribute(currentGenericFilter)).like(Expression.s(StringHelper.escapeJson(like.toString())))), requiredConsistency);
+            	return ConvertedExpression.build(Expression.path(Expression.path(toInternalAttribute(currentGenericFilter)).like(addQueryParameter(context, ValueSlotType.LIKE, currentGenericFilter))), requiredConsistency);
             }
         }
 
@@ -283,16 +362,29 @@ public class CouchbaseFilterConverter {
 		return couchbaseEntryManager.toInternalAttribute(attributeName);
 	}
 
-	private Expression buildTypedExpression(Filter currentGenericFilter) {
-		if (currentGenericFilter.getAssertionValue() instanceof Boolean) {
-			return Expression.x((Boolean) currentGenericFilter.getAssertionValue());
-		} else if (currentGenericFilter.getAssertionValue() instanceof Integer) {
-			return Expression.x((Integer) currentGenericFilter.getAssertionValue());
-		} else if (currentGenericFilter.getAssertionValue() instanceof Long) {
-			return Expression.x((Long) currentGenericFilter.getAssertionValue());
-		}
+	private Expression buildTypedExpression(Filter currentGenericFilter, ConversionContext context) {
+		return addQueryParameter(context, ValueSlotType.TYPED, currentGenericFilter);
+	}
+
+	private Expression addQueryParameter(ConversionContext context, ValueSlotType type, Filter... sourceFilters) {
+		JsonObject queryParameters = context.queryParameters;
 
-		return Expression.s(StringHelper.escapeJson(currentGenericFilter.getAssertionValue()));
+		String name = "p" + queryParameters.size();
+		queryParameters.put(name, type.value(sourceFilters));
+		context.recordValueSlot(type, sourceFilters);
+
+		return Expression.x("$" + name);
+	}
+
+	public int getTemplatesCacheSize() {
+		return templates.getMaxSize();
+	}
+
+	/**
+	 * Maximum number of cached filter structures. 0 disables cache
+	 */
+	public void setTemplatesCacheSize(int templatesCacheSize) {
+		templates.setMaxSize(templatesCacheSize);
 	}
 
 	private Boolean determineMultiValuedByType(String attributeName, Map<String, PropertyAnnotation> propertiesAnnotationsMap) {
@@ -336,4 +428,141 @@ public class CouchbaseFilterConverter {
 		return false;
 	}
 
+	private enum ValueSlotType {
+
+		TYPED {
+			@Override
+			Object value(Filter[] filters) {
+				Object assertionValue = filters[0].getAssertionValue();
+				if ((assertionValue instanceof Boolean) || (assertionValue instanceof Integer) || (assertionValue instanceof Long)) {
+					return assertionValue;
+				}
+
+				return String.valueOf(assertionValue);
+			}
+		},
+
+		LIKE {
+			@Override
+			Object value(Filter[] filters) {
+				Filter filter = filters[0];
+
+				StringBuilder like = new StringBuilder();
+	            if (filter.getSubInitial() != null) {
+	                like.append(filter.getSubInitial());
+	            }
+	            like.append("%");
+
+	            String[] subAny = filter.getSubAny();
+	            if ((subAny != null) && (subAny.length > 0)) {
+	                for (String any : subAny) {
+	                    like.append(any);
+	                    like.append("%");
+	                }
+	            }
+
+	            if (filter.getSubFinal() != null) {
+	                like.append(filter.getSubFinal());
+	            }
+
+	            return like.toString();
+			}
+		},
+
+		IN {
+			@Override
+			Object value(Filter[] filters) {
+        		JsonArray jsonArrayValues = JsonArray.create();
+        		for (Filter eqFilter : filters) {
+        			jsonArrayValues.add(eqFilter.getAssertionValue());
+    			}
+
+        		return jsonArrayValues;
+			}
+		};
+
+		abstract Object value(Filter[] filters);
+
+	}
+
+	/**
+	 * Query parameter bound to positions of source filters in template key order
+	 */
+	private static final class ValueSlot {
+
+		private final ValueSlotType type;
+		private final int[] filterIndexes;
+
+		ValueSlot(ValueSlotType type, int[] filterIndexes) {
+			this.type = type;
+			this.filterIndexes = filterIndexes;
+		}
+
+		Object value(List<Filter> filters) {
+			Filter[] sourceFilters = new Filter[filterIndexes.length];
+			for (int i = 0; i < filterIndexes.length; i++) {
+				sourceFilters[i] = filters.get(filterIndexes[i]);
+			}
+
+			return type.value(sourceFilters);
+		}
+
+	}
+
+	private static final class FilterTemplate {
+
+		private final Expression expression;
+		private final boolean consistency;
+		private final ValueSlot[] valueSlots;
+
+		FilterTemplate(Expression expression, boolean consistency, ValueSlot[] valueSlots) {
+			this.expression = expression;
+			this.consistency = consistency;
+			this.valueSlots = valueSlots;
+		}
+
+		ConvertedExpression fill(List<Filter> filters) {
+			JsonObject queryParameters = JsonObject.create();
+			for (int i = 0; i < valueSlots.length; i++) {
+				queryParameters.put("p" + i, valueSlots[i].value(filters));
+			}
+
+			return ConvertedExpression.build(expression, queryParameters, consistency);
+		}
+
+	}
+
+	private static final class ConversionContext {
+
+		private final JsonObject queryParameters = JsonObject.create();
+
+		private final Map<Filter, Integer> filterIndexes;
+		private final List<ValueSlot> valueSlots = new ArrayList<ValueSlot>();
+		private boolean recordable;
+
+		ConversionContext(Map<Filter, Integer> filterIndexes) {
+			this.filterIndexes = filterIndexes;
+			this.recordable = filterIndexes != null;
+		}
+
+		void recordValueSlot(ValueSlotType type, Filter[] sourceFilters) {
+			if (!recordable) {
+				return;
+			}
+
+			int[] indexes = new int[sourceFilters.length];
+			for (int i = 0; i < sourceFilters.length; i++) {
+				Integer index = filterIndexes.get(sourceFilters[i]);
+				if (index == null) {
+					recordable = false;
+					return;
+				}
+				indexes[i] = index;
+			}
+
+			valueSlots.add(new ValueSlot(type, indexes));
+		}
+
+	}
+
 }
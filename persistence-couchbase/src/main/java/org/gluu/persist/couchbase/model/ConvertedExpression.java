@@ -1,5 +1,6 @@
 package org.gluu.persist.couchbase.model;
 
+import com.couchbase.client.java.document.json.JsonObject;
 import com.couchbase.client.java.query.dsl.Expression;
 
 /**
@@ -10,25 +11,34 @@ import com.couchbase.client.java.query.dsl.Expression;
 public class ConvertedExpression {
 	
 	private Expression expression;
+	private JsonObject queryParameters;
 	private boolean consistency;
 
-	private ConvertedExpression(Expression expression) {
-		this.expression = expression;
-	}
-
-	private ConvertedExpression(Expression expression, boolean consistency) {
+	private ConvertedExpression(Expression expression, JsonObject queryParameters, boolean consistency) {
 		this.expression = expression;
+		this.queryParameters = queryParameters == null ? JsonObject.create() : queryParameters;
 		this.consistency = consistency;
 	}
 
 	public static ConvertedExpression build(Expression expression, boolean consistency) {
-		return new ConvertedExpression(expression, consistency);
+		return new ConvertedExpression(expression, null, consistency);
+	}
+
+	public static ConvertedExpression build(Expression expression, JsonObject queryParameters, boolean consistency) {
+		return new ConvertedExpression(expression, queryParameters, consistency);
 	}
 
 	public Expression expression() {
 		return expression;
 	}
 
+	/**
+	 * Named parameters of expression without '$' prefix. It's empty if expression has no parameters
+	 */
+	public JsonObject queryParameters() {
+		return queryParameters;
+	}
+
 	public boolean consistency() {
 		return consistency;
 	}
@@ -39,7 +49,7 @@ public class ConvertedExpression {
 
 	@Override
 	public String toString() {
-		return "ConvertedExpression [expression=" + expression + ", consistency=" + consistency + "]";
+		return "ConvertedExpression [expression=" + expression + ", queryParameters=" + queryParameters + ", consistency=" + consistency + "]";
 	}
 
 }
@@ -8,6 +8,7 @@
 package org.gluu.persist.couchbase.operation;
 
 import java.util.List;
+import java.util.Map;
 
 import org.gluu.persist.couchbase.impl.CouchbaseBatchOperationWraper;
 import org.gluu.persist.couchbase.model.SearchReturnDataType;
@@ -22,6 +23,7 @@ import org.gluu.persist.model.PagedResult;
 import org.gluu.persist.model.SearchScope;
 import org.gluu.persist.operation.PersistenceOperationService;
 
+import com.couchbase.client.java.document.JsonDocument;
 import com.couchbase.client.java.document.json.JsonObject;
 import com.couchbase.client.java.query.consistency.ScanConsistency;
 import com.couchbase.client.java.query.dsl.Expression;
@@ -49,15 +51,39 @@ public interface CouchbaseOperationService extends PersistenceOperationService {
     boolean addEntry(String key, JsonObject atts) throws DuplicateEntryException, PersistenceException;
 	boolean addEntry(String key, JsonObject jsonObject, Integer expiration) throws DuplicateEntryException, PersistenceException;
 
+    /**
+     * Add document only if there is no document with the same key. {@link #addEntry(String, JsonObject, Integer)} overwrites existing document
+     */
+    boolean insertEntry(String key, JsonObject jsonObject, Integer expiration) throws DuplicateEntryException, PersistenceException;
+
+    /**
+     * Add entries concurrently. Returns errors of entries which were not added by key
+     */
+    Map<String, PersistenceException> addEntries(List<JsonDocument> documents);
+
     boolean updateEntry(String key, List<MutationSpec> mods, Integer expiration) throws UnsupportedOperationException, PersistenceException;
 
+    /**
+     * Update document only if attribute has expected value. CAS of checked document guards
+     * against concurrent changes between check and update
+     *
+     * @return false if attribute has another value, document was changed concurrently or it doesn't exist
+     */
+    boolean updateEntry(String key, List<MutationSpec> mods, Integer expiration, String expectedAttributeName, Object expectedValue)
+            throws UnsupportedOperationException, PersistenceException;
+
     boolean delete(String key) throws EntryNotFoundException;
-	int delete(String key, ScanConsistency scanConsistency, Expression expression, int count) throws DeleteException;
+	int delete(String key, ScanConsistency scanConsistency, Expression expression, JsonObject queryParameters, int count) throws DeleteException;
     boolean deleteRecursively(String key) throws EntryNotFoundException, SearchException;
 
+    /**
+     * Delete entries concurrently. Returns errors of entries which were not removed by key
+     */
+    Map<String, PersistenceException> deleteEntries(List<String> keys);
+
     JsonObject lookup(String key, ScanConsistency scanConsistency, String... attributes) throws SearchException;
 
-    <O> PagedResult<JsonObject> search(String key, ScanConsistency scanConsistency, Expression expression, SearchScope scope,
+    <O> PagedResult<JsonObject> search(String key, ScanConsistency scanConsistency, Expression expression, JsonObject queryParameters, SearchScope scope,
             String[] attributes, Sort[] orderBy, CouchbaseBatchOperationWraper<O> batchOperationWraper, SearchReturnDataType returnDataType,
             int start, int count, int pageSize) throws SearchException;
 
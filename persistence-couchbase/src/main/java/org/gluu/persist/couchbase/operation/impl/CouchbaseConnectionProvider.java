@@ -332,6 +332,10 @@ public class CouchbaseConnectionProvider {
         return servers;
     }
 
+    public CouchbaseEnvironment getCouchbaseEnvironment() {
+        return couchbaseEnvironment;
+    }
+
     public ArrayList<String> getBinaryAttributes() {
         return binaryAttributes;
     }
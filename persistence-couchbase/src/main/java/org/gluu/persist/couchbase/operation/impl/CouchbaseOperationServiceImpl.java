@@ -7,11 +7,20 @@
 package org.gluu.persist.couchbase.operation.impl;
 
 import com.couchbase.client.core.CouchbaseException;
+import com.couchbase.client.core.message.kv.MutationToken;
+import com.couchbase.client.core.message.kv.subdoc.multi.Lookup;
 import com.couchbase.client.core.message.kv.subdoc.multi.Mutation;
+import com.couchbase.client.java.AsyncBucket;
 import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.MutationState;
+import com.couchbase.client.java.document.Document;
 import com.couchbase.client.java.document.JsonDocument;
 import com.couchbase.client.java.document.json.JsonArray;
 import com.couchbase.client.java.document.json.JsonObject;
+import com.couchbase.client.java.env.CouchbaseEnvironment;
+import com.couchbase.client.java.error.CASMismatchException;
+import com.couchbase.client.java.error.DocumentAlreadyExistsException;
+import com.couchbase.client.java.error.DocumentDoesNotExistException;
 import com.couchbase.client.java.query.*;
 import com.couchbase.client.java.query.consistency.ScanConsistency;
 import com.couchbase.client.java.query.dsl.Expression;
@@ -31,7 +40,9 @@ import org.gluu.persist.model.BatchOperation;
 import org.gluu.persist.model.PagedResult;
 import org.gluu.persist.model.SearchScope;
 import org.gluu.persist.operation.auth.PasswordEncryptionHelper;
+import org.gluu.persist.operation.auth.PasswordVerificationService;
 import org.gluu.util.ArrayHelper;
+import org.gluu.util.LruCache;
 import org.gluu.util.StringHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +51,16 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import rx.Observable;
 
 /**
  * Base service which performs all supported Couchbase operations
@@ -50,6 +71,19 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
 
     private static final Logger LOG = LoggerFactory.getLogger(CouchbaseConnectionProvider.class);
 
+    private static final int BULK_OPERATIONS_CONCURRENCY = 64;
+
+    // Couchbase limit of paths in single sub-document request
+    private static final int MAX_SUBDOC_LOOKUP_PATHS = 16;
+    private static final int DEFAULT_SUBDOC_LOOKUP_MAX_ATTRIBUTES = 8;
+    private static final int DEFAULT_PREPARED_STATEMENTS_CACHE_SIZE = 1000;
+    private static final int DEFAULT_COUNT_CACHE_SIZE = 1000;
+    private static final int DEFAULT_READ_YOUR_OWN_WRITES_MAX_TOKENS = 64;
+
+    private static final String KEYSET_DOCUMENT_KEY = "META(gluu_doc).id";
+    private static final String KEYSET_DOCUMENT_KEY_ALIAS = "gluu_doc_key";
+    private static final Pattern SUBDOC_SIMPLE_PATH_PATTERN = Pattern.compile("[A-Za-z0-9_\\-]+");
+
     private Properties props;
     private CouchbaseConnectionProvider connectionProvider;
 
@@ -59,6 +93,19 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
 	private boolean attemptWithoutAttributeScanConsistency = true;
 	private boolean enableScopeSupport = false;
 	private boolean disableAttributeMapping = false;
+	private boolean readYourOwnWrites = false;
+	private int readYourOwnWritesMaxTokens = DEFAULT_READ_YOUR_OWN_WRITES_MAX_TOKENS;
+	private int subdocLookupMaxAttributes = DEFAULT_SUBDOC_LOOKUP_MAX_ATTRIBUTES;
+	private int preparedStatementsCacheSize = DEFAULT_PREPARED_STATEMENTS_CACHE_SIZE;
+	private int countCacheTtl = 0;
+	private int countCacheSize = DEFAULT_COUNT_CACHE_SIZE;
+
+	private LruCache<String, Boolean> knownStatements;
+	private LruCache<String, CachedCount> countCache;
+	private Map<String, Map<Integer, MutationToken>> mutationTokens = new ConcurrentHashMap<String, Map<Integer, MutationToken>>();
+
+	private PasswordVerificationService passwordVerificationService;
+	private boolean ownPasswordVerificationService = false;
 
 	private PersistenceExtension persistenceExtension;
 
@@ -95,10 +142,68 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
         	this.disableAttributeMapping = StringHelper.toBoolean(props.get("connection.disable-attribute-mapping").toString(), this.disableAttributeMapping);
         }
 
+        if (props.containsKey("connection.read-your-own-writes")) {
+        	this.readYourOwnWrites = StringHelper.toBoolean(props.get("connection.read-your-own-writes").toString(), this.readYourOwnWrites);
+        }
+
+        if (this.readYourOwnWrites) {
+        	CouchbaseEnvironment couchbaseEnvironment = connectionProvider.getCouchbaseEnvironment();
+        	if ((couchbaseEnvironment == null) || !couchbaseEnvironment.mutationTokensEnabled()) {
+        		LOG.warn("Option readYourOwnWrites requires connection.mutation-tokens-enabled. Disabling it");
+        		this.readYourOwnWrites = false;
+        	}
+        }
+
+        if (props.containsKey("connection.read-your-own-writes-max-tokens")) {
+        	this.readYourOwnWritesMaxTokens = StringHelper.toInteger(props.get("connection.read-your-own-writes-max-tokens").toString(), this.readYourOwnWritesMaxTokens);
+        }
+
+        if (props.containsKey("connection.subdoc-lookup-max-attributes")) {
+        	this.subdocLookupMaxAttributes = Math.min(MAX_SUBDOC_LOOKUP_PATHS,
+        			StringHelper.toInteger(props.get("connection.subdoc-lookup-max-attributes").toString(), this.subdocLookupMaxAttributes));
+        }
+
+        if (props.containsKey("connection.prepared-statements-cache-size")) {
+        	this.preparedStatementsCacheSize = StringHelper.toInteger(props.get("connection.prepared-statements-cache-size").toString(), this.preparedStatementsCacheSize);
+        }
+
+        if (this.preparedStatementsCacheSize > 0) {
+        	this.knownStatements = new LruCache<String, Boolean>(this.preparedStatementsCacheSize);
+        }
+
+        if (props.containsKey("connection.count-cache-ttl")) {
+        	this.countCacheTtl = StringHelper.toInteger(props.get("connection.count-cache-ttl").toString(), this.countCacheTtl);
+        }
+
+        if (props.containsKey("connection.count-cache-size")) {
+        	this.countCacheSize = StringHelper.toInteger(props.get("connection.count-cache-size").toString(), this.countCacheSize);
+        }
+
+        if ((this.countCacheTtl > 0) && (this.countCacheSize > 0)) {
+        	this.countCache = new LruCache<String, CachedCount>(this.countCacheSize);
+        }
+
+        if (props.containsKey("connection.password-verification-threads") || props.containsKey("connection.password-verification-queue-size")
+        		|| props.containsKey("connection.password-verification-timeout")) {
+        	int passwordVerificationThreads = StringHelper.toInt(props.getProperty("connection.password-verification-threads"), PasswordVerificationService.DEFAULT_THREADS);
+        	int passwordVerificationQueueSize = StringHelper.toInt(props.getProperty("connection.password-verification-queue-size"), PasswordVerificationService.DEFAULT_QUEUE_SIZE);
+        	int passwordVerificationTimeout = StringHelper.toInt(props.getProperty("connection.password-verification-timeout"), (int) PasswordVerificationService.DEFAULT_TIMEOUT);
+        	this.passwordVerificationService = new PasswordVerificationService(passwordVerificationThreads, passwordVerificationQueueSize, passwordVerificationTimeout);
+        	this.ownPasswordVerificationService = true;
+        } else {
+        	this.passwordVerificationService = PasswordVerificationService.defaultInstance();
+        }
+
         LOG.info("Option scanConsistency: " + scanConsistency);
         LOG.info("Option ignoreAttributeScanConsistency: " + ignoreAttributeScanConsistency);
         LOG.info("Option enableScopeSupport: " + enableScopeSupport);
         LOG.info("Option disableAttributeMapping: " + disableAttributeMapping);
+        LOG.info("Option readYourOwnWrites: " + readYourOwnWrites);
+        LOG.info("Option readYourOwnWritesMaxTokens: " + readYourOwnWritesMaxTokens);
+        LOG.info("Option subdocLookupMaxAttributes: " + subdocLookupMaxAttributes);
+        LOG.info("Option preparedStatementsCacheSize: " + preparedStatementsCacheSize);
+        LOG.info("Option countCacheTtl: " + countCacheTtl);
+        LOG.info("Option passwordVerification: " + passwordVerificationService);
     }
 
     @Override
@@ -128,7 +233,7 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
 	
 	        if (userPassword != null) {
 	        	if (persistenceExtension == null) {
-		        	result = PasswordEncryptionHelper.compareCredentials(password, userPassword);
+		        	result = passwordVerificationService.compareCredentials(password, userPassword);
 	        	} else {
 	        		result = persistenceExtension.compareHashedPasswords(password, userPassword);
 	        	}
@@ -172,6 +277,7 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
 
 			JsonDocument result = bucketMapping.getBucket().upsert(jsonDocument);
             if (result != null) {
+                trackMutation(bucketMapping, result);
                 return true;
             }
 
@@ -182,6 +288,98 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
         return false;
 	}
 
+    @Override
+    public boolean insertEntry(String key, JsonObject jsonObject, Integer expiration) throws DuplicateEntryException, PersistenceException {
+        Instant startTime = OperationDurationUtil.instance().now();
+
+        BucketMapping bucketMapping = connectionProvider.getBucketMappingByKey(key);
+        boolean result = insertEntryImpl(bucketMapping, key, jsonObject, expiration);
+
+        Duration duration = OperationDurationUtil.instance().duration(startTime);
+        OperationDurationUtil.instance().logDebug("Couchbase operation: insert, duration: {}, bucket: {}, key: {}, json: {}", duration, bucketMapping.getBucketName(), key, jsonObject);
+
+        return result;
+    }
+
+	private boolean insertEntryImpl(BucketMapping bucketMapping, String key, JsonObject jsonObject, Integer expiration) throws DuplicateEntryException, PersistenceException {
+		try {
+			JsonDocument jsonDocument;
+			if (expiration == null) {
+	            jsonDocument = JsonDocument.create(key, jsonObject);
+			} else {
+	            jsonDocument = JsonDocument.create(key, expiration, jsonObject);
+			}
+
+			JsonDocument result = bucketMapping.getBucket().insert(jsonDocument);
+            if (result != null) {
+                trackMutation(bucketMapping, result);
+                return true;
+            }
+        } catch (DocumentAlreadyExistsException ex) {
+            throw new DuplicateEntryException(key);
+        } catch (CouchbaseException ex) {
+            throw new PersistenceException("Failed to add entry", ex);
+        }
+
+        return false;
+	}
+
+    @Override
+    public Map<String, PersistenceException> addEntries(List<JsonDocument> documents) {
+        Instant startTime = OperationDurationUtil.instance().now();
+
+        Map<String, PersistenceException> result = processBulk(documents, document -> document.id(),
+        		(bucket, document) -> bucket.upsert(document), "Failed to add entry");
+
+        Duration duration = OperationDurationUtil.instance().duration(startTime);
+        OperationDurationUtil.instance().logDebug("Couchbase operation: add_bulk, duration: {}, count: {}, failed: {}", duration, documents.size(), result.size());
+
+        return result;
+    }
+
+    @Override
+    public Map<String, PersistenceException> deleteEntries(List<String> keys) {
+        Instant startTime = OperationDurationUtil.instance().now();
+
+        Map<String, PersistenceException> result = processBulk(keys, key -> key,
+        		(bucket, key) -> bucket.remove(key), "Failed to delete entry");
+
+        Duration duration = OperationDurationUtil.instance().duration(startTime);
+        OperationDurationUtil.instance().logDebug("Couchbase operation: delete_bulk, duration: {}, count: {}, failed: {}", duration, keys.size(), result.size());
+
+        return result;
+    }
+
+    /**
+     * Execute asynchronous bucket operations with limited concurrency and wait for all of them
+     */
+    private <I> Map<String, PersistenceException> processBulk(List<I> items, Function<I, String> keyFunction,
+    		BiFunction<AsyncBucket, I, Observable<JsonDocument>> operation, String errorMessage) {
+        final Map<String, PersistenceException> errors = new ConcurrentHashMap<String, PersistenceException>();
+
+        List<Observable<JsonDocument>> operations = new ArrayList<Observable<JsonDocument>>(items.size());
+        for (I item : items) {
+            String key = keyFunction.apply(item);
+            try {
+                BucketMapping bucketMapping = connectionProvider.getBucketMappingByKey(key);
+                AsyncBucket bucket = bucketMapping.getBucket().async();
+                // Unlike sync bucket API async one doesn't apply KV timeout
+                long kvTimeout = bucket.environment().kvTimeout();
+                operations.add(Observable.defer(() -> operation.apply(bucket, item)).timeout(kvTimeout, TimeUnit.MILLISECONDS)
+                		.doOnNext(document -> trackMutation(bucketMapping, document)).onErrorResumeNext(ex -> {
+                    errors.put(key, new PersistenceException(errorMessage, ex));
+                    return Observable.<JsonDocument>empty();
+                }));
+            } catch (RuntimeException ex) {
+                errors.put(key, new PersistenceException(errorMessage, ex));
+            }
+        }
+
+        Observable.merge(operations, BULK_OPERATIONS_CONCURRENCY).toBlocking().lastOrDefault(null);
+
+        return errors;
+    }
+
     @Deprecated
     protected boolean updateEntry(String key, JsonObject attrs) throws UnsupportedOperationException, SearchException {
         List<MutationSpec> mods = new ArrayList<MutationSpec>();
@@ -222,13 +420,78 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
             	builder = builder.withExpiry(expiration);
             }
 
-            return modifyEntry(builder, mods);
+            DocumentFragment<Mutation> result = mutateIn(builder, mods);
+            if (result.size() > 0) {
+                trackMutation(bucketMapping, result.mutationToken());
+                return result.status(0).isSuccess();
+            }
+
+            return false;
         } catch (final CouchbaseException ex) {
             throw new SearchException("Failed to update entry", ex);
         }
 	}
 
+    @Override
+    public boolean updateEntry(String key, List<MutationSpec> mods, Integer expiration, String expectedAttributeName, Object expectedValue)
+            throws UnsupportedOperationException, SearchException {
+        Instant startTime = OperationDurationUtil.instance().now();
+
+        BucketMapping bucketMapping = connectionProvider.getBucketMappingByKey(key);
+        boolean result = updateEntryImpl(bucketMapping, key, mods, expiration, expectedAttributeName, expectedValue);
+
+        Duration duration = OperationDurationUtil.instance().duration(startTime);
+        OperationDurationUtil.instance().logDebug("Couchbase operation: modify, duration: {}, bucket: {}, key: {}, mods: {}, expected: {}={}", duration,
+        		bucketMapping.getBucketName(), key, mods, expectedAttributeName, expectedValue);
+
+        return result;
+    }
+
+	private boolean updateEntryImpl(BucketMapping bucketMapping, String key, List<MutationSpec> mods, Integer expiration, String expectedAttributeName,
+			Object expectedValue) throws SearchException {
+		Bucket bucket = bucketMapping.getBucket();
+		try {
+			DocumentFragment<Lookup> current = bucket.lookupIn(key).get(expectedAttributeName).execute();
+			if (!current.exists(expectedAttributeName) || !expectedValue.equals(current.content(expectedAttributeName))) {
+				return false;
+			}
+
+			// Update fails if document was changed after check
+			MutateInBuilder builder = bucket.mutateIn(key).withCas(current.cas());
+            if (expiration != null) {
+            	builder = builder.withExpiry(expiration);
+            }
+
+            DocumentFragment<Mutation> result = mutateIn(builder, mods);
+            if (result.size() > 0) {
+                trackMutation(bucketMapping, result.mutationToken());
+                return result.status(0).isSuccess();
+            }
+
+            return false;
+		} catch (DocumentDoesNotExistException ex) {
+			return false;
+		} catch (SearchException ex) {
+			if ((ex.getCause() instanceof CASMismatchException) || (ex.getCause() instanceof DocumentDoesNotExistException)) {
+				return false;
+			}
+
+			throw ex;
+        } catch (CouchbaseException ex) {
+            throw new SearchException("Failed to update entry", ex);
+        }
+	}
+
     protected boolean modifyEntry(MutateInBuilder builder, List<MutationSpec> mods) throws UnsupportedOperationException, SearchException {
+        DocumentFragment<Mutation> result = mutateIn(builder, mods);
+        if (result.size() > 0) {
+            return result.status(0).isSuccess();
+        }
+
+        return false;
+    }
+
+    private DocumentFragment<Mutation> mutateIn(MutateInBuilder builder, List<MutationSpec> mods) throws UnsupportedOperationException, SearchException {
         try {
             for (MutationSpec mod : mods) {
                 Mutation type = mod.type();
@@ -243,12 +506,7 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
                 }
             }
 
-            DocumentFragment<Mutation> result = builder.execute();
-            if (result.size() > 0) {
-                return result.status(0).isSuccess();
-            }
-
-            return false;
+            return builder.execute();
         } catch (final CouchbaseException ex) {
             throw new SearchException("Failed to update entry", ex);
         }
@@ -270,6 +528,7 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
 	private boolean deleteImpl(BucketMapping bucketMapping, String key) throws EntryNotFoundException {
 		try {
             JsonDocument result = bucketMapping.getBucket().remove(key);
+            trackMutation(bucketMapping, result);
 
             return (result != null) && (result.id() != null);
         } catch (CouchbaseException ex) {
@@ -278,36 +537,37 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
 	}
 
     @Override
-    public int delete(String key, ScanConsistency scanConsistency, Expression expression, int count) throws DeleteException {
+    public int delete(String key, ScanConsistency scanConsistency, Expression expression, JsonObject queryParameters, int count) throws DeleteException {
         Instant startTime = OperationDurationUtil.instance().now();
 
         BucketMapping bucketMapping = connectionProvider.getBucketMappingByKey(key);
     	ScanConsistency useScanConsistency = getScanConsistency(scanConsistency, false);
 
-    	int result = deleteImpl(bucketMapping, key, useScanConsistency, expression, count);
+    	int result = deleteImpl(bucketMapping, key, useScanConsistency, expression, queryParameters, count);
 
         String attemptInfo = getScanAttemptLogInfo(scanConsistency, useScanConsistency, false);
 
         Duration duration = OperationDurationUtil.instance().duration(startTime);
-        OperationDurationUtil.instance().logDebug("Couchbase operation: delete_search, duration: {}, bucket: {}, key: {}, expression: {}, count: {}, consistency: {}{}", duration, bucketMapping.getBucketName(), key, expression, count, useScanConsistency, attemptInfo);
+        OperationDurationUtil.instance().logDebug("Couchbase operation: delete_search, duration: {}, bucket: {}, key: {}, expression: {}, queryParameters: {}, count: {}, consistency: {}{}", duration, bucketMapping.getBucketName(), key, expression, queryParameters, count, useScanConsistency, attemptInfo);
 
         return result;
     }
 
-    private int deleteImpl(BucketMapping bucketMapping, String key, ScanConsistency scanConsistency, Expression expression, int count) throws DeleteException {
+    private int deleteImpl(BucketMapping bucketMapping, String key, ScanConsistency scanConsistency, Expression expression, JsonObject queryParameters, int count) throws DeleteException {
         Bucket bucket = bucketMapping.getBucket();
 
+        JsonObject finalQueryParameters = copyQueryParameters(queryParameters);
         Expression finalExpression = expression;
         if (enableScopeSupport) { 
-			Expression scopeExpression = Expression.path("META().id").like(Expression.s(key + "%"));
+			Expression scopeExpression = Expression.path("META().id").like(addQueryParameter(finalQueryParameters, "scopeKey", key + "%"));
 			finalExpression = scopeExpression.and(expression);
         }
 
         MutateLimitPath deleteQuery = Delete.deleteFrom(Expression.i(bucketMapping.getBucketName())).where(finalExpression);
-        ReturningPath query = deleteQuery.limit(count);
+        String query = deleteQuery + " LIMIT " + addQueryParameter(finalQueryParameters, "limit", count);
         LOG.debug("Execution query: '" + query + "'");
 
-        N1qlQueryResult result = bucket.query(N1qlQuery.simple(query, N1qlParams.build().consistency(scanConsistency)));
+        N1qlQueryResult result = bucket.query(createN1qlQuery(query, finalQueryParameters, scanConsistency, null));
         if (!result.finalSuccess()) {
             throw new DeleteException(String.format("Failed to delete entries. Query: '%s'. Error: '%s', Error count: '%d'", query, result.errors(),
             		result.info().errorCount()), result.errors().get(0).getInt("code"));
@@ -332,10 +592,11 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
 	private boolean deleteRecursivelyImpl(BucketMapping bucketMapping, String key) throws SearchException, EntryNotFoundException {
 		try {
 	        if (enableScopeSupport) {
+	            JsonObject queryParameters = JsonObject.create();
 	            MutateLimitPath deleteQuery = Delete.deleteFrom(Expression.i(bucketMapping.getBucketName()))
-	                    .where(Expression.path("META().id").like(Expression.s(key + "%")));
+	                    .where(Expression.path("META().id").like(addQueryParameter(queryParameters, "scopeKey", key + "%")));
 	
-	            N1qlQueryResult result = bucketMapping.getBucket().query(deleteQuery);
+	            N1qlQueryResult result = bucketMapping.getBucket().query(createN1qlQuery(deleteQuery.toString(), queryParameters, scanConsistency, null));
 	            if (!result.finalSuccess()) {
                     throw new SearchException(String.format("Failed to delete entries. Query: '%s'. Error: '%s', Error count: '%d'", deleteQuery, result.errors(),
                     		result.info().errorCount()), result.errors().get(0).getInt("code"));
@@ -359,6 +620,10 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
 
         boolean secondTry = false; 
     	ScanConsistency useScanConsistency = getScanConsistency(scanConsistency, attemptWithoutAttributeScanConsistency);
+    	if (readYourOwnWrites) {
+    		// Key-value reads are always consistent. There is no reason to repeat them
+    		useScanConsistency = getScanConsistency(scanConsistency, false);
+    	}
         JsonObject result = null;
         SearchException lastException = null;
 		try {
@@ -396,6 +661,24 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
                     return doc.content();
                 }
 
+            } else if (isSubdocLookup(attributes)) {
+                DocumentFragment<Lookup> fragment;
+                try {
+                    fragment = bucket.lookupIn(key).get(attributes).execute();
+                } catch (DocumentDoesNotExistException ex) {
+                    // Missing document is not an error, same as for full document lookup
+                    return null;
+                }
+                if (fragment != null) {
+                	JsonObject result = JsonObject.create();
+                	for (String attribute : attributes) {
+                		if (fragment.exists(attribute)) {
+                			result.put(attribute, fragment.content(attribute));
+                		}
+                	}
+
+                	return result;
+                }
             } else {
                 JsonDocument doc = bucket.get(key);
                 if (doc != null) {
@@ -427,11 +710,30 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
             throw new SearchException("Failed to lookup entry", ex);
         }
 
-        throw new SearchException("Failed to lookup entry");
+        // Document doesn't exist
+        return null;
+	}
+
+	/*
+	 * Document size is not known before read. Sub-document lookup is used when only few attributes
+	 * are requested because in this case it's cheaper than full document transfer and parsing
+	 */
+	private boolean isSubdocLookup(String[] attributes) {
+		if (attributes.length > subdocLookupMaxAttributes) {
+			return false;
+		}
+
+		for (String attribute : attributes) {
+			if (!SUBDOC_SIMPLE_PATH_PATTERN.matcher(attribute).matches()) {
+				return false;
+			}
+		}
+
+		return true;
 	}
 
 	@Override
-    public <O> PagedResult<JsonObject> search(String key, ScanConsistency scanConsistency, Expression expression, SearchScope scope, String[] attributes, Sort[] orderBy,
+    public <O> PagedResult<JsonObject> search(String key, ScanConsistency scanConsistency, Expression expression, JsonObject queryParameters, SearchScope scope, String[] attributes, Sort[] orderBy,
             CouchbaseBatchOperationWraper<O> batchOperationWraper, SearchReturnDataType returnDataType, int start, int count, int pageSize) throws SearchException {
         Instant startTime = OperationDurationUtil.instance().now();
 
@@ -439,12 +741,21 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
 
         boolean secondTry = false;
     	ScanConsistency useScanConsistency = getScanConsistency(scanConsistency, attemptWithoutAttributeScanConsistency);
+    	MutationState mutationState = null;
+    	boolean singleAttempt = false;
+    	if (readYourOwnWrites && !useScanConsistency.equals(getScanConsistency(scanConsistency, false))) {
+    		// Instead of second attempt with stronger consistency wait only for mutations done by this node.
+    		// Without mutation state there is nothing to wait for, hence second attempt is still needed
+    		// to see writes done by other nodes
+    		mutationState = getMutationState(bucketMapping);
+    		singleAttempt = mutationState != null;
+    	}
         PagedResult<JsonObject> result = null;
         int attemps = 20;
         do {
 			attemps--;
 			try {
-				result = searchImpl(bucketMapping, key, useScanConsistency, expression, scope, attributes, orderBy, batchOperationWraper,
+				result = searchImpl(bucketMapping, key, useScanConsistency, mutationState, expression, queryParameters, scope, attributes, orderBy, batchOperationWraper,
 						returnDataType, start, count, pageSize);
 				break;
 			} catch (SearchException ex) {
@@ -458,11 +769,11 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
 				} catch (InterruptedException ex2) {}
 			}
         } while (attemps > 0);
-        if ((result == null) || (result.getEntriesCount() == 0)) {
+        if (!singleAttempt && ((result == null) || (result.getEntriesCount() == 0))) {
         	ScanConsistency useScanConsistency2 = getScanConsistency(scanConsistency, false);
         	if (!useScanConsistency2.equals(useScanConsistency)) {
         		useScanConsistency = useScanConsistency2;
-                result = searchImpl(bucketMapping, key, useScanConsistency, expression, scope, attributes, orderBy, batchOperationWraper, returnDataType, start, count, pageSize);
+                result = searchImpl(bucketMapping, key, useScanConsistency, null, expression, queryParameters, scope, attributes, orderBy, batchOperationWraper, returnDataType, start, count, pageSize);
                 secondTry = true;
         	}
         }
@@ -470,12 +781,12 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
         String attemptInfo = getScanAttemptLogInfo(scanConsistency, useScanConsistency, secondTry);
 
         Duration duration = OperationDurationUtil.instance().duration(startTime);
-        OperationDurationUtil.instance().logDebug("Couchbase operation: search, duration: {}, bucket: {}, key: {}, expression: {}, scope: {}, attributes: {}, orderBy: {}, batchOperationWraper: {}, returnDataType: {}, start: {}, count: {}, pageSize: {}, consistency: {}{}", duration, bucketMapping.getBucketName(), key, expression, scope, attributes, orderBy, batchOperationWraper, returnDataType, start, count, pageSize, useScanConsistency, attemptInfo);
+        OperationDurationUtil.instance().logDebug("Couchbase operation: search, duration: {}, bucket: {}, key: {}, expression: {}, queryParameters: {}, scope: {}, attributes: {}, orderBy: {}, batchOperationWraper: {}, returnDataType: {}, start: {}, count: {}, pageSize: {}, consistency: {}{}", duration, bucketMapping.getBucketName(), key, expression, queryParameters, scope, attributes, orderBy, batchOperationWraper, returnDataType, start, count, pageSize, (mutationState == null) ? useScanConsistency : "AT_PLUS", attemptInfo);
 
         return result;
 	}
 
-	private <O> PagedResult<JsonObject> searchImpl(BucketMapping bucketMapping, String key, ScanConsistency scanConsistency, Expression expression, SearchScope scope, String[] attributes, Sort[] orderBy,
+	private <O> PagedResult<JsonObject> searchImpl(BucketMapping bucketMapping, String key, ScanConsistency scanConsistency, MutationState mutationState, Expression expression, JsonObject queryParameters, SearchScope scope, String[] attributes, Sort[] orderBy,
             CouchbaseBatchOperationWraper<O> batchOperationWraper, SearchReturnDataType returnDataType, int start, int count, int pageSize) throws SearchException {
         Bucket bucket = bucketMapping.getBucket();
 
@@ -491,16 +802,17 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
             }
         }
 
+        JsonObject finalQueryParameters = copyQueryParameters(queryParameters);
         Expression finalExpression = expression;
         if (enableScopeSupport) { 
 			Expression scopeExpression;
 			if (scope == null) {
 				scopeExpression = null;
 			} else if (SearchScope.BASE == scope) {
-				scopeExpression = Expression.path("META().id").like(Expression.s(key + "%"))
-						.and(Expression.path("META().id").notLike(Expression.s(key + "\\\\_%\\\\_")));
+				scopeExpression = Expression.path("META().id").like(addQueryParameter(finalQueryParameters, "scopeKey", key + "%"))
+						.and(Expression.path("META().id").notLike(addQueryParameter(finalQueryParameters, "scopeSubKey", key + "\\_%\\_")));
 			} else {
-				scopeExpression = Expression.path("META().id").like(Expression.s(key + "%"));
+				scopeExpression = Expression.path("META().id").like(addQueryParameter(finalQueryParameters, "scopeKey", key + "%"));
 			}
 
 			if (scopeExpression != null) {
@@ -531,79 +843,123 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
             baseQuery = selectQuery.orderBy(orderBy);
         }
 
+        // Start count calculation before loading entries. Both queries are executed in parallel
+        PendingCount pendingCount = null;
+        if ((SearchReturnDataType.COUNT == returnDataType) || (SearchReturnDataType.SEARCH_COUNT == returnDataType)) {
+            pendingCount = startCount(bucketMapping, scanConsistency, mutationState, finalExpression, finalQueryParameters);
+        }
+
         List<N1qlQueryRow> searchResultList = new ArrayList<N1qlQueryRow>();
 
-        if ((SearchReturnDataType.SEARCH == returnDataType) || (SearchReturnDataType.SEARCH_COUNT == returnDataType)) {
-	        N1qlQueryResult lastResult = null;
-	        if (pageSize > 0) {
-	            boolean collectSearchResult;
-	
-	            Statement query = null;
-	            int currentLimit;
-	            try {
-	                List<N1qlQueryRow> lastSearchResultList;
-	                int resultCount = 0;
-	                do {
-	                    collectSearchResult = true;
-	
-	                    currentLimit = pageSize;
-	                    if (count > 0) {
-	                        currentLimit = Math.min(pageSize, count - resultCount);
-	                    }
-	
-	                    query = baseQuery.limit(currentLimit).offset(start + resultCount);
-	                    LOG.debug("Execution query: '" + query + "'");
-	                    lastResult = bucket.query(N1qlQuery.simple(query, N1qlParams.build().consistency(scanConsistency)));
-	                    if (!lastResult.finalSuccess()) {
-		                    throw new SearchException(String.format("Failed to search entries. Query: '%s'. Error: '%s', Error count: '%d'", query, lastResult.errors(),
+        try {
+            if ((SearchReturnDataType.SEARCH == returnDataType) || (SearchReturnDataType.SEARCH_COUNT == returnDataType)) {
+		        N1qlQueryResult lastResult = null;
+		        if (pageSize > 0) {
+		            boolean collectSearchResult;
+		
+		            // Use keyset pagination on document key in batch operations without requested order.
+		            // Other searches keep their query plans
+		            boolean keysetPagination = (batchOperationWraper != null) && ArrayHelper.isEmpty(orderBy) && (start == 0);
+		            String firstPageQuery, nextPageQuery;
+		            if (keysetPagination) {
+		                String[] keysetSelect = ArrayHelper.arrayMerge(select, new String[] { KEYSET_DOCUMENT_KEY + " AS " + KEYSET_DOCUMENT_KEY_ALIAS });
+		                Sort keysetSort = Sort.asc(Expression.x(KEYSET_DOCUMENT_KEY));
+
+		                firstPageQuery = Select.select(keysetSelect).from(Expression.i(bucketMapping.getBucketName())).as("gluu_doc")
+		                        .where(finalExpression).orderBy(keysetSort) + " LIMIT $limit";
+		                nextPageQuery = Select.select(keysetSelect).from(Expression.i(bucketMapping.getBucketName())).as("gluu_doc")
+		                        .where(Expression.par(finalExpression).and(Expression.x(KEYSET_DOCUMENT_KEY).gt(Expression.x("$lastKey"))))
+		                        .orderBy(keysetSort) + " LIMIT $limit";
+		            } else {
+		                firstPageQuery = baseQuery + " LIMIT $limit OFFSET $offset";
+		                nextPageQuery = firstPageQuery;
+		            }
+
+		            String query = firstPageQuery;
+		            int currentLimit;
+		            try {
+		                List<N1qlQueryRow> lastSearchResultList;
+		                int resultCount = 0;
+		                String lastKey = null;
+		                do {
+		                    collectSearchResult = true;
+		
+		                    currentLimit = pageSize;
+		                    if (count > 0) {
+		                        currentLimit = Math.min(pageSize, count - resultCount);
+		                    }
+		
+		                    finalQueryParameters.put("limit", currentLimit);
+		                    if (keysetPagination) {
+		                        if (lastKey != null) {
+		                            query = nextPageQuery;
+		                            finalQueryParameters.put("lastKey", lastKey);
+		                        }
+		                    } else {
+		                        finalQueryParameters.put("offset", start + resultCount);
+		                    }
+		                    LOG.debug("Execution query: '" + query + "'");
+		                    lastResult = bucket.query(createN1qlQuery(query, finalQueryParameters, scanConsistency, mutationState));
+		                    if (!lastResult.finalSuccess()) {
+			                    throw new SearchException(String.format("Failed to search entries. Query: '%s'. Error: '%s', Error count: '%d'", query, lastResult.errors(),
+			                            lastResult.info().errorCount()), lastResult.errors().get(0).getInt("code"));
+		                    }
+		
+		                    lastSearchResultList = lastResult.allRows();
+		                    if (keysetPagination && (lastSearchResultList.size() > 0)) {
+		                        lastKey = removeKeysetDocumentKeys(lastSearchResultList);
+		                    }
+		
+		                    if (ldapBatchOperation != null) {
+		                        collectSearchResult = ldapBatchOperation.collectSearchResult(lastSearchResultList.size());
+		                    }
+		                    if (collectSearchResult) {
+		                        searchResultList.addAll(lastSearchResultList);
+		                    }
+		
+		                    if (ldapBatchOperation != null) {
+		                        List<O> entries = batchOperationWraper.createEntities(lastSearchResultList);
+		                        ldapBatchOperation.performAction(entries);
+		                    }
+		
+		                    resultCount += lastSearchResultList.size();
+		
+		                    if ((count > 0) && (resultCount >= count)) {
+		                        break;
+		                    }
+		                } while (lastSearchResultList.size() > 0);
+		            } catch (CouchbaseException ex) {
+		                throw new SearchException("Failed to search entries. Query: '" + query + "'", ex);
+		            }
+		        } else {
+		            try {
+		                String query = baseQuery.toString();
+		                if (count > 0) {
+		                    query += " LIMIT " + addQueryParameter(finalQueryParameters, "limit", count);
+		                }
+		                if (start > 0) {
+		                    query += " OFFSET " + addQueryParameter(finalQueryParameters, "offset", start);
+		                }
+		
+		                LOG.debug("Execution query: '" + query + "'");
+		                lastResult = bucket.query(createN1qlQuery(query, finalQueryParameters, scanConsistency, mutationState));
+		                if (!lastResult.finalSuccess()) {
+		                    throw new SearchException(String.format("Failed to search entries. Query: '%s'. Error: '%s', Error count: '%d'", baseQuery, lastResult.errors(),
 		                            lastResult.info().errorCount()), lastResult.errors().get(0).getInt("code"));
-	                    }
-	
-	                    lastSearchResultList = lastResult.allRows();
-	
-	                    if (ldapBatchOperation != null) {
-	                        collectSearchResult = ldapBatchOperation.collectSearchResult(lastSearchResultList.size());
-	                    }
-	                    if (collectSearchResult) {
-	                        searchResultList.addAll(lastSearchResultList);
-	                    }
-	
-	                    if (ldapBatchOperation != null) {
-	                        List<O> entries = batchOperationWraper.createEntities(lastSearchResultList);
-	                        ldapBatchOperation.performAction(entries);
-	                    }
-	
-	                    resultCount += lastSearchResultList.size();
-	
-	                    if ((count > 0) && (resultCount >= count)) {
-	                        break;
-	                    }
-	                } while (lastSearchResultList.size() > 0);
-	            } catch (CouchbaseException ex) {
-	                throw new SearchException("Failed to search entries. Query: '" + query + "'", ex);
-	            }
-	        } else {
-	            try {
-	                Statement query = baseQuery;
-	                if (count > 0) {
-	                    query = ((LimitPath) query).limit(count);
-	                }
-	                if (start > 0) {
-	                    query = ((OffsetPath) query).offset(start);
-	                }
-	
-	                LOG.debug("Execution query: '" + query + "'");
-	                lastResult = bucket.query(N1qlQuery.simple(query, N1qlParams.build().consistency(scanConsistency)));
-	                if (!lastResult.finalSuccess()) {
-	                    throw new SearchException(String.format("Failed to search entries. Query: '%s'. Error: '%s', Error count: '%d'", baseQuery, lastResult.errors(),
-	                            lastResult.info().errorCount()), lastResult.errors().get(0).getInt("code"));
-	                }
-	
-	                searchResultList.addAll(lastResult.allRows());
-	            } catch (CouchbaseException ex) {
-	                throw new SearchException("Failed to search entries. Query: '" + baseQuery.toString() + "'", ex);
-	            }
-	        }
+		                }
+		
+		                searchResultList.addAll(lastResult.allRows());
+		            } catch (CouchbaseException ex) {
+		                throw new SearchException("Failed to search entries. Query: '" + baseQuery.toString() + "'", ex);
+		            }
+		        }
+            }
+        } catch (SearchException | RuntimeException ex) {
+            // Count is not needed if search failed
+            if (pendingCount != null) {
+                pendingCount.cancel();
+            }
+            throw ex;
         }
 
         List<JsonObject> resultRows = new ArrayList<JsonObject>(searchResultList.size());
@@ -616,25 +972,161 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
         result.setEntriesCount(resultRows.size());
         result.setStart(start);
 
-        if ((SearchReturnDataType.COUNT == returnDataType) || (SearchReturnDataType.SEARCH_COUNT == returnDataType)) {
-            GroupByPath selectCountQuery = Select.select("COUNT(*) as TOTAL").from(Expression.i(bucketMapping.getBucketName()))
-                    .where(finalExpression);
-            try {
-                LOG.debug("Calculating count. Execution query: '" + selectCountQuery + "'");
-                N1qlQueryResult countResult = bucket.query(N1qlQuery.simple(selectCountQuery, N1qlParams.build().consistency(scanConsistency)));
-                if (!countResult.finalSuccess() || (countResult.info().resultCount() != 1)) {
-                    throw new SearchException(String.format("Failed to calculate count entries. Query: '%s'. Error: '%s', Error count: '%d'", selectCountQuery, countResult.errors(),
-                    		countResult.info().errorCount()), countResult.errors().get(0).getInt("code"));
-                }
-                result.setTotalEntriesCount(countResult.allRows().get(0).value().getInt("TOTAL"));
-            } catch (CouchbaseException ex) {
-                throw new SearchException("Failed to calculate count entries. Query: '" + selectCountQuery.toString() + "'", ex);
+        if (pendingCount != null) {
+            result.setTotalEntriesCount(pendingCount.get());
+        }
+
+        return result;
+    }
+
+    /*
+     * Returns key of last row. Document key is not part of entry and should be removed from rows
+     */
+    private String removeKeysetDocumentKeys(List<N1qlQueryRow> rows) {
+        String lastKey = null;
+        for (N1qlQueryRow row : rows) {
+            JsonObject value = row.value();
+            lastKey = value.getString(KEYSET_DOCUMENT_KEY_ALIAS);
+            value.removeKey(KEYSET_DOCUMENT_KEY_ALIAS);
+        }
+
+        return lastKey;
+    }
+
+    private PendingCount startCount(BucketMapping bucketMapping, ScanConsistency scanConsistency, MutationState mutationState, Expression expression, JsonObject queryParameters) throws SearchException {
+        GroupByPath selectCountQuery = Select.select("COUNT(*) as TOTAL").from(Expression.i(bucketMapping.getBucketName()))
+                .where(expression);
+        String countStatement = selectCountQuery.toString();
+
+        JsonObject countQueryParameters = copyQueryParameters(queryParameters);
+        countQueryParameters.removeKey("limit");
+        countQueryParameters.removeKey("offset");
+        countQueryParameters.removeKey("lastKey");
+
+        String countCacheKey = null;
+        if (countCache != null) {
+            // Parameterized statement with parameters values is normalized form of filter
+            countCacheKey = (mutationState == null ? scanConsistency : "AT_PLUS") + ":" + countStatement + ":" + countQueryParameters;
+            CachedCount cachedCount = countCache.get(countCacheKey);
+            if ((cachedCount != null) && (cachedCount.getExpirationTime() > System.currentTimeMillis())) {
+                LOG.debug("Using cached count for query: '" + countStatement + "'");
+                return new PendingCount(countStatement, cachedCount.getCount());
+            }
+        }
+
+        LOG.debug("Calculating count. Execution query: '" + countStatement + "'");
+        try {
+            Bucket bucket = bucketMapping.getBucket();
+            Future<Integer> countFuture = bucket.async().query(createN1qlQuery(countStatement, countQueryParameters, scanConsistency, mutationState))
+                    .flatMap(countResult -> countResult.errors().toList().flatMap(errors -> {
+                        if (!errors.isEmpty()) {
+                            return Observable.<Integer>error(new SearchException(String.format("Failed to calculate count entries. Query: '%s'. Error: '%s', Error count: '%d'",
+                                    countStatement, errors, errors.size()), errors.get(0).getInt("code")));
+                        }
+
+                        return countResult.rows().map(row -> row.value().getInt("TOTAL"));
+                    })).toBlocking().toFuture();
+
+            return new PendingCount(countStatement, countFuture, countCacheKey, bucket.environment().queryTimeout());
+        } catch (CouchbaseException ex) {
+            throw new SearchException("Failed to calculate count entries. Query: '" + countStatement + "'", ex);
+        }
+    }
+
+    /*
+     * Statement is executed as prepared after first execution. Not cached statements are executed as ad-hoc
+     * to avoid preparing of one time statements. Mutation state switches query to AT_PLUS consistency
+     */
+    private N1qlQuery createN1qlQuery(String statement, JsonObject queryParameters, ScanConsistency scanConsistency, MutationState mutationState) {
+        N1qlParams params = N1qlParams.build();
+        if (mutationState == null) {
+            params.consistency(scanConsistency);
+        } else {
+            params.consistentWith(mutationState);
+        }
+        if (isKnownStatement(statement)) {
+            params.adhoc(false);
+        }
+
+        if ((queryParameters == null) || queryParameters.isEmpty()) {
+            return N1qlQuery.simple(statement, params);
+        }
+
+        return N1qlQuery.parameterized(statement, queryParameters, params);
+    }
+
+    private boolean isKnownStatement(String statement) {
+        if (knownStatements == null) {
+            return false;
+        }
+
+        return knownStatements.putIfAbsent(statement, Boolean.TRUE) != null;
+    }
+
+    private void trackMutation(BucketMapping bucketMapping, Document<?> document) {
+        if (document != null) {
+            trackMutation(bucketMapping, document.mutationToken());
+        }
+    }
+
+    /*
+     * Keep only latest token per vbucket. Token from other vbucket UUID (after failover) replaces old one
+     */
+    private void trackMutation(BucketMapping bucketMapping, MutationToken mutationToken) {
+        if (!readYourOwnWrites || (mutationToken == null)) {
+            return;
+        }
+
+        Map<Integer, MutationToken> bucketTokens = mutationTokens.computeIfAbsent(bucketMapping.getBucketName(),
+        		bucketName -> new ConcurrentHashMap<Integer, MutationToken>());
+        bucketTokens.merge((int) mutationToken.vbucketID(), mutationToken, (currentToken, newToken) -> {
+            if ((currentToken.vbucketUUID() != newToken.vbucketUUID()) || (newToken.sequenceNumber() > currentToken.sequenceNumber())) {
+                return newToken;
+            }
+
+            return currentToken;
+        });
+    }
+
+    /*
+     * Build mutation state only for queries which need it. Tokens of all vbuckets make query too
+     * large. Returns null if there are more tokens than limit to use stronger scan consistency instead
+     */
+    private MutationState getMutationState(BucketMapping bucketMapping) {
+        Map<Integer, MutationToken> bucketTokens = mutationTokens.get(bucketMapping.getBucketName());
+        if ((bucketTokens == null) || bucketTokens.isEmpty() || (bucketTokens.size() > readYourOwnWritesMaxTokens)) {
+            return null;
+        }
+
+        MutationState mutationState = null;
+        for (MutationToken mutationToken : bucketTokens.values()) {
+            if (mutationState == null) {
+                mutationState = MutationState.from(mutationToken);
+            } else {
+                mutationState.add(MutationState.from(mutationToken));
+            }
+        }
+
+        return mutationState;
+    }
+
+    private JsonObject copyQueryParameters(JsonObject queryParameters) {
+        JsonObject result = JsonObject.create();
+        if (queryParameters != null) {
+            for (String name : queryParameters.getNames()) {
+                result.put(name, queryParameters.get(name));
             }
         }
 
         return result;
     }
 
+    private Expression addQueryParameter(JsonObject queryParameters, String name, Object value) {
+        queryParameters.put(name, value);
+
+        return Expression.x("$" + name);
+    }
+
     public String[] createStoragePassword(String[] passwords) {
         if (ArrayHelper.isEmpty(passwords)) {
             return passwords;
@@ -690,6 +1182,10 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
     public boolean destroy() {
         boolean result = true;
 
+        if (ownPasswordVerificationService) {
+        	passwordVerificationService.shutdown();
+        }
+
         if (connectionProvider != null) {
             try {
                 connectionProvider.destory();
@@ -726,4 +1222,84 @@ public class CouchbaseOperationServiceImpl implements CouchbaseOperationService
 		this.persistenceExtension = persistenceExtension;
 	}
 
+    private class PendingCount {
+
+        private final String statement;
+        private final Future<Integer> future;
+        private final String cacheKey;
+        private final long timeout;
+        private final Integer count;
+
+        PendingCount(String statement, Integer count) {
+            this.statement = statement;
+            this.future = null;
+            this.cacheKey = null;
+            this.timeout = 0;
+            this.count = count;
+        }
+
+        PendingCount(String statement, Future<Integer> future, String cacheKey, long timeout) {
+            this.statement = statement;
+            this.future = future;
+            this.cacheKey = cacheKey;
+            this.timeout = timeout;
+            this.count = null;
+        }
+
+        public void cancel() {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+
+        public int get() throws SearchException {
+            if (future == null) {
+                return count;
+            }
+
+            Integer result;
+            try {
+                result = future.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof SearchException) {
+                    throw (SearchException) ex.getCause();
+                }
+                throw new SearchException("Failed to calculate count entries. Query: '" + statement + "'", ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SearchException("Count entries calculation was interrupted. Query: '" + statement + "'", ex);
+            } catch (TimeoutException ex) {
+                future.cancel(true);
+                throw new SearchException("Failed to calculate count entries in " + timeout + " ms. Query: '" + statement + "'", ex);
+            }
+
+            if (cacheKey != null) {
+                countCache.put(cacheKey, new CachedCount(result, System.currentTimeMillis() + countCacheTtl));
+            }
+
+            return result;
+        }
+
+    }
+
+    private static final class CachedCount {
+
+        private final int count;
+        private final long expirationTime;
+
+        CachedCount(int count, long expirationTime) {
+            this.count = count;
+            this.expirationTime = expirationTime;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getExpirationTime() {
+            return expirationTime;
+        }
+
+    }
+
 }
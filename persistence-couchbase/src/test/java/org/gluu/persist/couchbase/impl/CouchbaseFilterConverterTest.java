@@ -0,0 +1,129 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.couchbase.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.gluu.persist.couchbase.model.ConvertedExpression;
+import org.gluu.persist.exception.operation.SearchException;
+import org.gluu.persist.reflect.property.PropertyAnnotation;
+import org.gluu.search.filter.Filter;
+import org.testng.annotations.Test;
+
+import com.couchbase.client.java.document.json.JsonArray;
+import com.couchbase.client.java.document.json.JsonObject;
+
+/**
+ * Unit tests for {@link CouchbaseFilterConverter}
+ */
+public class CouchbaseFilterConverterTest {
+
+	private static final Map<String, PropertyAnnotation> NO_ANNOTATIONS = new HashMap<String, PropertyAnnotation>();
+
+	@Test
+	public void assertionValuesAreExtractedToParameters() throws SearchException {
+		CouchbaseFilterConverter converter = new CouchbaseFilterConverter(null);
+
+		ConvertedExpression result = converter.convertToCouchbaseFilter(userFilter("user1", 5), null);
+
+		assertEquals(result.queryParameters(), JsonObject.create().put("p0", "user1").put("p1", 5));
+		assertEquals(result.expression().toString().indexOf("user1"), -1);
+	}
+
+	@Test
+	public void sameStructureReusesTemplate() throws SearchException {
+		CouchbaseFilterConverter converter = new CouchbaseFilterConverter(null);
+
+		ConvertedExpression first = converter.convertToCouchbaseFilter(userFilter("user1", 5), null);
+		ConvertedExpression second = converter.convertToCouchbaseFilter(userFilter("user2", 10), null);
+
+		assertSame(second.expression(), first.expression());
+		assertEquals(second.queryParameters(), JsonObject.create().put("p0", "user2").put("p1", 10));
+	}
+
+	@Test
+	public void templateMatchesDirectConversion() throws SearchException {
+		CouchbaseFilterConverter converter = new CouchbaseFilterConverter(null);
+		converter.convertToCouchbaseFilter(userFilter("user1", 5), null);
+
+		ConvertedExpression templated = converter.convertToCouchbaseFilter(userFilter("user2", 10), null);
+		ConvertedExpression direct = converter.convertToCouchbaseFilter(userFilter("user2", 10), null, filter -> true);
+
+		assertEquals(templated.expression().toString(), direct.expression().toString());
+		assertEquals(templated.queryParameters(), direct.queryParameters());
+	}
+
+	@Test
+	public void differentStructureUsesOwnTemplate() throws SearchException {
+		CouchbaseFilterConverter converter = new CouchbaseFilterConverter(null);
+
+		ConvertedExpression uid = converter.convertToCouchbaseFilter(Filter.createEqualityFilter("uid", "test").multiValued(false), null);
+		ConvertedExpression mail = converter.convertToCouchbaseFilter(Filter.createEqualityFilter("mail", "test").multiValued(false), null);
+
+		assertNotEquals(mail.expression().toString(), uid.expression().toString());
+	}
+
+	@Test
+	public void substringIsExtractedToLikeParameter() throws SearchException {
+		CouchbaseFilterConverter converter = new CouchbaseFilterConverter(null);
+		converter.convertToCouchbaseFilter(substringFilter("a", "b", "c"), null);
+
+		ConvertedExpression result = converter.convertToCouchbaseFilter(substringFilter("x", "y", "z"), null);
+
+		assertEquals(result.queryParameters(), JsonObject.create().put("p0", "x%y%z"));
+	}
+
+	@Test
+	public void orEqualityFiltersAreJoinedIntoInParameter() throws SearchException {
+		CouchbaseFilterConverter converter = new CouchbaseFilterConverter(null);
+		converter.convertToCouchbaseFilter(objectClassFilter("top", "person"), NO_ANNOTATIONS);
+
+		ConvertedExpression result = converter.convertToCouchbaseFilter(objectClassFilter("gluuPerson", "eduPerson"), NO_ANNOTATIONS);
+
+		String expression = result.expression().toString();
+		String inParameter = expression.substring(expression.indexOf(" IN $") + 5).replaceAll("\\W.*", "");
+
+		assertEquals(result.queryParameters().get(inParameter), JsonArray.create().add("gluuPerson").add("eduPerson"));
+	}
+
+	@Test
+	public void cacheCanBeDisabled() throws SearchException {
+		CouchbaseFilterConverter converter = new CouchbaseFilterConverter(null);
+		converter.setTemplatesCacheSize(0);
+
+		ConvertedExpression first = converter.convertToCouchbaseFilter(userFilter("user1", 5), null);
+		ConvertedExpression second = converter.convertToCouchbaseFilter(userFilter("user2", 10), null);
+
+		assertNotSame(second.expression(), first.expression());
+		assertEquals(second.queryParameters(), JsonObject.create().put("p0", "user2").put("p1", 10));
+	}
+
+	private static Filter userFilter(String uid, int loginCount) {
+		return Filter.createANDFilter(Filter.createEqualityFilter("uid", uid).multiValued(false),
+				Filter.createGreaterOrEqualFilter("loginCount", loginCount).multiValued(false));
+	}
+
+	private static Filter substringFilter(String subInitial, String subAny, String subFinal) {
+		return Filter.createSubstringFilter("cn", subInitial, new String[] { subAny }, subFinal).multiValued(false);
+	}
+
+	private static Filter objectClassFilter(String... objectClasses) {
+		Filter[] filters = new Filter[objectClasses.length];
+		for (int i = 0; i < objectClasses.length; i++) {
+			filters[i] = Filter.createEqualityFilter("objectClass", objectClasses[i]);
+		}
+
+		return Filter.createORFilter(filters);
+	}
+
+}
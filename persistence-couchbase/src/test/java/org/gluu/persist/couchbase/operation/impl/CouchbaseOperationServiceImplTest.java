@@ -0,0 +1,83 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.couchbase.operation.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.lang.reflect.Proxy;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gluu.persist.couchbase.model.BucketMapping;
+import org.gluu.persist.exception.operation.SearchException;
+import org.testng.annotations.Test;
+
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.error.DocumentDoesNotExistException;
+import com.couchbase.client.java.query.consistency.ScanConsistency;
+
+/**
+ * Unit tests for {@link CouchbaseOperationServiceImpl}
+ */
+public class CouchbaseOperationServiceImplTest {
+
+	@Test
+	public void subdocLookupOfMissingKeyReturnsNull() throws SearchException {
+		AtomicInteger lookups = new AtomicInteger();
+		CouchbaseOperationServiceImpl operationService = createOperationService(lookups);
+
+		assertNull(operationService.lookup("people_missing", null, "uid"));
+		assertEquals(lookups.get(), 1);
+	}
+
+	@Test
+	public void subdocLookupOfMissingKeyIsRepeatedWithStrongerConsistency() throws SearchException {
+		AtomicInteger lookups = new AtomicInteger();
+		CouchbaseOperationServiceImpl operationService = createOperationService(lookups);
+
+		assertNull(operationService.lookup("people_missing", ScanConsistency.REQUEST_PLUS, "uid"));
+		assertEquals(lookups.get(), 2);
+	}
+
+	@Test
+	public void fullLookupOfMissingKeyReturnsNull() throws SearchException {
+		AtomicInteger lookups = new AtomicInteger();
+		CouchbaseOperationServiceImpl operationService = createOperationService(lookups);
+
+		assertNull(operationService.lookup("people_missing", null));
+		assertEquals(lookups.get(), 1);
+	}
+
+	/*
+	 * Bucket without documents. Sub-document lookup fails like Couchbase client does for missing key
+	 */
+	private CouchbaseOperationServiceImpl createOperationService(final AtomicInteger lookups) {
+		final Bucket bucket = (Bucket) Proxy.newProxyInstance(Bucket.class.getClassLoader(), new Class<?>[] { Bucket.class },
+				(proxy, method, args) -> {
+					if ("lookupIn".equals(method.getName())) {
+						lookups.incrementAndGet();
+						throw new DocumentDoesNotExistException();
+					} else if ("get".equals(method.getName())) {
+						lookups.incrementAndGet();
+						return null;
+					}
+
+					throw new UnsupportedOperationException(method.getName());
+				});
+
+		CouchbaseConnectionProvider connectionProvider = new CouchbaseConnectionProvider() {
+			@Override
+			public BucketMapping getBucketMappingByKey(String key) {
+				return new BucketMapping("gluu", bucket);
+			}
+		};
+
+		return new CouchbaseOperationServiceImpl(new Properties(), connectionProvider);
+	}
+
+}
@@ -7,15 +7,21 @@
 package org.gluu.persist.hybrid.impl;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.function.BiFunction;
 
 import org.gluu.persist.PersistenceEntryManager;
 import org.gluu.persist.event.DeleteNotifier;
+import org.gluu.persist.exception.BasePersistenceException;
 import org.gluu.persist.exception.KeyConversionException;
 import org.gluu.persist.exception.MappingException;
 import org.gluu.persist.exception.operation.ConfigurationException;
@@ -26,6 +32,8 @@ import org.gluu.persist.ldap.impl.LdapEntryManagerFactory;
 import org.gluu.persist.model.AttributeData;
 import org.gluu.persist.model.AttributeDataModification;
 import org.gluu.persist.model.BatchOperation;
+import org.gluu.persist.model.CloseableIterator;
+import org.gluu.persist.model.EntryOperationResult;
 import org.gluu.persist.model.PagedResult;
 import org.gluu.persist.model.SearchScope;
 import org.gluu.persist.model.SortOrder;
@@ -258,6 +266,13 @@ public class HybridEntryManager extends BaseEntryManager implements Serializable
 		return persistenceEntryManager.findEntries(baseDN, entryClass, filter, ldapReturnAttributes, count);
 	}
 
+    @Override
+    public <T> CloseableIterator<T> iterateEntries(String baseDN, Class<T> entryClass, Filter filter, SearchScope scope, String[] ldapReturnAttributes,
+            int chunkSize) {
+        PersistenceEntryManager persistenceEntryManager = getEntryManagerForDn(baseDN);
+        return persistenceEntryManager.iterateEntries(baseDN, entryClass, filter, scope, ldapReturnAttributes, chunkSize);
+    }
+
     @Override
     public <T> PagedResult<T> findPagedEntries(String baseDN, Class<T> entryClass, Filter filter, String[] ldapReturnAttributes, String sortBy,
             SortOrder sortOrder, int start, int count, int chunkSize) {
@@ -266,6 +281,14 @@ public class HybridEntryManager extends BaseEntryManager implements Serializable
 	            sortOrder, start, count, chunkSize);
     }
 
+    @Override
+    public <T> PagedResult<T> findPagedEntries(String baseDN, Class<T> entryClass, Filter filter, String[] ldapReturnAttributes, String sortBy,
+            SortOrder sortOrder, String pageToken, int count) {
+        PersistenceEntryManager persistenceEntryManager = getEntryManagerForDn(baseDN);
+        return persistenceEntryManager.findPagedEntries(baseDN, entryClass, filter, ldapReturnAttributes, sortBy,
+                sortOrder, pageToken, count);
+    }
+
 	@Override
 	public boolean hasBranchesSupport(String dn) {
 		PersistenceEntryManager persistenceEntryManager = getEntryManagerForDn(dn);
@@ -360,6 +383,24 @@ public class HybridEntryManager extends BaseEntryManager implements Serializable
     	persistenceEntryManager.persist(entry);
 	}
 
+	@Override
+    public boolean persistIfAbsent(Object entry) {
+        Class<?> entryClass = entry.getClass();
+        Object dnValue = getDNValue(entry, entryClass);
+
+    	PersistenceEntryManager persistenceEntryManager = getEntryManagerForDn(dnValue);
+    	return persistenceEntryManager.persistIfAbsent(entry);
+	}
+
+	@Override
+    public boolean compareAndMerge(Object entry, AttributeData expectedAttribute) {
+        Class<?> entryClass = entry.getClass();
+        Object dnValue = getDNValue(entry, entryClass);
+
+    	PersistenceEntryManager persistenceEntryManager = getEntryManagerForDn(dnValue);
+    	return persistenceEntryManager.compareAndMerge(entry, expectedAttribute);
+	}
+
 	@Override
     public void remove(Object entry) {
         Class<?> entryClass = entry.getClass();
@@ -369,6 +410,60 @@ public class HybridEntryManager extends BaseEntryManager implements Serializable
     	persistenceEntryManager.remove(entry);
     }
 
+	@Override
+	public List<EntryOperationResult> persistAll(Collection<?> entries) {
+		return processAll(entries, (persistenceEntryManager, entryManagerEntries) -> persistenceEntryManager.persistAll(entryManagerEntries));
+	}
+
+	@Override
+	public List<EntryOperationResult> mergeAll(Collection<?> entries) {
+		return processAll(entries, (persistenceEntryManager, entryManagerEntries) -> persistenceEntryManager.mergeAll(entryManagerEntries));
+	}
+
+	@Override
+	public List<EntryOperationResult> removeAll(Collection<?> entries) {
+		return processAll(entries, (persistenceEntryManager, entryManagerEntries) -> persistenceEntryManager.removeAll(entryManagerEntries));
+	}
+
+	/**
+	 * Split entries between entry managers, execute bulk operation in each of them and
+	 * restore original entries order
+	 */
+	private List<EntryOperationResult> processAll(Collection<?> entries,
+			BiFunction<PersistenceEntryManager, List<Object>, List<EntryOperationResult>> operation) {
+		EntryOperationResult[] results = new EntryOperationResult[entries.size()];
+		Map<PersistenceEntryManager, List<Integer>> entryManagerIndexes = new IdentityHashMap<PersistenceEntryManager, List<Integer>>();
+		Map<PersistenceEntryManager, List<Object>> entryManagerEntries = new IdentityHashMap<PersistenceEntryManager, List<Object>>();
+
+		int index = 0;
+		for (Object entry : entries) {
+			try {
+				if (entry == null) {
+					throw new MappingException("Entry is null");
+				}
+
+				Object dnValue = getDNValue(entry, entry.getClass());
+				PersistenceEntryManager persistenceEntryManager = getEntryManagerForDn(dnValue);
+
+				entryManagerIndexes.computeIfAbsent(persistenceEntryManager, key -> new ArrayList<Integer>()).add(index);
+				entryManagerEntries.computeIfAbsent(persistenceEntryManager, key -> new ArrayList<Object>()).add(entry);
+			} catch (BasePersistenceException ex) {
+				results[index] = new EntryOperationResult(entry, getEntryDn(entry), ex);
+			}
+			index++;
+		}
+
+		for (Map.Entry<PersistenceEntryManager, List<Object>> entryManagerEntry : entryManagerEntries.entrySet()) {
+			List<Integer> indexes = entryManagerIndexes.get(entryManagerEntry.getKey());
+			List<EntryOperationResult> entryManagerResults = operation.apply(entryManagerEntry.getKey(), entryManagerEntry.getValue());
+			for (int i = 0; i < indexes.size(); i++) {
+				results[indexes.get(i)] = entryManagerResults.get(i);
+			}
+		}
+
+		return Arrays.asList(results);
+	}
+
 	@Override
 	public void remove(String primaryKey) {
 		PersistenceEntryManager persistenceEntryManager = getEntryManagerForDn(primaryKey);
@@ -407,11 +502,22 @@ public class HybridEntryManager extends BaseEntryManager implements Serializable
         throw new UnsupportedOperationException("Method not implemented.");
 	}
 
+	@Override
+	protected boolean persistIfAbsent(String dn, List<AttributeData> attributes, Integer expiration) {
+        throw new UnsupportedOperationException("Method not implemented.");
+	}
+
     @Override
 	protected void merge(String dn, List<AttributeDataModification> attributeDataModifications, Integer expiration) {
         throw new UnsupportedOperationException("Method not implemented.");
 	}
 
+    @Override
+	protected boolean merge(String dn, List<AttributeDataModification> attributeDataModifications, Integer expiration,
+			AttributeData expectedAttribute) {
+        throw new UnsupportedOperationException("Method not implemented.");
+	}
+
 	@Override
     protected List<AttributeData> find(String dn, Map<String, PropertyAnnotation> propertiesAnnotationsMap, String... ldapReturnAttributes) {
         throw new UnsupportedOperationException("Method not implemented.");
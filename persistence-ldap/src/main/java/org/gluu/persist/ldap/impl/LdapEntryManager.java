@@ -10,35 +10,57 @@ import java.io.Serializable;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import org.apache.commons.codec.binary.Base64;
 import org.gluu.persist.PersistenceEntryManager;
 import org.gluu.persist.event.DeleteNotifier;
 import org.gluu.persist.exception.AuthenticationException;
+import org.gluu.persist.exception.BasePersistenceException;
 import org.gluu.persist.exception.EntryDeleteException;
 import org.gluu.persist.exception.EntryPersistenceException;
 import org.gluu.persist.exception.MappingException;
 import org.gluu.persist.exception.operation.ConnectionException;
+import org.gluu.persist.exception.operation.DuplicateEntryException;
 import org.gluu.persist.exception.operation.SearchException;
 import org.gluu.persist.exception.operation.SearchScopeException;
 import org.gluu.persist.impl.BaseEntryManager;
 import org.gluu.persist.ldap.operation.LdapOperationService;
 import org.gluu.persist.ldap.operation.impl.LdapOperationServiceImpl;
+import org.gluu.persist.ldap.operation.impl.LdapSimplePagedSearch;
 import org.gluu.persist.model.AttributeData;
 import org.gluu.persist.model.AttributeDataModification;
 import org.gluu.persist.model.AttributeDataModification.AttributeModificationType;
 import org.gluu.persist.model.BatchOperation;
+import org.gluu.persist.model.CloseableIterator;
 import org.gluu.persist.model.DefaultBatchOperation;
+import org.gluu.persist.model.EntryOperationResult;
+import org.gluu.persist.model.PagedIterator;
 import org.gluu.persist.model.PagedResult;
 import org.gluu.persist.model.SearchScope;
 import org.gluu.persist.model.SortOrder;
@@ -51,6 +73,7 @@ import org.slf4j.LoggerFactory;
 
 import com.unboundid.ldap.sdk.Attribute;
 import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.Modification;
 import com.unboundid.ldap.sdk.ModificationType;
 import com.unboundid.ldap.sdk.ResultCode;
@@ -72,18 +95,28 @@ public class LdapEntryManager extends BaseEntryManager implements Serializable {
     private static final LdapFilterConverter LDAP_FILTER_CONVERTER = new LdapFilterConverter();
     private static final LdapSearchScopeConverter LDAP_SEARCH_SCOPE_CONVERTER = new LdapSearchScopeConverter();
 
+    private static final int BULK_OPERATIONS_WINDOW = 64;
+
     private List<DeleteNotifier> subscribers;
 
+    private int bulkDeleteWindow = BULK_OPERATIONS_WINDOW;
+    private long bulkDeleteTimeBudget = 0;
+
+    private transient ExecutorService asyncResultExecutor;
+    private transient ExecutorService subtreeDeleteExecutor;
+
     public LdapEntryManager() {
     }
 
     public LdapEntryManager(LdapOperationServiceImpl operationService) {
         this.operationService = operationService;
-        this.subscribers = new LinkedList<DeleteNotifier>();
+        this.subscribers = new CopyOnWriteArrayList<DeleteNotifier>();
     }
 
     @Override
     public boolean destroy() {
+        shutdownExecutors();
+
         if (this.operationService == null) {
             return true;
         }
@@ -95,6 +128,63 @@ public class LdapEntryManager extends BaseEntryManager implements Serializable {
         return (LdapOperationServiceImpl) operationService;
     }
 
+    /**
+     * Executor to convert results of asynchronous requests. It's bounded to not
+     * overload common fork join pool. Stages are never run on connection reader
+     * threads: when queue is full stage fails with RejectedExecutionException
+     */
+    protected synchronized ExecutorService getAsyncResultExecutor() {
+        if (asyncResultExecutor == null) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            int queueSize = Math.max(1, getOperationService().getConnectionProvider().getMaxAsyncRequests());
+            final AtomicInteger threadNumber = new AtomicInteger();
+
+            asyncResultExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueSize), runnable -> {
+                Thread thread = new Thread(runnable, "ldap-async-result-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        return asyncResultExecutor;
+    }
+
+    /**
+     * Executor to remove sub-entries of entries removed in bulk. Sub-tree removal
+     * blocks until all sub-entries are removed. When queue is full removal fails
+     * with RejectedExecutionException
+     */
+    protected synchronized ExecutorService getSubtreeDeleteExecutor() {
+        if (subtreeDeleteExecutor == null) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            int queueSize = Math.max(1, bulkDeleteWindow);
+            final AtomicInteger threadNumber = new AtomicInteger();
+
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueSize), runnable -> {
+                Thread thread = new Thread(runnable, "ldap-subtree-delete-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+            executor.allowCoreThreadTimeOut(true);
+
+            subtreeDeleteExecutor = executor;
+        }
+
+        return subtreeDeleteExecutor;
+    }
+
+    private synchronized void shutdownExecutors() {
+        if (asyncResultExecutor != null) {
+            asyncResultExecutor.shutdown();
+            asyncResultExecutor = null;
+        }
+
+        if (subtreeDeleteExecutor != null) {
+            subtreeDeleteExecutor.shutdown();
+            subtreeDeleteExecutor = null;
+        }
+    }
+
     @Override
     public void addDeleteSubscriber(DeleteNotifier subscriber) {
         subscribers.add(subscriber);
@@ -164,21 +254,7 @@ public class LdapEntryManager extends BaseEntryManager implements Serializable {
 
     @Override
     protected void persist(String dn, List<AttributeData> attributes, Integer expiration) {
-        List<Attribute> ldapAttributes = new ArrayList<Attribute>(attributes.size());
-        for (AttributeData attribute : attributes) {
-            String attributeName = attribute.getName();
-            String[] attributeValues = attribute.getStringValues();
-
-            if (ArrayHelper.isNotEmpty(attributeValues) && StringHelper.isNotEmpty(attributeValues[0])) {
-                if (getOperationService().isCertificateAttribute(attributeName)) {
-                    byte[][] binaryValues = toBinaryValues(attributeValues);
-
-                    ldapAttributes.add(new Attribute(attributeName + ";binary", binaryValues));
-                } else {
-                    ldapAttributes.add(new Attribute(attributeName, attributeValues));
-                }
-            }
-        }
+        List<Attribute> ldapAttributes = toLdapAttributes(attributes);
 
         // Persist entry
         try {
@@ -193,107 +269,167 @@ public class LdapEntryManager extends BaseEntryManager implements Serializable {
         }
     }
 
+    @Override
+    protected boolean persistIfAbsent(String dn, List<AttributeData> attributes, Integer expiration) {
+        List<Attribute> ldapAttributes = toLdapAttributes(attributes);
+
+        try {
+            boolean result = getOperationService().addEntry(dn, ldapAttributes);
+            if (!result) {
+                throw new EntryPersistenceException(String.format("Failed to persist entry: %s", dn));
+            }
+
+            return true;
+        } catch (DuplicateEntryException ex) {
+            return false;
+        } catch (ConnectionException ex) {
+            throw new EntryPersistenceException(String.format("Failed to persist entry: %s", dn), ex.getCause());
+        }
+    }
+
     @Override
     public void merge(String dn, List<AttributeDataModification> attributeDataModifications, Integer expiration) {
         // Update entry
         try {
-            List<Modification> modifications = new ArrayList<Modification>(attributeDataModifications.size());
-            for (AttributeDataModification attributeDataModification : attributeDataModifications) {
-                AttributeData attribute = attributeDataModification.getAttribute();
-                AttributeData oldAttribute = attributeDataModification.getOldAttribute();
-
-                String attributeName = null;
-                String[] attributeValues = null;
-                if (attribute != null) {
-                    attributeName = attribute.getName();
-                    attributeValues = attribute.getStringValues();
-                }
+            List<Modification> modifications = toLdapModifications(attributeDataModifications);
 
-                String oldAttributeName = null;
-                String[] oldAttributeValues = null;
-                if (oldAttribute != null) {
-                    oldAttributeName = oldAttribute.getName();
-                    oldAttributeValues = oldAttribute.getStringValues();
+            if (modifications.size() > 0) {
+                boolean result = getOperationService().updateEntry(dn, modifications);
+                if (!result) {
+                    throw new EntryPersistenceException(String.format("Failed to update entry: %s", dn));
                 }
+            }
+        } catch (ConnectionException ex) {
+            throw new EntryPersistenceException(String.format("Failed to update entry: %s", dn), ex.getCause());
+        } catch (Exception ex) {
+            throw new EntryPersistenceException(String.format("Failed to update entry: %s", dn), ex);
+        }
+    }
+
+    @Override
+    protected boolean merge(String dn, List<AttributeDataModification> attributeDataModifications, Integer expiration,
+            AttributeData expectedAttribute) {
+        com.unboundid.ldap.sdk.Filter assertionFilter = com.unboundid.ldap.sdk.Filter.createEqualityFilter(expectedAttribute.getName(),
+                expectedAttribute.getStringValues()[0]);
+        try {
+            List<Modification> modifications = toLdapModifications(attributeDataModifications);
+
+            return getOperationService().updateEntry(dn, modifications, assertionFilter);
+        } catch (ConnectionException ex) {
+            throw new EntryPersistenceException(String.format("Failed to update entry: %s", dn), ex.getCause());
+        } catch (DuplicateEntryException ex) {
+            throw new EntryPersistenceException(String.format("Failed to update entry: %s", dn), ex);
+        }
+    }
+
+    private List<Attribute> toLdapAttributes(List<AttributeData> attributes) {
+        List<Attribute> ldapAttributes = new ArrayList<Attribute>(attributes.size());
+        for (AttributeData attribute : attributes) {
+            String attributeName = attribute.getName();
+            String[] attributeValues = attribute.getStringValues();
 
-                Modification modification = null;
-                if (AttributeModificationType.ADD.equals(attributeDataModification.getModificationType())) {
-                    modification = createModification(ModificationType.ADD, attributeName, attributeValues);
+            if (ArrayHelper.isNotEmpty(attributeValues) && StringHelper.isNotEmpty(attributeValues[0])) {
+                if (getOperationService().isCertificateAttribute(attributeName)) {
+                    byte[][] binaryValues = toBinaryValues(attributeValues);
+
+                    ldapAttributes.add(new Attribute(attributeName + ";binary", binaryValues));
                 } else {
-                    if (AttributeModificationType.REMOVE.equals(attributeDataModification.getModificationType())) {
-                        modification = createModification(ModificationType.DELETE, oldAttributeName, oldAttributeValues);
-                    } else if (AttributeModificationType.REPLACE.equals(attributeDataModification.getModificationType())) {
-                        if (attributeValues.length == 1) {
-                            modification = createModification(ModificationType.REPLACE, attributeName, attributeValues);
-                        } else {
-                            String[] oldValues = ArrayHelper.arrayClone(oldAttributeValues);
-                            String[] newValues = ArrayHelper.arrayClone(attributeValues);
-
-                            Arrays.sort(oldValues);
-                            Arrays.sort(newValues);
-
-                            boolean[] retainOldValues = new boolean[oldValues.length];
-                            Arrays.fill(retainOldValues, false);
-
-                            List<String> addValues = new ArrayList<String>();
-                            List<String> removeValues = new ArrayList<String>();
-
-                            // Add new values
-                            for (String value : newValues) {
-                                int idx = Arrays.binarySearch(oldValues, value, new Comparator<String>() {
-                                    @Override
-                                    public int compare(String o1, String o2) {
-                                        return o1.toLowerCase().compareTo(o2.toLowerCase());
-                                    }
-                                });
-                                if (idx >= 0) {
-                                    // Old values array contains new value. Retain
-                                    // old value
-                                    retainOldValues[idx] = true;
-                                } else {
-                                    // This is new value
-                                    addValues.add(value);
-                                }
-                            }
+                    ldapAttributes.add(new Attribute(attributeName, attributeValues));
+                }
+            }
+        }
+
+        return ldapAttributes;
+    }
 
-                            // Remove values which we don't have in new values
-                            for (int i = 0; i < oldValues.length; i++) {
-                                if (!retainOldValues[i]) {
-                                    removeValues.add(oldValues[i]);
+    private List<Modification> toLdapModifications(List<AttributeDataModification> attributeDataModifications) {
+        List<Modification> modifications = new ArrayList<Modification>(attributeDataModifications.size());
+        for (AttributeDataModification attributeDataModification : attributeDataModifications) {
+            AttributeData attribute = attributeDataModification.getAttribute();
+            AttributeData oldAttribute = attributeDataModification.getOldAttribute();
+
+            String attributeName = null;
+            String[] attributeValues = null;
+            if (attribute != null) {
+                attributeName = attribute.getName();
+                attributeValues = attribute.getStringValues();
+            }
+
+            String oldAttributeName = null;
+            String[] oldAttributeValues = null;
+            if (oldAttribute != null) {
+                oldAttributeName = oldAttribute.getName();
+                oldAttributeValues = oldAttribute.getStringValues();
+            }
+
+            Modification modification = null;
+            if (AttributeModificationType.ADD.equals(attributeDataModification.getModificationType())) {
+                modification = createModification(ModificationType.ADD, attributeName, attributeValues);
+            } else {
+                if (AttributeModificationType.REMOVE.equals(attributeDataModification.getModificationType())) {
+                    modification = createModification(ModificationType.DELETE, oldAttributeName, oldAttributeValues);
+                } else if (AttributeModificationType.REPLACE.equals(attributeDataModification.getModificationType())) {
+                    if (attributeValues.length == 1) {
+                        modification = createModification(ModificationType.REPLACE, attributeName, attributeValues);
+                    } else {
+                        String[] oldValues = ArrayHelper.arrayClone(oldAttributeValues);
+                        String[] newValues = ArrayHelper.arrayClone(attributeValues);
+
+                        Arrays.sort(oldValues);
+                        Arrays.sort(newValues);
+
+                        boolean[] retainOldValues = new boolean[oldValues.length];
+                        Arrays.fill(retainOldValues, false);
+
+                        List<String> addValues = new ArrayList<String>();
+                        List<String> removeValues = new ArrayList<String>();
+
+                        // Add new values
+                        for (String value : newValues) {
+                            int idx = Arrays.binarySearch(oldValues, value, new Comparator<String>() {
+                                @Override
+                                public int compare(String o1, String o2) {
+                                    return o1.toLowerCase().compareTo(o2.toLowerCase());
                                 }
+                            });
+                            if (idx >= 0) {
+                                // Old values array contains new value. Retain
+                                // old value
+                                retainOldValues[idx] = true;
+                            } else {
+                                // This is new value
+                                addValues.add(value);
                             }
+                        }
 
-                            if (removeValues.size() > 0) {
-                                Modification removeModification = createModification(ModificationType.DELETE, attributeName,
-                                        removeValues.toArray(new String[removeValues.size()]));
-                                modifications.add(removeModification);
+                        // Remove values which we don't have in new values
+                        for (int i = 0; i < oldValues.length; i++) {
+                            if (!retainOldValues[i]) {
+                                removeValues.add(oldValues[i]);
                             }
+                        }
 
-                            if (addValues.size() > 0) {
-                                Modification addModification = createModification(ModificationType.ADD, attributeName,
-                                        addValues.toArray(new String[addValues.size()]));
-                                modifications.add(addModification);
-                            }
+                        if (removeValues.size() > 0) {
+                            Modification removeModification = createModification(ModificationType.DELETE, attributeName,
+                                    removeValues.toArray(new String[removeValues.size()]));
+                            modifications.add(removeModification);
                         }
-                    }
-                }
 
-                if (modification != null) {
-                    modifications.add(modification);
+                        if (addValues.size() > 0) {
+                            Modification addModification = createModification(ModificationType.ADD, attributeName,
+                                    addValues.toArray(new String[addValues.size()]));
+                            modifications.add(addModification);
+                        }
+                    }
                 }
             }
 
-            if (modifications.size() > 0) {
-                boolean result = getOperationService().updateEntry(dn, modifications);
-                if (!result) {
-                    throw new EntryPersistenceException(String.format("Failed to update entry: %s", dn));
-                }
+            if (modification != null) {
+                modifications.add(modification);
             }
-        } catch (ConnectionException ex) {
-            throw new EntryPersistenceException(String.format("Failed to update entry: %s", dn), ex.getCause());
-        } catch (Exception ex) {
-            throw new EntryPersistenceException(String.format("Failed to update entry: %s", dn), ex);
         }
+
+        return modifications;
     }
 
     @Override
@@ -312,8 +448,358 @@ public class LdapEntryManager extends BaseEntryManager implements Serializable {
         }
     }
 
+    /**
+     * Asynchronous find. Entry conversion is done in bounded async result executor to not
+     * block connection reader thread
+     */
+    public <T> CompletableFuture<T> findAsync(Object primaryKey, Class<T> entryClass, String[] ldapReturnAttributes) {
+        if (StringHelper.isEmptyString(primaryKey)) {
+            throw new MappingException("DN to find entry is null");
+        }
+
+        checkEntryClass(entryClass, true);
+        final List<PropertyAnnotation> propertiesAnnotations = getEntryPropertyAnnotations(entryClass);
+        String[] currentLdapReturnAttributes = ldapReturnAttributes;
+        if (ArrayHelper.isEmpty(currentLdapReturnAttributes)) {
+            currentLdapReturnAttributes = getAttributes(null, propertiesAnnotations, false);
+        }
+
+        final String dn = primaryKey.toString();
+        CompletableFuture<T> result = getOperationService().lookupAsync(dn, currentLdapReturnAttributes).thenApplyAsync(entry -> {
+            List<AttributeData> attributes = getAttributeDataList(entry);
+            if (attributes == null) {
+                throw new EntryPersistenceException(String.format("Failed to find entry: %s", dn));
+            }
+
+            Map<String, List<AttributeData>> entriesAttributes = new HashMap<String, List<AttributeData>>();
+            entriesAttributes.put(dn, attributes);
+
+            return createEntities(entryClass, propertiesAnnotations, entriesAttributes).get(0);
+        }, getAsyncResultExecutor());
+
+        return toEntryPersistenceException(result, String.format("Failed to find entry: %s", dn));
+    }
+
+    /**
+     * Asynchronous search. It sends one search request without paging, because of
+     * this count should be limited
+     */
+    public <T> CompletableFuture<List<T>> findEntriesAsync(String baseDN, Class<T> entryClass, Filter filter, String[] ldapReturnAttributes, int count) {
+        if (StringHelper.isEmptyString(baseDN)) {
+            throw new MappingException("Base DN to find entries is null");
+        }
+
+        // Check entry class
+        checkEntryClass(entryClass, false);
+        String[] objectClasses = getTypeObjectClasses(entryClass);
+        final List<PropertyAnnotation> propertiesAnnotations = getEntryPropertyAnnotations(entryClass);
+        String[] currentLdapReturnAttributes = ldapReturnAttributes;
+        if (ArrayHelper.isEmpty(currentLdapReturnAttributes)) {
+            currentLdapReturnAttributes = getAttributes(null, propertiesAnnotations, false);
+        }
+
+        // Find entries
+        Filter searchFilter;
+        if (objectClasses.length > 0) {
+            searchFilter = addObjectClassFilter(filter, objectClasses);
+        } else {
+            searchFilter = filter;
+        }
+
+        String errorMessage = String.format("Failed to find entries with baseDN: %s, filter: %s", baseDN, searchFilter);
+        CompletableFuture<SearchResult> searchResult;
+        try {
+            searchResult = getOperationService().searchAsync(baseDN, toLdapFilter(searchFilter), toLdapSearchScope(SearchScope.SUB), count, null,
+                    currentLdapReturnAttributes);
+        } catch (Exception ex) {
+            throw new EntryPersistenceException(errorMessage, ex);
+        }
+
+        CompletableFuture<List<T>> result = searchResult.thenApplyAsync(searchResultEntries -> {
+            List<T> entries = createEntities(entryClass, propertiesAnnotations,
+                    searchResultEntries.getSearchEntries().toArray(new SearchResultEntry[searchResultEntries.getEntryCount()]));
+
+            // Default sort if needed
+            sortEntriesIfNeeded(entryClass, entries);
+
+            return entries;
+        }, getAsyncResultExecutor());
+
+        return toEntryPersistenceException(result, errorMessage);
+    }
+
+    /**
+     * Asynchronous persist. Schema entries are not supported
+     */
+    public CompletableFuture<Void> persistAsync(Object entry) {
+        if (entry == null) {
+            throw new MappingException("Entry to persist is null");
+        }
+
+        // Check entry class
+        Class<?> entryClass = entry.getClass();
+        checkEntryClass(entryClass, false);
+        checkNotSchemaEntry(entryClass);
+        List<PropertyAnnotation> propertiesAnnotations = getEntryPropertyAnnotations(entryClass);
+
+        String dn = getDNValue(entry, entryClass).toString();
+
+        List<AttributeData> attributes = getAttributesListForPersist(entry, propertiesAnnotations);
+
+        // Add object classes
+        String[] objectClasses = getObjectClasses(entry, entryClass);
+        attributes.add(new AttributeData(OBJECT_CLASS, objectClasses, true));
+
+        CompletableFuture<Void> result = getOperationService().addEntryAsync(dn, toLdapAttributes(attributes)).thenApply(added -> {
+            if (!added) {
+                throw new EntryPersistenceException(String.format("Failed to persist entry: %s", dn));
+            }
+
+            return null;
+        });
+
+        return toEntryPersistenceException(result, String.format("Failed to persist entry: %s", dn));
+    }
+
+    /**
+     * Asynchronous merge. Schema entries are not supported
+     */
+    public CompletableFuture<Void> mergeAsync(Object entry) {
+        if (entry == null) {
+            throw new MappingException("Entry to persist is null");
+        }
+
+        Class<?> entryClass = entry.getClass();
+        checkEntryClass(entryClass, false);
+        checkNotSchemaEntry(entryClass);
+        boolean configurationEntry = isConfigurationEntry(entryClass);
+        List<PropertyAnnotation> propertiesAnnotations = getEntryPropertyAnnotations(entryClass);
+
+        String dn = getDNValue(entry, entryClass).toString();
+
+        List<AttributeData> attributesToPersist = getAttributesListForPersist(entry, propertiesAnnotations);
+        Map<String, AttributeData> attributesToPersistMap = getAttributesMap(attributesToPersist);
+
+        List<String> currentLdapReturnAttributesList = getAttributesList(entry, propertiesAnnotations, false);
+        if (!configurationEntry) {
+            currentLdapReturnAttributesList.add(OBJECT_CLASS);
+        }
+
+        CompletableFuture<Void> result = getOperationService()
+                .lookupAsync(dn, currentLdapReturnAttributesList.toArray(new String[currentLdapReturnAttributesList.size()]))
+                .<Void>thenComposeAsync(entryFromLdap -> {
+                    List<AttributeData> attributesFromLdap = getAttributeDataList(entryFromLdap);
+                    if (attributesFromLdap == null) {
+                        throw new EntryPersistenceException(String.format("Failed to find entry: %s", dn));
+                    }
+
+                    List<AttributeDataModification> attributeDataModifications = collectMergeModifications(dn, entry, entryClass,
+                            propertiesAnnotations, attributesToPersistMap, attributesFromLdap, false, configurationEntry, null);
+
+                    List<Modification> modifications = toLdapModifications(attributeDataModifications);
+                    if (modifications.size() == 0) {
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+
+                    return getOperationService().updateEntryAsync(dn, modifications).<Void>thenApply(updated -> {
+                        if (!updated) {
+                            throw new EntryPersistenceException(String.format("Failed to update entry: %s", dn));
+                        }
+
+                        return null;
+                    });
+                }, getAsyncResultExecutor());
+
+        return toEntryPersistenceException(result, String.format("Failed to update entry: %s", dn));
+    }
+
+    private void checkNotSchemaEntry(Class<?> entryClass) {
+        if (isSchemaEntry(entryClass)) {
+            throw new MappingException("Asynchronous operations with schema entries are not supported");
+        }
+    }
+
+    public CompletableFuture<Void> removeAsync(String dn) {
+        return removeAsync(dn, true);
+    }
+
+    private CompletableFuture<Void> removeAsync(String dn, boolean notifyBeforeRemove) {
+        if (notifyBeforeRemove) {
+            for (DeleteNotifier subscriber : subscribers) {
+                subscriber.onBeforeRemove(dn);
+            }
+        }
+
+        CompletableFuture<Void> result = notifyAfterRemove(dn, getOperationService().deleteAsync(dn));
+
+        return toPersistenceException(result, ex -> new EntryDeleteException(String.format("Failed to remove entry: %s", dn), ex));
+    }
+
+    /**
+     * Subscribers should not run on connection reader threads. If async result executor is full they
+     * run in thread which completed removal. Completed removal never fails because of notification
+     */
+    private CompletableFuture<Void> notifyAfterRemove(String dn, CompletableFuture<?> removeFuture) {
+        final CompletableFuture<Void> result = new CompletableFuture<Void>();
+        removeFuture.whenComplete((removed, ex) -> {
+            if (ex != null) {
+                result.completeExceptionally(ex);
+                return;
+            }
+
+            Runnable notifier = () -> {
+                try {
+                    for (DeleteNotifier subscriber : subscribers) {
+                        subscriber.onAfterRemove(dn);
+                    }
+                    result.complete(null);
+                } catch (Throwable notifierEx) {
+                    result.completeExceptionally(notifierEx);
+                }
+            };
+
+            try {
+                getAsyncResultExecutor().execute(notifier);
+            } catch (RejectedExecutionException rejectedEx) {
+                notifier.run();
+            }
+        });
+
+        return result;
+    }
+
+    @Override
+    public List<EntryOperationResult> persistAll(Collection<?> entries) {
+        return processAllAsync(entries, entry -> {
+            if (isSchemaEntry(entry.getClass())) {
+                persist(entry);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+
+            return persistAsync(entry);
+        });
+    }
+
+    @Override
+    public List<EntryOperationResult> mergeAll(Collection<?> entries) {
+        return processAllAsync(entries, entry -> {
+            if (isSchemaEntry(entry.getClass())) {
+                merge(entry);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+
+            return mergeAsync(entry);
+        });
+    }
+
+    @Override
+    public List<EntryOperationResult> removeAll(Collection<?> entries) {
+        return processAllAsync(entries, entry -> {
+            Class<?> entryClass = entry.getClass();
+            checkEntryClass(entryClass, true);
+            if (isSchemaEntry(entryClass)) {
+                remove(entry);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+
+            return removeAsync(getDNValue(entry, entryClass).toString());
+        });
+    }
+
+    /**
+     * Pipeline asynchronous operations. Number of requests in progress is limited by
+     * BULK_OPERATIONS_WINDOW
+     */
+    private List<EntryOperationResult> processAllAsync(Collection<?> entries, Function<Object, CompletableFuture<Void>> operation) {
+        List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>(entries.size());
+        Semaphore window = new Semaphore(BULK_OPERATIONS_WINDOW);
+        for (Object entry : entries) {
+            CompletableFuture<Void> future;
+            try {
+                if (entry == null) {
+                    throw new MappingException("Entry is null");
+                }
+
+                window.acquire();
+                try {
+                    future = operation.apply(entry);
+                } catch (RuntimeException ex) {
+                    window.release();
+                    throw ex;
+                }
+                future.whenComplete((result, ex) -> window.release());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new EntryPersistenceException("Bulk operation was interrupted", ex);
+            } catch (RuntimeException ex) {
+                future = new CompletableFuture<Void>();
+                future.completeExceptionally(ex);
+            }
+            futures.add(future);
+        }
+
+        List<EntryOperationResult> results = new ArrayList<EntryOperationResult>(entries.size());
+        Iterator<CompletableFuture<Void>> futuresIterator = futures.iterator();
+        for (Object entry : entries) {
+            try {
+                futuresIterator.next().join();
+                results.add(new EntryOperationResult(entry, getEntryDn(entry)));
+            } catch (CompletionException ex) {
+                Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+                BasePersistenceException error;
+                if (cause instanceof BasePersistenceException) {
+                    error = (BasePersistenceException) cause;
+                } else {
+                    error = new EntryPersistenceException(String.format("Failed to process entry: %s", getEntryDn(entry)), cause);
+                }
+                results.add(new EntryOperationResult(entry, getEntryDn(entry), error));
+            }
+        }
+
+        return results;
+    }
+
+    private static <R> CompletableFuture<R> toEntryPersistenceException(CompletableFuture<R> future, String message) {
+        return toPersistenceException(future, ex -> new EntryPersistenceException(message, ex));
+    }
+
+    private static <R> CompletableFuture<R> toPersistenceException(CompletableFuture<R> future,
+            Function<Throwable, BasePersistenceException> exceptionFactory) {
+        CompletableFuture<R> result = new CompletableFuture<R>();
+        future.whenComplete((value, ex) -> {
+            if (ex == null) {
+                result.complete(value);
+                return;
+            }
+
+            Throwable cause = ex;
+            if ((ex instanceof CompletionException) && (ex.getCause() != null)) {
+                cause = ex.getCause();
+            }
+
+            if (cause instanceof BasePersistenceException) {
+                result.completeExceptionally(cause);
+            } else if ((cause instanceof ConnectionException) && (cause.getCause() != null)) {
+                result.completeExceptionally(exceptionFactory.apply(cause.getCause()));
+            } else {
+                result.completeExceptionally(exceptionFactory.apply(cause));
+            }
+        });
+
+        return result;
+    }
+
     @Override
 	public <T> int remove(String baseDN, Class<T> entryClass, Filter filter, int count) {
+        return remove(baseDN, entryClass, filter, count, bulkDeleteTimeBudget);
+    }
+
+    /**
+     * Remove entries which match filter. Delete requests are pipelined over pool connections
+     * with limited number of requests in progress. Removal stops when time budget in milliseconds
+     * is spent. Returns count of removed entries
+     */
+    public <T> int remove(String baseDN, Class<T> entryClass, Filter filter, int count, long timeBudget) {
         if (StringHelper.isEmptyString(baseDN)) {
             throw new MappingException("Base DN to find entries is null");
         }
@@ -321,7 +807,6 @@ public class LdapEntryManager extends BaseEntryManager implements Serializable {
         // Check entry class
         checkEntryClass(entryClass, false);
         String[] objectClasses = getTypeObjectClasses(entryClass);
-        List<PropertyAnnotation> propertiesAnnotations = getEntryPropertyAnnotations(entryClass);
 
         // Find entries
         Filter searchFilter;
@@ -331,68 +816,215 @@ public class LdapEntryManager extends BaseEntryManager implements Serializable {
             searchFilter = filter;
         }
 
-        DeleteBatchOperation batchOperation = new DeleteBatchOperation<T>(this);
-        SearchResult searchResult = null;
-        try {
-            LdapBatchOperationWraper<T> batchOperationWraper = new LdapBatchOperationWraper<T>(batchOperation, this, entryClass,
-                    propertiesAnnotations);
-            searchResult = getOperationService().search(baseDN, toLdapFilter(searchFilter), toLdapSearchScope(SearchScope.SUB), batchOperationWraper,
-                    0, 100, count, null, LdapOperationService.DN);
+        int pageSize = DEFAULT_PAGINATION_SIZE;
+        if (count > 0) {
+            pageSize = Math.min(count, pageSize);
+        }
 
+        final long deadline = PipelinedDelete.toDeadline(timeBudget);
+        PipelinedDelete pipelinedDelete = new PipelinedDelete(bulkDeleteWindow, deadline, entryDn -> removeRecursivelyAsync(entryDn, deadline));
+        try (LdapSimplePagedSearch pagedSearch = getOperationService().searchPaged(baseDN, toLdapFilter(searchFilter),
+                toLdapSearchScope(SearchScope.SUB), pageSize, null, LdapOperationService.DN)) {
+            List<SearchResultEntry> searchResultEntries;
+            search: while ((searchResultEntries = pagedSearch.nextPage()) != null) {
+                for (SearchResultEntry searchResultEntry : searchResultEntries) {
+                    if ((count > 0) && (pipelinedDelete.getSubmitted() >= count)) {
+                        break search;
+                    }
+
+                    if (!pipelinedDelete.submit(searchResultEntry.getDN())) {
+                        LOG.info("Stopping removal of entries with baseDN: {}, filter: {}. Time budget {} ms is spent", baseDN, searchFilter, timeBudget);
+                        break search;
+                    }
+                }
+            }
         } catch (Exception ex) {
             throw new EntryDeleteException(String.format("Failed to delete entries with baseDN: %s, filter: %s", baseDN, searchFilter), ex);
+        } finally {
+            pipelinedDelete.await();
         }
 
-        if (!ResultCode.SUCCESS.equals(searchResult.getResultCode())) {
-            throw new EntryDeleteException(String.format("Failed to delete entries with baseDN: %s, filter: %s", baseDN, searchFilter));
+        LOG.debug("Removed entries with baseDN: {}, filter: {}. {}", baseDN, searchFilter, pipelinedDelete);
+
+        return pipelinedDelete.getRemoved();
+    }
+
+    /**
+     * Asynchronous removal of entry with sub-entries
+     */
+    public CompletableFuture<Void> removeRecursivelyAsync(String dn) {
+        return removeRecursivelyAsync(dn, 0);
+    }
+
+    /**
+     * Sub-entries are removed in sub-tree removal executor. Removal of them fails if deadline
+     * is reached
+     */
+    private CompletableFuture<Void> removeRecursivelyAsync(String dn, long deadline) {
+        for (DeleteNotifier subscriber : subscribers) {
+            subscriber.onBeforeRemove(dn);
+        }
+
+        if (!getOperationService().getConnectionProvider().isSupportsSubtreeDeleteRequestControl()) {
+            // Usually entry has no sub-entries. Remove them only if server rejects removal
+            return removeAsync(dn, false).handle((result, ex) -> ex).thenCompose(ex -> {
+                if (ex == null) {
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+
+                if (PipelinedDelete.isNotAllowedOnNonLeaf(ex)) {
+                    return removeSubtreeAsync(dn, deadline);
+                }
+
+                CompletableFuture<Void> failed = new CompletableFuture<Void>();
+                failed.completeExceptionally(ex);
+
+                return failed;
+            });
+        }
+
+        CompletableFuture<Void> result = notifyAfterRemove(dn, getOperationService().deleteRecursivelyAsync(dn));
+
+        return toPersistenceException(result, ex -> new EntryDeleteException(String.format("Failed to remove entry: %s", dn), ex));
+    }
+
+    /**
+     * Sub-tree removal fails fast if deadline is reached or there are too many pending sub-tree removals
+     */
+    private CompletableFuture<Void> removeSubtreeAsync(String dn, long deadline) {
+        CompletableFuture<Void> result;
+        if (PipelinedDelete.isExpired(deadline)) {
+            result = new CompletableFuture<Void>();
+            result.completeExceptionally(new EntryDeleteException(String.format("Failed to remove sub-entries of entry '%s' before deadline", dn)));
+
+            return result;
+        }
+
+        try {
+            // Subscribers were notified about removal of sub-tree root already
+            result = CompletableFuture.runAsync(() -> removeSubtree(dn, deadline, false), getSubtreeDeleteExecutor());
+        } catch (RejectedExecutionException ex) {
+            result = new CompletableFuture<Void>();
+            result.completeExceptionally(new EntryDeleteException(String.format("Failed to remove sub-entries of entry '%s'. Too many pending sub-tree removals", dn), ex));
         }
 
-        return batchOperation.getCountEntries();
+        return result;
+    }
+
+    public int getBulkDeleteWindow() {
+        return bulkDeleteWindow;
+    }
+
+    public void setBulkDeleteWindow(int bulkDeleteWindow) {
+        this.bulkDeleteWindow = bulkDeleteWindow;
+    }
+
+    public long getBulkDeleteTimeBudget() {
+        return bulkDeleteTimeBudget;
+    }
+
+    public void setBulkDeleteTimeBudget(long bulkDeleteTimeBudget) {
+        this.bulkDeleteTimeBudget = bulkDeleteTimeBudget;
     }
 
 	@Override
     public void removeRecursively(String dn) {
+        removeSubtree(dn, 0, true);
+    }
+
+    private void removeSubtree(String dn, long deadline, boolean notifyRootBeforeRemove) {
         try {
             if (getOperationService().getConnectionProvider().isSupportsSubtreeDeleteRequestControl()) {
-                for (DeleteNotifier subscriber : subscribers) {
-                    subscriber.onBeforeRemove(dn);
+                if (notifyRootBeforeRemove) {
+                    for (DeleteNotifier subscriber : subscribers) {
+                        subscriber.onBeforeRemove(dn);
+                    }
                 }
                 getOperationService().deleteRecursively(dn);
                 for (DeleteNotifier subscriber : subscribers) {
                     subscriber.onAfterRemove(dn);
                 }
             } else {
-                removeSubtreeThroughIteration(dn);
+                removeSubtreeThroughIteration(dn, deadline, notifyRootBeforeRemove);
             }
         } catch (Exception ex) {
             throw new EntryDeleteException(String.format("Failed to remove entry: %s", dn), ex);
         }
     }
 
-    private void removeSubtreeThroughIteration(String dn) {
+    /**
+     * Remove sub-tree bottom up. Leaves are removed concurrently while sub-tree DNs are read page
+     * by page. Only entries which server refuses to remove because they have sub-entries are kept
+     * in memory. They are removed level by level after leaves. Removal fails if deadline is reached
+     */
+    private void removeSubtreeThroughIteration(String dn, long deadline, boolean notifyRootBeforeRemove) {
     	SearchScope scope = SearchScope.SUB;
 
-    	SearchResult searchResult = null;
-        try {
-            searchResult = getOperationService().search(dn, toLdapFilter(Filter.createPresenceFilter("objectClass")), toLdapSearchScope(scope), null, 0, 0, 0, null, "dn");
-            if (!ResultCode.SUCCESS.equals(searchResult.getResultCode())) {
-                throw new EntryPersistenceException(String.format("Failed to find sub-entries of entry '%s' for removal", dn));
+        final com.unboundid.ldap.sdk.DN rootDn = parseDn(dn);
+        Function<String, CompletableFuture<Void>> deleteOperation = entryDn -> removeAsync(entryDn,
+                notifyRootBeforeRemove || !rootDn.equals(parseDn(entryDn)));
+
+        Queue<String> nonLeafDns = new ConcurrentLinkedQueue<String>();
+
+        PipelinedDelete leavesDelete = new PipelinedDelete(bulkDeleteWindow, deadline, deleteOperation);
+        leavesDelete.setNonLeafHandler(nonLeafDns::add);
+        try (LdapSimplePagedSearch pagedSearch = getOperationService().searchPaged(dn, toLdapFilter(Filter.createPresenceFilter("objectClass")),
+                toLdapSearchScope(scope), DEFAULT_PAGINATION_SIZE, null, "dn")) {
+            List<SearchResultEntry> searchResultEntries;
+            while ((searchResultEntries = pagedSearch.nextPage()) != null) {
+                for (SearchResultEntry searchResultEntry : searchResultEntries) {
+                    if (!leavesDelete.submit(searchResultEntry.getDN())) {
+                        throw new EntryDeleteException(String.format("Failed to remove sub-entries of entry '%s' before deadline", dn));
+                    }
+                }
             }
         } catch (SearchScopeException ex) {
             throw new AuthenticationException(String.format("Failed to convert scope: %s", scope), ex);
         } catch (SearchException ex) {
             throw new EntryDeleteException(String.format("Failed to find sub-entries of entry '%s' for removal", dn), ex);
+        } finally {
+            leavesDelete.await();
         }
 
-        List<String> removeEntriesDn = new ArrayList<String>(searchResult.getEntryCount());
-        for (SearchResultEntry searchResultEntry : searchResult.getSearchEntries()) {
-            removeEntriesDn.add(searchResultEntry.getDN());
+        if (leavesDelete.getFailed() > 0) {
+            throw new EntryDeleteException(String.format("Failed to remove %d sub-entries of entry '%s'", leavesDelete.getFailed(), dn));
         }
 
-        Collections.sort(removeEntriesDn, LINE_LENGHT_COMPARATOR);
+        // Walk up from the deepest level
+        Map<Integer, List<String>> levelsDns = new TreeMap<Integer, List<String>>(Collections.reverseOrder());
+        for (String nonLeafDn : nonLeafDns) {
+            levelsDns.computeIfAbsent(getDnDepth(nonLeafDn), key -> new ArrayList<String>()).add(nonLeafDn);
+        }
+
+        for (List<String> levelDns : levelsDns.values()) {
+            PipelinedDelete levelDelete = new PipelinedDelete(bulkDeleteWindow, deadline, deleteOperation);
+            try {
+                for (String levelDn : levelDns) {
+                    if (!levelDelete.submit(levelDn)) {
+                        throw new EntryDeleteException(String.format("Failed to remove sub-entries of entry '%s' before deadline", dn));
+                    }
+                }
+            } finally {
+                levelDelete.await();
+            }
 
-        for (String removeEntryDn : removeEntriesDn) {
-            remove(removeEntryDn);
+            if (levelDelete.getFailed() > 0) {
+                throw new EntryDeleteException(String.format("Failed to remove %d sub-entries of entry '%s'", levelDelete.getFailed(), dn));
+            }
+        }
+
+        LOG.debug("Removed sub-tree of entry '{}'. {}", dn, leavesDelete);
+    }
+
+    private static int getDnDepth(String dn) {
+        return parseDn(dn).getRDNs().length;
+    }
+
+    private static com.unboundid.ldap.sdk.DN parseDn(String dn) {
+        try {
+            return new com.unboundid.ldap.sdk.DN(dn);
+        } catch (LDAPException ex) {
+            throw new EntryDeleteException(String.format("Failed to parse DN '%s'", dn), ex);
         }
     }
 
@@ -462,6 +1094,64 @@ public class LdapEntryManager extends BaseEntryManager implements Serializable {
         return entries;
     }
 
+    @Override
+    public <T> CloseableIterator<T> iterateEntries(String baseDN, Class<T> entryClass, Filter filter, SearchScope scope, String[] ldapReturnAttributes,
+            int chunkSize) {
+        if (StringHelper.isEmptyString(baseDN)) {
+            throw new MappingException("Base DN to find entries is null");
+        }
+
+        // Check entry class
+        checkEntryClass(entryClass, false);
+        String[] objectClasses = getTypeObjectClasses(entryClass);
+        final List<PropertyAnnotation> propertiesAnnotations = getEntryPropertyAnnotations(entryClass);
+        String[] currentLdapReturnAttributes = ldapReturnAttributes;
+        if (ArrayHelper.isEmpty(currentLdapReturnAttributes)) {
+            currentLdapReturnAttributes = getAttributes(null, propertiesAnnotations, false);
+        }
+
+        // Find entries
+        final Filter searchFilter;
+        if (objectClasses.length > 0) {
+            searchFilter = addObjectClassFilter(filter, objectClasses);
+        } else {
+            searchFilter = filter;
+        }
+
+        final LdapSimplePagedSearch pagedSearch;
+        try {
+            pagedSearch = getOperationService().searchPaged(baseDN, toLdapFilter(searchFilter), toLdapSearchScope(scope), chunkSize, null,
+                    currentLdapReturnAttributes);
+        } catch (Exception ex) {
+            throw new EntryPersistenceException(String.format("Failed to find entries with baseDN: %s, filter: %s", baseDN, searchFilter), ex);
+        }
+
+        return new PagedIterator<T>() {
+
+            @Override
+            protected List<T> nextPage() {
+                List<SearchResultEntry> searchResultEntries;
+                try {
+                    searchResultEntries = pagedSearch.nextPage();
+                } catch (SearchException ex) {
+                    throw new EntryPersistenceException(String.format("Failed to find entries with baseDN: %s, filter: %s", baseDN, searchFilter), ex);
+                }
+
+                if (searchResultEntries == null) {
+                    return null;
+                }
+
+                return createEntities(entryClass, propertiesAnnotations,
+                        searchResultEntries.toArray(new SearchResultEntry[searchResultEntries.size()]));
+            }
+
+            @Override
+            protected void closeImpl() {
+                pagedSearch.close();
+            }
+        };
+    }
+
     @Override
     public <T> PagedResult<T> findPagedEntries(String baseDN, Class<T> entryClass, Filter filter, String[] ldapReturnAttributes, String sortBy,
             SortOrder sortOrder, int start, int count, int chunkSize) {
@@ -505,6 +1195,48 @@ public class LdapEntryManager extends BaseEntryManager implements Serializable {
 
     }
 
+    @Override
+    public <T> PagedResult<T> findPagedEntries(String baseDN, Class<T> entryClass, Filter filter, String[] ldapReturnAttributes, String sortBy,
+            SortOrder sortOrder, String pageToken, int count) {
+        if (StringHelper.isEmptyString(baseDN)) {
+            throw new MappingException("Base DN to find entries is null");
+        }
+
+        // Check entry class
+        checkEntryClass(entryClass, false);
+        String[] objectClasses = getTypeObjectClasses(entryClass);
+        List<PropertyAnnotation> propertiesAnnotations = getEntryPropertyAnnotations(entryClass);
+        String[] currentLdapReturnAttributes = ldapReturnAttributes;
+        if (ArrayHelper.isEmpty(currentLdapReturnAttributes)) {
+            currentLdapReturnAttributes = getAttributes(null, propertiesAnnotations, false);
+        }
+
+        // Find entries
+        Filter searchFilter;
+        if (objectClasses.length > 0) {
+            searchFilter = addObjectClassFilter(filter, objectClasses);
+        } else {
+            searchFilter = filter;
+        }
+
+        List<SearchResultEntry> searchResultEntries;
+        PagedResult<T> pagedResult = new PagedResult<T>();
+        try {
+            searchResultEntries = getOperationService().searchPage(baseDN, toLdapFilter(searchFilter), toLdapSearchScope(SearchScope.SUB),
+                    pageToken, count, sortBy, sortOrder, pagedResult, currentLdapReturnAttributes);
+        } catch (Exception ex) {
+            throw new EntryPersistenceException(String.format("Failed to find entries with baseDN: %s, filter: %s", baseDN, searchFilter), ex);
+        }
+
+        List<T> entries = new ArrayList<T>(0);
+        if (searchResultEntries.size() > 0) {
+            entries = createEntitiesVirtualListView(entryClass, propertiesAnnotations, searchResultEntries.toArray(new SearchResultEntry[]{}));
+        }
+        pagedResult.setEntries(entries);
+
+        return pagedResult;
+    }
+
     @Deprecated
     public <T> List<T> findEntriesVirtualListView(String baseDN, Class<T> entryClass, Filter filter, int start, int count, String sortBy,
             SortOrder sortOrder, PagedResult vlvResponse, String[] ldapReturnAttributes) {
@@ -774,6 +1506,21 @@ public class LdapEntryManager extends BaseEntryManager implements Serializable {
             searchScope = SearchScope.SUB;
         }
 
+        if (SearchScope.BASE != searchScope) {
+            // Try to get count from server without loading entries
+            Integer result;
+            try {
+                result = getOperationService().countEntries(baseDN, toLdapFilter(searchFilter), toLdapSearchScope(searchScope));
+            } catch (Exception ex) {
+                throw new EntryPersistenceException(
+                        String.format("Failed to calculate the number of entries with baseDN: %s, filter: %s", baseDN, searchFilter), ex);
+            }
+
+            if (result != null) {
+                return result;
+            }
+        }
+
         String[] ldapReturnAttributes;
         CountBatchOperation<T> batchOperation;
         if (SearchScope.BASE == searchScope) {
@@ -968,41 +1715,4 @@ public class LdapEntryManager extends BaseEntryManager implements Serializable {
         }
     }
 
-	private static final class DeleteBatchOperation<T> extends DefaultBatchOperation<T> {
-
-		private int countEntries = 0;
-		private LdapEntryManager ldapEntryManager;
-
-        public DeleteBatchOperation(LdapEntryManager ldapEntryManager) {
-        	this.ldapEntryManager = ldapEntryManager;
-		}
-
-        @Override
-		public void performAction(List<T> entries) {
-			for (T entity : entries) {
-				try {
-					String dnValue = ldapEntryManager.getDNValue(entity).toString();
-					if (ldapEntryManager.hasBranchesSupport(dnValue)) {
-						ldapEntryManager.removeRecursively(dnValue);
-					} else {
-						ldapEntryManager.remove(dnValue);
-					}
-					LOG.trace("Removed {}", dnValue);
-				} catch (Exception e) {
-					LOG.error("Failed to remove entry, entity: " + entity, e);
-				}
-			}
-		}
-
-        @Override
-        public boolean collectSearchResult(int size) {
-            countEntries += size;
-            return false;
-        }
-
-        public int getCountEntries() {
-            return countEntries;
-        }
-	}
-
 }
@@ -12,6 +12,7 @@ import org.gluu.persist.ldap.operation.impl.LdapConnectionProvider;
 import org.gluu.persist.ldap.operation.impl.LdapOperationServiceImpl;
 import org.gluu.persist.service.BaseFactoryService;
 import org.gluu.util.PropertiesHelper;
+import org.gluu.util.StringHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +61,9 @@ public class LdapEntryManagerFactory implements PersistenceEntryManagerFactory {
         LOG.debug("Created bindConnectionProvider '{}' with code '{}'", bindConnectionProvider, bindConnectionProvider.getCreationResultCode());
 
         LdapEntryManager ldapEntryManager = new LdapEntryManager(new LdapOperationServiceImpl(connectionProvider, bindConnectionProvider));
+        ldapEntryManager.setChangeTrackingEnabled(Boolean.valueOf(entryManagerConf.getProperty("changeTracking")));
+        ldapEntryManager.setBulkDeleteWindow(StringHelper.toInt(entryManagerConf.getProperty("bulkDeleteWindow"), ldapEntryManager.getBulkDeleteWindow()));
+        ldapEntryManager.setBulkDeleteTimeBudget(StringHelper.toInt(entryManagerConf.getProperty("bulkDeleteTimeBudget"), 0));
         LOG.info("Created LdapEntryManager: {}", ldapEntryManager.getOperationService());
 
         return ldapEntryManager;
@@ -6,6 +6,7 @@ import org.gluu.persist.exception.operation.SearchException;
 import org.gluu.search.filter.Filter;
 import org.gluu.search.filter.FilterType;
 import org.gluu.util.ArrayHelper;
+import org.gluu.util.LruCache;
 
 /**
  * Filter to LDAP filter convert
@@ -15,14 +16,17 @@ import org.gluu.util.ArrayHelper;
 @ApplicationScoped
 public class LdapFilterConverter {
 
+    public static final int DEFAULT_PARSED_FILTERS_CACHE_SIZE = 1000;
+
+    /*
+     * LDAP SDK filters are immutable. Parsed RAW filters can be shared between searches
+     */
+    private final LruCache<String, com.unboundid.ldap.sdk.Filter> parsedFilters = new LruCache<String, com.unboundid.ldap.sdk.Filter>(DEFAULT_PARSED_FILTERS_CACHE_SIZE);
+
     public com.unboundid.ldap.sdk.Filter convertToLdapFilter(Filter genericFilter) throws SearchException {
         FilterType type = genericFilter.getType();
         if (FilterType.RAW == type) {
-            try {
-                return com.unboundid.ldap.sdk.Filter.create(genericFilter.getFilterString());
-            } catch (com.unboundid.ldap.sdk.LDAPException ex) {
-                throw new SearchException("Failed to parse RAW Ldap filter", ex, ex.getResultCode().intValue());
-            }
+            return parseLdapFilter(genericFilter.getFilterString());
         }
 
         if ((FilterType.NOT == type) || (FilterType.AND == type) || (FilterType.OR == type)) {
@@ -84,15 +88,38 @@ public class LdapFilterConverter {
     }
 
     public Filter convertRawLdapFilterToFilter(String rawFilter) throws SearchException {
-    	com.unboundid.ldap.sdk.Filter ldapFilter;
+    	com.unboundid.ldap.sdk.Filter ldapFilter = parseLdapFilter(rawFilter);
+
+        return convertRawLdapFilterToFilterImpl(ldapFilter);
+   }
+
+    protected com.unboundid.ldap.sdk.Filter parseLdapFilter(String rawFilter) throws SearchException {
+    	com.unboundid.ldap.sdk.Filter ldapFilter = parsedFilters.get(rawFilter);
+    	if (ldapFilter != null) {
+    		return ldapFilter;
+    	}
+
         try {
         	ldapFilter = com.unboundid.ldap.sdk.Filter.create(rawFilter);
         } catch (com.unboundid.ldap.sdk.LDAPException ex) {
             throw new SearchException("Failed to parse RAW Ldap filter", ex, ex.getResultCode().intValue());
         }
 
-        return convertRawLdapFilterToFilterImpl(ldapFilter);
-   }
+        parsedFilters.putIfAbsent(rawFilter, ldapFilter);
+
+        return ldapFilter;
+    }
+
+    public int getParsedFiltersCacheSize() {
+		return parsedFilters.getMaxSize();
+	}
+
+    /**
+     * Maximum number of cached parsed RAW filters. 0 disables cache
+     */
+	public void setParsedFiltersCacheSize(int parsedFiltersCacheSize) {
+		parsedFilters.setMaxSize(parsedFiltersCacheSize);
+	}
 
     protected Filter convertRawLdapFilterToFilterImpl(com.unboundid.ldap.sdk.Filter ldapFilter) throws SearchException {
         byte type = ldapFilter.getFilterType();
@@ -0,0 +1,162 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.ldap.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+
+/**
+ * Sends delete requests without waiting for responses. Number of requests in progress
+ * is limited by window size
+ */
+final class PipelinedDelete {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PipelinedDelete.class);
+
+	private final Function<String, CompletableFuture<Void>> deleteOperation;
+	private final int windowSize;
+	private final Semaphore window;
+	private final long startTime;
+	private final long deadline;
+	private Consumer<String> nonLeafHandler;
+
+	private final AtomicInteger removed = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private int submitted = 0;
+
+	/**
+	 * Deadline is value of {@link System#nanoTime()}. 0 means that there is no deadline
+	 */
+	PipelinedDelete(int windowSize, long deadline, Function<String, CompletableFuture<Void>> deleteOperation) {
+		this.deleteOperation = deleteOperation;
+		this.windowSize = Math.max(1, windowSize);
+		this.window = new Semaphore(this.windowSize);
+		this.startTime = System.nanoTime();
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Converts time budget in milliseconds to deadline. 0 time budget means that there is no deadline
+	 */
+	public static long toDeadline(long timeBudget) {
+		if (timeBudget <= 0) {
+			return 0;
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudget);
+
+		// 0 is reserved for unlimited removal
+		return deadline == 0 ? 1 : deadline;
+	}
+
+	public static boolean isExpired(long deadline) {
+		return (deadline != 0) && (System.nanoTime() - deadline >= 0);
+	}
+
+	/**
+	 * Returns false if time budget is spent
+	 */
+	public boolean submit(String dn) {
+		if (isExpired(deadline)) {
+			return false;
+		}
+
+		try {
+			if (deadline == 0) {
+				window.acquire();
+			} else if (!window.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+
+		submitted++;
+		CompletableFuture<Void> result;
+		try {
+			result = deleteOperation.apply(dn);
+		} catch (RuntimeException ex) {
+			result = new CompletableFuture<Void>();
+			result.completeExceptionally(ex);
+		}
+
+		result.whenComplete((value, ex) -> {
+			if (ex == null) {
+				removed.incrementAndGet();
+				LOG.trace("Removed {}", dn);
+			} else if ((nonLeafHandler != null) && isNotAllowedOnNonLeaf(ex)) {
+				nonLeafHandler.accept(dn);
+			} else {
+				failed.incrementAndGet();
+				LOG.error("Failed to remove entry: " + dn, ex);
+			}
+			window.release();
+		});
+
+		return true;
+	}
+
+	/**
+	 * Wait for responses to all sent requests
+	 */
+	public void await() {
+		window.acquireUninterruptibly(windowSize);
+		window.release(windowSize);
+	}
+
+	public long getDeadline() {
+		return deadline;
+	}
+
+	public int getSubmitted() {
+		return submitted;
+	}
+
+	public int getRemoved() {
+		return removed.get();
+	}
+
+	public int getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * Handler of entries which were not removed because they have sub-entries
+	 */
+	public void setNonLeafHandler(Consumer<String> nonLeafHandler) {
+		this.nonLeafHandler = nonLeafHandler;
+	}
+
+	static boolean isNotAllowedOnNonLeaf(Throwable ex) {
+		for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+			if ((cause instanceof LDAPException) && ResultCode.NOT_ALLOWED_ON_NONLEAF.equals(((LDAPException) cause).getResultCode())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		long duration = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+		return String.format("Removed: %d, failed: %d, duration: %d ms, throughput: %d entries/s", removed.get(), failed.get(), duration,
+				removed.get() * 1000L / duration);
+	}
+
+}
@@ -2,12 +2,14 @@ package org.gluu.persist.ldap.operation;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.gluu.persist.exception.operation.ConnectionException;
 import org.gluu.persist.exception.operation.DuplicateEntryException;
 import org.gluu.persist.exception.operation.SearchException;
 import org.gluu.persist.ldap.impl.LdapBatchOperationWraper;
 import org.gluu.persist.ldap.operation.impl.LdapConnectionProvider;
+import org.gluu.persist.ldap.operation.impl.LdapSimplePagedSearch;
 import org.gluu.persist.model.PagedResult;
 import org.gluu.persist.model.SortOrder;
 import org.gluu.persist.operation.PersistenceOperationService;
@@ -51,10 +53,30 @@ public interface LdapOperationService extends PersistenceOperationService {
     <T> SearchResult search(String dn, Filter filter, SearchScope scope, LdapBatchOperationWraper<T> batchOperationWraper, int start,
             int searchLimit, int count, Control[] controls, String... attributes) throws SearchException;
 
+    /**
+     * Prepare search which loads entries page by page. Caller should close it if
+     * it's not iterated to the last page
+     */
+    LdapSimplePagedSearch searchPaged(String dn, Filter filter, SearchScope scope, int pageSize, Control[] controls, String... attributes);
+
+    /**
+     * Count entries with server side count facility without loading them. Returns null
+     * if server can't calculate count for specified request
+     */
+    Integer countEntries(String dn, Filter filter, SearchScope scope);
+
     List<SearchResultEntry> searchSearchResultEntryList(String dn, Filter filter, SearchScope scope, int startIndex,
                                                         int count, int pageSize, String sortBy, SortOrder sortOrder,
                                                         PagedResult vlvResponse, String... attributes) throws Exception;
 
+    /**
+     * Load one page of entries. Next page token is stored in pagedResult. Search
+     * state is kept on this node till token expiration. Entries are sorted by
+     * server, search fails if server doesn't support server side sort control
+     */
+    List<SearchResultEntry> searchPage(String dn, Filter filter, SearchScope scope, String pageToken, int count, String sortBy,
+            SortOrder sortOrder, PagedResult<?> pagedResult, String... attributes) throws SearchException;
+
     SearchResult searchVirtualListView(String dn, Filter filter, SearchScope scope, int start, int count,
             String sortBy, SortOrder sortOrder, PagedResult vlvResponse, String... attributes)
             throws Exception;
@@ -96,6 +118,14 @@ public interface LdapOperationService extends PersistenceOperationService {
      */
     boolean updateEntry(String dn, List<Modification> modifications) throws DuplicateEntryException, ConnectionException;
 
+    /**
+     * Update entry only if it matches assertion filter. Server checks filter and applies
+     * modifications as one operation
+     *
+     * @return false if entry doesn't match filter or it doesn't exist
+     */
+    boolean updateEntry(String dn, List<Modification> modifications, Filter assertionFilter) throws DuplicateEntryException, ConnectionException;
+
     /**
      * Delete entry from the directory
      *
@@ -113,6 +143,22 @@ public interface LdapOperationService extends PersistenceOperationService {
      */
     boolean deleteRecursively(String dn) throws ConnectionException;
 
+    /**
+     * Asynchronous operations. Requests are sent without holding pooled connection
+     * till response arrives. Futures are completed in connection reader thread
+     */
+    CompletableFuture<SearchResult> searchAsync(String dn, Filter filter, SearchScope scope, int sizeLimit, Control[] controls, String... attributes);
+
+    CompletableFuture<SearchResultEntry> lookupAsync(String dn, String... attributes);
+
+    CompletableFuture<Boolean> addEntryAsync(String dn, Collection<Attribute> attributes);
+
+    CompletableFuture<Boolean> updateEntryAsync(String dn, List<Modification> modifications);
+
+    CompletableFuture<Boolean> deleteAsync(String dn);
+
+    CompletableFuture<Boolean> deleteRecursivelyAsync(String dn);
+
     boolean processChange(LDIFChangeRecord ldifRecord) throws LDAPException;
 
     int getSupportedLDAPVersion();
@@ -26,7 +26,9 @@ import com.unboundid.ldap.sdk.LDAPConnectionOptions;
 import com.unboundid.ldap.sdk.LDAPConnectionPool;
 import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.RootDSE;
 import com.unboundid.ldap.sdk.SimpleBindRequest;
+import com.unboundid.ldap.sdk.unboundidds.controls.MatchingEntryCountRequestControl;
 import com.unboundid.util.ssl.SSLUtil;
 import com.unboundid.util.ssl.TrustAllTrustManager;
 import com.unboundid.util.ssl.TrustStoreTrustManager;
@@ -61,6 +63,10 @@ public class LdapConnectionProvider {
     private ArrayList<String> binaryAttributes, certificateAttributes;
 
     private boolean supportsSubtreeDeleteRequestControl;
+    private volatile LdapCountStrategy countStrategy = LdapCountStrategy.PAGED_SEARCH;
+    private String countSortAttribute;
+    private int countMaxCandidates = 10000;
+    private int maxAsyncRequests = 256;
 
 
     protected LdapConnectionProvider() {
@@ -214,6 +220,22 @@ public class LdapConnectionProvider {
         this.supportedLDAPVersion = determineSupportedLdapVersion();
         this.subschemaSubentry = determineSubschemaSubentry();
         this.supportsSubtreeDeleteRequestControl = supportsSubtreeDeleteRequestControl();
+        this.countSortAttribute = StringHelper.isEmpty(props.getProperty("countSortAttribute")) ? "objectClass" : props.getProperty("countSortAttribute");
+        this.countMaxCandidates = StringHelper.toInt(props.getProperty("countMaxCandidates"), this.countMaxCandidates);
+        this.countStrategy = null;
+        if (StringHelper.isNotEmpty(props.getProperty("countStrategy"))) {
+            try {
+                this.countStrategy = LdapCountStrategy.valueOf(StringHelper.toUpperCase(props.getProperty("countStrategy")));
+            } catch (IllegalArgumentException ex) {
+                LOG.error("Invalid count strategy '" + props.getProperty("countStrategy") + "'. Count strategy will be determined automatically");
+            }
+        }
+        if (this.countStrategy == null) {
+            this.countStrategy = determineCountStrategy();
+        }
+        LOG.debug("Using count strategy: " + this.countStrategy);
+        this.maxAsyncRequests = StringHelper.toInt(props.getProperty("maxAsyncRequests"), this.maxAsyncRequests);
+        LOG.debug("Using max async requests: " + this.maxAsyncRequests);
         this.creationResultCode = ResultCode.SUCCESS;
     }
 
@@ -374,6 +396,27 @@ public class LdapConnectionProvider {
         return supportsSubtreeDeleteRequestControl;
     }
 
+    private LdapCountStrategy determineCountStrategy() {
+        LdapCountStrategy resultCountStrategy = LdapCountStrategy.PAGED_SEARCH;
+
+        boolean validConnection = isValidConnection();
+        if (!validConnection) {
+            return resultCountStrategy;
+        }
+
+        try {
+            RootDSE rootDSE = connectionPool.getRootDSE();
+            // Virtual list view is not selected automatically because server sorts all matching entries
+            if (rootDSE.supportsControl(MatchingEntryCountRequestControl.MATCHING_ENTRY_COUNT_REQUEST_OID)) {
+                resultCountStrategy = LdapCountStrategy.MATCHING_ENTRY_COUNT;
+            }
+        } catch (Exception ex) {
+            LOG.error("Failed to determine count entries strategy", ex);
+        }
+
+        return resultCountStrategy;
+    }
+
     private boolean isValidConnection() {
         if (StringHelper.isEmptyString(bindDn) || StringHelper.isEmptyString(bindPassword)) {
             return false;
@@ -398,6 +441,26 @@ public class LdapConnectionProvider {
         return supportsSubtreeDeleteRequestControl;
     }
 
+    public LdapCountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
+    public void setCountStrategy(LdapCountStrategy countStrategy) {
+        this.countStrategy = countStrategy;
+    }
+
+    public String getCountSortAttribute() {
+        return countSortAttribute;
+    }
+
+    public int getCountMaxCandidates() {
+        return countMaxCandidates;
+    }
+
+    public int getMaxAsyncRequests() {
+        return maxAsyncRequests;
+    }
+
     /**
      * This method is used to get LDAP connection from connectionPool if the
      * connection is not available it will return new connection
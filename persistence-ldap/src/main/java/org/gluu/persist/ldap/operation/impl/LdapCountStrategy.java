@@ -0,0 +1,30 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.ldap.operation.impl;
+
+/**
+ * Method which LDAP server supports to count entries without loading them
+ */
+public enum LdapCountStrategy {
+
+    /**
+     * Matching entry count control of UnboundID/Ping Identity servers
+     */
+    MATCHING_ENTRY_COUNT,
+
+    /**
+     * Content count from virtual list view response control. Server sorts all entries which
+     * match filter to calculate it. Because of this it's not selected automatically
+     */
+    VIRTUAL_LIST_VIEW,
+
+    /**
+     * Paged search which counts returned entries
+     */
+    PAGED_SEARCH
+
+}
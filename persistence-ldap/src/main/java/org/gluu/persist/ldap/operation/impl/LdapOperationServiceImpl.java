@@ -18,6 +18,13 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.gluu.persist.exception.MappingException;
@@ -34,6 +41,7 @@ import org.gluu.persist.model.PagedResult;
 import org.gluu.persist.model.SortOrder;
 import org.gluu.persist.operation.auth.PasswordEncryptionHelper;
 import org.gluu.persist.operation.auth.PasswordEncryptionMethod;
+import org.gluu.persist.operation.auth.PasswordVerificationService;
 import org.gluu.util.ArrayHelper;
 import org.gluu.util.Pair;
 import org.gluu.util.StringHelper;
@@ -41,6 +49,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.sdk.AddRequest;
+import com.unboundid.ldap.sdk.AsyncRequestID;
+import com.unboundid.ldap.sdk.AsyncResultListener;
+import com.unboundid.ldap.sdk.AsyncSearchResultListener;
 import com.unboundid.ldap.sdk.Attribute;
 import com.unboundid.ldap.sdk.BindResult;
 import com.unboundid.ldap.sdk.Control;
@@ -60,12 +72,16 @@ import com.unboundid.ldap.sdk.SearchResult;
 import com.unboundid.ldap.sdk.SearchResultEntry;
 import com.unboundid.ldap.sdk.SearchResultReference;
 import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldap.sdk.controls.AssertionRequestControl;
 import com.unboundid.ldap.sdk.controls.ServerSideSortRequestControl;
 import com.unboundid.ldap.sdk.controls.SimplePagedResultsControl;
 import com.unboundid.ldap.sdk.controls.SortKey;
 import com.unboundid.ldap.sdk.controls.SubtreeDeleteRequestControl;
 import com.unboundid.ldap.sdk.controls.VirtualListViewRequestControl;
 import com.unboundid.ldap.sdk.controls.VirtualListViewResponseControl;
+import com.unboundid.ldap.sdk.unboundidds.controls.MatchingEntryCountRequestControl;
+import com.unboundid.ldap.sdk.unboundidds.controls.MatchingEntryCountResponseControl;
+import com.unboundid.ldap.sdk.unboundidds.controls.MatchingEntryCountType;
 import com.unboundid.ldap.sdk.schema.AttributeTypeDefinition;
 import com.unboundid.ldif.LDIFChangeRecord;
 
@@ -85,6 +101,14 @@ public class LdapOperationServiceImpl implements LdapOperationService {
 
 	private PersistenceExtension persistenceExtension;
 
+    private static final long PAGED_SEARCH_TIMEOUT = 5 * 60 * 1000L;
+    private static final long PAGED_SEARCH_SWEEP_INTERVAL = 60 * 1000L;
+
+    private final Map<String, PagedSearchState> pagedSearches = new ConcurrentHashMap<String, PagedSearchState>();
+    private ScheduledExecutorService pagedSearchesSweeper;
+
+    private Semaphore asyncRequestsWindow;
+
     private static Map<String, Class<?>> ATTRIBUTE_DATA_TYPES = new HashMap<String, Class<?>>();
     private static final Map<String, Class<?>> OID_SYNTAX_CLASS_MAPPING;
 
@@ -118,6 +142,7 @@ public class LdapOperationServiceImpl implements LdapOperationService {
     public LdapOperationServiceImpl(LdapConnectionProvider connectionProvider, LdapConnectionProvider bindConnectionProvider) {
         this.connectionProvider = connectionProvider;
         this.bindConnectionProvider = bindConnectionProvider;
+        this.asyncRequestsWindow = new Semaphore(Math.max(1, connectionProvider.getMaxAsyncRequests()));
         populateAttributeDataTypesMapping(getSubschemaSubentry());
     }
 
@@ -234,7 +259,7 @@ public class LdapOperationServiceImpl implements LdapOperationService {
 					PasswordEncryptionMethod storedPasswordMethod = PasswordEncryptionHelper.findAlgorithm(userPassword);
 					if (additionalPasswordMethods.contains(storedPasswordMethod)) {
 						LOG.debug("Authenticating '{}' using internal authentication mechanism '{}'", bindDn, storedPasswordMethod);
-						result = PasswordEncryptionHelper.compareCredentials(password, userPassword);
+						result = PasswordVerificationService.defaultInstance().compareCredentials(password, userPassword);
 					}
 				}
 	        }
@@ -343,7 +368,8 @@ public class LdapOperationServiceImpl implements LdapOperationService {
         }
 
         SearchResult searchResult = null;
-        List<SearchResult> searchResultList = new ArrayList<SearchResult>();
+        // Only first page is needed to build result, entries are collected separately
+        SearchResult firstSearchResult = null;
         List<SearchResultEntry> searchResultEntries = new ArrayList<SearchResultEntry>();
         List<SearchResultReference> searchResultReferences = new ArrayList<SearchResultReference>();
 
@@ -388,7 +414,9 @@ public class LdapOperationServiceImpl implements LdapOperationService {
                         collectSearchResult = ldapBatchOperation.collectSearchResult(searchResult.getEntryCount());
                     }
                     if (collectSearchResult) {
-                        searchResultList.add(searchResult);
+                        if (firstSearchResult == null) {
+                            firstSearchResult = searchResult;
+                        }
                         searchResultEntries.addAll(searchResult.getSearchEntries());
                         searchResultReferences.addAll(searchResult.getSearchReferences());
                     }
@@ -425,11 +453,10 @@ public class LdapOperationServiceImpl implements LdapOperationService {
                         searchResultEntries.size(), searchResultReferences.size(), searchResult.getResponseControls());
             }
 
-            if (!searchResultList.isEmpty()) {
-                SearchResult searchResultTemp = searchResultList.get(0);
-                return new SearchResult(searchResultTemp.getMessageID(), searchResultTemp.getResultCode(), searchResultTemp.getDiagnosticMessage(),
-                        searchResultTemp.getMatchedDN(), searchResultTemp.getReferralURLs(), searchResultEntries, searchResultReferences,
-                        searchResultEntries.size(), searchResultReferences.size(), searchResultTemp.getResponseControls());
+            if (firstSearchResult != null) {
+                return new SearchResult(firstSearchResult.getMessageID(), firstSearchResult.getResultCode(), firstSearchResult.getDiagnosticMessage(),
+                        firstSearchResult.getMatchedDN(), firstSearchResult.getReferralURLs(), searchResultEntries, searchResultReferences,
+                        searchResultEntries.size(), searchResultReferences.size(), firstSearchResult.getResponseControls());
             }
         } else {
             setControls(searchRequest, controls);
@@ -443,6 +470,23 @@ public class LdapOperationServiceImpl implements LdapOperationService {
         return searchResult;
     }
 
+    @Override
+    public LdapSimplePagedSearch searchPaged(String dn, Filter filter, SearchScope scope, int pageSize, Control[] controls, String... attributes) {
+        SearchRequest searchRequest;
+        if (attributes == null) {
+            searchRequest = new SearchRequest(dn, scope, filter);
+        } else {
+            searchRequest = new SearchRequest(dn, scope, filter, attributes);
+        }
+
+        if (pageSize <= 0) {
+            // Default page size
+            pageSize = 100;
+        }
+
+        return new LdapSimplePagedSearch(getConnectionPool(), searchRequest, pageSize, controls);
+    }
+
     private SimplePagedResponse scrollSimplePagedResultsControl(LDAPConnection ldapConnection, String dn, Filter filter, SearchScope scope,
             Control[] controls, int start) throws LDAPException, InvalidSimplePageControlException {
         SearchRequest searchRequest = new SearchRequest(dn, scope, filter, "dn");
@@ -565,6 +609,150 @@ public class LdapOperationServiceImpl implements LdapOperationService {
         return searchResultEntryList;
     }
 
+    @Override
+    public List<SearchResultEntry> searchPage(String dn, Filter filter, SearchScope scope, String pageToken, int count, String sortBy,
+            SortOrder sortOrder, PagedResult<?> pagedResult, String... attributes) throws SearchException {
+        Instant startTime = OperationDurationUtil.instance().now();
+
+        List<SearchResultEntry> result = searchPageImpl(dn, filter, scope, pageToken, count, sortBy, sortOrder, pagedResult, attributes);
+
+        Duration duration = OperationDurationUtil.instance().duration(startTime);
+        OperationDurationUtil.instance().logDebug("LDAP operation: search_page, duration: {}, dn: {}, filter: {}, scope: {}, pageToken: {}, count: {}, sortBy: {}, sortOrder: {}, attributes: {}", duration, dn, filter, scope, pageToken, count, sortBy, sortOrder, attributes);
+
+        return result;
+    }
+
+    private List<SearchResultEntry> searchPageImpl(String dn, Filter filter, SearchScope scope, String pageToken, int count, String sortBy,
+            SortOrder sortOrder, PagedResult<?> pagedResult, String... attributes) throws SearchException {
+        PagedSearchState pagedSearchState;
+        if (pageToken == null) {
+            Control[] controls = null;
+            if (StringUtils.isNotEmpty(sortBy)) {
+                // Order should be consistent across pages, hence server sorts whole result set.
+                // Control is critical to fail if server can't sort instead of returning unsorted pages
+                boolean reverseOrder = SortOrder.DESCENDING.equals(sortOrder);
+                controls = new Control[] { new ServerSideSortRequestControl(true, new SortKey(sortBy, reverseOrder)) };
+            }
+
+            pagedSearchState = new PagedSearchState(searchPaged(dn, filter, scope, count, controls, attributes));
+        } else {
+            // Token is single use to prevent concurrent access to same paged search
+            pagedSearchState = pagedSearches.remove(pageToken);
+            if (pagedSearchState == null) {
+                // Paged searches are kept in memory of node which started them
+                throw new SearchException(String.format("Page token '%s' is invalid or expired. Page tokens are valid only on node which issued them until restart", pageToken));
+            }
+        }
+
+        List<SearchResultEntry> searchResultEntries;
+        try {
+            searchResultEntries = pagedSearchState.getPagedSearch().nextPage();
+        } catch (SearchException ex) {
+            pagedSearchState.getPagedSearch().close();
+            throw ex;
+        }
+        if (searchResultEntries == null) {
+            searchResultEntries = new ArrayList<SearchResultEntry>(0);
+        }
+
+        pagedResult.setStart(pagedSearchState.getPosition());
+        pagedResult.setEntriesCount(searchResultEntries.size());
+        pagedSearchState.moveTo(pagedSearchState.getPosition() + searchResultEntries.size());
+
+        if (pagedSearchState.getPagedSearch().isDone()) {
+            pagedResult.setNextPageToken(null);
+        } else {
+            String nextPageToken = UUID.randomUUID().toString();
+            registerPagedSearch(nextPageToken, pagedSearchState);
+            pagedResult.setNextPageToken(nextPageToken);
+            startPagedSearchesSweeper();
+        }
+
+        return searchResultEntries;
+    }
+
+    private synchronized void startPagedSearchesSweeper() {
+        if (pagedSearchesSweeper != null) {
+            return;
+        }
+
+        pagedSearchesSweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ldap-paged-search-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pagedSearchesSweeper.scheduleWithFixedDelay(() -> {
+            try {
+                expirePagedSearches();
+            } catch (Throwable ex) {
+                LOG.error("Failed to expire paged searches", ex);
+            }
+        }, PAGED_SEARCH_SWEEP_INTERVAL, PAGED_SEARCH_SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void stopPagedSearchesSweeper() {
+        if (pagedSearchesSweeper != null) {
+            pagedSearchesSweeper.shutdownNow();
+            pagedSearchesSweeper = null;
+        }
+    }
+
+    private void expirePagedSearches() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, PagedSearchState> pagedSearchEntry : pagedSearches.entrySet()) {
+            PagedSearchState pagedSearchState = pagedSearchEntry.getValue();
+            if (now - pagedSearchState.getLastAccessTime() > PAGED_SEARCH_TIMEOUT) {
+                closePagedSearch(pagedSearchEntry.getKey(), pagedSearchState);
+            }
+        }
+    }
+
+    /**
+     * Each open paged search pins pool connection. Close oldest ones to keep half
+     * of pool available for other operations. Eviction and registration are done
+     * under one lock to not exceed limit with concurrent requests
+     */
+    private void registerPagedSearch(String pageToken, PagedSearchState newPagedSearchState) {
+        int maxPagedSearches = Math.max(1, getConnectionPool().getMaximumAvailableConnections() / 2);
+        List<PagedSearchState> evictedPagedSearches = new ArrayList<PagedSearchState>();
+        synchronized (pagedSearches) {
+            while (pagedSearches.size() >= maxPagedSearches) {
+                String oldestToken = null;
+                PagedSearchState oldestPagedSearchState = null;
+                for (Map.Entry<String, PagedSearchState> pagedSearchEntry : pagedSearches.entrySet()) {
+                    PagedSearchState pagedSearchState = pagedSearchEntry.getValue();
+                    if ((oldestPagedSearchState == null) || (pagedSearchState.getLastAccessTime() < oldestPagedSearchState.getLastAccessTime())) {
+                        oldestToken = pagedSearchEntry.getKey();
+                        oldestPagedSearchState = pagedSearchState;
+                    }
+                }
+
+                if (oldestToken == null) {
+                    break;
+                }
+
+                if (pagedSearches.remove(oldestToken, oldestPagedSearchState)) {
+                    LOG.debug("Closing paged search with token: {}", oldestToken);
+                    evictedPagedSearches.add(oldestPagedSearchState);
+                }
+            }
+
+            pagedSearches.put(pageToken, newPagedSearchState);
+        }
+
+        // Closing connections is slow. Do it outside of lock
+        for (PagedSearchState evictedPagedSearch : evictedPagedSearches) {
+            evictedPagedSearch.getPagedSearch().close();
+        }
+    }
+
+    private void closePagedSearch(String pageToken, PagedSearchState pagedSearchState) {
+        if (pagedSearches.remove(pageToken, pagedSearchState)) {
+            LOG.debug("Closing paged search with token: {}", pageToken);
+            pagedSearchState.getPagedSearch().close();
+        }
+    }
+
     private ASN1OctetString getSearchResultCookie(SearchResult searchResult) throws Exception {
         SimplePagedResultsControl responseControl = SimplePagedResultsControl.get(searchResult);
         return responseControl.moreResultsToReturn() ? responseControl.getCookie() : null;
@@ -656,6 +844,73 @@ public class LdapOperationServiceImpl implements LdapOperationService {
         return searchResult;
     }
 
+    @Override
+    public Integer countEntries(String dn, Filter filter, SearchScope scope) {
+        Instant startTime = OperationDurationUtil.instance().now();
+
+        LdapCountStrategy countStrategy = this.connectionProvider.getCountStrategy();
+        Integer result;
+        if (LdapCountStrategy.MATCHING_ENTRY_COUNT == countStrategy) {
+            result = countEntriesWithMatchingEntryCount(dn, filter, scope);
+        } else if (LdapCountStrategy.VIRTUAL_LIST_VIEW == countStrategy) {
+            result = countEntriesWithVirtualListView(dn, filter, scope);
+        } else {
+            result = null;
+        }
+
+        Duration duration = OperationDurationUtil.instance().duration(startTime);
+        OperationDurationUtil.instance().logDebug("LDAP operation: count, duration: {}, dn: {}, filter: {}, scope: {}, strategy: {}, result: {}", duration, dn, filter, scope, countStrategy, result);
+
+        return result;
+    }
+
+    private Integer countEntriesWithMatchingEntryCount(String dn, Filter filter, SearchScope scope) {
+        SearchRequest searchRequest = new SearchRequest(dn, scope, filter, SearchRequest.NO_ATTRIBUTES);
+
+        // Server which doesn't support control ignores it. Count is calculated with paged search in this case
+        searchRequest.setControls(new MatchingEntryCountRequestControl(false, this.connectionProvider.getCountMaxCandidates(), false, false, false));
+
+        try {
+            SearchResult searchResult = getConnectionPool().search(searchRequest);
+            MatchingEntryCountResponseControl countResponseControl = MatchingEntryCountResponseControl.get(searchResult);
+            if (countResponseControl == null) {
+                LOG.warn("Server doesn't support matching entry count control. Switching to paged search count strategy");
+                this.connectionProvider.setCountStrategy(LdapCountStrategy.PAGED_SEARCH);
+                return null;
+            }
+
+            // Other count types are estimations
+            MatchingEntryCountType countType = countResponseControl.getCountType();
+            if ((MatchingEntryCountType.EXAMINED_COUNT == countType) || (MatchingEntryCountType.UNEXAMINED_COUNT == countType)) {
+                return countResponseControl.getCountValue();
+            }
+        } catch (LDAPException ex) {
+            LOG.debug("Failed to count entries with matching entry count control", ex);
+        }
+
+        return null;
+    }
+
+    private Integer countEntriesWithVirtualListView(String dn, Filter filter, SearchScope scope) {
+        SearchRequest searchRequest = new SearchRequest(dn, scope, filter, SearchRequest.NO_ATTRIBUTES);
+
+        // Request single entry. Server returns number of entries in content count
+        searchRequest.setControls(new ServerSideSortRequestControl(new SortKey(this.connectionProvider.getCountSortAttribute())),
+                new VirtualListViewRequestControl(1, 0, 0, 0, null));
+
+        try {
+            SearchResult searchResult = getConnectionPool().search(searchRequest);
+            VirtualListViewResponseControl vlvResponseControl = VirtualListViewResponseControl.get(searchResult);
+            if ((vlvResponseControl != null) && ResultCode.SUCCESS.equals(vlvResponseControl.getResultCode())) {
+                return vlvResponseControl.getContentCount();
+            }
+        } catch (LDAPException ex) {
+            LOG.debug("Failed to count entries with virtual list view control", ex);
+        }
+
+        return null;
+    }
+
     private void setControls(SearchRequest searchRequest, Control... controls) {
         if (!ArrayHelper.isEmpty(controls)) {
             Control[] newControls;
@@ -802,6 +1057,39 @@ public class LdapOperationServiceImpl implements LdapOperationService {
         return modifyEntry(modifyRequest);
     }
 
+    @Override
+    public boolean updateEntry(String dn, List<Modification> modifications, Filter assertionFilter) throws DuplicateEntryException, ConnectionException {
+        Instant startTime = OperationDurationUtil.instance().now();
+
+        boolean result = updateEntryImpl(dn, modifications, assertionFilter);
+
+        Duration duration = OperationDurationUtil.instance().duration(startTime);
+        OperationDurationUtil.instance().logDebug("LDAP operation: modify, duration: {}, dn: {}, modifications: {}, assertion: {}", duration, dn, modifications, assertionFilter);
+
+        return result;
+    }
+
+    private boolean updateEntryImpl(String dn, List<Modification> modifications, Filter assertionFilter) throws DuplicateEntryException, ConnectionException {
+    	if (this.persistenceExtension != null) {
+    		updateUserPasswordModification(modifications);
+    	}
+
+    	ModifyRequest modifyRequest = new ModifyRequest(dn, modifications);
+    	modifyRequest.addControl(new AssertionRequestControl(assertionFilter));
+        try {
+            return modifyEntry(modifyRequest);
+        } catch (ConnectionException ex) {
+            if (ex.getCause() instanceof LDAPException) {
+                ResultCode resultCode = ((LDAPException) ex.getCause()).getResultCode();
+                if (ResultCode.ASSERTION_FAILED.equals(resultCode) || ResultCode.NO_SUCH_OBJECT.equals(resultCode)) {
+                    return false;
+                }
+            }
+
+            throw ex;
+        }
+    }
+
     /**
      * Use this method to add / replace / delete attribute from entry
      *
@@ -858,6 +1146,228 @@ public class LdapOperationServiceImpl implements LdapOperationService {
         }
     }
 
+    @Override
+    public CompletableFuture<SearchResult> searchAsync(String dn, Filter filter, SearchScope scope, int sizeLimit, Control[] controls, String... attributes) {
+        final Instant startTime = OperationDurationUtil.instance().now();
+        final CompletableFuture<SearchResult> result = new CompletableFuture<SearchResult>();
+        if (!acquireAsyncRequestPermit(result)) {
+            return result;
+        }
+
+        SearchResultCollector searchResultCollector = new SearchResultCollector() {
+
+            private static final long serialVersionUID = -3410532406345012245L;
+
+            @Override
+            public void searchResultReceived(AsyncRequestID requestID, SearchResult searchResult) {
+                Duration duration = OperationDurationUtil.instance().duration(startTime);
+                OperationDurationUtil.instance().logDebug("LDAP operation: search_async, duration: {}, dn: {}, filter: {}, scope: {}, sizeLimit: {}, controls: {}, attributes: {}", duration, dn, filter, scope, sizeLimit, controls, attributes);
+
+                if (ResultCode.SUCCESS.equals(searchResult.getResultCode()) || ResultCode.SIZE_LIMIT_EXCEEDED.equals(searchResult.getResultCode())) {
+                    result.complete(toSearchResult(searchResult));
+                } else {
+                    result.completeExceptionally(new SearchException(String.format("Failed to search entries with dn: %s, filter: %s", dn, filter),
+                            new LDAPException(searchResult), searchResult.getResultCode().intValue()));
+                }
+            }
+        };
+
+        SearchRequest searchRequest;
+        if (attributes == null) {
+            searchRequest = new SearchRequest(searchResultCollector, dn, scope, filter);
+        } else {
+            searchRequest = new SearchRequest(searchResultCollector, dn, scope, filter, attributes);
+        }
+        searchRequest.setSizeLimit(sizeLimit);
+        setControls(searchRequest, controls);
+
+        LDAPConnection connection = null;
+        try {
+            connection = getConnectionPool().getConnection();
+            connection.asyncSearch(searchRequest);
+            getConnectionPool().releaseConnection(connection);
+        } catch (LDAPException ex) {
+            releaseDefunctConnection(connection);
+            result.completeExceptionally(new SearchException(String.format("Failed to search entries with dn: %s, filter: %s", dn, filter), ex,
+                    ex.getResultCode().intValue()));
+        }
+
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<SearchResultEntry> lookupAsync(String dn, String... attributes) {
+        return searchAsync(dn, Filter.createPresenceFilter(OBJECT_CLASS), SearchScope.BASE, 1, null, attributes).handle((searchResult, ex) -> {
+            if (ex == null) {
+                return searchResult.getEntryCount() == 0 ? null : searchResult.getSearchEntries().get(0);
+            }
+
+            Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+            if ((cause instanceof SearchException) && (((SearchException) cause).getErrorCode() == ResultCode.NO_SUCH_OBJECT_INT_VALUE)) {
+                return null;
+            }
+
+            throw new ConnectionException("Failed to lookup entry", cause);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addEntryAsync(String dn, Collection<Attribute> attributes) {
+    	if (this.persistenceExtension != null) {
+    		updateUserPasswordAttribute(attributes);
+    	}
+
+        final Instant startTime = OperationDurationUtil.instance().now();
+        final CompletableFuture<Boolean> result = new CompletableFuture<Boolean>();
+        if (!acquireAsyncRequestPermit(result)) {
+            return result;
+        }
+
+        LDAPConnection connection = null;
+        try {
+            connection = getConnectionPool().getConnection();
+            connection.asyncAdd(new AddRequest(dn, attributes), new AsyncResultListener() {
+
+                private static final long serialVersionUID = 2471829473190586243L;
+
+                @Override
+                public void ldapResultReceived(AsyncRequestID requestID, LDAPResult ldapResult) {
+                    Duration duration = OperationDurationUtil.instance().duration(startTime);
+                    OperationDurationUtil.instance().logDebug("LDAP operation: add_async, duration: {}, dn: {}, attributes: {}", duration, dn, attributes);
+
+                    int errorCode = ldapResult.getResultCode().intValue();
+                    if (errorCode == ResultCode.SUCCESS_INT_VALUE) {
+                        result.complete(true);
+                    } else if (errorCode == ResultCode.ENTRY_ALREADY_EXISTS_INT_VALUE) {
+                        result.completeExceptionally(new DuplicateEntryException());
+                    } else {
+                        result.completeExceptionally(new ConnectionException("Error adding entry to directory. LDAP error number " + errorCode,
+                                new LDAPException(ldapResult)));
+                    }
+                }
+            });
+            getConnectionPool().releaseConnection(connection);
+        } catch (LDAPException ex) {
+            releaseDefunctConnection(connection);
+            result.completeExceptionally(new ConnectionException("Error adding entry to directory. LDAP error number " + ex.getResultCode().intValue(), ex));
+        }
+
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> updateEntryAsync(String dn, List<Modification> modifications) {
+    	if (this.persistenceExtension != null) {
+    		updateUserPasswordModification(modifications);
+    	}
+
+        final Instant startTime = OperationDurationUtil.instance().now();
+        final CompletableFuture<Boolean> result = new CompletableFuture<Boolean>();
+        if (!acquireAsyncRequestPermit(result)) {
+            return result;
+        }
+
+        LDAPConnection connection = null;
+        try {
+            connection = getConnectionPool().getConnection();
+            connection.asyncModify(new ModifyRequest(dn, modifications), new AsyncResultListener() {
+
+                private static final long serialVersionUID = -6017262425394683215L;
+
+                @Override
+                public void ldapResultReceived(AsyncRequestID requestID, LDAPResult ldapResult) {
+                    Duration duration = OperationDurationUtil.instance().duration(startTime);
+                    OperationDurationUtil.instance().logDebug("LDAP operation: modify_async, duration: {}, dn: {}, modifications: {}", duration, dn, modifications);
+
+                    int errorCode = ldapResult.getResultCode().intValue();
+                    if (errorCode == ResultCode.SUCCESS_INT_VALUE) {
+                        result.complete(true);
+                    } else {
+                        result.completeExceptionally(new ConnectionException("Error updating entry in directory. LDAP error number " + errorCode,
+                                new LDAPException(ldapResult)));
+                    }
+                }
+            });
+            getConnectionPool().releaseConnection(connection);
+        } catch (LDAPException ex) {
+            releaseDefunctConnection(connection);
+            result.completeExceptionally(new ConnectionException("Error updating entry in directory. LDAP error number " + ex.getResultCode().intValue(), ex));
+        }
+
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String dn) {
+        return deleteAsync(new DeleteRequest(dn), "delete_async");
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteRecursivelyAsync(String dn) {
+        final DeleteRequest deleteRequest = new DeleteRequest(dn);
+        deleteRequest.addControl(new SubtreeDeleteRequestControl());
+
+        return deleteAsync(deleteRequest, "delete_tree_async");
+    }
+
+    private CompletableFuture<Boolean> deleteAsync(DeleteRequest deleteRequest, String operationName) {
+        final Instant startTime = OperationDurationUtil.instance().now();
+        final CompletableFuture<Boolean> result = new CompletableFuture<Boolean>();
+        if (!acquireAsyncRequestPermit(result)) {
+            return result;
+        }
+        final String dn = deleteRequest.getDN();
+
+        LDAPConnection connection = null;
+        try {
+            connection = getConnectionPool().getConnection();
+            connection.asyncDelete(deleteRequest, new AsyncResultListener() {
+
+                private static final long serialVersionUID = 5826517906390218876L;
+
+                @Override
+                public void ldapResultReceived(AsyncRequestID requestID, LDAPResult ldapResult) {
+                    Duration duration = OperationDurationUtil.instance().duration(startTime);
+                    OperationDurationUtil.instance().logDebug("LDAP operation: {}, duration: {}, dn: {}", operationName, duration, dn);
+
+                    if (ResultCode.SUCCESS.equals(ldapResult.getResultCode())) {
+                        result.complete(true);
+                    } else {
+                        result.completeExceptionally(new ConnectionException("Failed to delete entry", new LDAPException(ldapResult)));
+                    }
+                }
+            });
+            getConnectionPool().releaseConnection(connection);
+        } catch (LDAPException ex) {
+            releaseDefunctConnection(connection);
+            result.completeExceptionally(new ConnectionException("Failed to delete entry", ex));
+        }
+
+        return result;
+    }
+
+    /**
+     * Limits number of outstanding asynchronous requests. Permit is released when request completes.
+     * It never waits for permit because requests can be sent from threads which complete other requests
+     */
+    private boolean acquireAsyncRequestPermit(CompletableFuture<?> result) {
+        if (!asyncRequestsWindow.tryAcquire()) {
+            result.completeExceptionally(new ConnectionException(String.format("Too many outstanding asynchronous requests. Limit: %d",
+                    connectionProvider.getMaxAsyncRequests())));
+            return false;
+        }
+
+        result.whenComplete((value, ex) -> asyncRequestsWindow.release());
+
+        return true;
+    }
+
+    private void releaseDefunctConnection(LDAPConnection connection) {
+        if (connection != null) {
+            getConnectionPool().releaseDefunctConnection(connection);
+        }
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -936,6 +1446,11 @@ public class LdapOperationServiceImpl implements LdapOperationService {
     public boolean destroy() {
         boolean result = true;
 
+        stopPagedSearchesSweeper();
+        for (Map.Entry<String, PagedSearchState> pagedSearchEntry : pagedSearches.entrySet()) {
+            closePagedSearch(pagedSearchEntry.getKey(), pagedSearchEntry.getValue());
+        }
+
         if (connectionProvider != null) {
             try {
                 connectionProvider.closeConnectionPool();
@@ -1228,6 +1743,64 @@ public class LdapOperationServiceImpl implements LdapOperationService {
 		this.persistenceExtension = persistenceExtension;
 	}
 
+    /**
+     * Collects entries of asynchronous search
+     */
+    private abstract static class SearchResultCollector implements AsyncSearchResultListener {
+
+        private static final long serialVersionUID = 6942839316403539731L;
+
+        private final List<SearchResultEntry> searchEntries = new ArrayList<SearchResultEntry>();
+        private final List<SearchResultReference> searchReferences = new ArrayList<SearchResultReference>();
+
+        @Override
+        public void searchEntryReturned(SearchResultEntry searchEntry) {
+            searchEntries.add(searchEntry);
+        }
+
+        @Override
+        public void searchReferenceReturned(SearchResultReference searchReference) {
+            searchReferences.add(searchReference);
+        }
+
+        protected SearchResult toSearchResult(SearchResult searchResult) {
+            return new SearchResult(searchResult.getMessageID(), searchResult.getResultCode(), searchResult.getDiagnosticMessage(),
+                    searchResult.getMatchedDN(), searchResult.getReferralURLs(), searchEntries, searchReferences,
+                    searchEntries.size(), searchReferences.size(), searchResult.getResponseControls());
+        }
+
+    }
+
+    private static final class PagedSearchState {
+
+        private final LdapSimplePagedSearch pagedSearch;
+        private int position;
+        private long lastAccessTime;
+
+        PagedSearchState(LdapSimplePagedSearch pagedSearch) {
+            this.pagedSearch = pagedSearch;
+            this.lastAccessTime = System.currentTimeMillis();
+        }
+
+        public LdapSimplePagedSearch getPagedSearch() {
+            return pagedSearch;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public long getLastAccessTime() {
+            return lastAccessTime;
+        }
+
+        public void moveTo(int position) {
+            this.position = position;
+            this.lastAccessTime = System.currentTimeMillis();
+        }
+
+    }
+
     private class SimplePagedResponse {
 
 		private ASN1OctetString cookie;
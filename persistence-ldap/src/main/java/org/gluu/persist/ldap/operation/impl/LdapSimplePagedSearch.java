@@ -0,0 +1,125 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.ldap.operation.impl;
+
+import java.util.List;
+
+import org.gluu.persist.exception.operation.SearchException;
+import org.gluu.util.ArrayHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.sdk.Control;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPConnectionPool;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.SearchRequest;
+import com.unboundid.ldap.sdk.SearchResult;
+import com.unboundid.ldap.sdk.SearchResultEntry;
+import com.unboundid.ldap.sdk.controls.SimplePagedResultsControl;
+
+/**
+ * Simple paged results search which loads pages on demand. Connection is pinned
+ * till last page is loaded or search is closed, because paged results cookie
+ * is bound to connection
+ */
+public class LdapSimplePagedSearch implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LdapSimplePagedSearch.class);
+
+    private final LDAPConnectionPool connectionPool;
+    private final SearchRequest searchRequest;
+    private final int pageSize;
+    private final Control[] controls;
+
+    private LDAPConnection connection;
+    private ASN1OctetString cookie;
+    private boolean done;
+
+    LdapSimplePagedSearch(LDAPConnectionPool connectionPool, SearchRequest searchRequest, int pageSize, Control[] controls) {
+        this.connectionPool = connectionPool;
+        this.searchRequest = searchRequest;
+        this.pageSize = pageSize;
+        this.controls = controls;
+    }
+
+    /**
+     * Returns next page of entries or null if there are no more entries
+     */
+    public List<SearchResultEntry> nextPage() throws SearchException {
+        if (done) {
+            return null;
+        }
+
+        SearchResult searchResult;
+        try {
+            if (connection == null) {
+                connection = connectionPool.getConnection();
+            }
+
+            Control[] requestControls = new Control[] { new SimplePagedResultsControl(pageSize, cookie) };
+            if (!ArrayHelper.isEmpty(controls)) {
+                requestControls = ArrayHelper.arrayMerge(requestControls, controls);
+            }
+            searchRequest.setControls(requestControls);
+
+            searchResult = connection.search(searchRequest);
+
+            cookie = null;
+            SimplePagedResultsControl c = SimplePagedResultsControl.get(searchResult);
+            if (c != null) {
+                cookie = c.getCookie();
+            }
+        } catch (LDAPException ex) {
+            // Connection state is unknown after failure, don't return it back to pool
+            releaseDefunct();
+            throw new SearchException("Failed to load next page", ex, ex.getResultCode().intValue());
+        }
+
+        if ((cookie == null) || (cookie.getValueLength() == 0)) {
+            close();
+        }
+
+        return searchResult.getSearchEntries();
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public void close() {
+        done = true;
+        if (connection != null) {
+            try {
+                if ((cookie != null) && (cookie.getValueLength() > 0)) {
+                    // Abandon server side paged search
+                    searchRequest.setControls(new Control[] { new SimplePagedResultsControl(0, cookie) });
+                    connection.search(searchRequest);
+                }
+                connectionPool.releaseConnection(connection);
+            } catch (LDAPException ex) {
+                LOG.debug("Failed to abandon paged search", ex);
+                connectionPool.releaseDefunctConnection(connection);
+            } finally {
+                connection = null;
+                cookie = null;
+            }
+        }
+    }
+
+    private void releaseDefunct() {
+        done = true;
+        if (connection != null) {
+            connectionPool.releaseDefunctConnection(connection);
+            connection = null;
+            cookie = null;
+        }
+    }
+
+}
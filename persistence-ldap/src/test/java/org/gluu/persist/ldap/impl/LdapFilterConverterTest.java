@@ -0,0 +1,43 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.ldap.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import org.gluu.persist.exception.operation.SearchException;
+import org.gluu.search.filter.Filter;
+import org.gluu.search.filter.FilterType;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link LdapFilterConverter}
+ */
+public class LdapFilterConverterTest {
+
+	@Test
+	public void parsedFilterIsCached() throws SearchException {
+		LdapFilterConverter converter = new LdapFilterConverter();
+
+		assertSame(converter.parseLdapFilter("(uid=test)"), converter.parseLdapFilter("(uid=test)"));
+	}
+
+	@Test
+	public void rawFilterIsConverted() throws SearchException {
+		Filter filter = new LdapFilterConverter().convertRawLdapFilterToFilter("(uid=test)");
+
+		assertEquals(filter.getType(), FilterType.EQUALITY);
+		assertEquals(filter.getAttributeName(), "uid");
+		assertEquals(filter.getAssertionValue(), "test");
+	}
+
+	@Test(expectedExceptions = SearchException.class)
+	public void invalidRawFilterIsRejected() throws SearchException {
+		new LdapFilterConverter().parseLdapFilter("uid=test");
+	}
+
+}
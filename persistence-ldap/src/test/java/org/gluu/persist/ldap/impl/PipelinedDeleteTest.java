@@ -0,0 +1,164 @@
+/*
+ * oxCore is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2020, Gluu
+ */
+
+package org.gluu.persist.ldap.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+
+/**
+ * Unit tests for {@link PipelinedDelete}
+ */
+public class PipelinedDeleteTest {
+
+	@Test
+	public void windowLimitsRequestsInProgress() {
+		PendingDeletes deletes = new PendingDeletes();
+		PipelinedDelete pipelinedDelete = new PipelinedDelete(2, PipelinedDelete.toDeadline(50), deletes::delete);
+
+		assertTrue(pipelinedDelete.submit("dn1"));
+		assertTrue(pipelinedDelete.submit("dn2"));
+		assertFalse(pipelinedDelete.submit("dn3"));
+
+		assertEquals(deletes.dns, Arrays.asList("dn1", "dn2"));
+		assertEquals(pipelinedDelete.getSubmitted(), 2);
+	}
+
+	@Test
+	public void completedRequestReleasesWindow() {
+		PendingDeletes deletes = new PendingDeletes();
+		PipelinedDelete pipelinedDelete = new PipelinedDelete(1, 0, deletes::delete);
+
+		assertTrue(pipelinedDelete.submit("dn1"));
+		deletes.complete(0);
+		assertTrue(pipelinedDelete.submit("dn2"));
+		deletes.complete(1);
+		pipelinedDelete.await();
+
+		assertEquals(pipelinedDelete.getRemoved(), 2);
+		assertEquals(pipelinedDelete.getFailed(), 0);
+	}
+
+	@Test
+	public void awaitWaitsForAllResponses() throws InterruptedException {
+		PendingDeletes deletes = new PendingDeletes();
+		PipelinedDelete pipelinedDelete = new PipelinedDelete(4, 0, deletes::delete);
+		for (int i = 0; i < 3; i++) {
+			pipelinedDelete.submit("dn" + i);
+		}
+
+		Thread responses = new Thread(() -> {
+			sleep(20);
+			for (int i = 0; i < 3; i++) {
+				deletes.complete(i);
+			}
+		});
+		responses.start();
+
+		pipelinedDelete.await();
+		assertEquals(pipelinedDelete.getRemoved(), 3);
+		responses.join();
+	}
+
+	@Test
+	public void expiredDeadlineStopsSubmission() {
+		PendingDeletes deletes = new PendingDeletes();
+		PipelinedDelete pipelinedDelete = new PipelinedDelete(4, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(1), deletes::delete);
+
+		assertFalse(pipelinedDelete.submit("dn1"));
+		assertTrue(deletes.dns.isEmpty());
+		assertEquals(pipelinedDelete.getSubmitted(), 0);
+	}
+
+	@Test
+	public void failuresAreCounted() {
+		PipelinedDelete pipelinedDelete = new PipelinedDelete(2, 0, dn -> {
+			if ("dn1".equals(dn)) {
+				throw new IllegalStateException("Failed to send request");
+			}
+
+			CompletableFuture<Void> result = new CompletableFuture<Void>();
+			result.completeExceptionally(new IllegalStateException("Failed to remove entry"));
+			return result;
+		});
+
+		assertTrue(pipelinedDelete.submit("dn1"));
+		assertTrue(pipelinedDelete.submit("dn2"));
+		assertTrue(pipelinedDelete.submit("dn3"));
+		pipelinedDelete.await();
+
+		assertEquals(pipelinedDelete.getRemoved(), 0);
+		assertEquals(pipelinedDelete.getFailed(), 3);
+	}
+
+	@Test
+	public void nonLeafEntriesArePassedToHandler() {
+		List<String> nonLeafDns = new ArrayList<String>();
+		PipelinedDelete pipelinedDelete = new PipelinedDelete(2, 0, dn -> {
+			CompletableFuture<Void> result = new CompletableFuture<Void>();
+			result.completeExceptionally(new LDAPException(ResultCode.NOT_ALLOWED_ON_NONLEAF));
+			return result;
+		});
+		pipelinedDelete.setNonLeafHandler(nonLeafDns::add);
+
+		pipelinedDelete.submit("ou=people,o=gluu");
+		pipelinedDelete.await();
+
+		assertEquals(nonLeafDns, Arrays.asList("ou=people,o=gluu"));
+		assertEquals(pipelinedDelete.getFailed(), 0);
+	}
+
+	@Test
+	public void zeroTimeBudgetMeansNoDeadline() {
+		assertEquals(PipelinedDelete.toDeadline(0), 0);
+		assertFalse(PipelinedDelete.isExpired(0));
+		assertTrue(PipelinedDelete.isExpired(System.nanoTime() - 1));
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Delete operation which completes requests on demand
+	 */
+	private static final class PendingDeletes {
+
+		private final List<String> dns = new CopyOnWriteArrayList<String>();
+		private final List<CompletableFuture<Void>> results = new CopyOnWriteArrayList<CompletableFuture<Void>>();
+
+		CompletableFuture<Void> delete(String dn) {
+			CompletableFuture<Void> result = new CompletableFuture<Void>();
+			dns.add(dn);
+			results.add(result);
+
+			return result;
+		}
+
+		void complete(int index) {
+			results.get(index).complete(null);
+		}
+
+	}
+
+}